@@ -9,47 +9,89 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.application.BroadcastTree.MessageKey;
+import fr.uge.enskred.application.InfoUsers.JoinCursor;
 import fr.uge.enskred.paquet.Broadcast;
+import fr.uge.enskred.paquet.BroadcastDigest;
 import fr.uge.enskred.paquet.ChallengeLongResponse;
 import fr.uge.enskred.paquet.ChallengeOk;
 import fr.uge.enskred.paquet.ChallengePublicKey;
+import fr.uge.enskred.paquet.CircuitCell;
+import fr.uge.enskred.paquet.CircuitCreate;
+import fr.uge.enskred.paquet.CompactFrame;
+import fr.uge.enskred.paquet.Connexion;
 import fr.uge.enskred.paquet.EncodedRSABuffers;
 import fr.uge.enskred.paquet.Instruction;
+import fr.uge.enskred.paquet.JoinChunk;
 import fr.uge.enskred.paquet.JoinResponse;
+import fr.uge.enskred.paquet.KeyRequest;
+import fr.uge.enskred.paquet.KeyResponse;
 import fr.uge.enskred.paquet.LeaveNetworkConfirm;
 import fr.uge.enskred.paquet.LeaveNetworkDone;
 import fr.uge.enskred.paquet.LeaveNetworkResponse;
+import fr.uge.enskred.paquet.LinkFrame;
+import fr.uge.enskred.paquet.LinkKeyExchange;
+import fr.uge.enskred.paquet.LinkProbe;
+import fr.uge.enskred.paquet.LinkWeight;
 import fr.uge.enskred.paquet.ListConnected;
 import fr.uge.enskred.paquet.Message;
 import fr.uge.enskred.paquet.MessagePublic;
+import fr.uge.enskred.paquet.MessageShard;
 import fr.uge.enskred.paquet.MessageToSecure;
 import fr.uge.enskred.paquet.NewConnection;
 import fr.uge.enskred.paquet.NewNode;
 import fr.uge.enskred.paquet.Node;
+import fr.uge.enskred.paquet.NodeLoad;
 import fr.uge.enskred.paquet.Paquet;
 import fr.uge.enskred.paquet.PassForward;
 import fr.uge.enskred.paquet.Payload;
 import fr.uge.enskred.paquet.PreJoin;
 import fr.uge.enskred.paquet.RemoveNode;
+import fr.uge.enskred.paquet.TopologyBatch;
 import fr.uge.enskred.paquet.ResponseChallenge;
 import fr.uge.enskred.paquet.SecondJoin;
 import fr.uge.enskred.paquet.SecureMessage;
+import fr.uge.enskred.paquet.SyncDigest;
+import fr.uge.enskred.paquet.SyncState;
+import fr.uge.enskred.readers.CircuitCipher;
+import fr.uge.enskred.readers.FrameDecoder;
+import fr.uge.enskred.readers.KeyCompactor;
+import fr.uge.enskred.readers.LinkCipher;
 import fr.uge.enskred.readers.PrimaryInstructionReader;
 import fr.uge.enskred.readers.PrimaryPayloadReader;
 import fr.uge.enskred.readers.PrimaryReader;
+import fr.uge.enskred.readers.Reader.ProcessStatus;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.KeyPairRSA;
 import fr.uge.enskred.readers.UGEncrypt.PrivateKeyRSA;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.ErasureCode;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -65,15 +107,30 @@ public final class Application {
 		private final ContextMode mode;
 		private ContextProgessStatus progressStatus;
 		//Commnu
+		private final SelectorWorker worker;
 		private final SelectionKey key;
 		private final SocketChannel socketChannel;
-		private final ByteBuffer bufferIn;
-		private final ByteBuffer bufferOut;
+		private final ByteBuffer bufferIn;	//buffer direct de la BufferPool, rendu à la fermeture
+		private boolean buffersReleased = false;
+		//paquets sérialisés en mode lecture, envoyés tels quels par écritures groupées (sans recopie)
 		private final ArrayDeque<ByteBuffer> queue;
+		private final ByteBuffer[] gatheringBuffers;
+		//paquets dont le chiffrement est en cours sur le pool crypto (ordre d'envoi conservé)
+		private final ArrayDeque<CompletableFuture<ByteBuffer>> pendingOut;
+		private int pendingCryptoJobs = 0;
+		//cellules arrivées pendant le déchiffrement d'une création de circuit, traitées après elle : la lecture étant
+		//suspendue jusque-là, seules les trames rejouées après une KEY_RESPONSE (au plus MAX_HELD_BACK) peuvent s'y ajouter
+		private int pendingCircuitCreates = 0;
+		private final ArrayDeque<CircuitCell> heldCells = new ArrayDeque<>();
 		private final Application server;
 		private boolean closed = false;
 		
+		//décodage à plat des trames de bufferIn; primaryReader ne sert qu'aux trames plus grandes que bufferIn
+		private final FrameDecoder frameDecoder;
 		private final PrimaryReader primaryReader;
+		private boolean streamingFrame = false;
+		//format v2: trame annoncée plus grande que bufferIn, reconstituée ici avant décodage
+		private ByteBuffer largeFrame;
 		private final PrimaryPayloadReader primaryPayloadReader;
 		private final PrimaryInstructionReader primaryInstructionReader;
 		//Propre au client interne (Client) ==>
@@ -84,6 +141,26 @@ public final class Application {
 		private final long longChallengeRSA;
 		private PublicKeyRSA publicKeyExtern;
 		private SocketAddress addressExtern;
+		//lien chiffré (clé de session négociée après le challenge)
+		private LinkCipher linkCipher;
+		private boolean linkFramesReceived = false;
+		//clés compactées: trames en attente des clés demandées au voisin (ordre de réception conservé)
+		private final ArrayDeque<Paquet> heldBack;
+		private int pendingKeyRequests = 0;
+		//nombre de KEY_REQUEST envoyées et de KEY_RESPONSE reçues, pour le délai de réponse
+		private long keyRequestsSent = 0;
+		private long keyResponsesReceived = 0;
+		//clés déjà envoyées par empreinte sur ce lien (par empreinte) : gardées tant que le lien vit,
+		//pour répondre aux KEY_REQUEST même si le cache d'internement les a oubliées
+		private final HashMap<ByteBuffer, PublicKeyRSA> pinnedKeys = new HashMap<>();
+		//envoi de l'état du réseau au nouveau venu, une partie à la fois (null si aucun envoi en cours)
+		private JoinCursor joinCursor;
+		//temps d'aller-retour du lien, lissé (-1 avant la première mesure), et dernière valeur annoncée au réseau
+		private long rttNanos = -1;
+		private long reportedRttNanos = -1;
+		private long reportedAt;
+		//trames en attente d'envoi (file + chiffrements en cours), lue par le calcul de charge
+		private volatile int backlog;
 
 		/**
 		 * ContextMode possède 2 modes:
@@ -94,17 +171,19 @@ public final class Application {
 		 * ---
 		 * @param mode
 		 * @param server
+		 * @param worker: le worker (selector + thread) auquel ce context est épinglé
 		 * @param key
 		 * @param commandQueue
 		 * @param publicKey
 		 * @param privateKey
 		 */
-		public Context(ContextMode mode, Application server, SelectionKey key, 
+		public Context(ContextMode mode, Application server, SelectorWorker worker, SelectionKey key, 
 				CommandQueue commandQueue, PublicKeyRSA publicKey, PrivateKeyRSA privateKey,
 				boolean isFirstConnexion) {
 			this.mode = Objects.requireNonNull(mode);
 			this.progressStatus = mode == ContextMode.EXTERN_CLIENT ? ContextProgessStatus.UNVERIFIED_PRE_JOIN : ContextProgessStatus.UNCONCERNED;
 			this.server = server;
+			this.worker = Objects.requireNonNull(worker);
 			this.key = key;
 			this.socketChannel = (SocketChannel) key.channel();
 			this.commandQueue = commandQueue;
@@ -112,80 +191,184 @@ public final class Application {
 			this.privateKeyIntern = privateKey;
 			this.isFirstConnexion = isFirstConnexion;
 			this.longChallengeRSA = Utils.generateRandomLong();
-			this.bufferIn = ByteBuffer.allocate(BUFFER_SIZE);
-			this.bufferOut = ByteBuffer.allocate(BUFFER_SIZE);
+			this.bufferIn = BufferPool.acquire(BUFFER_SIZE);
 			this.queue = new ArrayDeque<>();
+			this.gatheringBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+			this.pendingOut = new ArrayDeque<>();
+			this.frameDecoder = new FrameDecoder(LEVEL);
 			this.primaryReader = new PrimaryReader(LEVEL);
 			this.primaryPayloadReader = new PrimaryPayloadReader(LEVEL);
 			this.primaryInstructionReader = new PrimaryInstructionReader(LEVEL);
+			this.heldBack = new ArrayDeque<>();
 			logger.setLevel(LEVEL);
 		}
 
 		//ProcessIn
 
 		/**
-		 * Add a message to the message queue, tries to fill bufferOut and updateInterestOps
+		 * Add a message to the message queue and updateInterestOps
+		 * 
+		 * Peut être appelé depuis n'importe quel thread : si l'on n'est pas sur le thread du worker
+		 * propriétaire, l'ajout lui est transmis via sa file de tâches.
 		 *
 		 * @param msg
 		 */
 		public void queuePaquet(Paquet msg) {
-			var tmp = queue.add(msg.getWriteModeBuffer().flip());
-			logger.info("queue added: " + tmp);
-			processOut();
+			if(!worker.isWorkerThread()) {
+				worker.execute(() -> queuePaquet(msg));
+				return;
+			}
+			if(msg instanceof SecureMessage secureMessage && secureMessage.encryptedBuffer() == null) {
+				//chiffrement des couches de l'oignon sur le pool crypto, pas sur le thread du worker
+				pendingCryptoJobs++;
+				var job = CompletableFuture.supplyAsync(() -> secureMessage.getWriteModeBuffer().flip(), server.cryptoPool);
+				pendingOut.add(job);
+				job.whenComplete((_, _) -> worker.execute(this::onEncrypted));
+				updateInterestOps();
+				return;
+			}
+			queueFrame(msg.getWriteModeBuffer().flip());
+		}
+
+		/**
+		 * Ajoute une trame déjà sérialisée à la file d'envoi, derrière les paquets en cours de chiffrement.
+		 * ---
+		 * @param frame : Trame en mode lecture ; le context en devient propriétaire (elle peut être une partie
+		 * d'un buffer plus grand de la {@link BufferPool}, qui sera rendu une fois la trame envoyée,
+		 * ou une vue en lecture seule partagée entre voisins, que la BufferPool ignore).
+		 */
+		public void queueFrame(ByteBuffer frame) {
+			if(!worker.isWorkerThread()) {
+				worker.execute(() -> queueFrame(frame));
+				return;
+			}
+			if(pendingOut.isEmpty()) {
+				enqueue(frame);
+			} else {
+				pendingOut.add(CompletableFuture.completedFuture(frame));
+			}
 			updateInterestOps();
 		}
 
 		/**
-		 * Try to fill bufferOut from the message queue
+		 * Ajoute un paquet sérialisé (mode lecture) à la file d'envoi, chiffré avec la clé de lien si elle est établie.
+		 * Une fois le voisin authentifié, les clés publiques déjà connues sont remplacées par leur empreinte.
+		 * Les buffers intermédiaires (trame en clair, corps compacté) sont rendus à la {@link BufferPool}.
 		 */
-		private void processOut() {
-			while(!queue.isEmpty() && bufferOut.hasRemaining()) {
-				var bufferMessage = queue.getFirst();
-				//cas ou l'on aurait beaucoup de place dans bufferOut
-				if(bufferOut.remaining() >= bufferMessage.remaining()) {
-					bufferOut.put(bufferMessage);
-					queue.pollFirst();
-				} else {
-					var oldLimit = bufferMessage.limit();
-					bufferMessage.limit(bufferMessage.position() + bufferOut.remaining());
-					bufferOut.put(bufferMessage);
-					bufferMessage.limit(oldLimit);
+		private void enqueue(ByteBuffer readModeBuffer) {
+			var buffer = readModeBuffer;
+			if(COMPACT_KEYS && canCompactKeys() && buffer.get(buffer.position()) != OpCode.KEY_RESPONSE.getCode()) {
+				var body = KeyCompactor.compact(buffer, this::pinKey);
+				if(body != null && body.position() < buffer.remaining()) {
+					var compacted = new CompactFrame(body.flip()).getWriteModeBuffer().flip();
+					BufferPool.release(buffer);
+					buffer = compacted;
 				}
+				BufferPool.release(body);
 			}
+			if(linkCipher != null && linkCipher.isEstablished()) {
+				var encrypted = linkCipher.encryptToLinkFrame(buffer);
+				BufferPool.release(buffer);
+				buffer = encrypted.flip();
+			}
+			if(FRAMING_V2) {
+				queue.add(FrameDecoder.framedHeader(buffer));
+			}
+			var tmp = queue.add(buffer);
+			logger.info("queue added: " + tmp);
+		}
+
+		/**
+		 * Fin d'un chiffrement sur le pool crypto (thread du worker) : on transfère dans la file d'envoi
+		 * tous les paquets prêts, dans leur ordre d'origine.
+		 */
+		private void onEncrypted() {
+			pendingCryptoJobs--;
+			if(!key.isValid()) { return; }
+			if(pendingCryptoJobs == MAX_PENDING_CRYPTO_JOBS - 1) { worker.execute(this::resumeProcessIn); }
+			while(!pendingOut.isEmpty() && pendingOut.getFirst().isDone()) {
+				var job = pendingOut.pollFirst();
+				try {
+					enqueue(job.join());
+				} catch (CompletionException ce) {
+					logger.warning("Chiffrement du message caché impossible : " + ce.getCause());
+				}
+			}
+			updateInterestOps();
 		}
 
 		/**
 		 * Update the interestOps of the key looking only at values of the boolean
 		 * closed and of both ByteBuffers.
 		 *
-		 * The convention is that both buffers are in write-mode before the call to
-		 * updateInterestOps and after the call. Also it is assumed that process has
-		 * been be called just before updateInterestOps.
+		 * The convention is that bufferIn is in write-mode before the call to
+		 * updateInterestOps and after the call. We want to write as long as the
+		 * queue of outgoing buffers is not empty.
 		 */
+		/**
+		 * Lecture suspendue tant que trop de jobs crypto de ce context sont en cours, ou qu'une création de circuit
+		 * est en déchiffrement : les cellules qui la suivent restent dans la socket au lieu de s'accumuler en mémoire.
+		 */
+		private boolean readPaused() {
+			return pendingCryptoJobs >= MAX_PENDING_CRYPTO_JOBS || pendingCircuitCreates > 0;
+		}
+
 		private void updateInterestOps() {
+			backlog = queue.size() + pendingOut.size();
 			var newInterest = 0;
-			if(!closed && bufferIn.hasRemaining()) {
+			//backpressure: on arrête de lire tant que trop de jobs crypto de ce context sont en cours
+			if(!closed && bufferIn.hasRemaining() && !readPaused()) {
 				newInterest |= SelectionKey.OP_READ;
 			}
-			if(bufferOut.position() > 0) {
+			if(!queue.isEmpty()) {
 				newInterest |= SelectionKey.OP_WRITE;
 			}
+			if(newInterest == 0 && pendingCryptoJobs > 0 && key.isValid()) {
+				key.interestOps(0); //en attente du pool crypto
+				return;
+			}
 			if(newInterest == 0 || !key.isValid()) {
 				logger.info("Error, interestOps is 0 !");
 				silentlyClose();
-				server.deletionAfterBrutaleDeconnexion(this);
+				server.stateLock.lock();
+				try {
+					server.deletionAfterBrutaleDeconnexion(this);
+				} finally {
+					server.stateLock.unlock();
+				}
 				return;
 			}
 			key.interestOps(newInterest);
 		}
 
 		private void silentlyClose() {
+			server.contexts.remove(this);
+			server.broadcastTree.forget(this);
+			server.circuits.forget(this);
 			try {
 				key.cancel();
 				socketChannel.close();
 			} catch (IOException e) {
 				// ignore exception
 			}
+			//les buffers ne sont rendus que depuis le thread du worker, qui est le seul à s'en servir
+			worker.execute(this::releaseBuffers);
+		}
+
+		/**
+		 * Rend à la {@link BufferPool} le buffer de lecture et les paquets qui n'ont pas pu être envoyés.
+		 */
+		private void releaseBuffers() {
+			if(buffersReleased) { return; }
+			buffersReleased = true;
+			BufferPool.release(bufferIn);
+			BufferPool.release(largeFrame);
+			queue.forEach(BufferPool::release);
+			queue.clear();
+			for(var paquet : heldBack) {
+				if(paquet instanceof CompactFrame compactFrame) { BufferPool.release(compactFrame.compactBuffer()); }
+			}
+			heldBack.clear();
 		}
 
 
@@ -209,19 +392,48 @@ public final class Application {
 		/**
 		 * Performs the write action on sc
 		 *
-		 * The convention is that both buffers are in write-mode before the call to
-		 * doWrite and after the call
+		 * Les premiers buffers de la file sont envoyés en une seule écriture groupée
+		 * ({@code write(ByteBuffer[])}) ; ceux envoyés en entier sont retirés de la file,
+		 * un buffer partiellement envoyé y reste avec sa position avancée.
 		 *
 		 * @throws IOException
 		 */
-
 		private void doWrite() throws IOException {
-			socketChannel.write(bufferOut.flip());
-			bufferOut.compact();
-			processOut();
+			var count = 0;
+			for(var buffer : queue) {
+				if(count == gatheringBuffers.length) { break; }
+				gatheringBuffers[count++] = buffer;
+			}
+			try {
+				socketChannel.write(gatheringBuffers, 0, count);
+			} finally {
+				Arrays.fill(gatheringBuffers, 0, count, null);
+			}
+			while(!queue.isEmpty() && !queue.getFirst().hasRemaining()) {
+				BufferPool.release(queue.pollFirst());
+			}
+			if(joinCursor != null && queue.isEmpty() && pendingOut.isEmpty()) {
+				queueNextJoinChunk();
+			}
 			updateInterestOps();
 		}
 
+		/**
+		 * Commence l'envoi de l'état du réseau au nouveau venu : seule la première partie est sérialisée ici,
+		 * chaque suivante l'est quand la file d'envoi s'est vidée (un seul morceau en mémoire à la fois).
+		 */
+		private void startJoinStream(JoinCursor cursor) {
+			joinCursor = Objects.requireNonNull(cursor);
+			queueNextJoinChunk();
+		}
+
+		private void queueNextJoinChunk() {
+			var chunk = server.infoUsers.nextJoinChunk(joinCursor, JOIN_CHUNK_SIZE);
+			//la JoinResponse finale part encore sans compaction : le curseur n'est oublié qu'après
+			queuePaquet(chunk);
+			if(joinCursor.isDone()) { joinCursor = null; }
+		}
+
 
 		//MÉTHODE PROPRE AU CLIENT INTERNE (CLIENT) =>
 		public void connectFirstJoin(PublicKeyRSA publicKey, InetSocketAddress socketAddress) {
@@ -266,6 +478,46 @@ public final class Application {
 			}
 			logger.info("Good !");
 			progressStatus = isFirstConnexion ? ContextProgessStatus.VERIFIED_1 : ContextProgessStatus.VERIFIED_2;
+			//côté serveur: le client doit maintenant ouvrir la négociation de la clé de lien
+			if(LINK_ENCRYPTION) { armLinkKeyTimeout(); }
+		}
+
+		/**
+		 * Démarre la négociation de la clé de lien avec le voisin (une fois le challenge validé).
+		 * C'est le client qui l'initie à la réception du JoinResponse / ChallengeOk, le serveur répond.
+		 * On envoie notre clé X25519 éphémère signée avec notre clé RSA et liée à la clé RSA du voisin.
+		 * Les paquets restent en clair jusqu'à ce que la clé du voisin soit reçue et vérifiée.
+		 * <p>
+		 * Notre clé part directement dans la file d'envoi, en clair et sans compaction, devant les paquets dont le chiffrement
+		 * est en cours : côté serveur le lien est établi juste après, et un paquet qui attendrait derrière un chiffrement
+		 * partirait chiffré alors que le client n'a pas encore de quoi le déchiffrer (il déconnecterait).
+		 * Tout ce qui est mis en file ensuite part derrière elle, chiffré.
+		 * </p>
+		 */
+		public void startLinkKeyExchange() {
+			if(linkCipher != null || publicKeyExtern == null) { return; }
+			linkCipher = LinkCipher.create();
+			var frame = new LinkKeyExchange(linkCipher.ephemeralPublicKey(), linkCipher.sign(privateKeyIntern, publicKeyExtern))
+					.getWriteModeBuffer().flip();
+			if(FRAMING_V2) {
+				queue.add(FrameDecoder.framedHeader(frame));
+			}
+			queue.add(frame);
+			armLinkKeyTimeout();
+			updateInterestOps();
+		}
+
+		/**
+		 * Le chiffrement du lien est opportuniste : sans délai, une LinkKeyExchange perdue laisserait le lien en clair
+		 * pour toute sa durée. Un lien authentifié dont la clé n'est pas établie après LINK_KEY_TIMEOUT_SECONDS est fermé.
+		 */
+		private void armLinkKeyTimeout() {
+			server.scheduler.schedule(() -> worker.execute(() -> {
+				if(!key.isValid() || closed || (linkCipher != null && linkCipher.isEstablished())) { return; }
+				logger.warning("Clé de lien non établie avec " + publicKeyExtern + ", on déconnecte");
+				closed = true;
+				updateInterestOps();
+			}), LINK_KEY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 		}
 
 		private Payload analysePayload(ByteBuffer buffer) {
@@ -301,37 +553,243 @@ public final class Application {
 		 *
 		 * The convention is that bufferIn is in write-mode before the call to process and
 		 * after the call
+		 *
+		 * Les trames sont décodées à plat ({@link FrameDecoder}) : bufferIn est retourné une fois,
+		 * toutes les trames complètes sont décodées en avançant un curseur, puis il est compacté une seule fois.
+		 * Une trame plus grande que bufferIn est lue par {@code primaryReader}, champ par champ, sur plusieurs lectures ;
+		 * au format v2 (FRAMING_V2), sa taille est annoncée : elle est simplement reconstituée dans largeFrame.
+		 *
+		 * Tous les paquets complets présents dans bufferIn sont traités, dans la limite de
+		 * MAX_PAQUETS_PER_READ par appel pour ne pas affamer les autres contexts du worker :
+		 * s'il en reste, la suite est reprogrammée sur le worker au lieu d'attendre un nouvel
+		 * événement de lecture (qui peut ne jamais venir si le voisin se tait).
 		 * @throws IOException 
 		 *
 		 */
 		private void processIn() throws IOException {
-		    switch(primaryReader.process(bufferIn)) {
-		        case REFILL -> {} // rien à faire
-		        case ERROR 	-> logger.info("Error with ProcessIn 1°");
-		        case DONE	-> handlePaquet(primaryReader.get());
-		    }
+			var handled = 0;
+			while(!closed && !readPaused()) {
+				if(handled == MAX_PAQUETS_PER_READ) {
+					worker.execute(this::resumeProcessIn);
+					return;
+				}
+				if(largeFrame != null) {
+					if(!fillLargeFrame()) { return; }
+					handled++;
+				} else if(!FRAMING_V2 && (streamingFrame || !FLAT_DECODING)) {
+					switch(primaryReader.process(bufferIn)) {
+						case REFILL -> { return; } // trame incomplète: on attend la suite
+						case ERROR 	-> {
+							logger.info("Error with ProcessIn 1°");
+							closed = true;
+							return;
+						}
+						case DONE	-> {
+							var paquet = primaryReader.get();
+							primaryReader.reset();
+							streamingFrame = false;
+							handled++;
+							acceptPaquet(paquet);
+						}
+					}
+				} else {
+					bufferIn.flip();
+					try {
+						handled = decodeFrames(handled);
+					} finally {
+						bufferIn.compact();
+					}
+					if(!streamingFrame && largeFrame == null) { 
+						if(handled == MAX_PAQUETS_PER_READ) { worker.execute(this::resumeProcessIn); }
+						return;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Décode et traite les trames complètes de bufferIn (en mode lecture), sans le compacter.
+		 * Si la trame suivante ne peut pas tenir dans bufferIn, on passe en lecture incrémentale.
+		 * ---
+		 * @return Le nombre de paquets traités depuis le début de l'événement.
+		 */
+		private int decodeFrames(int handled) throws IOException {
+			while(handled < MAX_PAQUETS_PER_READ && !closed && !readPaused()) {
+				switch(FRAMING_V2 ? frameDecoder.decodeFramed(bufferIn) : frameDecoder.decode(bufferIn)) {
+					case REFILL -> {
+						if(FRAMING_V2) {
+							startLargeFrame(FrameDecoder.framedSize(bufferIn));
+						} else {
+							streamingFrame = bufferIn.position() == 0 && bufferIn.limit() == bufferIn.capacity();
+						}
+						return handled;
+					}
+					case ERROR 	-> {
+						logger.info("Error with ProcessIn 1°");
+						closed = true;
+						return handled;
+					}
+					case DONE	-> {
+						handled++;
+						acceptPaquet(frameDecoder.get());
+					}
+				}
+			}
+			return handled;
+		}
+
+		/**
+		 * Format v2 : si la trame en attente ne peut pas tenir dans bufferIn, on réserve un buffer à sa taille.
+		 */
+		private void startLargeFrame(int size) {
+			if(size <= bufferIn.capacity()) { return; }
+			if(size > MAX_FRAME_SIZE) {
+				logger.warning("Trame annoncée trop grande (" + size + " octets), on déconnecte");
+				closed = true;
+				return;
+			}
+			largeFrame = BufferPool.acquire(size);
+		}
+
+		/**
+		 * Déplace le contenu de bufferIn dans largeFrame, et traite la trame une fois complète.
+		 * ---
+		 * @return true si la trame a été traitée, false s'il faut attendre la suite.
+		 */
+		private boolean fillLargeFrame() throws IOException {
+			bufferIn.flip();
+			try {
+				var size = Math.min(bufferIn.remaining(), largeFrame.remaining());
+				largeFrame.put(largeFrame.position(), bufferIn, bufferIn.position(), size).position(largeFrame.position() + size);
+				bufferIn.position(bufferIn.position() + size);
+			} finally {
+				bufferIn.compact();
+			}
+			if(largeFrame.hasRemaining()) { return false; }
+			var frame = largeFrame.flip();
+			largeFrame = null;
+			try {
+				switch(frameDecoder.decodeFramed(frame)) {
+					case DONE	-> acceptPaquet(frameDecoder.get());
+					case REFILL -> {} // opcode inconnu: trame sautée
+					case ERROR 	-> {
+						logger.info("Error with ProcessIn 1°");
+						closed = true;
+						return false;
+					}
+				}
+				return true;
+			} finally {
+				BufferPool.release(frame);
+			}
+		}
+
+		private void acceptPaquet(Paquet paquet) throws IOException {
+			//une fois que le voisin chiffre le lien, plus aucun paquet en clair n'est accepté
+			if(linkFramesReceived && paquet.getOpCode() != OpCode.LINK_FRAME) {
+				logger.warning("Paquet en clair sur un lien chiffré, on déconnecte");
+				closed = true;
+				return;
+			}
+			handlePaquet(paquet);
+		}
+
+		/**
+		 * Décode une trame complète (mode écriture) qui doit être entièrement consommée.
+		 * ---
+		 * @return Le paquet, ou null si la trame est mal formée.
+		 */
+		private Paquet decodeWholeFrame(ByteBuffer frame) {
+			frame.flip();
+			if(frameDecoder.decode(frame) != ProcessStatus.DONE || frame.hasRemaining()) { return null; }
+			return frameDecoder.get();
+		}
+
+		/**
+		 * Reprise du traitement de bufferIn (thread du worker) : après épuisement du budget
+		 * d'un appel à processIn, ou à la fin d'un job crypto qui bloquait la lecture.
+		 */
+		private void resumeProcessIn() {
+			if(!key.isValid() || bufferIn.position() == 0) { return; }
+			try {
+				processIn();
+				updateInterestOps();
+			} catch (IOException ioe) {
+				logger.info("I/O error with " + publicKeyExtern + " : " + ioe.getMessage());
+				closeOnError();
+			}
 		}
 		
 		private void handlePaquet(Paquet paquet) throws IOException {
 		    logger.info(paquet.getOpCode() + " IS LA ");
+		    if(!heldBack.isEmpty() && !isLinkPaquet(paquet.getOpCode())) {
+		    	//une trame précédente attend des clés: on conserve l'ordre de réception
+		    	if(paquet instanceof CompactFrame compactFrame) { requestMissingKeys(compactFrame); }
+		    	holdBack(paquet);
+		    	return;
+		    }
+		    dispatchPaquet(paquet);
+		}
+
+		private void dispatchPaquet(Paquet paquet) throws IOException {
+		    switch(paquet.getOpCode()) {
+				/*****************************************
+				 ******* PAQUETS PROPRES AU LIEN *********
+				 * (thread du worker, sans verrou global)
+				 *****************************************/
+		        case CHALLENGE_PUBLIC_KEY 	-> handleChallengePublicKey((EncodedRSABuffers) paquet);
+		        case LINK_KEY_EXCHANGE 		-> handleLinkKeyExchange((LinkKeyExchange) paquet);
+		        case LINK_FRAME 			-> handleLinkFrame((LinkFrame) paquet);
+		        case COMPACT_FRAME 			-> handleCompactFrame((CompactFrame) paquet);
+		        case KEY_REQUEST 			-> handleKeyRequest((KeyRequest) paquet);
+		        case KEY_RESPONSE 			-> handleKeyResponse((KeyResponse) paquet);
+		        case SECURE_MESSAGE,
+		        	 SECURE_MESSAGE_HYBRID 	-> handleSecureMessage((EncodedRSABuffers) paquet);
+		        case GRAFT 					-> handleGraft((BroadcastDigest) paquet);
+		        case PRUNE 					-> handlePrune();
+		        case SYNC_DIGEST 			-> handleSyncDigest((SyncDigest) paquet);
+		        case CIRCUIT_CREATE 		-> handleCircuitCreate((CircuitCreate) paquet);
+		        case CIRCUIT_CELL 			-> handleCircuitCell((CircuitCell) paquet);
+		        case PING 					-> handlePing((LinkProbe) paquet);
+		        case PONG 					-> handlePong((LinkProbe) paquet);
+				/*****************************************
+				 ***** PAQUETS MODIFIANT L'ÉTAT PARTAGÉ ****
+				 *****************************************/
+		        default -> {
+		        	server.stateLock.lock();
+		        	try {
+		        		handleSharedPaquet(paquet);
+		        	} finally {
+		        		server.stateLock.unlock();
+		        	}
+		        }
+		    }
+		}
+
+		/**
+		 * Traite les paquets qui lisent ou modifient l'état de l'application (InfoUsers, Graphe, managers).
+		 * Appelé avec {@code stateLock} tenu.
+		 */
+		private void handleSharedPaquet(Paquet paquet) throws IOException {
 		    switch(paquet.getOpCode()) {
 				/*****************************************
 				 ******** GESTION DE LA CONNEXION ********
 				 *****************************************/
 		        case PRE_JOIN, SECOND_JOIN 	-> handleJoin(paquet);
-		        case CHALLENGE_PUBLIC_KEY 	-> handleChallengePublicKey((EncodedRSABuffers) paquet);
 		        case RESPONSE_CHALLENGE 	-> handleResponseChallenge((ChallengeLongResponse) paquet);
 		        case CHALLENGE_OK 			-> handleChallengeOk((ChallengeOk) paquet);
+		        case JOIN_CHUNK 			-> handleJoinChunk((JoinChunk) paquet);
 		        case JOIN_RESPONSE 			-> handleJoinResponse((JoinResponse) paquet);
 				/*****************************************
 				 ********* GESTION DES BROADCAST *********
 				 *****************************************/
 		        case BROADCAST				-> handleBroadcast((Broadcast) paquet);
+		        case IHAVE 					-> handleIHave((BroadcastDigest) paquet);
+		        case SYNC_STATE 			-> handleSyncState((SyncState) paquet);
 				/*****************************************
 				 ********* GESTION DES BROADCAST *********
 				 *****************************************/
 		        case OPEN_MESSAGE 			-> handlePublicMessage((MessagePublic) paquet);
-		        case SECURE_MESSAGE 		-> handleSecureMessage((EncodedRSABuffers) paquet);
 				/*****************************************
 				 ******* GESTION DE LA DÉCONNEXION *******
 				 *****************************************/
@@ -343,7 +801,6 @@ public final class Application {
 		        
 		        default 					-> logger.info("ERROR DE PROCESSIN CONTEXT 2°");
 		    }
-		    primaryReader.reset();
 		}
 		
 		private void handleJoin(Paquet paquet) {
@@ -377,13 +834,222 @@ public final class Application {
 		    logger.info("Challenge OK => sur 2nd connexions");
 		    publicKeyExtern = paquet.publicKeyReceiver();
 		    server.registerSecondConnexion(this);
+		    if(LINK_ENCRYPTION) { startLinkKeyExchange(); }
+		    //une seconde connexion ne reçoit pas l'état du réseau : on compare tout de suite les vues
+		    if(TOPOLOGY_SYNC) { queuePaquet(SyncDigest.summary(server.infoUsers.topologyDigest().root())); }
+		}
+
+		private void handleJoinChunk(JoinChunk paquet) {
+		    if(mode != ContextMode.INTERN_CLIENT || !isFirstConnexion || publicKeyExtern != null) {
+		        logger.info("Error, JoinChunk hors d'une première connexion");
+		        return;
+		    }
+		    server.updateWithJoinChunk(paquet);
 		}
 
 		private void handleJoinResponse(JoinResponse paquet) throws IOException {
 		    logger.info("JoinResponse côté client dans le bien !");
 		    publicKeyExtern = paquet.publicKeyReceiver();
 		    server.updateWithJoinResponse(this, paquet);
+		    if(LINK_ENCRYPTION) { startLinkKeyExchange(); }
 		    commandQueue.offerMessage(new Message("Système", "Challenge O.K."));
+		    server.selector.wakeup();
+		}
+
+		private void handleLinkKeyExchange(LinkKeyExchange paquet) {
+			if(!isConnexionVerified() || publicKeyExtern == null) { return; }
+			if(linkCipher != null && linkCipher.isEstablished()) {
+				logger.warning("Lien déjà établi, renégociation refusée");
+				closed = true;
+				return;
+			}
+			//côté serveur: on répond avec notre propre clé éphémère (encore en clair) avant de passer en chiffré
+			startLinkKeyExchange();
+			if(!linkCipher.establish(paquet.ephemeralPublicKey(), paquet.signature(), publicKeyIntern, publicKeyExtern)) {
+				logger.warning("Signature de la clé de lien invalide, on déconnecte");
+				closed = true;
+				return;
+			}
+			logger.info("Lien chiffré établi avec " + publicKeyExtern);
+		}
+
+		private void handleLinkFrame(LinkFrame paquet) throws IOException {
+			var clear = linkCipher == null ? null : linkCipher.decrypt(paquet.encryptedBuffer());
+			if(clear == null) {
+				logger.warning("Trame de lien non authentique, on déconnecte");
+				closed = true;
+				return;
+			}
+			linkFramesReceived = true;
+			BufferPool.release(paquet.encryptedBuffer());
+			try {
+				var inner = decodeWholeFrame(clear);
+				if(inner == null) {
+					logger.warning("Trame de lien mal formée, on déconnecte");
+					closed = true;
+					return;
+				}
+				if(inner.getOpCode() == OpCode.LINK_FRAME || inner.getOpCode() == OpCode.LINK_KEY_EXCHANGE) {
+					closed = true;
+					return;
+				}
+				handlePaquet(inner);
+			} finally {
+				BufferPool.release(clear);
+			}
+		}
+
+		/**
+		 * Retient une clé avant de l'envoyer par empreinte. Au-delà de MAX_PINNED_KEYS clés retenues,
+		 * les nouvelles clés partent en entier : le voisin doit toujours pouvoir obtenir celles qu'on lui référence.
+		 */
+		private boolean pinKey(PublicKeyRSA key) {
+			var digest = key.digest();
+			if(pinnedKeys.containsKey(digest)) { return true; }
+			if(pinnedKeys.size() >= MAX_PINNED_KEYS) { return false; }
+			pinnedKeys.put(digest, key);
+			return true;
+		}
+
+		//le nouveau venu ne connaît notre clé qu'à la JoinResponse : rien n'est compacté vers lui avant la fin de l'état envoyé
+		private boolean canCompactKeys() {
+			return publicKeyExtern != null && joinCursor == null && progressStatus != ContextProgessStatus.UNVERIFIED_CHALLENGE
+					&& progressStatus != ContextProgessStatus.UNVERIFIED_PRE_JOIN;
+		}
+
+		private static boolean isLinkPaquet(OpCode opCode) {
+			return switch(opCode) {
+				case CHALLENGE_PUBLIC_KEY, LINK_KEY_EXCHANGE, LINK_FRAME, KEY_REQUEST, KEY_RESPONSE -> true;
+				default -> false;
+			};
+		}
+
+		/**
+		 * Reconstruit la trame d'origine d'un CompactFrame et la traite.
+		 * Si des empreintes sont inconnues, on demande les clés au voisin et la trame est mise de côté
+		 * (avec celles qui la suivent) jusqu'à la réponse.
+		 */
+		private void handleCompactFrame(CompactFrame paquet) throws IOException {
+			if(!canCompactKeys()) {
+				logger.warning("Trame compactée avant authentification, on déconnecte");
+				closed = true;
+				return;
+			}
+			var body = paquet.compactBuffer();
+			var missing = KeyCompactor.missingDigests(body);
+			if(missing == null) {
+				logger.warning("Trame compactée mal formée, on déconnecte");
+				closed = true;
+				return;
+			}
+			if(requestMissingKeys(paquet)) {
+				holdBack(paquet);
+				return;
+			}
+			expandAndHandle(body);
+			BufferPool.release(body);
+		}
+
+		/**
+		 * Met une trame de côté en attendant des clés. La lecture continue (la KEY_RESPONSE doit pouvoir arriver) :
+		 * au-delà de MAX_HELD_BACK trames, le voisin nous fait tout retenir en mémoire, on déconnecte.
+		 */
+		private void holdBack(Paquet paquet) {
+			if(heldBack.size() >= MAX_HELD_BACK) {
+				logger.warning("Trop de trames en attente de clés, on déconnecte");
+				if(paquet instanceof CompactFrame compactFrame) { BufferPool.release(compactFrame.compactBuffer()); }
+				closed = true;
+				return;
+			}
+			heldBack.add(paquet);
+		}
+
+		/**
+		 * Demande au voisin les clés dont les empreintes sont inconnues. Sans réponse après KEY_RESPONSE_TIMEOUT_SECONDS,
+		 * le lien est fermé : les trames mises de côté ne seraient jamais rejouées.
+		 */
+		private boolean requestMissingKeys(CompactFrame paquet) {
+			var missing = KeyCompactor.missingDigests(paquet.compactBuffer());
+			if(missing == null || missing.isEmpty()) { return false; }
+			pendingKeyRequests++;
+			var request = ++keyRequestsSent;
+			queuePaquet(new KeyRequest(missing));
+			server.scheduler.schedule(() -> worker.execute(() -> {
+				if(!key.isValid() || closed || keyResponsesReceived >= request) { return; }
+				logger.warning("Clés demandées restées sans réponse, on déconnecte");
+				closed = true;
+				updateInterestOps();
+			}), KEY_RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			return true;
+		}
+
+		private void expandAndHandle(ByteBuffer body) throws IOException {
+			var frame = KeyCompactor.expand(body);
+			if(frame == null) {
+				logger.warning("Trame compactée mal formée, on déconnecte");
+				closed = true;
+				return;
+			}
+			try {
+				var inner = decodeWholeFrame(frame);
+				if(inner == null) {
+					logger.warning("Trame compactée mal formée, on déconnecte");
+					closed = true;
+					return;
+				}
+				if(isLinkPaquet(inner.getOpCode()) || inner.getOpCode() == OpCode.COMPACT_FRAME) {
+					closed = true;
+					return;
+				}
+				dispatchPaquet(inner);
+			} finally {
+				BufferPool.release(frame);
+			}
+		}
+
+		private void handleKeyRequest(KeyRequest paquet) {
+			if(!canCompactKeys()) { return; }
+			var keys = paquet.digests().stream()
+					.map(digest -> {
+						var pinned = pinnedKeys.get(digest);
+						return pinned != null ? pinned : PublicKeyRSA.fromDigest(digest);
+					})
+					.filter(Objects::nonNull)
+					.toList();
+			queuePaquet(new KeyResponse(keys));
+		}
+
+		/**
+		 * Les clés reçues sont internées par le reader : on rejoue dans l'ordre les trames mises de côté.
+		 */
+		private void handleKeyResponse(KeyResponse paquet) throws IOException {
+			if(pendingKeyRequests == 0) { return; }
+			pendingKeyRequests--;
+			keyResponsesReceived++;
+			while(!heldBack.isEmpty()) {
+				var next = heldBack.getFirst();
+				if(next instanceof CompactFrame compactFrame) {
+					var missing = KeyCompactor.missingDigests(compactFrame.compactBuffer());
+					if(missing == null) {
+						closed = true;
+						return;
+					}
+					if(!missing.isEmpty()) {
+						if(pendingKeyRequests > 0) { return; }	//la réponse attendue suivra
+						//le voisin retient toute clé qu'il envoie par empreinte : une clé absente de sa réponse
+						//est une faute de protocole, pas une perte à ignorer
+						logger.warning("Clés référencées mais non fournies par le voisin, on déconnecte");
+						closed = true;
+						return;
+					}
+					heldBack.pollFirst();
+					expandAndHandle(compactFrame.compactBuffer());
+					BufferPool.release(compactFrame.compactBuffer());
+				} else {
+					heldBack.pollFirst();
+					dispatchPaquet(next);
+				}
+			}
 		}
 
 		private void handleBroadcast(Broadcast paquet) throws IOException {
@@ -392,6 +1058,116 @@ public final class Application {
 		    server.updateBroadCast(this, paquet);
 		}
 
+		private void handleIHave(BroadcastDigest paquet) {
+			if(!isConnexionVerified()) { return; }
+			if(server.infoUsers.isKnownMessageIDBroadcast(paquet.publicKeySender(), paquet.messageID())) { return; }
+			server.broadcastTree.onIHave(this, new MessageKey(paquet.publicKeySender(), paquet.messageID()));
+		}
+
+		private void handleGraft(BroadcastDigest paquet) {
+			if(!isConnexionVerified()) { return; }
+			server.broadcastTree.onGraft(this, new MessageKey(paquet.publicKeySender(), paquet.messageID()));
+		}
+
+		private void handlePrune() {
+			if(!isConnexionVerified()) { return; }
+			server.broadcastTree.onPrune(this);
+		}
+
+		private void handlePing(LinkProbe paquet) {
+			if(!isConnexionVerified()) { return; }
+			queuePaquet(new LinkProbe(paquet.timestamp(), OpCode.PONG));
+		}
+
+		/**
+		 * Moyenne glissante (1/8, comme le SRTT de TCP) des allers-retours mesurés ; le réseau n'est prévenu que
+		 * d'un écart notable ou périodiquement, pour ne pas diffuser un poids à chaque sonde.
+		 */
+		private void handlePong(LinkProbe paquet) {
+			if(!isConnexionVerified()) { return; }
+			var now = System.nanoTime();
+			var sample = now - paquet.timestamp();
+			if(sample <= 0) { return; }
+			rttNanos = rttNanos < 0 ? sample : rttNanos + (sample - rttNanos) / 8;
+			var drift = Math.abs(rttNanos - reportedRttNanos);
+			//tant que l'arête n'est pas connue (connexion pas encore diffusée), la mesure suivante est retentée
+			if((reportedRttNanos < 0 || drift * 4 > reportedRttNanos
+					|| now - reportedAt > TimeUnit.SECONDS.toNanos(WEIGHT_REFRESH_SECONDS)) && server.reportLinkRtt(this, rttNanos)) {
+				reportedRttNanos = rttNanos;
+				reportedAt = now;
+			}
+		}
+
+		/**
+		 * Un résumé dont la racine diffère appelle les empreintes des intervalles ;
+		 * des empreintes d'intervalles appellent les éléments des intervalles qui diffèrent.
+		 */
+		private void handleSyncDigest(SyncDigest paquet) {
+			if(!isConnexionVerified()) { return; }
+			var digest = server.infoUsers.topologyDigest();
+			if(!paquet.hasBuckets()) {
+				var root = digest.root();
+				if(root != paquet.root()) { queuePaquet(new SyncDigest(root, digest.buckets())); }
+				return;
+			}
+			var differing = digest.differingBuckets(paquet.buckets());
+			if(differing.isEmpty()) { return; }
+			logger.info("Vues divergentes sur " + differing.cardinality() + " intervalles");
+			queuePaquet(server.infoUsers.syncState(differing, true));
+		}
+
+		private void handleSyncState(SyncState paquet) {
+			if(!isConnexionVerified()) { return; }
+			//la réponse porte nos éléments d'avant la fusion : le voisin y trouve ce qui lui manque
+			var reply = paquet.wantReply() ? server.infoUsers.syncState(paquet.buckets(), false) : null;
+			var changes = server.infoUsers.mergeSyncState(paquet);
+			if(changes > 0) { logger.info("Synchronisation : " + changes + " nœuds ou connexions réparés"); }
+			if(reply != null) { queuePaquet(reply); }
+		}
+
+		/**
+		 * Notre couche de l'oignon de création est déchiffrée (RSA) sur le pool crypto ;
+		 * les cellules du lien attendent jusque-là pour ne pas devancer la création de leur circuit.
+		 */
+		private void handleCircuitCreate(CircuitCreate paquet) {
+			if(!isConnexionVerified()) { return; }
+			var encoded = paquet.onion();
+			pendingCryptoJobs++;
+			pendingCircuitCreates++;
+			CompletableFuture.supplyAsync(() -> Utils.safeDecryptHybrid(encoded, privateKeyIntern), server.cryptoPool)
+				.whenComplete((decoded, _) -> {
+					BufferPool.release(encoded);
+					worker.execute(() -> onCircuitLayer(paquet.circuitId(), decoded));
+				});
+		}
+
+		private void onCircuitLayer(long circuitId, ByteBuffer decoded) {
+			pendingCryptoJobs--;
+			pendingCircuitCreates--;
+			if(!key.isValid()) { return; }
+			if(!readPaused()) { worker.execute(this::resumeProcessIn); }
+			var layer = decoded == null ? null : CircuitCipher.openLayer(decoded.flip());
+			BufferPool.release(decoded);
+			if(layer == null) {
+				logger.warning("Couche de création de circuit illisible.");
+			} else {
+				server.circuits.onCreate(this, circuitId, layer);
+			}
+			while(pendingCircuitCreates == 0 && !heldCells.isEmpty()) {
+				server.circuits.onCell(this, heldCells.poll());
+			}
+			updateInterestOps();
+		}
+
+		private void handleCircuitCell(CircuitCell paquet) {
+			if(!isConnexionVerified()) { return; }
+			if(pendingCircuitCreates > 0) {
+				heldCells.add(paquet);
+				return;
+			}
+			server.circuits.onCell(this, paquet);
+		}
+
 		private void handlePublicMessage(MessagePublic paquet) {
 			if(!isConnexionVerified()) { return; }
 		    logger.info("Message Publique de processIn !");
@@ -406,11 +1182,74 @@ public final class Application {
 		        logger.warning("Buffer encodé null, paquet invalide.");
 		        return;
 		    }
-		    var decoded = Utils.safeDecryptRSA(encodedBuffer.flip(), privateKeyIntern);
-		    var instruction = analyseInstruction(decoded);
-		    server.sendHiddenMessage(instruction);
+		    var encoded = encodedBuffer.flip();
+		    var hybrid = paquet.opCode() == OpCode.SECURE_MESSAGE_HYBRID;
+		    //déchiffrement de notre couche sur le pool crypto, résultat renvoyé au worker
+		    pendingCryptoJobs++;
+		    CompletableFuture.supplyAsync(() -> hybrid
+		    				? Utils.safeDecryptHybrid(encoded, privateKeyIntern)
+		    				: Utils.safeDecryptRSA(encoded, privateKeyIntern), server.cryptoPool)
+		    	.whenComplete((decoded, _) -> {
+		    		BufferPool.release(encoded);
+		    		worker.execute(() -> onDecrypted(decoded));
+		    	});
+		}
+
+		private void onDecrypted(ByteBuffer decoded) {
+			pendingCryptoJobs--;
+			if(!key.isValid()) { return; }
+			//la lecture était suspendue par la backpressure: des paquets complets peuvent attendre dans bufferIn
+			if(pendingCryptoJobs == MAX_PENDING_CRYPTO_JOBS - 1) { worker.execute(this::resumeProcessIn); }
+			if(decoded != null && relayPassForward(decoded)) {
+				updateInterestOps();
+				return;
+			}
+			var instruction = decoded == null ? null : analyseInstruction(decoded);
+			BufferPool.release(decoded);
+			if(instruction == null) {
+				logger.warning("Couche du message caché illisible.");
+			} else {
+				server.stateLock.lock();
+				try {
+					server.sendHiddenMessage(instruction);
+				} finally {
+					server.stateLock.unlock();
+				}
+			}
+			updateInterestOps();
 		}
 		
+		/**
+		 * Chemin rapide du relais : si la couche déchiffrée est un PASS_FORWARD vers un voisin connu,
+		 * la couche suivante (déjà sérialisée, opcode compris) est transmise telle quelle, comme une partie
+		 * du buffer déchiffré : aucun paquet n'est reconstruit et ses octets ne sont pas recopiés.
+		 * ---
+		 * @param decoded : Couche déchiffrée en mode écriture (prise dans la BufferPool).
+		 * @return true si la couche a été consommée par le relais, false pour le chemin habituel (buffer intact).
+		 */
+		private boolean relayPassForward(ByteBuffer decoded) {
+			var size = decoded.position();
+			var keyStart = Byte.BYTES + Integer.BYTES;
+			if(size <= keyStart || decoded.get(0) != OpCode.PASS_FORWARD.getCode()) { return false; }
+			var keySize = decoded.getInt(Byte.BYTES);
+			if(keySize <= 0 || keySize >= size - keyStart) { return false; }
+			var frameStart = keyStart + keySize;
+			if(FrameDecoder.secureFrameSize(decoded, frameStart, size) != size - frameStart) { return false; }
+			//un relais ne transmet qu'à un voisin, dont la clé est forcément déjà internée
+			var receiver = PublicKeyRSA.known(decoded.slice(keyStart, keySize));
+			if(receiver == null) { return false; }
+			decoded.limit(size).position(frameStart);
+			boolean relayed;
+			server.stateLock.lock();
+			try {
+				relayed = server.relayFrame(receiver, decoded);
+			} finally {
+				server.stateLock.unlock();
+			}
+			if(!relayed) { BufferPool.release(decoded); }
+			return true;
+		}
+
 		private boolean isConnexionVerified() {
 		    if(progressStatus == ContextProgessStatus.UNVERIFIED_CHALLENGE
 		            || progressStatus == ContextProgessStatus.UNVERIFIED_PRE_JOIN) {
@@ -421,9 +1260,22 @@ public final class Application {
 		}
 
 		public void mustBeDisconnected() {
+			if(!worker.isWorkerThread()) {
+				worker.execute(this::mustBeDisconnected);
+				return;
+			}
 			closed = true;
 		}
 
+		/**
+		 * Ferme le context suite à une erreur d'I/O (sur le thread du worker).
+		 */
+		private void closeOnError() {
+			closed = true;
+			silentlyClose();
+			updateInterestOps();
+		}
+
 		//TODO TODO TODO TODO LA FIN
 		public PublicKeyRSA publicKeyExtern() {
 			return publicKeyExtern;
@@ -438,12 +1290,60 @@ public final class Application {
 
 	//TODO En commun
 	private static final int BUFFER_SIZE = 2 << 9;
+	private static final int MAX_GATHERED_BUFFERS = 16;
 	private static final Logger logger = Logger.getLogger(Application.class.getName());
 	private static final Level LEVEL = Level.SEVERE;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean LINK_ENCRYPTION = true;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long LINK_KEY_TIMEOUT_SECONDS = 30;	//lien authentifié fermé si sa clé n'est pas établie dans ce délai - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean FLAT_DECODING = true;	//false: lecture champ par champ par les Readers - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean FRAMING_V2 = false;	//trames opcode + taille + corps, à activer sur tous les noeuds - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_FRAME_SIZE = 1 << 24;	//format v2 - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean BROADCAST_TREE = true;	//broadcasts poussés le long d'un arbre, IHAVE sur les autres liens - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean TOPOLOGY_BATCHING = true;	//NewNode/NewConnection/RemoveNode regroupés dans un broadcast par fenêtre - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean CHUNKED_JOIN = true;	//état du réseau envoyé par parties avant la JoinResponse, à activer sur tous les noeuds - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int JOIN_CHUNK_SIZE = 16 * 1024;	//taille visée d'une partie - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean TOPOLOGY_SYNC = true;	//vue du réseau comparée périodiquement avec un voisin, à activer sur tous les noeuds - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long SYNC_PERIOD_SECONDS = 5;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean LATENCY_PROBES = true;	//temps d'aller-retour des liens mesurés et diffusés comme poids du graphe - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long RTT_PROBE_SECONDS = 2;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long WEIGHT_REFRESH_SECONDS = 60;	//poids rediffusé au moins à cette période, même stable - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean COMPACT_KEYS = true;	//clés connues envoyées par empreinte SHA-256 - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_PINNED_KEYS = PublicKeyRSA.INTERN_CACHE_SIZE;	//clés envoyées par empreinte retenues par lien - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_HELD_BACK = 1_024;	//trames retenues par lien en attente de clés - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long KEY_RESPONSE_TIMEOUT_SECONDS = 10;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int CRYPTO_WORKERS = Runtime.getRuntime().availableProcessors();	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int CRYPTO_QUEUE_CAPACITY = 1_024;
+	private static final int MAX_PENDING_CRYPTO_JOBS = 16;
+	private static final boolean LOAD_GOSSIP = true;	//charge diffusée périodiquement et relais des chemins cachés choisis selon elle - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long LOAD_GOSSIP_SECONDS = 5;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int LOAD_HYSTERESIS = 16;	//écart de score (sur 255) qui justifie une nouvelle annonce - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long LOAD_REFRESH_SECONDS = 60;	//charge rediffusée au moins à cette période, même stable - CHAMPS À MODIFIER SI NECESSAIRE !
+	//seuils de saturation des trois composantes du score
+	private static final int LOAD_FULL_BACKLOG = 256;	//trames en attente d'envoi, tous liens confondus
+	private static final int LOAD_FULL_CRYPTO = 4 * CRYPTO_WORKERS;	//jobs RSA en attente ou en cours
+	private static final int LOAD_FULL_CRYPTO_RATE = 200;	//jobs RSA terminés par seconde
+	//messages cachés en fragments : à partir de cette taille, sur au plus SHARD_PATHS chemins dont SHARD_SPARE_PATHS peuvent échouer
+	private static final int SHARDED_MESSAGE_MIN_BYTES = 256;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int SHARD_PATHS = 4;					//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int SHARD_SPARE_PATHS = 1;				//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_PAQUETS_PER_READ = 64;	//budget d'un événement de lecture - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int SELECTOR_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);	//CHAMPS À MODIFIER SI NECESSAIRE !
 
 	private final ServerSocketChannel serverSocketChannel;
 	private final InetSocketAddress serverAddress;
+	//selector de l'acceptor (thread principal) + workers auxquels les Context sont épinglés
 	private final Selector selector;
+	private final SelectorWorker[] workers;
+	private final AtomicInteger nextWorker = new AtomicInteger();
+	private final Set<Context> contexts = ConcurrentHashMap.newKeySet();
+	//pool borné pour le chiffrement/déchiffrement RSA des messages cachés (file pleine => exécuté par l'appelant)
+	private final ThreadPoolExecutor cryptoPool = new ThreadPoolExecutor(CRYPTO_WORKERS, CRYPTO_WORKERS, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(CRYPTO_QUEUE_CAPACITY), Thread.ofPlatform().name("crypto-", 0).daemon().factory(),
+			new ThreadPoolExecutor.CallerRunsPolicy());
+	//délais (diffusion en arbre)
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("scheduler").daemon().factory());
+	//protège InfoUsers, Graphe et les managers, partagés entre tous les workers
+	private final ReentrantLock stateLock = new ReentrantLock();
 	private final CommandQueue commandQueue;
 	private final Thread console;
 	//private InetSocketAddress remoteServerAddress;
@@ -457,9 +1357,29 @@ public final class Application {
 	private final InfoUsers infoUsers;
 	//Graphe
 	private final Graphe graphe;
+	//liens eager/lazy de la diffusion des broadcasts
+	private final BroadcastTree broadcastTree;
+	//payloads de topologie en attente d'être diffusés ensemble
+	private final TopologyBatcher topologyBatcher;
+	//dernière charge annoncée (scheduler uniquement) et compteur du pool crypto à la mesure précédente
+	private int announcedLoad = 0;
+	private long announcedLoadAt = System.nanoTime();
+	//version de nos annonces de charge : partie de l'horloge, elle reste croissante si l'on revient avec la même clé
+	private long loadVersion = System.currentTimeMillis();
+	//version de nos annonces de poids de liens, de même (sous stateLock)
+	private long weightVersion = System.currentTimeMillis();
+	private long lastCompletedCryptoJobs = 0;
+	//circuits cachés construits par ce nœud ou le traversant
+	private final OnionCircuits circuits;
+	//messages cachés reçus en fragments, en cours de reconstitution
+	private final ShardAssembler shardAssembler;
 	
 	public Application(InetSocketAddress serverAddress, KeyPairRSA keyPairRSA, Integer optionalPort) throws IOException {
 		selector = Selector.open();
+		workers = new SelectorWorker[SELECTOR_WORKERS];
+		for(var i = 0; i < workers.length; i++) {
+			workers[i] = new SelectorWorker("selector-worker-" + i, this::treatKey, LEVEL);
+		}
 
 		serverSocketChannel = ServerSocketChannel.open();
 		this.serverAddress = Objects.requireNonNull(serverAddress);
@@ -469,10 +1389,14 @@ public final class Application {
 		Objects.requireNonNull(keyPairRSA);
 		this.uniquePublicKeyRSA = keyPairRSA.publicKey();
 		this.uniquePrivateKeyRSA = keyPairRSA.privateKey();
-		this.infoUsers = new InfoUsers(LEVEL, uniquePublicKeyRSA);
-		this.graphe = new Graphe();
+		this.graphe = new Graphe(uniquePublicKeyRSA, new NodeRegistry());
+		this.infoUsers = new InfoUsers(LEVEL, uniquePublicKeyRSA, graphe);
 		this.connexionManager = new ConnexionManager(LEVEL);
 		this.deconnexionManager = new DeconnexionManager(this, LEVEL);
+		this.broadcastTree = new BroadcastTree(scheduler, LEVEL);
+		this.topologyBatcher = new TopologyBatcher(scheduler, this::flushTopologyWindow);
+		this.shardAssembler = new ShardAssembler(LEVEL);
+		this.circuits = new OnionCircuits(uniquePublicKeyRSA, infoUsers, graphe, this::receiveCircuitMessage, LEVEL);
 		this.optionalPort = optionalPort;
 	}
 
@@ -498,7 +1422,13 @@ public final class Application {
 	 * @throws InterruptedException: en cas d'erreur avec la commandQueue
 	 */
 	private void sendCommand(String command) throws InterruptedException {
-		var paquet = ParseCommand.getPaquet(uniquePublicKeyRSA, command, Map.copyOf(infoUsers.getIndexedNodes()), graphe, infoUsers);
+		Paquet paquet;
+		stateLock.lock();
+		try {
+			paquet = ParseCommand.getPaquet(uniquePublicKeyRSA, command, Map.copyOf(infoUsers.getIndexedNodes()), graphe, infoUsers);
+		} finally {
+			stateLock.unlock();
+		}
 		if(null == paquet) {
 			Utils.printHelp();
 			return;
@@ -516,33 +1446,12 @@ public final class Application {
 			if(null == msg) {
 				break;
 			}
-			switch(msg) {
-			case ListConnected listConnected -> {
-				listConnected.updateInfos(infoUsers.getIndexedNodes()); 
-				//logger.info(listConnected.toString()); 
-				System.out.println(listConnected);
-			}
-			case MessagePublic messagePublic -> {
-				logger.info("On vient de crée un openMessage: " + messagePublic);
-				logger.info("Sender: " +messagePublic.sender()+"\nReceiver: "+ messagePublic.receiver());
-				sendMessage(uniquePublicKeyRSA, messagePublic);
-			}
-			case SecureMessage secureMessage -> {
-				logger.info("On vient de créer un secureMessage: " + secureMessage);
-				sendHiddenMessage(secureMessage.instruction());
-			}
-			case Message message -> {
-				logger.info("On traite un message en interne");
-				switch(message.message()) {
-				case "r" 	-> { System.out.println(infoUsers.toStringRootConnexions()); }
-				case "d"	-> { logger.info("Avant:");
-				logger.info("On va se déconnecter");deconnexionManager.initDeconnexion(uniquePublicKeyRSA, infoUsers.getViewAppToContext());}
-				default 	-> { logger.info("Rien à faire ici !"); }
-				}
-			}
-			default -> {logger.warning("Cas imprevu sur processCommand !");}
+			stateLock.lock();
+			try {
+				processCommand(msg);
+			} finally {
+				stateLock.unlock();
 			}
-
 		}
 		while(!commandQueue.isEmptyMessageQueue()) {
 			var messageReceived = commandQueue.pollMessage();
@@ -552,6 +1461,50 @@ public final class Application {
 			}
 		}
 	}
+
+	/**
+	 * Traite une commande de la console (appelé avec {@code stateLock} tenu).
+	 */
+	private void processCommand(Paquet msg) {
+		switch(msg) {
+		case ListConnected listConnected -> {
+			listConnected.updateInfos(infoUsers.getIndexedNodes()); 
+			//logger.info(listConnected.toString()); 
+			System.out.println(listConnected);
+		}
+		case MessagePublic messagePublic -> {
+			logger.info("On vient de crée un openMessage: " + messagePublic);
+			logger.info("Sender: " +messagePublic.sender()+"\nReceiver: "+ messagePublic.receiver());
+			sendMessage(uniquePublicKeyRSA, messagePublic);
+		}
+		case SecureMessage secureMessage -> {
+			logger.info("On vient de créer un secureMessage: " + secureMessage);
+			var recipient = secureMessage.recipient();
+			if((Utils.ONION_CIRCUITS || Utils.MULTIPATH_SHARDS) && secureMessage.instruction() instanceof MessageToSecure message && !recipient.equals(uniquePublicKeyRSA)) {
+				if(Utils.ONION_CIRCUITS && circuits.send(recipient, message.idMessage(), message.message())) { return; }
+				if(Utils.MULTIPATH_SHARDS && sendShards(recipient, message)) { return; }
+				//message trop long pour une cellule ou circuit impossible, et pas assez de chemins : oignon complet
+				var listToDest = graphe.randomPath(uniquePublicKeyRSA, recipient).reversed();
+				secureMessage = (SecureMessage) Utils.onionRoutingForSecureMessage(uniquePublicKeyRSA, listToDest, message.message(), message.idMessage());
+				if(secureMessage == null) {
+					System.err.println("Aucun chemin trouvé vers " + recipient);
+					return;
+				}
+			}
+			sendHiddenMessage(secureMessage.instruction());
+		}
+		case Message message -> {
+			logger.info("On traite un message en interne");
+			switch(message.message()) {
+			case "r" 	-> { System.out.println(infoUsers.toStringRootConnexions()); }
+			case "d"	-> { logger.info("Avant:");
+			logger.info("On va se déconnecter");deconnexionManager.initDeconnexion(uniquePublicKeyRSA, infoUsers.getViewAppToContext());}
+			default 	-> { logger.info("Rien à faire ici !"); }
+			}
+		}
+		default -> {logger.warning("Cas imprevu sur processCommand !");}
+		}
+	}
 	//TODO fin client
 
 	private void startInternClient(SocketChannel socketChannel, Integer optionalPort) throws IOException {
@@ -561,12 +1514,39 @@ public final class Application {
 		logger.info("RemoteX: " + remoteServerAddress);
 		//Client config
 		socketChannel.configureBlocking(false);
-		var clientKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
-		var context = new Context(ContextMode.INTERN_CLIENT, this, clientKey, commandQueue, uniquePublicKeyRSA, uniquePrivateKeyRSA, infoUsers.getSizeAppToContext() < 1);
-		clientKey.attach(context);
-		connexionManager.register(context, optionalPort, uniquePublicKeyRSA, remoteServerAddress);
-		socketChannel.connect(remoteServerAddress);
-		logger.info("O.K. pour le contextIntern");
+		var isFirstConnexion = infoUsers.getSizeAppToContext() < 1;
+		var worker = nextWorker();
+		//l'enregistrement doit se faire sur le thread du worker qui possède le selector
+		worker.execute(() -> registerInternClient(worker, socketChannel, optionalPort, remoteServerAddress, isFirstConnexion));
+	}
+
+	private void registerInternClient(SelectorWorker worker, SocketChannel socketChannel, int port,
+			InetSocketAddress remoteServerAddress, boolean isFirstConnexion) {
+		try {
+			var clientKey = socketChannel.register(worker.selector(), SelectionKey.OP_CONNECT);
+			var context = new Context(ContextMode.INTERN_CLIENT, this, worker, clientKey, commandQueue, uniquePublicKeyRSA, uniquePrivateKeyRSA, isFirstConnexion);
+			clientKey.attach(context);
+			contexts.add(context);
+			stateLock.lock();
+			try {
+				connexionManager.register(context, port, uniquePublicKeyRSA, remoteServerAddress);
+			} finally {
+				stateLock.unlock();
+			}
+			socketChannel.connect(remoteServerAddress);
+			logger.info("O.K. pour le contextIntern");
+		} catch (IOException ioe) {
+			logger.severe("Impossible de se connecter à " + remoteServerAddress + " : " + ioe.getMessage());
+			try {
+				socketChannel.close();
+			} catch (IOException e) {
+				// ignore exception
+			}
+		}
+	}
+
+	private SelectorWorker nextWorker() {
+		return workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
 	}
 
 	private SocketChannel createAndReturnSocketChannel() throws IOException {
@@ -578,10 +1558,26 @@ public final class Application {
 		serverSocketChannel.bind(serverAddress);
 		serverSocketChannel.configureBlocking(false);
 		serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+		for(var worker: workers) {
+			worker.start();
+		}
+		if(TOPOLOGY_SYNC) {
+			scheduler.scheduleAtFixedRate(this::syncTopology, SYNC_PERIOD_SECONDS, SYNC_PERIOD_SECONDS, TimeUnit.SECONDS);
+		}
+		if(LATENCY_PROBES) {
+			scheduler.scheduleAtFixedRate(this::probeLinks, RTT_PROBE_SECONDS, RTT_PROBE_SECONDS, TimeUnit.SECONDS);
+		}
+		if(LOAD_GOSSIP) {
+			scheduler.scheduleAtFixedRate(this::gossipLoad, LOAD_GOSSIP_SECONDS, LOAD_GOSSIP_SECONDS, TimeUnit.SECONDS);
+		}
 
-		startInternClient(createAndReturnSocketChannel(), optionalPort);
-
-		infoUsers.prepare(uniquePublicKeyRSA, serverAddress);
+		stateLock.lock();
+		try {
+			startInternClient(createAndReturnSocketChannel(), optionalPort);
+			infoUsers.prepare(uniquePublicKeyRSA, serverAddress);
+		} finally {
+			stateLock.unlock();
+		}
 		//UI
 		console.start();
 		Utils.printHelp();
@@ -589,7 +1585,7 @@ public final class Application {
 			//Helpers.printKeys(selector); // for debug
 			logger.info("Starting select");
 			try {
-				selector.select(this::treatKey);
+				selector.select(this::treatAcceptorKey);
 				processCommands();
 			} catch (UncheckedIOException tunneled) {
 				throw tunneled.getCause();
@@ -598,7 +1594,10 @@ public final class Application {
 		}
 	}
 
-	private void treatKey(SelectionKey key) {
+	/**
+	 * Clés du selector principal : uniquement l'acceptation des connexions entrantes.
+	 */
+	private void treatAcceptorKey(SelectionKey key) {
 		//Helpers.printSelectedKey(key); // for debug
 		try {
 			if (key.isValid() && key.isAcceptable()) {
@@ -608,6 +1607,13 @@ public final class Application {
 			// lambda call in select requires to tunnel IOException
 			throw new UncheckedIOException(ioe);
 		}
+	}
+
+	/**
+	 * Clés des selectors des workers : connexion, lecture et écriture d'un Context (sur le thread du worker).
+	 */
+	private void treatKey(SelectionKey key) {
+		//Helpers.printSelectedKey(key); // for debug
 		var context = (Context) key.attachment();
 		if(context == null) {
 			logger.info("context doesn't have attachemet !");
@@ -625,8 +1631,9 @@ public final class Application {
 				context.doRead();
 			}
 		} catch (IOException ioe) {
-			// lambda call in select requires to tunnel IOException
-			throw new UncheckedIOException(ioe);
+			//seul ce context est concerné, les autres connexions du worker continuent
+			logger.info("I/O error with " + context.publicKeyExtern() + " : " + ioe.getMessage());
+			context.closeOnError();
 		}
 	}
 
@@ -638,10 +1645,20 @@ public final class Application {
 			return;
 		}
 		client.configureBlocking(false);
-		var clientKey = client.register(selector, SelectionKey.OP_READ);
-		var context = new Context(ContextMode.EXTERN_CLIENT, this, clientKey, null, uniquePublicKeyRSA, uniquePrivateKeyRSA, true);
-		clientKey.attach(context);
-		//(state(NN), application(NN), SelectKey(NN), CommQueue(N), PubKey(N), Privkey(N))
+		var worker = nextWorker();
+		worker.execute(() -> registerExternClient(worker, client));
+	}
+
+	private void registerExternClient(SelectorWorker worker, SocketChannel client) {
+		try {
+			var clientKey = client.register(worker.selector(), SelectionKey.OP_READ);
+			var context = new Context(ContextMode.EXTERN_CLIENT, this, worker, clientKey, null, uniquePublicKeyRSA, uniquePrivateKeyRSA, true);
+			clientKey.attach(context);
+			contexts.add(context);
+			//(state(NN), application(NN), worker(NN), SelectKey(NN), CommQueue(N), PubKey(N), Privkey(N))
+		} catch (IOException ioe) {
+			logger.info("Connexion entrante perdue avant enregistrement : " + ioe.getMessage());
+		}
 	}
 
 //	private void silentlyClose(SelectionKey key) {
@@ -662,13 +1679,21 @@ public final class Application {
 	 */
 	public void broadcast(Broadcast broadcast, Context sContext) {
 		Objects.requireNonNull(broadcast);
-		for(var key: selector.keys()) {
-			var context = (Context) key.attachment();
-			if(context == null || (sContext != null && sContext.equals(context))) {
+		//sérialisé une seule fois, chaque voisin reçoit sa propre vue en lecture seule
+		var frame = broadcast.sharedFrame();
+		if(BROADCAST_TREE) {
+			broadcastTree.onNewBroadcast(new MessageKey(broadcast.publicKeySender(), broadcast.messageID()), frame, sContext);
+		}
+		for(var context: contexts) {
+			if(sContext != null && sContext.equals(context)) {
 				continue;
 			}
 			logger.info("On passe " + context.publicKeyExtern());
-			context.queuePaquet(broadcast);
+			if(!BROADCAST_TREE || broadcastTree.isEager(context)) {
+				context.queueFrame(frame.duplicate());
+			} else {
+				context.queuePaquet(new BroadcastDigest(broadcast.publicKeySender(), broadcast.messageID(), OpCode.IHAVE));
+			}
 		}
 	}
 
@@ -701,13 +1726,15 @@ public final class Application {
 		infoUsers.putOnAppToContext(context.publicKeyExtern(), context);
 		infoUsers.putOnContextToApp(context, context.publicKeyExtern());
 		logger.info("MAJ ATC CTA, PK =>" + context.publicKeyExtern() + " _ " + uniquePublicKeyRSA);
-		//On remet à jour notre graphe interne
-		graphe.updateNetWork(infoUsers.getRoutageConnexion());
 		//préparation du paquet
-		var paquet = context.isFirstConnexion()
-						? infoUsers.getJoinResponse(uniquePublicKeyRSA)
-						: new ChallengeOk(uniquePublicKeyRSA);
-		context.queuePaquet(paquet);
+		if(context.isFirstConnexion() && CHUNKED_JOIN) {
+			context.startJoinStream(new JoinCursor(uniquePublicKeyRSA));
+		} else {
+			var paquet = context.isFirstConnexion()
+							? infoUsers.getJoinResponse(uniquePublicKeyRSA)
+							: new ChallengeOk(uniquePublicKeyRSA);
+			context.queuePaquet(paquet);
+		}
 		//transmission du broadcast ici:
 		if(context.isFirstConnexion()) { broadcastFirstConnexion(context);/*NewNode*/ }
 		return true;
@@ -722,15 +1749,10 @@ public final class Application {
 		infoUsers.putOnAppToContext(publicKeyUser, context);
 		infoUsers.putOnContextToApp(context, publicKeyUser);
 		infoUsers.updatePKReceiver(publicKeyUser, uniquePublicKeyRSA);
-		//Mise à jour du réseau de graphe !
-		graphe.updateNetWork(infoUsers.getRoutageConnexion());
 		broadcastSecondConnexion(context);/*NewConection*/ 
 	}
 
 	private void broadcastFirstConnexion(Context context) {
-		var generateMessageID = Utils.generateRandomLong();
-		logger.info(uniquePublicKeyRSA + " genere pour la 1re co: " + generateMessageID);
-		infoUsers.getAndUpdateMessageIDBroadcast(uniquePublicKeyRSA, generateMessageID);
 		var publicKeyUser = context.publicKeyExtern();
 		var socketAddressUser = context.socketAddressExtern();
 		if(publicKeyUser == null || socketAddressUser == null) {
@@ -738,6 +1760,14 @@ public final class Application {
 			return;
 		}
 		var newNode = new NewNode(publicKeyUser, socketAddressUser, uniquePublicKeyRSA);
+		if(TOPOLOGY_BATCHING) {
+			//le nouveau venu recevra aussi le lot : il ignore le NewNode qui le concerne
+			queueTopology(newNode);
+			return;
+		}
+		var generateMessageID = Utils.generateRandomLong();
+		logger.info(uniquePublicKeyRSA + " genere pour la 1re co: " + generateMessageID);
+		infoUsers.getAndUpdateMessageIDBroadcast(uniquePublicKeyRSA, generateMessageID);
 		var payload = newNode.getWriteModeBuffer().flip();
 		var size = payload.remaining();
 		broadcast(new Broadcast(uniquePublicKeyRSA, generateMessageID, size, payload.compact()), context);
@@ -745,21 +1775,150 @@ public final class Application {
 	}
 
 	private void broadcastSecondConnexion(Context context) {
-		var generateMessageID = Utils.generateRandomLong();
 		var publicKeyUser = context.publicKeyExtern();
 		if(publicKeyUser == null) {
 			logger.info("No broadcast possible since " + context.socketChannel + "\n");
 			return;
 		}
+		var newConnexion = new NewConnection(publicKeyUser, uniquePublicKeyRSA);
+		if(TOPOLOGY_BATCHING) {
+			queueTopology(newConnexion);
+			return;
+		}
+		var generateMessageID = Utils.generateRandomLong();
 		logger.info(uniquePublicKeyRSA + " genere pour la 2re co: " + generateMessageID);
 		infoUsers.getAndUpdateMessageIDBroadcast(uniquePublicKeyRSA, generateMessageID);
-		var newConnexion = new NewConnection(publicKeyUser, uniquePublicKeyRSA);
 		var payload = newConnexion.getWriteModeBuffer().flip();
 		var size = payload.remaining();
 		broadcast(new Broadcast(uniquePublicKeyRSA, generateMessageID, size, payload.compact()), null);
 		logger.info("Broadcast info for: " + context.publicKeyExtern());
 	}
 
+	/**
+	 * Ajoute un payload de topologie au lot en cours, vidé tout de suite s'il est plein.
+	 */
+	private void queueTopology(Payload payload) {
+		if(topologyBatcher.add(payload)) { flushTopology(); }
+	}
+
+	/**
+	 * Fin de la fenêtre d'accumulation (thread de l'ordonnanceur).
+	 */
+	private void flushTopologyWindow() {
+		stateLock.lock();
+		try {
+			flushTopology();
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
+	/**
+	 * Diffuse le lot en cours dans un seul broadcast, émis en notre nom.
+	 * Un payload seul est envoyé tel quel, comme sans regroupement.
+	 * Appelé avec {@code stateLock} tenu.
+	 */
+	private void flushTopology() {
+		var payloads = topologyBatcher.drain();
+		if(payloads.isEmpty()) { return; }
+		var content = payloads.size() == 1 ? payloads.getFirst() : new TopologyBatch(payloads);
+		var generateMessageID = Utils.generateRandomLong();
+		infoUsers.getAndUpdateMessageIDBroadcast(uniquePublicKeyRSA, generateMessageID);
+		var payload = content.getWriteModeBuffer().flip();
+		var size = payload.remaining();
+		broadcast(new Broadcast(uniquePublicKeyRSA, generateMessageID, size, payload.compact()), null);
+		BufferPool.release(payload);
+		logger.info("Broadcast de " + payloads.size() + " payloads de topologie");
+	}
+
+	/**
+	 * Anti-entropie (thread de l'ordonnanceur) : envoie le résumé de notre vue à un voisin tiré au hasard.
+	 * Un broadcast de topologie perdu est ainsi réparé en quelques périodes, sans renvoyer tout l'état.
+	 */
+	private void syncTopology() {
+		var neighbors = List.copyOf(infoUsers.getViewAppToContext().values());
+		if(neighbors.isEmpty()) { return; }
+		var neighbor = neighbors.get(ThreadLocalRandom.current().nextInt(neighbors.size()));
+		neighbor.queuePaquet(SyncDigest.summary(infoUsers.topologyDigest().root()));
+	}
+
+	/**
+	 * Sonde (thread de l'ordonnanceur) : un PING horodaté sur chaque lien, le voisin le renvoie tel quel.
+	 */
+	private void probeLinks() {
+		var now = System.nanoTime();
+		for(var neighbor: infoUsers.getViewAppToContext().values()) {
+			neighbor.queuePaquet(new LinkProbe(now, OpCode.PING));
+		}
+	}
+
+	/**
+	 * Nouveau temps d'aller-retour d'un de nos liens (thread du worker) : si le poids de l'arête nous revient
+	 * ({@link LinkWeight#isOwner}), il est mis à jour localement avec une nouvelle version puis diffusé avec les autres
+	 * payloads de topologie ; sinon c'est l'autre extrémité qui l'annonce et la mesure ne sert qu'à elle.
+	 * ---
+	 * @return false si l'arête n'est pas (encore) connue : la mesure n'a pas été retenue.
+	 */
+	private boolean reportLinkRtt(Context context, long rttNanos) {
+		var micros = Math.clamp(TimeUnit.NANOSECONDS.toMicros(rttNanos), 1, Integer.MAX_VALUE);
+		stateLock.lock();
+		try {
+			PublicKeyRSA peer = null;
+			for(var entry: infoUsers.getViewAppToContext().entrySet()) {
+				if(entry.getValue() == context) { peer = entry.getKey(); }
+			}
+			if(peer == null || !graphe.hasEdge(uniquePublicKeyRSA, peer)) { return false; }
+			if(!LinkWeight.isOwner(uniquePublicKeyRSA, peer)) { return true; }
+			var linkWeight = new LinkWeight(uniquePublicKeyRSA, peer, ++weightVersion, micros);
+			graphe.setWeight(uniquePublicKeyRSA, peer, micros, linkWeight.version());
+			logger.info("Lien vers " + peer + " : " + micros + " µs");
+			queueTopology(linkWeight);
+			if(!TOPOLOGY_BATCHING) { flushTopology(); }
+			return true;
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
+	/**
+	 * Score de charge sur [0, NodeLoad.MAX_LOAD] : la composante la plus saturée parmi les trames en attente d'envoi,
+	 * le retard du pool crypto et le débit de déchiffrements depuis la mesure précédente (thread de l'ordonnanceur).
+	 */
+	private int loadScore() {
+		var backlog = 0;
+		for(var context: contexts) {
+			backlog += context.backlog;
+		}
+		var crypto = cryptoPool.getQueue().size() + cryptoPool.getActiveCount();
+		var completed = cryptoPool.getCompletedTaskCount();
+		var rate = (double) (completed - lastCompletedCryptoJobs) / LOAD_GOSSIP_SECONDS;
+		lastCompletedCryptoJobs = completed;
+		var saturation = Math.max(Math.max((double) backlog / LOAD_FULL_BACKLOG, (double) crypto / LOAD_FULL_CRYPTO), rate / LOAD_FULL_CRYPTO_RATE);
+		return (int) Math.round(Math.min(1.0, saturation) * NodeLoad.MAX_LOAD);
+	}
+
+	/**
+	 * Annonce notre charge avec les autres payloads de topologie, seulement si elle a nettement changé
+	 * ou si la dernière annonce est plus ancienne que LOAD_REFRESH_SECONDS.
+	 */
+	private void gossipLoad() {
+		var load = loadScore();
+		var now = System.nanoTime();
+		if(Math.abs(load - announcedLoad) < LOAD_HYSTERESIS && now - announcedLoadAt < TimeUnit.SECONDS.toNanos(LOAD_REFRESH_SECONDS)) { return; }
+		announcedLoad = load;
+		announcedLoadAt = now;
+		var nodeLoad = new NodeLoad(uniquePublicKeyRSA, ++loadVersion, load);
+		stateLock.lock();
+		try {
+			//retenue chez nous aussi : elle part dans l'état envoyé aux nouveaux venus et dans la synchronisation
+			graphe.setLoad(uniquePublicKeyRSA, load, nodeLoad.version());
+			queueTopology(nodeLoad);
+			if(!TOPOLOGY_BATCHING) { flushTopology(); }
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
 	private void disconnectApp(Context context) throws IOException {
 		Objects.requireNonNull(context);
 		var publicKey = infoUsers.disconnectAppWithContextToApp(context);
@@ -788,17 +1947,36 @@ public final class Application {
 		infoUsers.putOnContextToApp(context, context.publicKeyExtern());
 		infoUsers.putOnAppToContext(context.publicKeyExtern(), context);
 		//MAJ les listes
+		updateNetworkState(nodes, connexions);
+		//MAJ la pkReceiver
+		infoUsers.updatePKReceiver(pubKeyReceiver, uniquePublicKeyRSA);
+		startSecondConnexion();
+	}
+
+	/**
+	 * Mise à jour des infos à la réception d'une partie de l'état du réseau, appliquée sans attendre la JoinResponse.
+	 * @param paquet: Partie de l'état du réseau
+	 */
+	private void updateWithJoinChunk(JoinChunk paquet) {
+		Objects.requireNonNull(paquet);
+		updateNetworkState(paquet.nodes(), paquet.connexions());
+		for(var nodeLoad: paquet.loads()) {
+			graphe.setLoad(nodeLoad.publicKey(), nodeLoad.load(), nodeLoad.version());
+		}
+		for(var linkWeight: paquet.weights()) {
+			if(linkWeight.fromOwner()) {
+				graphe.setWeight(linkWeight.publicKeySender(), linkWeight.publicKeyReceiver(), linkWeight.rttMicros(), linkWeight.version());
+			}
+		}
+	}
+
+	private void updateNetworkState(List<Node> nodes, List<Connexion> connexions) {
 		for(var node: nodes) {
 			infoUsers.updateAppAndAddress(node);
 		}
 		for(var connexion: connexions) {
 			infoUsers.updateRoutageConnexion(connexion);
 		}
-		//MAJ la pkReceiver
-		infoUsers.updatePKReceiver(pubKeyReceiver, uniquePublicKeyRSA);
-		//Mise à jour du réseau de graphe !
-		graphe.updateNetWork(infoUsers.getRoutageConnexion());
-		startSecondConnexion();
 	}
 
 	/**
@@ -814,23 +1992,33 @@ public final class Application {
 		//on ajoute la payload à nos infos personnelle
 		var responseMessageID = infoUsers.getAndUpdateMessageIDBroadcast(broadcast.publicKeySender(), broadcast.messageID());
 		logger.info(uniquePublicKeyRSA + " recoit de " + broadcast.publicKeySender() + " msg "+ (responseMessageID ? "déjà" : "non") + " reçu" + broadcast.messageID());
-		if(responseMessageID) { logger.info("pas d'update pr broascast"); return; }
-		//On appel analysePayload
-		var publicKeyWantDisconnect = analysePayload(context.analysePayload(broadcast.payload()));
-		if(publicKeyWantDisconnect != null) {
-			var contextToRemove = infoUsers.removeContextWithPublicKey(publicKeyWantDisconnect);
-			if(null != contextToRemove) {
-				infoUsers.removePublicKeyWithContext(contextToRemove); 
-				contextToRemove.mustBeDisconnected();
-			}
-			//startSecondConnexion();//pas nécesaire
+		if(responseMessageID) {
+			logger.info("pas d'update pr broascast");
+			if(BROADCAST_TREE) { broadcastTree.onDuplicate(context); }
+			return;
 		}
+		//On appel analysePayload
+		var payload = broadcast.payload();
+		disconnectLeaver(analysePayload(context.analysePayload(payload)));
+		BufferPool.release(payload);
 		broadcast(broadcast, context);
-		//Mise à jour du réseau de graphe !
-		graphe.updateNetWork(infoUsers.getRoutageConnexion());
 		logger.info("on doit renvoyé && maj nos info sur le broadcast");
 	}
 
+	/**
+	 * Ferme la connexion directe avec un nœud annoncé comme parti (par un RemoveNode).
+	 * @param publicKeyWantDisconnect: clé du nœud parti, ou null
+	 */
+	private void disconnectLeaver(PublicKeyRSA publicKeyWantDisconnect) {
+		if(publicKeyWantDisconnect == null) { return; }
+		var contextToRemove = infoUsers.removeContextWithPublicKey(publicKeyWantDisconnect);
+		if(null != contextToRemove) {
+			infoUsers.removePublicKeyWithContext(contextToRemove); 
+			contextToRemove.mustBeDisconnected();
+		}
+		//startSecondConnexion();//pas nécesaire
+	}
+
 	/**
 	 * Méthode pour analyser les payload
 	 * 
@@ -859,6 +2047,23 @@ public final class Application {
 			logger.info("RemoveNode O.K.\n\n");
 			return removeNode.publicKeyLeaver();
 		}
+		case NodeLoad nodeLoad -> {
+			graphe.setLoad(nodeLoad.publicKey(), nodeLoad.load(), nodeLoad.version());
+			logger.info("NodeLoad O.K.");
+		}
+		case LinkWeight linkWeight -> {
+			//seule l'extrémité à qui revient le poids l'annonce : tous les nœuds retiennent ainsi la même valeur
+			if(linkWeight.fromOwner()) {
+				graphe.setWeight(linkWeight.publicKeySender(), linkWeight.publicKeyReceiver(), linkWeight.rttMicros(), linkWeight.version());
+			}
+			logger.info("LinkWeight O.K.");
+		}
+		case TopologyBatch topologyBatch -> {
+			for(var item: topologyBatch.payloads()) {
+				disconnectLeaver(analysePayload(item));
+			}
+			logger.info("TopologyBatch O.K. (" + topologyBatch.payloads().size() + " payloads)");
+		}
 		}
 		return null;
 	}
@@ -883,26 +2088,86 @@ public final class Application {
 		if(appIntermediaire == null) {
 			logger.info("==6.1==");
 			System.err.println("Aucun chemin trouvé de " + key + " à " + paquet.receiver());
+			return;
+		}
+		//des vues du réseau momentanément différentes peuvent faire tourner le message : il s'arrête au bout de MAX_HOPS relais
+		if(paquet.hopsLeft() == 0) {
+			logger.warning("Message public abandonné : plus de relais autorisé vers " + paquet.receiver());
+			return;
 		}
 		logger.info("==7==");
-		infoUsers.sendMessageWithAppToContext(appIntermediaire, paquet);
+		infoUsers.sendMessageWithAppToContext(appIntermediaire, paquet.relayed());
 	}
 	
+	/**
+	 * Transmet au voisin une couche de l'oignon déjà sérialisée (relais sans reconstruction du paquet).
+	 * ---
+	 * @param receiver : Voisin destinataire.
+	 * @param frame : Trame en mode lecture.
+	 * @return false si le voisin n'est plus connecté.
+	 */
+	public boolean relayFrame(PublicKeyRSA receiver, ByteBuffer frame) {
+		return infoUsers.sendFrameWithAppToContext(receiver, frame);
+	}
+
 	public void sendHiddenMessage(Instruction paquet) {
 		Objects.requireNonNull(paquet);
 		switch(paquet) {
-			case MessageToSecure message -> { receiveMessage(message); }
+			case MessageToSecure message -> { receiveMessage(message, null); }
+			case MessageShard shard -> {
+				var message = shardAssembler.add(shard);
+				if(message != null) { receiveMessage(message, null); }
+			}
 			case PassForward passForward -> { infoUsers.sendMessageWithAppToContext(passForward.receiver(), passForward.secureMessage()); }
 		}
 	}
 
 
+	/**
+	 * Envoie un long message caché en fragments, chacun dans son oignon, par des chemins sans relais commun :
+	 * un chemin lent ou coupé ne retarde ni ne perd le message tant que {@code needed} fragments arrivent.
+	 * ---
+	 * @return false si le message est court ou qu'il n'y a pas au moins deux chemins disjoints.
+	 */
+	private boolean sendShards(PublicKeyRSA recipient, MessageToSecure message) {
+		var bytes = StandardCharsets.UTF_8.encode(message.message());
+		if(bytes.remaining() < SHARDED_MESSAGE_MIN_BYTES) { return false; }
+		var paths = graphe.disjointPaths(uniquePublicKeyRSA, recipient, SHARD_PATHS);
+		if(paths.size() < 2) { return false; }
+		var total = paths.size();
+		var needed = Math.max(1, total - SHARD_SPARE_PATHS);
+		var shards = ErasureCode.encode(bytes, needed, total);
+		for(var i = 0; i < total; i++) {
+			var shard = new MessageShard(uniquePublicKeyRSA, message.idMessage(), i, needed, total, bytes.remaining(), shards[i]);
+			sendHiddenMessage(Utils.onionRoutingForInstruction(paths.get(i).reversed(), shard, Utils.HYBRID_ONION_LAYERS).instruction());
+		}
+		logger.info("Message caché envoyé en " + total + " fragments (" + needed + " suffisent)");
+		return true;
+	}
+
+	/**
+	 * Message caché arrivé au bout d'un circuit (thread du worker, sans verrou).
+	 */
+	private void receiveCircuitMessage(MessageToSecure message, OnionCircuits.Hop replyTo) {
+		stateLock.lock();
+		try {
+			receiveMessage(message, replyTo);
+		} finally {
+			stateLock.unlock();
+		}
+	}
+
+	private void receiveMessage(Paquet messageReceived) {
+		receiveMessage(messageReceived, null);
+	}
+
 	/**
 	 * Methode pour afficher un message.
 	 * On sait qu'il s'adresse à nous, car ce sera vérifier avant.
 	 * @param messageReceived: Message reçu.
+	 * @param circuit : Circuit dont on est la sortie et par lequel le message est arrivé, null sinon.
 	 */
-	private void receiveMessage(Paquet messageReceived) {
+	private void receiveMessage(Paquet messageReceived, OnionCircuits.Hop circuit) {
 		Objects.requireNonNull(messageReceived);
 		var sb = new StringBuilder();
 		switch(messageReceived) {
@@ -939,6 +2204,10 @@ public final class Application {
 				System.out.println(sb);
 				
 				if(isAck) { return; }
+				if(circuit != null) {
+					circuits.reply(circuit, message.idMessage(), "");
+					return;
+				}
 				var listToSender = graphe.randomPath(uniquePublicKeyRSA, message.sender()).reversed();
 				var ackToSender = Utils.acknowledgmentAfterSecureMessage(uniquePublicKeyRSA, listToSender, message.idMessage());
 				sendHiddenMessage(ackToSender.instruction());
@@ -983,18 +2252,21 @@ public final class Application {
 		if(deconnexionManager.receiveDone(context.publicKeyExtern())) {
 			//CAN'T RECEIVE
 			infoUsers.resetAtDeconnexion(uniquePublicKeyRSA);
-			graphe.updateNetWork(infoUsers.getRoutageConnexion());
 			System.out.println("L'application n'est plus dans le réseau");
 		}
 	}
 	
 	private void deletionAfterBrutaleDeconnexion(Context context) {
 		infoUsers.disconnectAppWithContextToApp(context);
-		graphe.updateNetWork(infoUsers.getRoutageConnexion());
 		//DECONNEXION PAR REMOVE NODE
 		var pubkeyWantDeconnect = context.publicKeyExtern();
 		if(pubkeyWantDeconnect == null) { return; }//sécurité en cas de défaillance
 		var removeNode = new RemoveNode(pubkeyWantDeconnect);
+		if(TOPOLOGY_BATCHING) {
+			//le context est déjà retiré des voisins : il ne recevra pas le lot
+			queueTopology(removeNode);
+			return;
+		}
 		var payload = removeNode.getWriteModeBuffer().flip();
 		var size = payload.remaining();
 	    var broadcast = new Broadcast(pubkeyWantDeconnect, Utils.generateRandomLong(), size, payload.compact());
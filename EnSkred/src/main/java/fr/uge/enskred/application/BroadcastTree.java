@@ -0,0 +1,223 @@
+package fr.uge.enskred.application;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.uge.enskred.application.Application.Context;
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.paquet.BroadcastDigest;
+import fr.uge.enskred.paquet.Prune;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * Diffusion des broadcasts le long d'un arbre couvrant qui se répare seul (« epidemic broadcast trees », Plumtree).
+ * ---
+ * Chaque lien est soit <b>eager</b> (les broadcasts y sont poussés en entier), soit <b>lazy</b> (seul leur identifiant
+ * y est annoncé, par un {@code IHAVE}). Tous les liens commencent eager : c'est l'inondation habituelle, qui élague ses cycles.
+ * <ul>
+ *   <li>un broadcast reçu en double par un lien eager prouve un cycle : le lien passe lazy et on envoie {@code PRUNE}
+ *   au voisin, qui fait de même de son côté ;</li>
+ *   <li>un {@code IHAVE} d'un broadcast inconnu arme un délai : si le broadcast n'est pas arrivé par l'arbre entre-temps
+ *   (lien coupé, voisin parti), on le demande à l'annonceur par un {@code GRAFT}, et ce lien redevient eager ;</li>
+ *   <li>un {@code GRAFT} reçu rend le lien eager et renvoie le broadcast s'il est encore en cache.</li>
+ * </ul>
+ * En régime établi, un broadcast ne traverse plus que les N - 1 liens de l'arbre ; les autres liens ne portent que des
+ * {@code IHAVE} de quelques dizaines d'octets (la clé de l'émetteur y est compactée en empreinte).
+ *
+ * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock` ; les délais tournent sur l'ordonnanceur de l'application.
+ */
+public final class BroadcastTree {
+	private static final Logger logger = Logger.getLogger(BroadcastTree.class.getName());
+	private static final long GRAFT_TIMEOUT_MILLIS = 400;		//attente d'un broadcast annoncé avant GRAFT - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long GRAFT_RETRY_MILLIS = 200;			//avant de tenter l'annonceur suivant
+	private static final int MAX_CACHED_BROADCASTS = 256;		//broadcasts gardés pour répondre aux GRAFT - CHAMPS À MODIFIER SI NECESSAIRE !
+
+	/**
+	 * Identifiant d'un broadcast.
+	 */
+	public record MessageKey(PublicKeyRSA publicKeySender, long messageID) {
+		public MessageKey {
+			Objects.requireNonNull(publicKeySender);
+		}
+	}
+
+	/**
+	 * Broadcast annoncé mais pas encore reçu : voisins qui l'ont annoncé, dans l'ordre, et délai en cours.
+	 */
+	private static final class Missing {
+		private final ArrayDeque<Context> announcers = new ArrayDeque<>();
+		private ScheduledFuture<?> timer;
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ScheduledExecutorService scheduler;
+	private final HashSet<Context> lazyPeers = new HashSet<>();
+	private final HashMap<MessageKey, Missing> missing = new HashMap<>();
+	//trames partagées (lecture seule) des derniers broadcasts, pour les GRAFT
+	private final LinkedHashMap<MessageKey, ByteBuffer> cache = new LinkedHashMap<>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<MessageKey, ByteBuffer> eldest) {
+			return size() > MAX_CACHED_BROADCASTS;
+		}
+	};
+
+	public BroadcastTree(ScheduledExecutorService scheduler, Level level) {
+		this.scheduler = Objects.requireNonNull(scheduler);
+		logger.setLevel(level == null ? Level.SEVERE : level);
+	}
+
+	/**
+	 * Indique si les broadcasts sont poussés en entier à ce voisin.
+	 */
+	public boolean isEager(Context peer) {
+		lock.lock();
+		try {
+			return !lazyPeers.contains(peer);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Un broadcast nouveau va être relayé : il est gardé pour les GRAFT, l'attente éventuelle est annulée,
+	 * et le lien par lequel il est arrivé fait partie de l'arbre.
+	 * ---
+	 * @param from : Voisin qui l'a transmis, ou null s'il est émis localement.
+	 * @param frame : Trame partagée en lecture seule.
+	 */
+	public void onNewBroadcast(MessageKey key, ByteBuffer frame, Context from) {
+		lock.lock();
+		try {
+			cache.put(key, frame);
+			var waiting = missing.remove(key);
+			if(waiting != null) { waiting.timer.cancel(false); }
+			if(from != null) { lazyPeers.remove(from); }
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Un broadcast déjà vu est arrivé : si le lien était eager, il ferme un cycle et est élagué.
+	 */
+	public void onDuplicate(Context from) {
+		lock.lock();
+		try {
+			if(!lazyPeers.add(from)) { return; }
+		} finally {
+			lock.unlock();
+		}
+		logger.info("Broadcast en double, lien élagué vers " + from.publicKeyExtern());
+		from.queuePaquet(new Prune());
+	}
+
+	/**
+	 * Le voisin ne veut plus recevoir les broadcasts en entier.
+	 */
+	public void onPrune(Context from) {
+		lock.lock();
+		try {
+			lazyPeers.add(from);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Le voisin réclame un broadcast : le lien redevient eager, et le broadcast est renvoyé s'il est en cache.
+	 */
+	public void onGraft(Context from, MessageKey key) {
+		ByteBuffer frame;
+		lock.lock();
+		try {
+			lazyPeers.remove(from);
+			frame = cache.get(key);
+		} finally {
+			lock.unlock();
+		}
+		if(frame != null) { from.queueFrame(frame.duplicate()); }
+	}
+
+	/**
+	 * Un voisin annonce un broadcast que l'on n'a pas encore reçu.
+	 */
+	public void onIHave(Context from, MessageKey key) {
+		lock.lock();
+		try {
+			var waiting = missing.get(key);
+			if(waiting == null) {
+				waiting = new Missing();
+				missing.put(key, waiting);
+				waiting.timer = scheduler.schedule(() -> timeout(key), GRAFT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			if(!waiting.announcers.contains(from)) { waiting.announcers.add(from); }
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Le voisin est déconnecté : il n'est plus dans l'arbre et ne peut plus répondre aux GRAFT.
+	 */
+	public void forget(Context peer) {
+		lock.lock();
+		try {
+			lazyPeers.remove(peer);
+			for(var waiting : missing.values()) {
+				waiting.announcers.remove(peer);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Annonces en attente (pour l'affichage de l'état du réseau).
+	 */
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "BroadcastTree[" + lazyPeers.size() + " liens lazy, " + missing.size() + " broadcasts attendus, " + cache.size() + " en cache]";
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//PRIVATE METHODS
+
+	private void timeout(MessageKey key) {
+		Context announcer;
+		lock.lock();
+		try {
+			var waiting = missing.get(key);
+			if(waiting == null) { return; }
+			announcer = waiting.announcers.pollFirst();
+			if(announcer == null) {
+				missing.remove(key);
+				return;
+			}
+			lazyPeers.remove(announcer);
+			//si cet annonceur ne répond pas, on essaiera le suivant
+			waiting.timer = scheduler.schedule(() -> timeout(key), GRAFT_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+		} finally {
+			lock.unlock();
+		}
+		logger.info("Broadcast annoncé non reçu, GRAFT vers " + announcer.publicKeyExtern());
+		announcer.queuePaquet(new BroadcastDigest(key.publicKeySender(), key.messageID(), OpCode.GRAFT));
+	}
+}
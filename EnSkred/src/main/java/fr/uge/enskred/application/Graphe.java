@@ -1,20 +1,23 @@
 package fr.uge.enskred.application;
 
-import java.util.ArrayDeque;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
 import fr.uge.enskred.utils.Utils;
 
@@ -26,31 +29,86 @@ import fr.uge.enskred.utils.Utils;
  *
  * ---
  *
- * Les connexions entre nœuds sont modélisées via une map `network`, tandis que `rootNetwork`
- * contient pour chaque nœud les routes calculées par parcours en largeur (BFS).
- * 
+ * Les clés ne sont hachées qu'une fois, via le {@link NodeRegistry} qui leur attribue un identifiant
+ * entier dense. Tout le reste travaille sur des primitives : la liste d'adjacence est un tableau
+ * `int[][]` (un tableau de voisins par nœud, avec son degré), et l'arbre de routage est stocké dans
+ * deux tableaux `distances` et `parents` indexés par identifiant (-1 pour un nœud non atteignable).
+ *
+ * Seul le nœud local (`source`) a besoin de prochains sauts : on maintient donc un unique arbre de plus
+ * courts chemins (BFS) depuis `source`, mis à jour de façon incrémentale à chaque ajout ou suppression
+ * d'arête. Un ajout ne propage que les distances qui diminuent ; une suppression ne recalcule que le
+ * sous-arbre qui passait par l'arête retirée (les fils d'un nœud sont ses voisins dont il est le parent).
+ *
+ * Chaque arête porte aussi un poids, le temps d'aller-retour mesuré du lien : les prochains sauts depuis `source`
+ * suivent un second arbre, celui des chemins les plus rapides (Dijkstra), recalculé paresseusement au premier
+ * routage qui suit un changement. Les chemins aléatoires des messages cachés restent tirés sur les distances en sauts (BFS).
+ *
+ * Chaque nœud porte enfin la charge qu'il annonce (NodeLoad) : les relais des chemins cachés sont tirés avec une
+ * probabilité inversement proportionnelle à leur charge, pour répartir les déchiffrements sur tout le réseau.
+ *
  * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock`.
  */
 public final class Graphe {
-	
-	private static final int NOMBRE_CHEMIN_MAXIMUM = 20; //Limite de chemins explorés pour éviter l'explosion combinatoire
+
+	private static final int LONGUEUR_CHEMIN_CACHE = 4; //sauts visés par les chemins cachés (plus le plus court chemin est long, plus il l'emporte) - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MARCHE_MAX_PAR_SAUT = 4; //borne des pas de la marche (boucles effacées comprises) par saut visé
+	private static final int CAPACITE_INITIALE = 16;
+	//prochains sauts des messages publics par le chemin le plus rapide (Dijkstra sur les temps d'aller-retour) plutôt que le plus court - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final boolean ROUTAGE_PAR_LATENCE = true;
+	private static final int POIDS_PAR_DEFAUT = 1_000; //poids (µs) d'une connexion pas encore mesurée - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int PENALITE_RELAIS_PRECEDENT = 4; //relais du chemin précédent tirés 4 fois moins souvent, à charge égale - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int CHARGE_SATUREE = 192; //relais évités par les chemins disjoints tant qu'il en reste d'autres (sur 255) - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int[] AUCUN_VOISIN = new int[0];
+	private static final long[] AUCUNE_VERSION = new long[0];
 	private static final Logger logger = Logger.getLogger(Graphe.class.getName());
-	
-	private final HashSet< PublicKeyRSA > keys = new HashSet<>();
-	private final HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>> network;
-	private final HashMap<PublicKeyRSA, HashMap<PublicKeyRSA, PublicKeyRSA>> rootNetwork;
-	
+
+	private final NodeRegistry registry;
+	private final PublicKeyRSA source;
+	private final int sourceId;
+	//nœuds présents dans le graphe
+	private final BitSet nodes = new BitSet();
+	private int[][] adjacency = new int[CAPACITE_INITIALE][];
+	private int[] degree = new int[CAPACITE_INITIALE];
+	//poids (temps d'aller-retour en µs) de chaque arête, aux mêmes positions que adjacency
+	private int[][] weights = new int[CAPACITE_INITIALE][];
+	//version de l'annonce retenue pour chaque poids, aux mêmes positions (0 : poids par défaut, jamais annoncé)
+	private long[][] weightVersions = new long[CAPACITE_INITIALE][];
+	//charge annoncée par chaque nœud (0 tant qu'il n'a rien annoncé) et version de cette annonce (0 : aucune)
+	private int[] loads = new int[CAPACITE_INITIALE];
+	private long[] loadVersions = new long[CAPACITE_INITIALE];
+	//arbre BFS depuis source (-1 pour les nœuds non atteignables)
+	private int[] distances = filled(CAPACITE_INITIALE);
+	private int[] parents = filled(CAPACITE_INITIALE);
+	//arbre des chemins les plus rapides depuis source, recalculé à la demande après un changement du graphe ou d'un poids
+	private int[] weightedParents = filled(CAPACITE_INITIALE);
+	private boolean weightedDirty = true;
+	//relais du dernier chemin aléatoire vers chaque destination, défavorisés au tirage suivant vers elle (null : aucun)
+	private int[][] lastRelays = new int[CAPACITE_INITIALE][];
+
 	private final ReentrantLock lock = new ReentrantLock();
 
+	private record Candidate(int node, int distance) {}
+
     /**
-     * Construit un graphe vide.
+     * Construit un graphe ne contenant que le nœud local.
+     *
+     * @param source: La clé publique du nœud local, racine de l'arbre de routage.
+     * @param registry: Le registre partagé qui attribue les identifiants des nœuds.
      */
-	Graphe() {
-		this.network = new HashMap<>();
-		this.rootNetwork = new HashMap<>();
+	Graphe(PublicKeyRSA source, NodeRegistry registry) {
+		this.source = Objects.requireNonNull(source);
+		this.registry = Objects.requireNonNull(registry);
+		this.sourceId = registry.intern(source);
 		logger.setLevel(Level.SEVERE);
+		addNode(sourceId);
 	}
 
+    /**
+     * @return Le registre qui associe les clés publiques aux identifiants du graphe.
+     */
+	public NodeRegistry registry() {
+		return registry;
+	}
 
     /**
      * Retourne la table de routage (parents dans l'arbre BFS) d'un nœud donné.
@@ -62,15 +120,22 @@ public final class Graphe {
 		Objects.requireNonNull(key);
 		lock.lock();
 		try {
-			return rootNetwork.get(key);
+			var result = new HashMap<PublicKeyRSA, PublicKeyRSA>();
+			var id = registry.idOf(key);
+			if(id == NodeRegistry.UNKNOWN || !nodes.get(id)) { return result; }
+			var routingTable = id == sourceId ? parents : parcoursLargeur(id);
+			for(var node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+				if(routingTable[node] >= 0) { result.put(registry.keyOf(node), registry.keyOf(routingTable[node])); }
+			}
+			return result;
 		} finally {
 			lock.unlock();
 		}
 	}
 
     /**
-     * Met à jour le graphe avec un nouveau réseau.
-     * Reconstruit tous les chemins à partir de chaque nœud.
+     * Remplace tout le graphe par un nouveau réseau (resynchronisation complète).
+     * Un seul BFS depuis le nœud local est effectué.
      *
      * @param networkToUpdate: Le nouveau graphe d'adjacence à utiliser.
      */
@@ -78,185 +143,894 @@ public final class Graphe {
 		Objects.requireNonNull(networkToUpdate);
 		lock.lock();
 		try {
-			network.clear();
-			network.putAll(networkToUpdate);
-			
-			keys.clear();
-			keys.addAll(network.keySet());
-			network.values().forEach(keys::addAll);
-			
-			rootNetwork.clear();
-			getChemins();
+			reset();
+			networkToUpdate.forEach((node, neighbors) -> {
+				var nodeId = registry.intern(node);
+				addNode(nodeId);
+				for(var neighbor: neighbors) {
+					var neighborId = registry.intern(neighbor);
+					addNode(neighborId);
+					link(nodeId, neighborId);
+				}
+			});
+			addNode(sourceId);
+			distances[sourceId] = 0;
+			parents[sourceId] = sourceId;
+			propagate(sourceId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Vide le graphe (ne garde que le nœud local, sans connexion).
+     */
+	public void clear() {
+		lock.lock();
+		try {
+			reset();
+			addNode(sourceId);
 		} finally {
 			lock.unlock();
 		}
 	}
-	//------------------------------------------------------------------------------------
-	//------------------------------------------------------------------------------------
-	//------------------------------------------------------------------------------------
 
-	private HashMap<PublicKeyRSA, PublicKeyRSA> parcoursLargeur(PublicKeyRSA depart) {
-		Objects.requireNonNull(depart);
+    /**
+     * Indique si un nœud est présent dans le graphe.
+     *
+     * @param node: L'identifiant du nœud.
+     * @return true s'il est présent.
+     */
+	public boolean contains(int node) {
 		lock.lock();
 		try {
-			var parents = new HashMap<PublicKeyRSA, PublicKeyRSA>();
-			var visites = new HashSet<PublicKeyRSA>();
-			var a_traiter = new ArrayDeque<PublicKeyRSA>();
-			a_traiter.add(depart);
-			visites.add(depart);
-			parents.put(depart, depart);
-			
-			while (!a_traiter.isEmpty()) {
-				var u = a_traiter.removeFirst();
-				var voisins = network.getOrDefault(u, new HashSet<>());
-				for (var v : voisins) {
-					if (!visites.contains(v)) {
-						visites.add(v);
-						parents.put(v, u); // u est le prédécesseur de v
-						a_traiter.addLast(v);
-					}
-				}
+			return node >= 0 && nodes.get(node);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Ajoute un nœud isolé s'il n'est pas déjà connu.
+     *
+     * @param node: Le nœud à ajouter.
+     */
+	public void addNode(PublicKeyRSA node) {
+		Objects.requireNonNull(node);
+		addNode(registry.intern(node));
+	}
+
+    /**
+     * Ajoute un nœud isolé s'il n'est pas déjà connu.
+     *
+     * @param node: L'identifiant du nœud à ajouter.
+     */
+	public void addNode(int node) {
+		lock.lock();
+		try {
+			ensureCapacity(node);
+			if(nodes.get(node)) { return; }
+			nodes.set(node);
+			degree[node] = 0;
+			loads[node] = 0;
+			loadVersions[node] = 0;
+			lastRelays[node] = null;
+			if(adjacency[node] == null) {
+				adjacency[node] = AUCUN_VOISIN;
+				weights[node] = AUCUN_VOISIN;
+				weightVersions[node] = AUCUNE_VERSION;
+			}
+			if(node == sourceId) {
+				distances[node] = 0;
+				parents[node] = node;
 			}
-			return parents;
 		} finally {
 			lock.unlock();
 		}
 	}
 
+    /**
+     * Ajoute une arête (non orientée) et propage uniquement les distances qui diminuent.
+     *
+     * @param first:  Une extrémité.
+     * @param second: L'autre extrémité.
+     */
+	public void addEdge(PublicKeyRSA first, PublicKeyRSA second) {
+		Utils.requireNonNulls(first, second);
+		addEdge(registry.intern(first), registry.intern(second));
+	}
 
     /**
-     * Calcule pour chaque nœud du graphe les routes vers tous les autres via BFS.
+     * Ajoute une arête (non orientée) et propage uniquement les distances qui diminuent.
+     *
+     * @param first:  L'identifiant d'une extrémité.
+     * @param second: L'identifiant de l'autre extrémité.
      */
-	public void getChemins() {
+	public void addEdge(int first, int second) {
+		if(first == second) { return; }
 		lock.lock();
 		try {
-			for (var depart : keys) {
-				var parents = parcoursLargeur(depart);
-				//logger.info(parents);
-				rootNetwork.put(depart, parents);
-			}			
+			addNode(first);
+			addNode(second);
+			if(!link(first, second)) { return; }
+			relax(first, second);
+			relax(second, first);
 		} finally {
 			lock.unlock();
 		}
 	}
 
+    /**
+     * Supprime une arête (non orientée). Si elle faisait partie de l'arbre de routage,
+     * seul le sous-arbre qui en dépendait est recalculé.
+     *
+     * @param first:  Une extrémité.
+     * @param second: L'autre extrémité.
+     */
+	public void removeEdge(PublicKeyRSA first, PublicKeyRSA second) {
+		Utils.requireNonNulls(first, second);
+		var firstId = registry.idOf(first);
+		var secondId = registry.idOf(second);
+		if(firstId == NodeRegistry.UNKNOWN || secondId == NodeRegistry.UNKNOWN) { return; }
+		removeEdge(firstId, secondId);
+	}
 
     /**
-     * Calcule le prochain saut (hop) à effectuer depuis un nœud source vers une destination.
+     * Supprime une arête (non orientée), voir {@link #removeEdge(PublicKeyRSA, PublicKeyRSA)}.
      *
-     * @param sender:      Le nœud source.
-     * @param receiver:    Le nœud destination.
-     * @return Le voisin du sender qui mène vers receiver, ou null si aucun chemin.
+     * @param first:  L'identifiant d'une extrémité.
+     * @param second: L'identifiant de l'autre extrémité.
      */
-	public PublicKeyRSA nextHop(PublicKeyRSA sender, PublicKeyRSA receiver) {
-		Utils.requireNonNulls(sender, receiver);
+	public void removeEdge(int first, int second) {
 		lock.lock();
-		try {			
-			var routingTable = rootNetwork.get(sender);
-			if (routingTable == null) return null;
-			
-			if (!routingTable.containsKey(receiver)) return null;
-			
-			if (routingTable.get(receiver).equals(sender) || sender.equals(receiver)) {
-				return receiver;
+		try {
+			if(!contains(first) || !contains(second) || !unlink(first, second)) { return; }
+			unlink(second, first);
+			if(parents[second] == first && second != sourceId) {
+				repair(second);
+			} else if(parents[first] == second && first != sourceId) {
+				repair(first);
 			}
-			
-			var current = receiver;
-			while(!routingTable.get(current).equals(sender)) {
-				current = routingTable.get(current);
-				logger.info("Ça boucle en while NextHop");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Supprime un nœud et toutes ses arêtes. Le nœud local n'est jamais retiré, seulement isolé.
+     *
+     * @param node: Le nœud à supprimer.
+     */
+	public void removeNode(PublicKeyRSA node) {
+		Objects.requireNonNull(node);
+		var id = registry.idOf(node);
+		if(id != NodeRegistry.UNKNOWN) { removeNode(id); }
+	}
+
+    /**
+     * Supprime un nœud et toutes ses arêtes, voir {@link #removeNode(PublicKeyRSA)}.
+     *
+     * @param node: L'identifiant du nœud à supprimer.
+     */
+	public void removeNode(int node) {
+		lock.lock();
+		try {
+			if(!contains(node)) { return; }
+			while(degree[node] > 0) {
+				removeEdge(node, adjacency[node][degree[node] - 1]);
 			}
-			return current;
+			if(node == sourceId) { return; }
+			nodes.clear(node);
+			distances[node] = -1;
+			parents[node] = -1;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Prochain nœud présent à partir d'un identifiant (pour parcourir le graphe par morceaux).
+     *
+     * @param from: Premier identifiant candidat.
+     * @return L'identifiant du nœud, ou -1 s'il n'y en a plus.
+     */
+	public int nextNode(int from) {
+		lock.lock();
+		try {
+			return nodes.nextSetBit(Math.max(from, 0));
 		} finally {
 			lock.unlock();
 		}
 	}
 
-	
     /**
-     * Recherche jusqu'à N chemins simples (sans cycle) entre deux nœuds.
+     * Indique si deux nœuds sont reliés.
      *
-     * @param graph: Le graphe sous forme de liste d'adjacence.
-     * @param src:   La source.
-     * @param dst:   La destination.
-     * @return Une liste de chemins (chacun une liste de nœuds).
+     * @param first:  Une extrémité.
+     * @param second: L'autre extrémité.
+     * @return true si l'arête existe.
      */
-	public List<List<PublicKeyRSA>> findNPaths(Map<PublicKeyRSA, List<PublicKeyRSA>> graph, PublicKeyRSA src, PublicKeyRSA dst) {
-		Utils.requireNonNulls(graph, src, dst);
+	public boolean hasEdge(PublicKeyRSA first, PublicKeyRSA second) {
+		Utils.requireNonNulls(first, second);
 		lock.lock();
 		try {
-			int nombreAretes = keys.size() - 1; // Un graphe connexe à n sommet possède n-1 aretes
-			if(nombreAretes > NOMBRE_CHEMIN_MAXIMUM) {
-				nombreAretes = NOMBRE_CHEMIN_MAXIMUM;
+			var firstId = registry.idOf(first);
+			var secondId = registry.idOf(second);
+			if(!contains(firstId) || !contains(secondId)) { return false; }
+			for(var i = 0; i < degree[firstId]; i++) {
+				if(adjacency[firstId][i] == secondId) { return true; }
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Met à jour le poids (temps d'aller-retour) d'une arête existante, si l'annonce est plus récente que celle retenue.
+     * Une arête retirée puis rajoutée repart du poids par défaut (version 0) : la première annonce la remplace.
+     *
+     * @param first:  Une extrémité.
+     * @param second: L'autre extrémité.
+     * @param rttMicros: Le temps d'aller-retour mesuré, en microsecondes.
+     * @param version: Version de l'annonce (croissante chez l'extrémité qui annonce, strictement positive).
+     * @return false si l'arête est inconnue ou l'annonce dépassée.
+     */
+	public boolean setWeight(PublicKeyRSA first, PublicKeyRSA second, int rttMicros, long version) {
+		Utils.requireNonNulls(first, second);
+		if(rttMicros <= 0) {
+			throw new IllegalArgumentException("rttMicros: " + rttMicros);
+		}
+		if(version <= 0) {
+			throw new IllegalArgumentException("version: " + version);
+		}
+		lock.lock();
+		try {
+			var firstId = registry.idOf(first);
+			var secondId = registry.idOf(second);
+			if(!contains(firstId) || !contains(secondId)) { return false; }
+			return setWeight(firstId, secondId, rttMicros, version) && setWeight(secondId, firstId, rttMicros, version);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * @param node: L'identifiant d'une extrémité.
+     * @param neighbor: L'identifiant de l'autre extrémité.
+     * @return Le poids retenu pour cette arête, 0 si elle est inconnue.
+     */
+	public int weight(int node, int neighbor) {
+		lock.lock();
+		try {
+			var index = contains(node) ? indexOf(node, neighbor) : -1;
+			return index < 0 ? 0 : weights[node][index];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * @param node: L'identifiant d'une extrémité.
+     * @param neighbor: L'identifiant de l'autre extrémité.
+     * @return La version du poids retenu pour cette arête, 0 s'il n'a jamais été annoncé ou si l'arête est inconnue.
+     */
+	public long weightVersion(int node, int neighbor) {
+		lock.lock();
+		try {
+			var index = contains(node) ? indexOf(node, neighbor) : -1;
+			return index < 0 ? 0 : weightVersions[node][index];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Met à jour la charge annoncée par un nœud, si l'annonce est plus récente que celle retenue.
+     *
+     * @param node: Le nœud.
+     * @param load: Son score de charge (0 = libre).
+     * @param version: Version de l'annonce (croissante chez le nœud qui annonce, strictement positive).
+     * @return false si le nœud est inconnu ou l'annonce dépassée.
+     */
+	public boolean setLoad(PublicKeyRSA node, int load, long version) {
+		Objects.requireNonNull(node);
+		if(load < 0 || version <= 0) {
+			throw new IllegalArgumentException("load: " + load + ", version: " + version);
+		}
+		lock.lock();
+		try {
+			var id = registry.idOf(node);
+			if(!contains(id) || version <= loadVersions[id]) { return false; }
+			loads[id] = load;
+			loadVersions[id] = version;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * @param node: L'identifiant du nœud.
+     * @return La charge retenue pour ce nœud (0 s'il n'a rien annoncé).
+     */
+	public int load(int node) {
+		lock.lock();
+		try {
+			return contains(node) ? loads[node] : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * @param node: L'identifiant du nœud.
+     * @return La version de la charge retenue pour ce nœud, 0 s'il n'a rien annoncé.
+     */
+	public long loadVersion(int node) {
+		lock.lock();
+		try {
+			return contains(node) ? loadVersions[node] : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Copie des voisins d'un nœud, triés par identifiant.
+     *
+     * @param node: L'identifiant du nœud.
+     * @return Les identifiants des voisins (vide si le nœud est absent).
+     */
+	public int[] neighbors(int node) {
+		lock.lock();
+		try {
+			if(!contains(node)) { return AUCUN_VOISIN; }
+			var neighbors = Arrays.copyOf(adjacency[node], degree[node]);
+			Arrays.sort(neighbors);
+			return neighbors;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Copie la liste d'adjacence sous forme de clés publiques (pour l'affichage et la JoinResponse).
+     *
+     * @return Une map nœud -> voisins.
+     */
+	public HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>> toAdjacencyMap() {
+		lock.lock();
+		try {
+			var result = new HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>>();
+			for(var node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+				var neighbors = new HashSet<PublicKeyRSA>();
+				for(var i = 0; i < degree[node]; i++) {
+					neighbors.add(registry.keyOf(adjacency[node][i]));
+				}
+				result.put(registry.keyOf(node), neighbors);
 			}
-			List<List<PublicKeyRSA>> result = new ArrayList<>();
-			LinkedList<PublicKeyRSA> path = new LinkedList<>();
-			Set<PublicKeyRSA> visited = new HashSet<>();
-			dfs(graph, src, dst, nombreAretes, result, path, visited);
 			return result;
 		} finally {
 			lock.unlock();
 		}
-    }
+	}
+	//------------------------------------------------------------------------------------
+	//------------------------------------------------------------------------------------
+	//------------------------------------------------------------------------------------
+
+	private static int[] filled(int size) {
+		var array = new int[size];
+		Arrays.fill(array, -1);
+		return array;
+	}
+
+	private void ensureCapacity(int node) {
+		if(node < adjacency.length) { return; }
+		var oldLength = adjacency.length;
+		var newLength = Math.max(node + 1, oldLength * 2);
+		adjacency = Arrays.copyOf(adjacency, newLength);
+		degree = Arrays.copyOf(degree, newLength);
+		weights = Arrays.copyOf(weights, newLength);
+		weightVersions = Arrays.copyOf(weightVersions, newLength);
+		loads = Arrays.copyOf(loads, newLength);
+		lastRelays = Arrays.copyOf(lastRelays, newLength);
+		loadVersions = Arrays.copyOf(loadVersions, newLength);
+		distances = Arrays.copyOf(distances, newLength);
+		parents = Arrays.copyOf(parents, newLength);
+		weightedParents = Arrays.copyOf(weightedParents, newLength);
+		Arrays.fill(distances, oldLength, newLength, -1);
+		Arrays.fill(parents, oldLength, newLength, -1);
+		Arrays.fill(weightedParents, oldLength, newLength, -1);
+	}
+
+	private void reset() {
+		for(var node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+			degree[node] = 0;
+			distances[node] = -1;
+			parents[node] = -1;
+		}
+		nodes.clear();
+		weightedDirty = true;
+	}
+
+	private boolean hasNeighbor(int node, int neighbor) {
+		var neighbors = adjacency[node];
+		for(var i = 0; i < degree[node]; i++) {
+			if(neighbors[i] == neighbor) { return true; }
+		}
+		return false;
+	}
+
+	//ajoute l'arête dans les deux sens, false si elle existait déjà
+	private boolean link(int first, int second) {
+		if(first == second || hasNeighbor(first, second)) { return false; }
+		append(first, second);
+		append(second, first);
+		weightedDirty = true;
+		return true;
+	}
+
+	private void append(int node, int neighbor) {
+		if(degree[node] == adjacency[node].length) {
+			adjacency[node] = Arrays.copyOf(adjacency[node], Math.max(4, degree[node] * 2));
+			weights[node] = Arrays.copyOf(weights[node], adjacency[node].length);
+			weightVersions[node] = Arrays.copyOf(weightVersions[node], adjacency[node].length);
+		}
+		weights[node][degree[node]] = POIDS_PAR_DEFAUT;
+		weightVersions[node][degree[node]] = 0;
+		adjacency[node][degree[node]++] = neighbor;
+	}
+
+	//retire neighbor des voisins de node (échange avec le dernier), false s'il n'y était pas
+	private boolean unlink(int node, int neighbor) {
+		var neighbors = adjacency[node];
+		for(var i = 0; i < degree[node]; i++) {
+			if(neighbors[i] == neighbor) {
+				neighbors[i] = neighbors[--degree[node]];
+				weights[node][i] = weights[node][degree[node]];
+				weightVersions[node][i] = weightVersions[node][degree[node]];
+				weightedDirty = true;
+				return true;
+			}
+		}
+		return false;
+	}
 
-    private void dfs(Map<PublicKeyRSA, List<PublicKeyRSA>> graph, PublicKeyRSA current, PublicKeyRSA dst, int n,
-                            List<List<PublicKeyRSA>> result, LinkedList<PublicKeyRSA> path, Set<PublicKeyRSA> visited) {
-    	Utils.requireNonNulls(graph, current, dst, result, path, visited);
-		if (result.size() >= n) return;
-		
-		visited.add(current);
-		path.add(current);
-		
-		if (current.equals(dst)) {
-			result.add(new ArrayList<>(path));
-		} else {
-			for (PublicKeyRSA neighbor : graph.getOrDefault(current, Collections.emptyList())) {
-				if (!visited.contains(neighbor)) {
-					dfs(graph, neighbor, dst, n, result, path, visited);
+	private int[] parcoursLargeur(int depart) {
+		var parents = filled(adjacency.length);
+		var a_traiter = new int[adjacency.length];
+		var head = 0;
+		var tail = 0;
+		a_traiter[tail++] = depart;
+		parents[depart] = depart;
+		while (head < tail) {
+			var u = a_traiter[head++];
+			for (var i = 0; i < degree[u]; i++) {
+				var v = adjacency[u][i];
+				if (parents[v] < 0) {
+					parents[v] = u; // u est le prédécesseur de v
+					a_traiter[tail++] = v;
 				}
 			}
 		}
-		
-		path.removeLast();
-		visited.remove(current);
-		
-    }
-    
+		return parents;
+	}
+
+	private int[] distancesFrom(int depart) {
+		var distances = filled(adjacency.length);
+		var a_traiter = new int[adjacency.length];
+		var head = 0;
+		var tail = 0;
+		a_traiter[tail++] = depart;
+		distances[depart] = 0;
+		while (head < tail) {
+			var u = a_traiter[head++];
+			for (var i = 0; i < degree[u]; i++) {
+				var v = adjacency[u][i];
+				if (distances[v] < 0) {
+					distances[v] = distances[u] + 1;
+					a_traiter[tail++] = v;
+				}
+			}
+		}
+		return distances;
+	}
+
+	private boolean setWeight(int node, int neighbor, int rttMicros, long version) {
+		var index = indexOf(node, neighbor);
+		if(index < 0 || version <= weightVersions[node][index]) { return false; }
+		weightVersions[node][index] = version;
+		if(weights[node][index] != rttMicros) {
+			weights[node][index] = rttMicros;
+			weightedDirty = true;
+		}
+		return true;
+	}
+
+	//position de neighbor parmi les voisins de node, -1 s'il n'y est pas
+	private int indexOf(int node, int neighbor) {
+		for(var i = 0; i < degree[node]; i++) {
+			if(adjacency[node][i] == neighbor) { return i; }
+		}
+		return -1;
+	}
+
+	/**
+	 * Arbre des chemins les plus rapides depuis source (Dijkstra), recalculé seulement si le graphe ou un poids a changé :
+	 * un routage sans changement de topologie ne coûte que la remontée de l'arbre.
+	 */
+	private int[] weightedTree() {
+		if(!weightedDirty) { return weightedParents; }
+		Arrays.fill(weightedParents, -1);
+		var best = new int[adjacency.length];
+		Arrays.fill(best, Integer.MAX_VALUE);
+		var done = new BitSet();
+		var queue = new PriorityQueue<Candidate>(Comparator.comparingInt(Candidate::distance));
+		best[sourceId] = 0;
+		weightedParents[sourceId] = sourceId;
+		queue.add(new Candidate(sourceId, 0));
+		while(!queue.isEmpty()) {
+			var candidate = queue.poll();
+			var u = candidate.node();
+			if(done.get(u)) { continue; }
+			done.set(u);
+			for(var i = 0; i < degree[u]; i++) {
+				var v = adjacency[u][i];
+				var distance = (int) Math.min(Integer.MAX_VALUE - 1L, (long) candidate.distance() + weights[u][i]);
+				if(distance < best[v]) {
+					best[v] = distance;
+					weightedParents[v] = u;
+					queue.add(new Candidate(v, distance));
+				}
+			}
+		}
+		weightedDirty = false;
+		return weightedParents;
+	}
+
+	/**
+	 * Si passer par {@code from} raccourcit le chemin vers {@code to}, on raccroche {@code to}
+	 * puis on propage la diminution (BFS limité aux nœuds dont la distance baisse).
+	 */
+	private void relax(int from, int to) {
+		if(distances[from] < 0) { return; }
+		if(distances[to] >= 0 && distances[to] <= distances[from] + 1) { return; }
+		distances[to] = distances[from] + 1;
+		parents[to] = from;
+		propagate(to);
+	}
+
+	//les distances sortent de la file dans l'ordre croissant : chaque nœud y entre au plus une fois
+	private void propagate(int start) {
+		var a_traiter = new int[adjacency.length];
+		var head = 0;
+		var tail = 0;
+		a_traiter[tail++] = start;
+		while(head < tail) {
+			var u = a_traiter[head++];
+			var next = distances[u] + 1;
+			for(var i = 0; i < degree[u]; i++) {
+				var v = adjacency[u][i];
+				if(distances[v] < 0 || next < distances[v]) {
+					distances[v] = next;
+					parents[v] = u;
+					a_traiter[tail++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recalcule le sous-arbre enraciné en {@code root} après la perte de son arête parente :
+	 * chaque nœud du sous-arbre repart de ses voisins encore rattachés (Dijkstra borné au sous-arbre).
+	 */
+	private void repair(int root) {
+		var affected = new int[adjacency.length];
+		var count = 0;
+		affected[count++] = root;
+		for(var head = 0; head < count; head++) {
+			var u = affected[head];
+			for(var i = 0; i < degree[u]; i++) {
+				var v = adjacency[u][i];
+				if(parents[v] == u && v != u) { affected[count++] = v; }
+			}
+		}
+		for(var i = 0; i < count; i++) {
+			distances[affected[i]] = -1;
+			parents[affected[i]] = -1;
+		}
+		var bestDistance = new int[adjacency.length];
+		var bestParent = new int[adjacency.length];
+		Arrays.fill(bestDistance, Integer.MAX_VALUE);
+		var queue = new PriorityQueue<Candidate>(Comparator.comparingInt(Candidate::distance));
+		for(var j = 0; j < count; j++) {
+			var node = affected[j];
+			for(var i = 0; i < degree[node]; i++) {
+				var neighbor = adjacency[node][i];
+				if(distances[neighbor] >= 0 && distances[neighbor] + 1 < bestDistance[node]) {
+					bestDistance[node] = distances[neighbor] + 1;
+					bestParent[node] = neighbor;
+				}
+			}
+			if(bestDistance[node] != Integer.MAX_VALUE) { queue.add(new Candidate(node, bestDistance[node])); }
+		}
+		while(!queue.isEmpty()) {
+			var candidate = queue.poll();
+			var node = candidate.node();
+			if(distances[node] >= 0 || bestDistance[node] != candidate.distance()) { continue; }
+			distances[node] = candidate.distance();
+			parents[node] = bestParent[node];
+			for(var i = 0; i < degree[node]; i++) {
+				var neighbor = adjacency[node][i];
+				if(distances[neighbor] >= 0) { continue; }
+				if(candidate.distance() + 1 < bestDistance[neighbor]) {
+					bestDistance[neighbor] = candidate.distance() + 1;
+					bestParent[neighbor] = node;
+					queue.add(new Candidate(neighbor, candidate.distance() + 1));
+				}
+			}
+		}
+	}
+
+
+    /**
+     * Calcule le prochain saut (hop) à effectuer depuis un nœud source vers une destination.
+     * Depuis le nœud local, l'arbre maintenu est utilisé directement ; sinon un BFS est calculé à la demande.
+     *
+     * @param sender:      Le nœud source.
+     * @param receiver:    Le nœud destination.
+     * @return Le voisin du sender qui mène vers receiver, ou null si aucun chemin.
+     */
+	public PublicKeyRSA nextHop(PublicKeyRSA sender, PublicKeyRSA receiver) {
+		Utils.requireNonNulls(sender, receiver);
+		var senderId = registry.idOf(sender);
+		var receiverId = registry.idOf(receiver);
+		if(senderId == NodeRegistry.UNKNOWN || receiverId == NodeRegistry.UNKNOWN) { return null; }
+		var hop = nextHop(senderId, receiverId);
+		return hop < 0 ? null : registry.keyOf(hop);
+	}
+
+    /**
+     * Calcule le prochain saut, voir {@link #nextHop(PublicKeyRSA, PublicKeyRSA)}.
+     *
+     * @param sender:      L'identifiant du nœud source.
+     * @param receiver:    L'identifiant du nœud destination.
+     * @return L'identifiant du voisin du sender qui mène vers receiver, ou -1 si aucun chemin.
+     */
+	public int nextHop(int sender, int receiver) {
+		lock.lock();
+		try {
+			if(!contains(sender) || !contains(receiver)) { return -1; }
+			var routingTable = sender != sourceId ? parcoursLargeur(sender) : ROUTAGE_PAR_LATENCE ? weightedTree() : parents;
+
+			if (routingTable[receiver] < 0) return -1;
+
+			if (routingTable[receiver] == sender || sender == receiver) {
+				return receiver;
+			}
+
+			var current = receiver;
+			while(routingTable[current] != sender) {
+				current = routingTable[current];
+				logger.info("Ça boucle en while NextHop");
+			}
+			return current;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
     private int generateRandomInt(int bound) {
         return ThreadLocalRandom.current().nextInt(bound);
     }
 
     /**
-     * Retourne un chemin aléatoire entre deux nœuds.
-     * Le chemin est choisi parmi ceux trouvés par findNPaths.
+     * Retourne un chemin aléatoire d'environ {@link #LONGUEUR_CHEMIN_CACHE} sauts entre deux nœuds,
+     * voir {@link #randomPath(PublicKeyRSA, PublicKeyRSA, int)}.
+     */
+    public List<PublicKeyRSA> randomPath(PublicKeyRSA sender, PublicKeyRSA destinataire) {
+    	return randomPath(sender, destinataire, LONGUEUR_CHEMIN_CACHE);
+    }
+
+    /**
+     * Retourne un chemin aléatoire entre deux nœuds, en un temps proportionnel à sa longueur.
+     * ---
+     * Une marche aléatoire à boucles effacées part de la destination : quand elle revient sur un nœud déjà visité,
+     * la boucle est retirée. Elle s'arrête dès que sa longueur plus la distance qui reste jusqu'à l'émetteur atteint
+     * {@code hops}, puis rejoint l'émetteur en se rapprochant de lui d'un saut à chaque pas ; si cette remontée
+     * recroise la marche, la boucle est effacée.
+     * Chaque pas, de la marche comme de la remontée (parmi les voisins un saut plus près de l'émetteur), tire le voisin
+     * suivant avec une probabilité inversement proportionnelle à sa charge annoncée, et défavorise les relais du
+     * chemin précédent vers la même destination pour varier les relais utilisés.
+     * Depuis le nœud local les distances maintenues sont utilisées directement ; sinon un BFS est calculé à la demande.
      *
      * @param sender:       Le nœud source.
      * @param destinataire: Le nœud destination.
-     * @return Un chemin aléatoire entre sender et destinataire.
+     * @param hops:         Nombre de sauts visé (le plus court chemin s'il est plus long, moins si la marche est bloquée).
+     * @return Un chemin simple [sender, ..., destinataire], vide si aucun chemin.
      */
-    public List<PublicKeyRSA> randomPath(PublicKeyRSA sender, PublicKeyRSA destinataire) {
+    public List<PublicKeyRSA> randomPath(PublicKeyRSA sender, PublicKeyRSA destinataire, int hops) {
     	Utils.requireNonNulls(sender, destinataire);
+    	if(hops < 1) {
+    		throw new IllegalArgumentException("hops: " + hops);
+    	}
         lock.lock();
         try {
-            // Crée une version List de chaque entrée du graphe
-            Map<PublicKeyRSA, List<PublicKeyRSA>> graphListMap = new HashMap<>();
-            for (var entry : network.entrySet()) {
-                graphListMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-            }
-
-            var allPaths = findNPaths(graphListMap, sender, destinataire);
-            if (allPaths.isEmpty()) return Collections.emptyList();
-            for(var path: allPaths) {
-            	path.forEach(y -> logger.info(y + " -> "));
-            	logger.info("");
-            }
-            int randomIndex = generateRandomInt(allPaths.size());
-            return new ArrayList<>(allPaths.get(randomIndex));
+        	var senderId = registry.idOf(sender);
+        	var destinataireId = registry.idOf(destinataire);
+        	if(!contains(senderId) || !contains(destinataireId)) { return Collections.emptyList(); }
+        	var distanceTable = senderId == sourceId ? distances : distancesFrom(senderId);
+        	if(distanceTable[destinataireId] < 0) { return Collections.emptyList(); }
+        	var avoided = lastRelays[destinataireId] == null ? AUCUN_VOISIN : lastRelays[destinataireId];
+        	//walk[0] = destination ; la marche ne passe jamais par l'émetteur, qui clôt le chemin
+        	var walk = new int[hops + 1];
+        	var length = 0;
+        	walk[length++] = destinataireId;
+        	for(var steps = 0; destinataireId != senderId && steps < MARCHE_MAX_PAR_SAUT * hops
+        			&& length - 1 + distanceTable[walk[length - 1]] < hops; steps++) {
+        		var next = randomStep(walk[length - 1], senderId, avoided);
+        		if(next < 0) { break; }
+        		var index = indexOf(walk, length, next);
+        		length = index >= 0 ? index + 1 : length;
+        		if(index < 0) { walk[length++] = next; }
+        	}
+        	//remontée vers l'émetteur, avec effacement des boucles
+        	var tail = new ArrayList<Integer>();
+        	for(var node = walk[length - 1]; node != senderId; ) {
+        		node = climbStep(node, distanceTable, avoided);
+        		var index = indexOf(walk, length, node);
+        		if(index >= 0) {
+        			length = index + 1;
+        			tail.clear();
+        		} else if(node != senderId) {
+        			tail.add(node);
+        		}
+        	}
+        	var result = new ArrayList<PublicKeyRSA>(tail.size() + length + 1);
+        	if(destinataireId != senderId) { result.add(sender); }
+        	for(var i = tail.size() - 1; i >= 0; i--) {
+        		result.add(registry.keyOf(tail.get(i)));
+        	}
+        	for(var i = length - 1; i >= 0; i--) {
+        		result.add(registry.keyOf(walk[i]));
+        	}
+        	lastRelays[destinataireId] = relaysOf(result.size(), walk, length, tail);
+        	logger.info("Chemin aléatoire de " + (result.size() - 1) + " sauts");
+        	return result;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Recherche jusqu'à {@code count} chemins entre deux nœuds qui ne partagent aucun relais.
+     * ---
+     * Chaque chemin est un plus court chemin (BFS, voisins parcourus dans un ordre aléatoire) qui évite les relais
+     * des chemins précédents ; l'arête directe éventuelle entre les deux nœuds n'est pas utilisée, chaque chemin
+     * passe donc par au moins un relais. Les relais saturés ne sont utilisés que si aucun autre chemin n'existe.
+     * Coût : au plus {@code 2 * count} parcours en largeur.
+     *
+     * @param sender:       Le nœud source.
+     * @param destinataire: Le nœud destination.
+     * @param count:        Nombre de chemins voulus.
+     * @return Les chemins [sender, ..., destinataire] trouvés, du plus court au plus long (éventuellement moins de {@code count}).
+     */
+    public List<List<PublicKeyRSA>> disjointPaths(PublicKeyRSA sender, PublicKeyRSA destinataire, int count) {
+    	Utils.requireNonNulls(sender, destinataire);
+    	lock.lock();
+    	try {
+    		var senderId = registry.idOf(sender);
+    		var destinataireId = registry.idOf(destinataire);
+    		var result = new ArrayList<List<PublicKeyRSA>>();
+    		if(!contains(senderId) || !contains(destinataireId) || senderId == destinataireId) { return result; }
+    		var used = new BitSet();
+    		var pathParents = new int[adjacency.length];
+    		var a_traiter = new int[adjacency.length];
+    		var avoidLoaded = true;
+    		while(result.size() < count) {
+    			Arrays.fill(pathParents, -1);
+    			pathParents[senderId] = senderId;
+    			var head = 0;
+    			var tail = 0;
+    			a_traiter[tail++] = senderId;
+    			while(head < tail && pathParents[destinataireId] < 0) {
+    				var u = a_traiter[head++];
+    				var offset = degree[u] == 0 ? 0 : generateRandomInt(degree[u]);
+    				for(var i = 0; i < degree[u]; i++) {
+    					var v = adjacency[u][(offset + i) % degree[u]];
+    					if(pathParents[v] >= 0 || used.get(v) || (u == senderId && v == destinataireId)) { continue; }
+    					if(avoidLoaded && v != destinataireId && loads[v] >= CHARGE_SATUREE) { continue; }
+    					pathParents[v] = u;
+    					if(v != destinataireId) { a_traiter[tail++] = v; }
+    				}
+    			}
+    			if(pathParents[destinataireId] < 0) {
+    				if(!avoidLoaded) { break; }
+    				//plus de chemin par des relais peu chargés : on accepte les relais saturés
+    				avoidLoaded = false;
+    				continue;
+    			}
+    			var path = new ArrayList<PublicKeyRSA>();
+    			for(var node = destinataireId; node != senderId; node = pathParents[node]) {
+    				path.add(registry.keyOf(node));
+    				if(node != destinataireId) { used.set(node); }
+    			}
+    			path.add(sender);
+    			result.add(path.reversed());
+    		}
+    		return result;
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+
+    //voisin autre que l'émetteur, tiré avec une probabilité inversement proportionnelle à sa charge,
+    //celle des relais évités étant divisée par PENALITE_RELAIS_PRECEDENT ; -1 si l'émetteur est le seul voisin
+    private int randomStep(int current, int senderId, int[] avoided) {
+    	var count = degree[current];
+    	var total = 0.0;
+    	for(var i = 0; i < count; i++) {
+    		var neighbor = adjacency[current][i];
+    		if(neighbor != senderId) { total += relayWeight(neighbor, avoided); }
+    	}
+    	if(total == 0) { return -1; }
+    	var target = ThreadLocalRandom.current().nextDouble(total);
+    	var chosen = -1;
+    	for(var i = 0; i < count; i++) {
+    		var neighbor = adjacency[current][i];
+    		if(neighbor == senderId) { continue; }
+    		chosen = neighbor;
+    		target -= relayWeight(neighbor, avoided);
+    		if(target < 0) { break; }
+    	}
+    	return chosen;
+    }
+
+    //voisin un saut plus près de l'émetteur (il en existe toujours un), tiré comme dans randomStep
+    private int climbStep(int node, int[] distanceTable, int[] avoided) {
+    	var count = degree[node];
+    	var closer = distanceTable[node] - 1;
+    	var total = 0.0;
+    	for(var i = 0; i < count; i++) {
+    		var neighbor = adjacency[node][i];
+    		if(distanceTable[neighbor] == closer) { total += relayWeight(neighbor, avoided); }
+    	}
+    	var target = ThreadLocalRandom.current().nextDouble(total);
+    	var chosen = -1;
+    	for(var i = 0; i < count; i++) {
+    		var neighbor = adjacency[node][i];
+    		if(distanceTable[neighbor] != closer) { continue; }
+    		chosen = neighbor;
+    		target -= relayWeight(neighbor, avoided);
+    		if(target < 0) { break; }
+    	}
+    	return chosen;
+    }
+
+    private double relayWeight(int node, int[] avoided) {
+    	var weight = 1.0 / (1 + loads[node]);
+    	return indexOf(avoided, avoided.length, node) < 0 ? weight : weight / PENALITE_RELAIS_PRECEDENT;
+    }
+
+    private static int indexOf(int[] array, int length, int value) {
+    	for(var i = 0; i < length; i++) {
+    		if(array[i] == value) { return i; }
+    	}
+    	return -1;
+    }
+
+    //relais (ni émetteur ni destination) du chemin qui vient d'être tiré
+    private static int[] relaysOf(int pathSize, int[] walk, int length, List<Integer> tail) {
+    	if(pathSize <= 2) { return AUCUN_VOISIN; }
+    	var relays = new int[pathSize - 2];
+    	var count = 0;
+    	for(var node: tail) { relays[count++] = node; }
+    	for(var i = 1; i < length; i++) { relays[count++] = walk[i]; }
+    	return relays;
+    }
+
     /**
      * Représentation textuelle complète du graphe (nœuds, connexions et routage).
      *
@@ -265,101 +1039,165 @@ public final class Graphe {
 	@Override
 	public String toString() {
 		lock.lock();
-		try {	
+		try {
 			var builder = new StringBuilder();
 			builder.append("Graphe:\n");
-			
-			builder.append("Keys:\n");
-			for(var key : keys) {
-				builder.append("  ").append(key).append("\n");
-			}
-			
+
 			builder.append("Network:\n");
-			for(var entry : network.entrySet()) {
+			for(var entry : toAdjacencyMap().entrySet()) {
 				builder.append("  ").append(entry.getKey()).append(" -> ").append(entry.getValue()).append("\n");
 			}
-			
-			builder.append("Root Network:\n");
-			for(var entry : rootNetwork.entrySet()) {
-				builder.append("  From ").append(entry.getKey()).append(":\n");
-				for(var route : entry.getValue().entrySet()) {
-					builder.append("    To ").append(route.getKey()).append(" via ").append(route.getValue()).append("\n");
-				}
+
+			builder.append("Routes from ").append(source).append(":\n");
+			for(var node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+				if(parents[node] < 0) { continue; }
+				builder.append("    To ").append(registry.keyOf(node)).append(" via ").append(registry.keyOf(parents[node]))
+					.append(" (").append(distances[node]).append(" sauts)\n");
 			}
-			
+
 			return builder.toString();
 		} finally {
 			lock.unlock();
 		}
 	}
 
-	
-//    public static void main(PublicKeyRSA[] args) {
-//        Graphe graphe = new Graphe();
-//
-//        // Création d'un graphe temporaire
-//        HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>> tempNetwork = new HashMap<>();
-//
-//        tempNetwork.put("A", new HashSet<>(List.of("F", "C", "E")));
-//        tempNetwork.put("D", new HashSet<>(List.of("B", "C", "E")));
-//        tempNetwork.put("F", new HashSet<>(List.of("B", "A")));
-//        tempNetwork.put("C", new HashSet<>(List.of("B", "A", "D")));
-//        tempNetwork.put("B", new HashSet<>(List.of("F", "C", "D")));
-//        tempNetwork.put("E", new HashSet<>(List.of("A", "C", "D")));
-//
-//        // Met à jour le graphe
-//        graphe.updateNetWork(tempNetwork);
-//
-//        // Affiche les chemins de chaque nœud vers les autres
-//        System.out.println("=== Chemins de chaque nœud ===");
-//        for (var start : graphe.getRootNetwork().keySet()) {
-//            System.out.println("Depuis " + start + ":");
-//            for (var target : graphe.getRootNetwork().get(start).keySet()) {
-//                PublicKeyRSA parent = graphe.getRootNetwork().get(start).get(target);
-//                System.out.println("  -> " + target + " via " + parent);
-//            }
-//        }
-//
-//        // Test de nextHop
-//        System.out.println("\n=== Test des nextHop ===");
-//        PublicKeyRSA[][] tests = {
-//            {"A", "D"},
-//            {"D", "A"},
-//            {"A", "F"},
-//            {"F", "D"},
-//            {"E", "C"},
-//            {"C", "E"},
-//            {"B", "B"}
-//        };
-//
-//        for (PublicKeyRSA[] test : tests) {
-//            PublicKeyRSA from = test[0];
-//            PublicKeyRSA to = test[1];
-//            PublicKeyRSA hop = graphe.nextHop(from, to);
-//            System.out.println("nextHop(" + from + " -> " + to + ") = " + hop);
-//        }
-//
-//        // Recherche de chemins
-//        System.out.println("\n=== Recherche des 3 premiers chemins simples de A à D ===");
-//
-//        Map<PublicKeyRSA, List<PublicKeyRSA>> graphListMap = new HashMap<>();
-//        for (var entry : tempNetwork.entrySet()) {
-//            graphListMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-//        }
-//
-//        List<List<PublicKeyRSA>> paths = graphe.findNPaths(graphListMap, "A", "D");
-//
-//        int i = 1;
-//        for (List<PublicKeyRSA> path : paths) {
-//            System.out.println("Chemin " + i++ + ": " + path);
-//        }
-//
-//        // Chemin aléatoire
-//        System.out.println("\n=== Chemin aléatoire de A à D ===");
-//        for(int h = 0; h < 10; h++)
-//        	System.out.println(graphe.randomPath("A", "D"));
-//    }
 
+	//MAIN
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Arbre de routage incrémental contre BFS complet");
+		var random = new Random(42);
+		var registry = new NodeRegistry();
+		var nodes = new ArrayList<PublicKeyRSA>();
+		for(var i = 0; i < 40; i++) {
+			nodes.add(UGEncrypt.KeyPairRSA.generate().publicKey());
+		}
+		var source = nodes.getFirst();
+		var graphe = new Graphe(source, registry);
+		var reference = new HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>>();
+		var erreurs = 0;
+		for(var step = 0; step < 5_000; step++) {
+			var first = nodes.get(random.nextInt(nodes.size()));
+			var second = nodes.get(random.nextInt(nodes.size()));
+			switch(random.nextInt(10)) {
+				case 0 -> {
+					graphe.removeNode(second);
+					if(!second.equals(source)) {
+						//on libère puis réattribue l'identifiant, comme lors d'un départ puis retour
+						registry.release(second);
+						graphe.addNode(second);
+					}
+					var removed = reference.remove(second);
+					if(removed != null) { removed.forEach(n -> reference.get(n).remove(second)); }
+				}
+				case 1, 2, 3, 4 -> {
+					graphe.removeEdge(first, second);
+					reference.getOrDefault(first, new HashSet<>()).remove(second);
+					reference.getOrDefault(second, new HashSet<>()).remove(first);
+				}
+				default -> {
+					if(first.equals(second)) { continue; }
+					graphe.addEdge(first, second);
+					graphe.setWeight(first, second, 1 + random.nextInt(10_000), step + 1);
+					reference.computeIfAbsent(first, _ -> new HashSet<>()).add(second);
+					reference.computeIfAbsent(second, _ -> new HashSet<>()).add(first);
+				}
+			}
+			var full = new Graphe(source, registry);
+			full.updateNetWork(reference);
+			for(var target: nodes) {
+				var id = registry.idOf(target);
+				var expected = id < 0 || id >= full.distances.length ? -1 : full.distances[id];
+				var actual = id < 0 || id >= graphe.distances.length ? -1 : graphe.distances[id];
+				if(expected != actual) { erreurs++; }
+				var hop = graphe.nextHop(source, target);
+				if((hop != null) != (actual >= 0)) { erreurs++; }
+				if(hop != null && !hop.equals(target) && !graphe.hasNeighbor(graphe.sourceId, registry.idOf(hop))) { erreurs++; }
+			}
+		}
+		System.out.println(erreurs == 0 ? "Succès ! Distances identiques sur 5000 modifications." : "Échec : " + erreurs + " écarts.");
+		System.out.println(registry);
 
+		System.out.println("TEST : Chemins aléatoires simples et reliés");
+		var invalides = 0;
+		var chemins = 0;
+		var relais = new HashSet<PublicKeyRSA>();
+		for(var target: nodes) {
+			for(var i = 0; i < 20; i++) {
+				var path = graphe.randomPath(source, target, 1 + i % 6);
+				if(path.isEmpty()) { continue; }
+				chemins++;
+				if(!path.getFirst().equals(source) || !path.getLast().equals(target) || new HashSet<>(path).size() != path.size()) { invalides++; }
+				for(var j = 1; j < path.size(); j++) {
+					if(!graphe.hasEdge(path.get(j - 1), path.get(j))) { invalides++; }
+				}
+				if(path.size() > 2) { relais.addAll(path.subList(1, path.size() - 1)); }
+			}
+		}
+		for(var target: nodes) {
+			var paths = graphe.disjointPaths(source, target, 4);
+			var vus = new HashSet<PublicKeyRSA>();
+			for(var path: paths) {
+				if(!path.getFirst().equals(source) || !path.getLast().equals(target) || path.size() < 3) { invalides++; }
+				for(var j = 1; j < path.size(); j++) {
+					if(!graphe.hasEdge(path.get(j - 1), path.get(j))) { invalides++; }
+					if(j < path.size() - 1 && !vus.add(path.get(j))) { invalides++; }
+				}
+			}
+		}
+		System.out.println(invalides == 0 ? "Succès ! " + chemins + " chemins valides, " + relais.size() + " relais différents." : "Échec : " + invalides + " chemins invalides.");
+
+		System.out.println("TEST : Longueur visée des chemins aléatoires");
+		var sautsCourts = 0;
+		var sautsLongs = 0;
+		for(var target: nodes) {
+			for(var i = 0; i < 20; i++) {
+				sautsCourts += Math.max(0, graphe.randomPath(source, target, 1).size() - 1);
+				sautsLongs += Math.max(0, graphe.randomPath(source, target, 6).size() - 1);
+			}
+		}
+		System.out.println(sautsLongs > sautsCourts
+				? "Succès ! " + sautsCourts + " sauts pour 1 saut visé, " + sautsLongs + " pour 6 sauts visés." : "Échec : " + sautsCourts + " / " + sautsLongs);
+
+		System.out.println("TEST : Prochain saut par le chemin le plus rapide");
+		var triangle = new Graphe(source, new NodeRegistry());
+		var rapide = nodes.get(1);
+		var lent = nodes.get(2);
+		triangle.addEdge(source, lent);
+		triangle.addEdge(source, rapide);
+		triangle.addEdge(rapide, lent);
+		var avant = triangle.nextHop(source, lent);
+		triangle.setWeight(source, lent, 50_000, 1);
+		triangle.setWeight(source, rapide, 2_000, 1);
+		triangle.setWeight(rapide, lent, 3_000, 1);
+		var apres = triangle.nextHop(source, lent);
+		triangle.setWeight(source, lent, 1_000, 2);
+		var retour = triangle.nextHop(source, lent);
+		//une annonce dépassée (arrivée en retard) ne remplace pas la plus récente
+		var depassee = !triangle.setWeight(source, lent, 50_000, 1) && lent.equals(triangle.nextHop(source, lent));
+		System.out.println(lent.equals(avant) && rapide.equals(apres) && lent.equals(retour) && depassee
+				? "Succès ! Le lien direct lent est contourné puis repris, l'annonce dépassée ignorée." : "Échec : " + avant + " / " + apres + " / " + retour + " / " + depassee);
+
+		System.out.println("TEST : Relais tirés selon leur charge");
+		var losange = new Graphe(source, new NodeRegistry());
+		var libre = nodes.get(1);
+		var charge = nodes.get(2);
+		var cible = nodes.get(3);
+		for(var relay: List.of(libre, charge)) {
+			losange.addEdge(source, relay);
+			losange.addEdge(relay, cible);
+		}
+		losange.setLoad(charge, 255, 1);
+		var parLibre = 0;
+		for(var i = 0; i < 1_000; i++) {
+			if(losange.randomPath(source, cible).contains(libre)) { parLibre++; }
+		}
+		losange.setLoad(libre, 255, 1);
+		var disjoints = losange.disjointPaths(source, cible, 2).size();
+		losange.setLoad(libre, 0, 2);
+		var perimee = !losange.setLoad(libre, 255, 1);	//annonce plus ancienne, arrivée en retard
+		var evite = losange.disjointPaths(source, cible, 1).getFirst().contains(libre);
+		System.out.println(parLibre > 900 && disjoints == 2 && perimee && evite
+				? "Succès ! " + parLibre + " chemins sur 1000 par le relais libre." : "Échec : " + parLibre + " / " + disjoints + " / " + perimee + " / " + evite);
+	}
 
 }
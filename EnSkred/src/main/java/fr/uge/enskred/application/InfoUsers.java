@@ -4,15 +4,20 @@ package fr.uge.enskred.application;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -21,12 +26,16 @@ import java.util.stream.Collectors;
 
 import fr.uge.enskred.application.Application.Context;
 import fr.uge.enskred.paquet.Connexion;
+import fr.uge.enskred.paquet.JoinChunk;
 import fr.uge.enskred.paquet.JoinResponse;
+import fr.uge.enskred.paquet.LinkWeight;
 import fr.uge.enskred.paquet.NewConnection;
 import fr.uge.enskred.paquet.NewNode;
 import fr.uge.enskred.paquet.Node;
+import fr.uge.enskred.paquet.NodeLoad;
 import fr.uge.enskred.paquet.Paquet;
 import fr.uge.enskred.paquet.RemoveNode;
+import fr.uge.enskred.paquet.SyncState;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
 import fr.uge.enskred.utils.Utils;
 
@@ -35,20 +44,36 @@ import fr.uge.enskred.utils.Utils;
  */
 public final class InfoUsers {
 	static private final Logger logger = Logger.getLogger(InfoUsers.class.getName());
-	private final HashSet<PublicKeyRSA> publicKeys;
+	//déduplication des broadcasts et accusés de réception des messages cachés - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long MESSAGE_ID_WINDOW_MINUTES = 10;
+	private static final int MAX_BROADCAST_IDS = 1 << 16;
+	private static final int MAX_HIDDEN_MESSAGE_IDS = 1 << 12;
+	private static final int HIDDEN_SENDER = 0;
+	private static final int MAX_ADDRESS_SIZE = Integer.BYTES + 64;		//adresse d'un Node sérialisée (taille + texte), estimée
+	//nœuds partis, retenus pour que la synchronisation ne les fasse pas revenir - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final long REMOVED_KEYS_WINDOW_MINUTES = 10;
+	private static final int MAX_REMOVED_KEYS = 1 << 10;
+	//nœuds connus du réseau, indexés par leur identifiant dans le registre
+	private final BitSet publicKeys;
 	private final Map<Integer, Node> cachedIndexedPublicKeys;
 	private int cachedPublicKeyCount;
 	
 	private final PublicKeyRSA myPublicKeyRSA;
-	private final Set<Long> myHiddenMessageID;
-	private final HashMap<PublicKeyRSA, Set<Long>> lastMessageIDBroadcast;
-	private final HashMap<PublicKeyRSA, SocketAddress> appToAddress;
-	private final HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>> routageConnexion;
+	private final MessageIdWindow myHiddenMessageID;
+	//broadcasts déjà vus, par couple (identifiant de nœud de l'émetteur, messageID)
+	private final MessageIdWindow lastMessageIDBroadcast;
+	//tables indexées par identifiant de nœud (null si absent)
+	private final ArrayList<SocketAddress> appToAddress;
 	private final HashMap<SocketAddress, PublicKeyRSA> addressToApp;
 	private final Map<Integer, SocketChannel> socketChannels;//<Port, Socket>
 	private final HashMap<PublicKeyRSA, Context> appToContext;
 	private final HashMap<Context, PublicKeyRSA> contextToApp;
 	private final Lock lock;
+	//graphe de routage : seule table des connexions, tenue à jour par deltas
+	private final Graphe graphe;
+	private final NodeRegistry registry;
+	//empreinte de la clé d'un nœud parti -> date de son départ (nanos), dans l'ordre des départs
+	private final LinkedHashMap<Long, Long> removedKeys;
 	//structure de données pour les connexions direct !
 
 	
@@ -56,19 +81,22 @@ public final class InfoUsers {
 	 * Constructeur de la classe InfoUsers.
 	 * Initialise toutes les structures nécessaires au suivi du réseau.
 	 * ---
+	 * @param graphe : Graphe de routage qui porte les connexions (et le registre des identifiants de nœuds)
 	 */
-	public InfoUsers(Level level, PublicKeyRSA publicKeyRSA) {
+	public InfoUsers(Level level, PublicKeyRSA publicKeyRSA, Graphe graphe) {
 		myPublicKeyRSA = Objects.requireNonNull(publicKeyRSA);
-		publicKeys = new HashSet<>();
+		this.graphe = Objects.requireNonNull(graphe);
+		registry = graphe.registry();
+		publicKeys = new BitSet();
 		cachedIndexedPublicKeys = new HashMap<>();
-		lastMessageIDBroadcast = new HashMap<>();
-		appToAddress = new HashMap<>();
-		myHiddenMessageID = new HashSet<>();
-		routageConnexion = new HashMap<>();
+		lastMessageIDBroadcast = new MessageIdWindow(MESSAGE_ID_WINDOW_MINUTES, TimeUnit.MINUTES, MAX_BROADCAST_IDS);
+		appToAddress = new ArrayList<>();
+		myHiddenMessageID = new MessageIdWindow(MESSAGE_ID_WINDOW_MINUTES, TimeUnit.MINUTES, MAX_HIDDEN_MESSAGE_IDS);
 		addressToApp = new HashMap<>();
 		socketChannels = new HashMap<>();
 		appToContext = new HashMap<>();
 		contextToApp = new HashMap<>();
+		removedKeys = new LinkedHashMap<>();
 		lock = new ReentrantLock();
 		logger.setLevel(level == null ? Level.SEVERE : level);
 
@@ -84,10 +112,12 @@ public final class InfoUsers {
 		Utils.requireNonNulls(publicKeyIntern, socketAddressIntern);
 		lock.lock();
 		try {
-			publicKeys.add(publicKeyIntern);
-			appToAddress.compute(publicKeyIntern, (k, v) -> socketAddressIntern);
+			var id = registry.intern(publicKeyIntern);
+			publicKeys.set(id);
+			setAt(appToAddress, id, socketAddressIntern);
 			addressToApp.compute(socketAddressIntern, (k, v) -> publicKeyIntern);
-			routageConnexion.compute(publicKeyIntern, (k, v) -> new HashSet<>());
+			graphe.removeNode(id);
+			graphe.addNode(id);
 			logger.info("\n\nprepare\n" 
 					+"pkI: " + publicKeyIntern + "\n saI: " + socketAddressIntern 
 					+ "\n\n\n");
@@ -105,24 +135,29 @@ public final class InfoUsers {
 		Objects.requireNonNull(publicKey);
 		lock.lock();
 		try {
-	        publicKeys.retainAll(Set.of(publicKey));
+	        var myId = registry.intern(publicKey);
 	        cachedIndexedPublicKeys.clear();
 	        cachedPublicKeyCount = 0;
 	        
-	        var mySocketAddress = appToAddress.get(publicKey);
+	        var mySocketAddress = getAt(appToAddress, myId);
 	        appToAddress.clear();
-	        if(mySocketAddress != null) {
-	            appToAddress.put(publicKey, mySocketAddress);
-	        }
 	        addressToApp.clear();
 	        if(mySocketAddress != null) {
+	            setAt(appToAddress, myId, mySocketAddress);
 	            addressToApp.put(mySocketAddress, publicKey);
 	        }
 	        
 	        lastMessageIDBroadcast.clear();
 	        
-	        routageConnexion.clear();
-	        routageConnexion.put(publicKey, new HashSet<>());
+	        //le graphe ne référence plus aucun autre nœud : leurs identifiants peuvent être libérés
+	        graphe.clear();
+	        for(var id = 0; id < registry.capacity(); id++) {
+	            var key = registry.keyOf(id);
+	            if(id != myId && key != null) { registry.release(key); }
+	        }
+	        publicKeys.clear();
+	        publicKeys.set(myId);
+	        removedKeys.clear();
 	        
 	        appToContext.clear();
 	        contextToApp.clear();
@@ -142,15 +177,16 @@ public final class InfoUsers {
 		lock.lock();
 		try {
 			logger.info("\n\nmakeFirstConnexion\n");
-			lastMessageIDBroadcast.computeIfAbsent(publicKey, longValSet -> new HashSet<>());
-			if(!publicKeys.add(publicKey)) {
+			var id = registry.intern(publicKey);
+			if(publicKeys.get(id)) {
 				logger.warning("\n\n\nError sur makeFirst:" + "pk: " + publicKey + "\n sa: " + socketAddress +"\n\n\n");
 				return ;
 			}
+			publicKeys.set(id);
 			invalidateCache();
 			//associé la clé publique de chaque utilisateur à ses infos
 			addressToApp.put(socketAddress, publicKey);
-			appToAddress.put(publicKey, socketAddress);
+			setAt(appToAddress, id, socketAddress);
 			logger.info("pk: " + publicKey + "\n sa: " + socketAddress + "\n\n\n");
 		} finally {
 			lock.unlock();
@@ -167,10 +203,11 @@ public final class InfoUsers {
 		Utils.requireNonNulls(pkReceiver, pkSender);
 		lock.lock();
 		try {
-			publicKeys.add(pkSender);publicKeys.add(pkReceiver);
+			var senderId = registry.intern(pkSender);
+			var receiverId = registry.intern(pkReceiver);
+			publicKeys.set(senderId);publicKeys.set(receiverId);
 			invalidateCache();
-			routageConnexion.computeIfAbsent(pkSender, c -> new HashSet<>()).add(pkReceiver);
-			routageConnexion.computeIfAbsent(pkReceiver, c -> new HashSet<>()).add(pkSender);
+			graphe.addEdge(senderId, receiverId);
 			logger.info("\n\nJoinRoot\n"
 					+ "pkSender: " + pkSender + "\n pkReceiver: " + pkReceiver 
 					+ "\n\n\n");
@@ -196,7 +233,7 @@ public final class InfoUsers {
 	public HashMap<PublicKeyRSA, HashSet<PublicKeyRSA>> getRoutageConnexion(){
 		lock.lock();
 		try {
-			return new HashMap<>(routageConnexion);
+			return graphe.toAdjacencyMap();
 		} finally {
 			lock.unlock();
 		}
@@ -210,17 +247,17 @@ public final class InfoUsers {
 	public Map<Integer, Node> getIndexedNodes() {
 		lock.lock();
 		try {
-			if(cachedIndexedPublicKeys != null && publicKeys.size() == cachedPublicKeyCount) {
+			if(cachedIndexedPublicKeys != null && publicKeys.cardinality() == cachedPublicKeyCount) {
 				return Collections.unmodifiableMap(cachedIndexedPublicKeys);
 			}
 			cachedIndexedPublicKeys.clear();
 			var index = 0;
-			for(var pk : publicKeys) {
-				var address = (InetSocketAddress) appToAddress.get(pk);
-				cachedIndexedPublicKeys.compute(index, (_, __) -> new Node(pk, address));
+			for(var id = publicKeys.nextSetBit(0); id >= 0; id = publicKeys.nextSetBit(id + 1)) {
+				var address = (InetSocketAddress) getAt(appToAddress, id);
+				cachedIndexedPublicKeys.put(index, new Node(registry.keyOf(id), address));
 				index++;
 			}
-			cachedPublicKeyCount = publicKeys.size();
+			cachedPublicKeyCount = publicKeys.cardinality();
 			return Collections.unmodifiableMap(cachedIndexedPublicKeys);
 		} finally {
 			lock.unlock();
@@ -244,7 +281,10 @@ public final class InfoUsers {
 			var cpPubKeys = new HashSet<>(pubKeys);
 			cpPubKeys.add(publicKey);
 			cpPubKeys.forEach(i -> logger.info(""+i));
-			var availableKeys = new HashSet<>(appToAddress.keySet());
+			var availableKeys = new HashSet<PublicKeyRSA>();
+			for(var id = 0; id < appToAddress.size(); id++) {
+				if(appToAddress.get(id) != null) { availableKeys.add(registry.keyOf(id)); }
+			}
 			logger.info("On a en interne: ");
 			availableKeys.forEach(i -> logger.info(""+i));
 			availableKeys.removeAll(cpPubKeys);
@@ -256,7 +296,7 @@ public final class InfoUsers {
 			Collections.shuffle(shuffledKeys);
 			var randomKey = shuffledKeys.getFirst();
 
-			var address = (InetSocketAddress) appToAddress.get(randomKey);
+			var address = (InetSocketAddress) getAt(appToAddress, registry.idOf(randomKey));
 			logger.info("On a " + randomKey + " pour " + address);
 			return new Node(randomKey, address);
 		} finally {
@@ -273,11 +313,13 @@ public final class InfoUsers {
 	public JoinResponse getJoinResponse(PublicKeyRSA idReceiver) {
 		lock.lock();
 		try {
-			var nodes = appToAddress.entrySet().stream()
-					.map(entry -> new Node(entry.getKey(), (InetSocketAddress) entry.getValue()))
-					.collect(Collectors.toCollection(ArrayList::new));
+			var nodes = new ArrayList<Node>();
+			for(var id = 0; id < appToAddress.size(); id++) {
+				var address = appToAddress.get(id);
+				if(address != null) { nodes.add(new Node(registry.keyOf(id), (InetSocketAddress) address)); }
+			}
 
-			var connexions = routageConnexion.entrySet().stream()
+			var connexions = graphe.toAdjacencyMap().entrySet().stream()
 					.flatMap(entry -> entry.getValue().stream().map(receiver -> new Connexion(entry.getKey(), receiver)))
 					.collect(Collectors.toCollection(ArrayList::new));
 			return new JoinResponse(idReceiver, nodes, connexions);
@@ -287,6 +329,248 @@ public final class InfoUsers {
 	}
 	
 	
+	/**
+	 * Position d'un envoi de l'état du réseau par parties (cf. {@link #nextJoinChunk}).
+	 * Les nœuds sont parcourus par identifiant, puis les connexions par identifiant de leur plus petite extrémité,
+	 * puis les charges annoncées, puis les poids des connexions : un élément qui change derrière le curseur est transmis
+	 * au nouveau venu par broadcast.
+	 */
+	public static final class JoinCursor {
+		private final PublicKeyRSA publicKeyReceiver;
+		private int nextNode = 0;			//prochain nœud dont on envoie l'adresse
+		private int nextEdgeNode = 0;		//prochain nœud dont on envoie les connexions
+		private int nextNeighbor = 0;		//plus petit voisin restant de ce nœud
+		private int nextLoadNode = 0;		//prochain nœud dont on envoie la charge
+		private int nextWeightNode = 0;		//prochain nœud dont on envoie les poids des connexions
+		private int nextWeightNeighbor = 0;	//plus petit voisin restant de ce nœud
+		private boolean done = false;
+
+		/**
+		 * @param publicKeyReceiver : Clé publique de celui qui répond (portée par la JoinResponse finale).
+		 */
+		public JoinCursor(PublicKeyRSA publicKeyReceiver) {
+			this.publicKeyReceiver = Objects.requireNonNull(publicKeyReceiver);
+		}
+
+		/**
+		 * @return true une fois la JoinResponse finale produite.
+		 */
+		public boolean isDone() {
+			return done;
+		}
+	}
+
+	/**
+	 * Construit la partie suivante de l'état du réseau, lue dans l'état courant (et non dans une copie figée).
+	 * ---
+	 * @param cursor : Position de l'envoi, avancée par l'appel.
+	 * @param maxBytes : Taille visée de la partie (dépassée au plus d'un nœud ou d'une connexion).
+	 * @return Un {@link JoinChunk}, ou la {@link JoinResponse} finale s'il ne reste plus rien après cette partie.
+	 */
+	public Paquet nextJoinChunk(JoinCursor cursor, int maxBytes) {
+		Objects.requireNonNull(cursor);
+		if(cursor.done) {
+			throw new IllegalStateException("Join stream already done");
+		}
+		lock.lock();
+		try {
+			var nodes = new ArrayList<Node>();
+			var connexions = new ArrayList<Connexion>();
+			var loads = new ArrayList<NodeLoad>();
+			var weights = new ArrayList<LinkWeight>();
+			var budget = maxBytes;
+			for(; cursor.nextNode < appToAddress.size() && budget > 0; cursor.nextNode++) {
+				var address = appToAddress.get(cursor.nextNode);
+				if(address == null) { continue; }
+				var key = registry.keyOf(cursor.nextNode);
+				nodes.add(new Node(key, (InetSocketAddress) address));
+				budget -= key.encodedWithSize().remaining() + MAX_ADDRESS_SIZE;
+			}
+			if(cursor.nextNode < appToAddress.size()) { return new JoinChunk(nodes, connexions, loads, weights); }
+			//chaque connexion n'est envoyée qu'une fois, depuis sa plus petite extrémité
+			for(var node = graphe.nextNode(cursor.nextEdgeNode); node >= 0 && budget > 0; node = graphe.nextNode(node + 1)) {
+				cursor.nextEdgeNode = node;
+				var key = registry.keyOf(node);
+				for(var neighbor : graphe.neighbors(node)) {
+					if(neighbor <= node || neighbor < cursor.nextNeighbor) { continue; }
+					if(budget <= 0) { break; }
+					var neighborKey = registry.keyOf(neighbor);
+					connexions.add(new Connexion(key, neighborKey));
+					budget -= key.encodedWithSize().remaining() + neighborKey.encodedWithSize().remaining();
+					cursor.nextNeighbor = neighbor + 1;
+				}
+				if(budget <= 0) { return new JoinChunk(nodes, connexions, loads, weights); }
+				cursor.nextEdgeNode = node + 1;
+				cursor.nextNeighbor = 0;
+			}
+			if(graphe.nextNode(cursor.nextEdgeNode) >= 0) { return new JoinChunk(nodes, connexions, loads, weights); }
+			for(var node = graphe.nextNode(cursor.nextLoadNode); node >= 0 && budget > 0; node = graphe.nextNode(node + 1)) {
+				cursor.nextLoadNode = node + 1;
+				var nodeLoad = loadOf(node);
+				if(nodeLoad == null) { continue; }
+				loads.add(nodeLoad);
+				budget -= nodeLoad.publicKey().encodedWithSize().remaining() + Long.BYTES + Byte.BYTES;
+			}
+			if(graphe.nextNode(cursor.nextLoadNode) >= 0) { return new JoinChunk(nodes, connexions, loads, weights); }
+			//chaque poids n'est envoyé qu'une fois, depuis la plus petite extrémité de sa connexion
+			for(var node = graphe.nextNode(cursor.nextWeightNode); node >= 0 && budget > 0; node = graphe.nextNode(node + 1)) {
+				cursor.nextWeightNode = node;
+				for(var neighbor : graphe.neighbors(node)) {
+					if(neighbor <= node || neighbor < cursor.nextWeightNeighbor) { continue; }
+					if(budget <= 0) { break; }
+					cursor.nextWeightNeighbor = neighbor + 1;
+					var linkWeight = weightOf(node, neighbor);
+					if(linkWeight == null) { continue; }
+					weights.add(linkWeight);
+					budget -= linkWeight.publicKeySender().encodedWithSize().remaining()
+							+ linkWeight.publicKeyReceiver().encodedWithSize().remaining() + Long.BYTES + Integer.BYTES;
+				}
+				if(budget <= 0) { return new JoinChunk(nodes, connexions, loads, weights); }
+				cursor.nextWeightNode = node + 1;
+				cursor.nextWeightNeighbor = 0;
+			}
+			//la JoinResponse finale ne porte ni charges ni poids : ils partent dans une dernière partie
+			if(!loads.isEmpty() || !weights.isEmpty() || graphe.nextNode(cursor.nextWeightNode) >= 0) {
+				return new JoinChunk(nodes, connexions, loads, weights);
+			}
+			cursor.done = true;
+			return new JoinResponse(cursor.publicKeyReceiver, nodes, connexions);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Empreinte de la vue du réseau : nœuds dont l'adresse est connue, connexions, charges et poids annoncés.
+	 * ---
+	 * @return L'empreinte, calculée sur l'état courant.
+	 */
+	public TopologyDigest topologyDigest() {
+		lock.lock();
+		try {
+			var digest = new TopologyDigest();
+			for(var id = 0; id < appToAddress.size(); id++) {
+				if(appToAddress.get(id) != null) { digest.addNode(registry.keyOf(id)); }
+			}
+			for(var node = graphe.nextNode(0); node >= 0; node = graphe.nextNode(node + 1)) {
+				var key = registry.keyOf(node);
+				for(var neighbor : graphe.neighbors(node)) {
+					if(neighbor <= node) { continue; }
+					var neighborKey = registry.keyOf(neighbor);
+					digest.addEdge(key, neighborKey);
+					var version = graphe.weightVersion(node, neighbor);
+					if(version != 0) { digest.addWeight(key, neighborKey, version, graphe.weight(node, neighbor)); }
+				}
+				var nodeLoad = loadOf(node);
+				if(nodeLoad != null) { digest.addLoad(key, nodeLoad.version(), nodeLoad.load()); }
+			}
+			return digest;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Extrait de la vue du réseau les éléments des intervalles demandés, avec les départs retenus.
+	 * ---
+	 * @param buckets : Intervalles à envoyer (cf. {@link TopologyDigest}).
+	 * @param wantReply : true si le voisin doit répondre avec ses propres éléments de ces intervalles.
+	 * @return Le paquet à envoyer au voisin.
+	 */
+	public SyncState syncState(BitSet buckets, boolean wantReply) {
+		Objects.requireNonNull(buckets);
+		lock.lock();
+		try {
+			evictRemovedKeys();
+			var nodes = new ArrayList<Node>();
+			for(var id = 0; id < appToAddress.size(); id++) {
+				var address = appToAddress.get(id);
+				if(address == null) { continue; }
+				var key = registry.keyOf(id);
+				if(buckets.get(TopologyDigest.bucketOfNode(key))) { nodes.add(new Node(key, (InetSocketAddress) address)); }
+			}
+			var connexions = new ArrayList<Connexion>();
+			var loads = new ArrayList<NodeLoad>();
+			var weights = new ArrayList<LinkWeight>();
+			for(var node = graphe.nextNode(0); node >= 0; node = graphe.nextNode(node + 1)) {
+				var key = registry.keyOf(node);
+				for(var neighbor : graphe.neighbors(node)) {
+					if(neighbor <= node) { continue; }
+					var neighborKey = registry.keyOf(neighbor);
+					if(!buckets.get(TopologyDigest.bucketOfEdge(key, neighborKey))) { continue; }
+					connexions.add(new Connexion(key, neighborKey));
+					var linkWeight = weightOf(node, neighbor);
+					if(linkWeight != null) { weights.add(linkWeight); }
+				}
+				var nodeLoad = loadOf(node);
+				if(nodeLoad != null && buckets.get(TopologyDigest.bucketOfNode(key))) { loads.add(nodeLoad); }
+			}
+			return new SyncState(buckets, wantReply, nodes, connexions, List.copyOf(removedKeys.keySet()), loads, weights);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Fusionne les éléments envoyés par un voisin : les départs d'abord, puis les nœuds et connexions manquants.
+	 * Rien n'est retiré sans départ explicite (un élément absent chez le voisin lui est renvoyé en réponse),
+	 * et une adresse déjà connue n'est pas remplacée.
+	 * ---
+	 * @param state : Éléments reçus.
+	 * @return Le nombre de nœuds et connexions ajoutés ou retirés.
+	 */
+	public int mergeSyncState(SyncState state) {
+		Objects.requireNonNull(state);
+		lock.lock();
+		try {
+			evictRemovedKeys();
+			var changes = 0;
+			var now = System.nanoTime();
+			var removed = new HashSet<Long>(state.removed());
+			removed.remove(myPublicKeyRSA.fingerprint());
+			if(!removed.isEmpty()) {
+				var leavers = new ArrayList<PublicKeyRSA>();
+				for(var id = publicKeys.nextSetBit(0); id >= 0; id = publicKeys.nextSetBit(id + 1)) {
+					var key = registry.keyOf(id);
+					if(key != null && !key.equals(myPublicKeyRSA) && removed.contains(key.fingerprint())) { leavers.add(key); }
+				}
+				for(var leaver : leavers) {
+					deleteUser(leaver);
+					changes++;
+				}
+				for(var fingerprint : removed) { removedKeys.putIfAbsent(fingerprint, now); }
+				trimRemovedKeys();
+			}
+			for(var node : state.nodes()) {
+				if(isRemoved(node.publicKey())) { continue; }
+				var id = registry.idOf(node.publicKey());
+				if(id != NodeRegistry.UNKNOWN && getAt(appToAddress, id) != null) { continue; }
+				updateAppAndAddress(node);
+				changes++;
+			}
+			for(var connexion : state.connexions()) {
+				if(isRemoved(connexion.publicKeySender()) || isRemoved(connexion.publicKeyReceiver())) { continue; }
+				var senderId = registry.idOf(connexion.publicKeySender());
+				var receiverId = registry.idOf(connexion.publicKeyReceiver());
+				if(senderId != NodeRegistry.UNKNOWN && receiverId != NodeRegistry.UNKNOWN && Arrays.binarySearch(graphe.neighbors(senderId), receiverId) >= 0) { continue; }
+				updateRoutageConnexion(connexion);
+				changes++;
+			}
+			//les charges après les nœuds : une charge n'est retenue que pour un nœud connu, et seulement si elle est plus récente
+			for(var nodeLoad : state.loads()) {
+				if(graphe.setLoad(nodeLoad.publicKey(), nodeLoad.load(), nodeLoad.version())) { changes++; }
+			}
+			//de même pour les poids, après les connexions, et seulement ceux annoncés par l'extrémité à qui ils reviennent
+			for(var linkWeight : state.weights()) {
+				if(!linkWeight.fromOwner()) { continue; }
+				if(graphe.setWeight(linkWeight.publicKeySender(), linkWeight.publicKeyReceiver(), linkWeight.rttMicros(), linkWeight.version())) { changes++; }
+			}
+			return changes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	/**
 	 * Récupère la liste des nœuds connectés localement (voisins directs).
 	 * ---
@@ -300,7 +584,7 @@ public final class InfoUsers {
 			logger.info("\n\ngetNeighoborsNodes\n");
 			for(var publicKey: publicKeys) {
 				if(publicKey == null) { logger.info("Error 1 on gNN"); continue;}
-				var address = appToAddress.get(publicKey);
+				var address = getAt(appToAddress, registry.idOf(publicKey));
 				if(address == null) { logger.info("Error 2 on gNN"); continue;}
 				logger.info("pk: " + publicKey + "\n sa: " + address);
 				list.add(new Node(publicKey, (InetSocketAddress) address));
@@ -327,6 +611,22 @@ public final class InfoUsers {
 	}
 	
 
+	/**
+	 * Retourne le contexte d'un voisin direct.
+	 * ---
+	 * @param publicKey : Clé publique du voisin
+	 * @return Son contexte, ou null s'il n'est pas un voisin direct
+	 */
+	public Context getContext(PublicKeyRSA publicKey) {
+		Objects.requireNonNull(publicKey);
+		lock.lock();
+		try {
+			return appToContext.get(publicKey);
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	/**
 	 * Retourne le nombre d’éléments dans la map appToContext.
 	 * ---
@@ -356,12 +656,7 @@ public final class InfoUsers {
 		Objects.requireNonNull(publicKey);
 		lock.lock();
 		try {
-			var set = lastMessageIDBroadcast.computeIfAbsent(publicKey, _ -> new HashSet<>());
-	        if(set.contains(messageID)) {
-	            return true; //déjà vu
-	        }
-	        set.add(messageID);
-	        return false; //c'est nouveau
+			return lastMessageIDBroadcast.checkAndAdd(registry.intern(publicKey), messageID);
 		} finally {
 			lock.unlock();
 		}
@@ -382,9 +677,11 @@ public final class InfoUsers {
 		Objects.requireNonNull(node);
 		lock.lock();
 		try {
-			publicKeys.add(node.publicKey());
+			var id = registry.intern(node.publicKey());
+			publicKeys.set(id);
 			invalidateCache();
-			appToAddress.compute(node.publicKey(), (k, v) -> node.socketAddress());
+			removedKeys.remove(node.publicKey().fingerprint());
+			setAt(appToAddress, id, node.socketAddress());
 			addressToApp.compute(node.socketAddress(), (k, v) -> node.publicKey());
 			logger.info("\n\nUpdateAppAndAddress\n"
 					+ "pk: " + node.publicKey() + "\n sa: " + node.socketAddress()
@@ -404,11 +701,10 @@ public final class InfoUsers {
 		Objects.requireNonNull(connexion);
 		lock.lock();
 		try {
-			var setAB = routageConnexion.computeIfAbsent(connexion.publicKeySender(), v -> new HashSet<>());
-			var setBA = routageConnexion.computeIfAbsent(connexion.publicKeyReceiver(), v -> new HashSet<>());
-            setAB.add(connexion.publicKeyReceiver());
-			setBA.add(connexion.publicKeySender());
-			publicKeys.add(connexion.publicKeySender());publicKeys.add(connexion.publicKeyReceiver());
+			var senderId = registry.intern(connexion.publicKeySender());
+			var receiverId = registry.intern(connexion.publicKeyReceiver());
+			graphe.addEdge(senderId, receiverId);
+			publicKeys.set(senderId);publicKeys.set(receiverId);
 			invalidateCache();
 		} finally {
 			lock.unlock();
@@ -425,9 +721,10 @@ public final class InfoUsers {
 		Utils.requireNonNulls(publicKeyReceiver, publicKeySender);
 		lock.lock();
 		try {
-			routageConnexion.computeIfAbsent(publicKeySender, i -> new HashSet<>()).add(publicKeyReceiver);
-			routageConnexion.computeIfAbsent(publicKeyReceiver, i -> new HashSet<>()).add(publicKeySender);
-			publicKeys.add(publicKeyReceiver);publicKeys.add(publicKeySender);
+			var senderId = registry.intern(publicKeySender);
+			var receiverId = registry.intern(publicKeyReceiver);
+			graphe.addEdge(senderId, receiverId);
+			publicKeys.set(receiverId);publicKeys.set(senderId);
 			logger.info("\n\nupdatePLReceiver\n"
 					+ "pkR: " + publicKeyReceiver + "\n pkS: " + publicKeySender
 					+ "\n\n\n");
@@ -447,8 +744,11 @@ public final class InfoUsers {
 		lock.lock();
 		try {
 			logger.info("\n\nupdateNewNode\n");
+			//notre propre arrivée nous est déjà connue (JoinResponse)
+			if(myPublicKeyRSA.equals(newNode.publicKeySender())) { return; }
 			updatePKReceiver(newNode.publicKeySender(), newNode.publicKeyReceiver());
-			appToAddress.compute(newNode.publicKeySender(), (k, v) -> newNode.socketAddressSender());
+			removedKeys.remove(newNode.publicKeySender().fingerprint());
+			setAt(appToAddress, registry.intern(newNode.publicKeySender()), newNode.socketAddressSender());
 			addressToApp.compute(newNode.socketAddressSender(), (k, v) -> newNode.publicKeySender());
 			logger.info("pkS: " + newNode.publicKeySender() + "\n pkR: " + newNode.publicKeySender() + "\n\n\n");
 		} finally {
@@ -490,6 +790,24 @@ public final class InfoUsers {
 		}
 	}
 	
+	/**
+	 * Vérifie, sans le retenir, si un broadcast a déjà été reçu.
+	 * ---
+	 * @param publicKey La clé publique de l'expéditeur
+	 * @param messageID L'identifiant du message
+	 * @return true si le messageID a déjà été vu
+	 */
+	public boolean isKnownMessageIDBroadcast(PublicKeyRSA publicKey, long messageID) {
+		Objects.requireNonNull(publicKey);
+		lock.lock();
+		try {
+			var id = registry.idOf(publicKey);
+			return id != NodeRegistry.UNKNOWN && lastMessageIDBroadcast.contains(id, messageID);
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	/**
 	 * Ajoute un identifiant de message caché à la mémoire locale.
 	 * ---
@@ -498,7 +816,7 @@ public final class InfoUsers {
 	public void addNewHiddenMessegeID(long messageID) {
 		lock.lock();
 		try {
-			myHiddenMessageID.add(messageID);
+			myHiddenMessageID.checkAndAdd(HIDDEN_SENDER, messageID);
 		} finally {
 			lock.unlock();
 		}
@@ -626,7 +944,7 @@ public final class InfoUsers {
 	public boolean verifyAcknowlegdmentHiddenMessegeID(long messageID) {
 		lock.lock();
 		try {
-			return myHiddenMessageID.contains(messageID);
+			return myHiddenMessageID.contains(HIDDEN_SENDER, messageID);
 		} finally {
 			lock.unlock();
 		}
@@ -642,7 +960,8 @@ public final class InfoUsers {
 		Objects.requireNonNull(publicKey);
 		lock.lock();
 		try {
-			return publicKeys.contains(publicKey);
+			var id = registry.idOf(publicKey);
+			return id != NodeRegistry.UNKNOWN && publicKeys.get(id);
 		} finally {
 			lock.unlock();
 		}
@@ -709,6 +1028,30 @@ public final class InfoUsers {
 	}
 	
 	
+	/**
+	 * Relais sans recopie : transmet une trame déjà sérialisée (mode lecture) au voisin indiqué.
+	 * ---
+	 * @param appIntermediaire : Clé publique du voisin.
+	 * @param frame : Trame en mode lecture, cédée au context du voisin en cas de succès.
+	 * @return false si aucun context ne correspond (la trame reste alors à l'appelant).
+	 */
+	public boolean sendFrameWithAppToContext(PublicKeyRSA appIntermediaire, ByteBuffer frame) {
+		Utils.requireNonNulls(appIntermediaire, frame);
+		lock.lock();
+		try {
+			var contextIntermediaire = appToContext.get(appIntermediaire);
+			if(contextIntermediaire == null) {
+				logger.info("Pas de contexte pour " + appIntermediaire + ", impossible de relayer.");
+				return false;
+			}
+			contextIntermediaire.queueFrame(frame);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	
 	/*******************************
 	 *******************************
 	 ****** méthode AFFICHAGE ******TODO
@@ -723,19 +1066,35 @@ public final class InfoUsers {
 	public String toStringRootConnexions() {
 		lock.lock();
 		try {
-            return routageConnexion.entrySet().stream()
+            return graphe.toAdjacencyMap().entrySet().stream()
                     .map(entry -> {
                         var senderPK = entry.getKey();
-                        var senderAddr = appToAddress.get(senderPK);
+                        var senderAddr = getAt(appToAddress, registry.idOf(senderPK));
                         var connected = entry.getValue().stream()
                                 .map(pk -> {
-                                    var socketAddr = appToAddress.get(pk);
+                                    var socketAddr = getAt(appToAddress, registry.idOf(pk));
                                     return "\t-> " + pk + ": " + socketAddr;
                                 })
                                 .collect(Collectors.joining("\n"));
                         return senderPK + ": " + senderAddr + "\n" + connected + "\n";
                     })
-                    .collect(Collectors.joining("\n", "\n--- Affichage des connexions du réseau ---\n", "\n------------------------------------------\n"));
+                    .collect(Collectors.joining("\n", "\n--- Affichage des connexions du réseau ---\n",
+                    		"\nDéduplication : broadcasts " + lastMessageIDBroadcast + ", messages cachés " + myHiddenMessageID
+                    		+ "\n------------------------------------------\n"));
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Mémoire occupée par les identifiants de messages retenus (broadcasts et messages cachés).
+	 * ---
+	 * @return Le nombre d'octets des tableaux de déduplication.
+	 */
+	public long messageIdMemoryUsage() {
+		lock.lock();
+		try {
+			return lastMessageIDBroadcast.memoryUsage() + myHiddenMessageID.memoryUsage();
 		} finally {
 			lock.unlock();
 		}
@@ -753,32 +1112,78 @@ public final class InfoUsers {
 			logger.info("null on deleteUser => data user aren't registered or is already deleted !");
 			return;
 		}
-		//suppression du set des clés connecté <PKRSA>
-		if(!publicKeys.remove(publicKey)) { logger.info("Error on deleteUser: key unknow !"); return; }
-		//suppression au niveau de la table de reconnaissance <PKRSA, ISA>
-		var socketAddress = appToAddress.remove(publicKey);
+		var id = registry.idOf(publicKey);
+		//suppression du set des clés connecté
+		if(id == NodeRegistry.UNKNOWN || !publicKeys.get(id)) { logger.info("Error on deleteUser: key unknow !"); return; }
+		publicKeys.clear(id);
+		//suppression au niveau de la table de reconnaissance <ID, ISA>
+		var socketAddress = getAt(appToAddress, id);
+		setAt(appToAddress, id, null);
 		if(null != socketAddress) {
 			addressToApp.remove(socketAddress);
 		}
-		logger.info("En supprimant " + publicKey + " on a " + (lastMessageIDBroadcast.containsKey(publicKey) ? lastMessageIDBroadcast.get(publicKey) : "Rien"));
-		//suppression du dernier long des messages par broadcast
-		lastMessageIDBroadcast.remove(publicKey);
+		//l'identifiant va être réattribué : ses broadcasts déjà vus ne doivent pas être imputés au prochain nœud
+		lastMessageIDBroadcast.forgetSender(id);
 		//suppression sur la table de routage !
-		var connexionNodes = routageConnexion.remove(publicKey);
-		if(null == connexionNodes) {
+		if(!graphe.contains(id)) {
 			logger.info("Error, publicKey is not in routage table! dU-IU");
-			return;
 		}
-		connexionNodes.forEach(otherPublicKey -> removePublicKeyFromRoutingTable(otherPublicKey, publicKey));
+		graphe.removeNode(id);
+		//plus aucune table ne référence cet identifiant : il peut être réattribué
+		registry.release(publicKey);
+		//son départ est retenu pour la synchronisation anti-entropie
+		removedKeys.remove(publicKey.fingerprint());
+		removedKeys.put(publicKey.fingerprint(), System.nanoTime());
+		trimRemovedKeys();
 	}
 
-	
-	private void removePublicKeyFromRoutingTable(PublicKeyRSA otherPublicKey, PublicKeyRSA publicKey) {
-		Utils.requireNonNulls(publicKey, otherPublicKey);
-		routageConnexion.computeIfPresent(otherPublicKey, (key, otherSet) -> {
-			otherSet.remove(publicKey);
-			return otherSet.isEmpty() ? new HashSet<PublicKeyRSA>() : otherSet;
-		});
+	//charge retenue pour un nœud du graphe, null s'il n'en a jamais annoncé (appelé sous le verrou)
+	private NodeLoad loadOf(int node) {
+		var version = graphe.loadVersion(node);
+		return version == 0 ? null : new NodeLoad(registry.keyOf(node), version, graphe.load(node));
+	}
+
+	//poids retenu pour une connexion du graphe, annoncé par l'extrémité à qui il revient, null s'il n'a jamais été annoncé (appelé sous le verrou)
+	private LinkWeight weightOf(int node, int neighbor) {
+		var version = graphe.weightVersion(node, neighbor);
+		if(version == 0) { return null; }
+		var key = registry.keyOf(node);
+		var neighborKey = registry.keyOf(neighbor);
+		var rttMicros = graphe.weight(node, neighbor);
+		return LinkWeight.isOwner(key, neighborKey)
+				? new LinkWeight(key, neighborKey, version, rttMicros) : new LinkWeight(neighborKey, key, version, rttMicros);
+	}
+
+	private boolean isRemoved(PublicKeyRSA publicKey) {
+		return removedKeys.containsKey(publicKey.fingerprint());
+	}
+
+	private void evictRemovedKeys() {
+		var now = System.nanoTime();
+		var window = TimeUnit.MINUTES.toNanos(REMOVED_KEYS_WINDOW_MINUTES);
+		for(var it = removedKeys.values().iterator(); it.hasNext(); ) {
+			if(now - it.next() <= window) { break; }
+			it.remove();
+		}
+	}
+
+	private void trimRemovedKeys() {
+		for(var it = removedKeys.keySet().iterator(); removedKeys.size() > MAX_REMOVED_KEYS; ) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	private static <T> T getAt(ArrayList<T> table, int id) {
+		return id < 0 || id >= table.size() ? null : table.get(id);
+	}
+
+	private static <T> void setAt(ArrayList<T> table, int id, T value) {
+		while(table.size() <= id) {
+			if(value == null) { return; }
+			table.add(null);
+		}
+		table.set(id, value);
 	}
 	
 	
@@ -0,0 +1,251 @@
+package fr.uge.enskred.application;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Mémoire bornée des identifiants de messages déjà vus, pour la déduplication des broadcasts.
+ * ---
+ * Les identifiants de broadcast sont des {@code long} tirés au hasard (et non des numéros de séquence) :
+ * on garde donc les couples (émetteur, identifiant) les plus récents, dans des tableaux primitifs.
+ * <ul>
+ *   <li>une file circulaire garde les entrées dans leur ordre d'arrivée, avec leur date ;</li>
+ *   <li>un index en adressage ouvert (sondage linéaire, facteur de charge au plus 1/2) donne leur position dans la file.</li>
+ * </ul>
+ * Une entrée est oubliée quand elle est plus vieille que la fenêtre de temps, ou quand la file est pleine
+ * (la plus ancienne laisse sa place). Les tableaux grandissent par doublement jusqu'à la capacité maximale :
+ * une fois cette taille atteinte, {@link #checkAndAdd} n'alloue plus rien (pas de {@code Long} ni de {@code HashSet}).
+ *
+ * Cette classe n'est pas thread-safe : elle est protégée par le verrou d'{@link InfoUsers}.
+ */
+public final class MessageIdWindow {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int EMPTY = 0;		//case libre de l'index (les positions y sont stockées +1)
+	private static final int FORGOTTEN = -1;	//émetteur d'une entrée retirée de l'index, en attente d'éviction
+
+	private final long windowNanos;
+	private final int maxCapacity;
+	//file circulaire des entrées, dans l'ordre d'arrivée
+	private int[] senders;
+	private long[] ids;
+	private long[] times;
+	private int head;
+	private int count;
+	private int live;
+	//index: position dans la file + 1
+	private int[] table;
+
+	/**
+	 * @param window : Durée pendant laquelle un identifiant est retenu.
+	 * @param unit : Unité de {@code window}.
+	 * @param maxCapacity : Nombre maximal d'identifiants retenus (arrondi à la puissance de deux supérieure).
+	 */
+	public MessageIdWindow(long window, TimeUnit unit, int maxCapacity) {
+		if(window <= 0 || maxCapacity <= 0 || maxCapacity > 1 << 29) {
+			throw new IllegalArgumentException();
+		}
+		this.windowNanos = unit.toNanos(window);
+		var capacity = Integer.highestOneBit(maxCapacity);
+		this.maxCapacity = capacity < maxCapacity ? capacity << 1 : capacity;
+		allocate(Math.min(INITIAL_CAPACITY, this.maxCapacity));
+	}
+
+	/**
+	 * Vérifie si l'identifiant a déjà été vu pour cet émetteur, et le retient sinon.
+	 * ---
+	 * @param sender : Identifiant de l'émetteur (cf. {@link NodeRegistry}).
+	 * @param id : Identifiant du message.
+	 * @return true si le message a déjà été vu, false s'il est nouveau (et désormais retenu).
+	 */
+	public boolean checkAndAdd(int sender, long id) {
+		var now = System.nanoTime();
+		evictExpired(now);
+		if(slotOf(sender, id) >= 0) { return true; }
+		if(count == senders.length) {
+			if(senders.length < maxCapacity) {
+				grow();
+			} else {
+				evictOldest();
+			}
+		}
+		var position = (head + count) & (senders.length - 1);
+		senders[position] = sender;
+		ids[position] = id;
+		times[position] = now;
+		count++;
+		live++;
+		var slot = home(sender, id);
+		while(table[slot] != EMPTY) { slot = (slot + 1) & (table.length - 1); }
+		table[slot] = position + 1;
+		return false;
+	}
+
+	/**
+	 * Vérifie si l'identifiant est retenu pour cet émetteur, sans le retenir.
+	 * ---
+	 * @return true si le message a été vu dans la fenêtre.
+	 */
+	public boolean contains(int sender, long id) {
+		evictExpired(System.nanoTime());
+		return slotOf(sender, id) >= 0;
+	}
+
+	/**
+	 * Oublie tous les identifiants d'un émetteur (avant que son identifiant de nœud soit réattribué).
+	 * Coûte un parcours de la file : à réserver aux départs de nœuds.
+	 */
+	public void forgetSender(int sender) {
+		for(var k = 0; k < count; k++) {
+			var position = (head + k) & (senders.length - 1);
+			if(senders[position] == sender) {
+				removeFromTable(position);
+				senders[position] = FORGOTTEN;
+				live--;
+			}
+		}
+	}
+
+	/**
+	 * Oublie tous les identifiants (la capacité atteinte est conservée).
+	 */
+	public void clear() {
+		Arrays.fill(table, EMPTY);
+		head = 0;
+		count = 0;
+		live = 0;
+	}
+
+	/**
+	 * @return Le nombre d'identifiants retenus.
+	 */
+	public int size() {
+		return live;
+	}
+
+	/**
+	 * @return L'empreinte mémoire des tableaux, en octets (en-têtes d'objets non comptés).
+	 */
+	public long memoryUsage() {
+		return (long) senders.length * (Integer.BYTES + Long.BYTES + Long.BYTES) + (long) table.length * Integer.BYTES;
+	}
+
+	@Override
+	public String toString() {
+		return "MessageIdWindow[" + live + " ids, " + memoryUsage() + " octets]";
+	}
+
+	//PRIVATE METHODS
+
+	private void allocate(int capacity) {
+		senders = new int[capacity];
+		ids = new long[capacity];
+		times = new long[capacity];
+		table = new int[capacity * 2];
+	}
+
+	private void evictExpired(long now) {
+		while(count > 0 && now - times[head] > windowNanos) {
+			evictOldest();
+		}
+	}
+
+	private void evictOldest() {
+		if(senders[head] != FORGOTTEN) {
+			removeFromTable(head);
+			live--;
+		}
+		head = (head + 1) & (senders.length - 1);
+		count--;
+	}
+
+	private void grow() {
+		var oldSenders = senders;
+		var oldIds = ids;
+		var oldTimes = times;
+		var oldHead = head;
+		var oldCount = count;
+		allocate(oldSenders.length * 2);
+		head = 0;
+		count = 0;
+		live = 0;
+		for(var k = 0; k < oldCount; k++) {
+			var position = (oldHead + k) & (oldSenders.length - 1);
+			if(oldSenders[position] == FORGOTTEN) { continue; }
+			senders[count] = oldSenders[position];
+			ids[count] = oldIds[position];
+			times[count] = oldTimes[position];
+			var slot = home(senders[count], ids[count]);
+			while(table[slot] != EMPTY) { slot = (slot + 1) & (table.length - 1); }
+			table[slot] = count + 1;
+			count++;
+			live++;
+		}
+	}
+
+	private int slotOf(int sender, long id) {
+		for(var slot = home(sender, id); table[slot] != EMPTY; slot = (slot + 1) & (table.length - 1)) {
+			var position = table[slot] - 1;
+			if(ids[position] == id && senders[position] == sender) { return slot; }
+		}
+		return -1;
+	}
+
+	/**
+	 * Retire une entrée de l'index par décalage arrière : aucune pierre tombale, les sondages restent courts.
+	 */
+	private void removeFromTable(int position) {
+		var mask = table.length - 1;
+		var slot = home(senders[position], ids[position]);
+		while(table[slot] != position + 1) { slot = (slot + 1) & mask; }
+		var next = slot;
+		while(true) {
+			next = (next + 1) & mask;
+			if(table[next] == EMPTY) { break; }
+			var other = table[next] - 1;
+			var ideal = home(senders[other], ids[other]);
+			//l'entrée peut remonter dans le trou si sa case idéale n'est pas entre le trou (exclu) et elle
+			if(((next - ideal) & mask) >= ((next - slot) & mask)) {
+				table[slot] = table[next];
+				slot = next;
+			}
+		}
+		table[slot] = EMPTY;
+	}
+
+	private int home(int sender, long id) {
+		var hash = (id ^ ((long) sender << 32 | sender)) * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & (table.length - 1);
+	}
+
+	//MAIN
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("TEST : Déduplication bornée en taille");
+		var window = new MessageIdWindow(1, TimeUnit.HOURS, 1_000);
+		var random = new java.util.Random(0);
+		var first = random.nextLong();
+		System.out.println("Nouveau : " + !window.checkAndAdd(1, first) + ", déjà vu : " + window.checkAndAdd(1, first)
+				+ ", autre émetteur : " + !window.checkAndAdd(2, first));
+		for(var i = 0; i < 5_000; i++) { window.checkAndAdd(3, random.nextLong()); }
+		System.out.println("Après 5000 ids : " + window + " (plus ancien oublié : " + !window.contains(1, first) + ")");
+		var check = new java.util.HashSet<Long>();
+		var errors = 0;
+		random = new java.util.Random(1);
+		for(var i = 0; i < 100_000; i++) {
+			var id = random.nextLong() % 3_000;
+			var seen = window.checkAndAdd(4, id);
+			if(seen && !check.contains(id)) { errors++; }
+			check.add(id);
+		}
+		System.out.println(errors == 0 ? "Aucun faux positif !" : "Erreur : " + errors + " faux positifs.");
+
+		System.out.println("TEST : Fenêtre de temps et oubli d'un émetteur");
+		var timed = new MessageIdWindow(50, TimeUnit.MILLISECONDS, 1_000);
+		timed.checkAndAdd(1, 42L);
+		timed.checkAndAdd(2, 43L);
+		timed.forgetSender(2);
+		System.out.println("Émetteur oublié : " + !timed.contains(2, 43L) + ", taille : " + timed.size());
+		Thread.sleep(100);
+		System.out.println("Expiré : " + !timed.contains(1, 42L) + ", taille : " + timed.size());
+	}
+}
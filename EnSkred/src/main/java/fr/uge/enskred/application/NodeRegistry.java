@@ -0,0 +1,135 @@
+package fr.uge.enskred.application;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * Registre d'internement des nœuds : associe une fois pour toutes chaque clé publique RSA
+ * à un identifiant entier dense (0, 1, 2, ...).
+ * ---
+ * Le hachage d'une {@code PublicKeyRSA} n'est payé qu'une fois, à l'entrée d'un paquet
+ * ({@link #intern} ou {@link #idOf}). Le graphe, le routage et les tables d'InfoUsers
+ * travaillent ensuite uniquement sur des entiers, indexés dans des tableaux.
+ *
+ * Les identifiants libérés ({@link #release}) sont réutilisés pour garder les tableaux compacts :
+ * il ne faut donc libérer un identifiant qu'une fois qu'il n'est plus référencé nulle part.
+ *
+ * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock`.
+ */
+public final class NodeRegistry {
+	/**
+	 * Identifiant renvoyé pour une clé inconnue.
+	 */
+	public static final int UNKNOWN = -1;
+
+	private final HashMap<PublicKeyRSA, Integer> ids = new HashMap<>();
+	private final ArrayList<PublicKeyRSA> keys = new ArrayList<>();
+	private final BitSet free = new BitSet();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Renvoie l'identifiant d'une clé, en lui en attribuant un si elle est nouvelle.
+	 * ---
+	 * @param key : La clé publique à interner.
+	 * @return Son identifiant dense.
+	 */
+	public int intern(PublicKeyRSA key) {
+		Objects.requireNonNull(key);
+		lock.lock();
+		try {
+			var id = ids.get(key);
+			if(id != null) { return id; }
+			var newId = free.nextSetBit(0);
+			if(newId < 0) {
+				newId = keys.size();
+				keys.add(key);
+			} else {
+				free.clear(newId);
+				keys.set(newId, key);
+			}
+			ids.put(key, newId);
+			return newId;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie l'identifiant d'une clé sans l'interner.
+	 * ---
+	 * @param key : La clé publique recherchée.
+	 * @return Son identifiant, ou {@link #UNKNOWN} si elle n'est pas enregistrée.
+	 */
+	public int idOf(PublicKeyRSA key) {
+		Objects.requireNonNull(key);
+		lock.lock();
+		try {
+			return ids.getOrDefault(key, UNKNOWN);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie la clé associée à un identifiant.
+	 * ---
+	 * @param id : Identifiant dense.
+	 * @return La clé publique, ou null si l'identifiant est libre ou hors bornes.
+	 */
+	public PublicKeyRSA keyOf(int id) {
+		lock.lock();
+		try {
+			return id < 0 || id >= keys.size() ? null : keys.get(id);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Libère l'identifiant d'une clé, qui pourra être réattribué à une autre clé.
+	 * ---
+	 * @param key : La clé publique à oublier.
+	 */
+	public void release(PublicKeyRSA key) {
+		Objects.requireNonNull(key);
+		lock.lock();
+		try {
+			var id = ids.remove(key);
+			if(id == null) { return; }
+			keys.set(id, null);
+			free.set(id);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Borne supérieure (exclue) des identifiants attribués : taille à donner aux tableaux indexés par identifiant.
+	 * ---
+	 * @return Le nombre d'emplacements utilisés ou libérés.
+	 */
+	public int capacity() {
+		lock.lock();
+		try {
+			return keys.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "NodeRegistry: " + ids.size() + " nœuds, " + free.cardinality() + " identifiants libres";
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package fr.uge.enskred.application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.uge.enskred.application.Application.Context;
+import fr.uge.enskred.paquet.CircuitCell;
+import fr.uge.enskred.paquet.CircuitCreate;
+import fr.uge.enskred.paquet.MessageToSecure;
+import fr.uge.enskred.readers.CircuitCipher;
+import fr.uge.enskred.readers.CircuitCipher.Layer;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.Utils;
+
+
+/**
+ * Circuits persistants pour les messages cachés, à la manière de Tor.
+ * ---
+ * Le premier message caché vers une destination construit un circuit le long d'un chemin aléatoire :
+ * un {@code CIRCUIT_CREATE} porte un oignon hybride qui donne à chaque relais sa clé de circuit (une opération RSA par relais).
+ * Les messages suivants, et les accusés de réception qui reviennent, voyagent dans des {@code CIRCUIT_CELL} de taille fixe :
+ * chaque relais n'y applique qu'une couche AES avec sa clé, au lieu de déchiffrer une couche RSA.
+ * <ul>
+ *   <li>un relais retient, pour chaque circuit, le lien et l'identifiant de chaque côté ({@link Hop}) ;</li>
+ *   <li>l'initiateur retient le chemin et les clés de tous les relais, et reconstruit le circuit si sa vue du réseau
+ *   montre qu'un relais ou un lien a disparu, ou après une longue inactivité (les relais oublient les circuits inactifs) ;</li>
+ *   <li>un message trop long pour une cellule, ou sans chemin, est laissé à l'oignon complet par l'appelant.</li>
+ * </ul>
+ * Les identifiants de circuit sont tirés au hasard par l'émetteur de chaque lien et ne valent que sur ce lien.
+ *
+ * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock` ; les opérations AES se font hors verrou,
+ * sur le thread qui reçoit la cellule.
+ */
+public final class OnionCircuits {
+	private static final Logger logger = Logger.getLogger(OnionCircuits.class.getName());
+	private static final long IDLE_MINUTES = 10;				//circuit oublié par les relais après cette inactivité - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_RELAYED_CIRCUITS = 1 << 12;	//circuits traversant ce nœud - CHAMPS À MODIFIER SI NECESSAIRE !
+	//identifiant de message + taille du texte, avant le texte
+	private static final int MESSAGE_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+	/**
+	 * Reçoit les messages arrivés au bout d'un circuit.
+	 */
+	@FunctionalInterface
+	public interface Receiver {
+		/**
+		 * @param message : Message reçu.
+		 * @param replyTo : Circuit par lequel répondre si l'on en est la sortie, null si l'on en est l'initiateur.
+		 */
+		void receive(MessageToSecure message, Hop replyTo);
+	}
+
+	/**
+	 * Circuit sur un lien donné.
+	 */
+	private record LinkId(Context context, long circuitId) {}
+
+	/**
+	 * Passage d'un circuit par ce nœud : relais intermédiaire, ou sortie si {@code next} est null.
+	 */
+	public static final class Hop {
+		private final CircuitCipher cipher;
+		private final Context previous;
+		private final long previousId;
+		private final Context next;
+		private final long nextId;
+		private final PublicKeyRSA origin;
+		private long lastUsed;
+
+		private Hop(CircuitCipher cipher, Context previous, long previousId, Context next, long nextId, PublicKeyRSA origin) {
+			this.cipher = cipher;
+			this.previous = previous;
+			this.previousId = previousId;
+			this.next = next;
+			this.nextId = nextId;
+			this.origin = origin;
+			this.lastUsed = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Circuit construit par ce nœud : chemin (nous compris) et clés des relais, dans l'ordre.
+	 */
+	private static final class Origin {
+		private final List<PublicKeyRSA> path;
+		private final CircuitCipher[] ciphers;
+		private final Context first;
+		private final long circuitId;
+		private long lastUsed;
+
+		private Origin(List<PublicKeyRSA> path, CircuitCipher[] ciphers, Context first, long circuitId) {
+			this.path = path;
+			this.ciphers = ciphers;
+			this.first = first;
+			this.circuitId = circuitId;
+			this.lastUsed = System.nanoTime();
+		}
+
+		private PublicKeyRSA destination() {
+			return path.getLast();
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final PublicKeyRSA myPublicKey;
+	private final InfoUsers infoUsers;
+	private final Graphe graphe;
+	private final Receiver receiver;
+	//chaque relais est indexé deux fois : par son lien amont et par son lien aval
+	private final HashMap<LinkId, Hop> hops = new HashMap<>();
+	private final HashMap<LinkId, Origin> originsByLink = new HashMap<>();
+	private final HashMap<PublicKeyRSA, Origin> originsByDestination = new HashMap<>();
+
+	public OnionCircuits(PublicKeyRSA myPublicKey, InfoUsers infoUsers, Graphe graphe, Receiver receiver, Level level) {
+		this.myPublicKey = Objects.requireNonNull(myPublicKey);
+		this.infoUsers = Objects.requireNonNull(infoUsers);
+		this.graphe = Objects.requireNonNull(graphe);
+		this.receiver = Objects.requireNonNull(receiver);
+		logger.setLevel(level == null ? Level.SEVERE : level);
+	}
+
+	/**
+	 * Envoie un message caché par le circuit vers la destination, construit au besoin.
+	 * ---
+	 * @param destination : Destinataire du message.
+	 * @param idMessage : Identifiant du message (pour l'accusé de réception).
+	 * @param message : Texte du message.
+	 * @return false si le message ne tient pas dans une cellule ou qu'aucun chemin n'existe :
+	 * l'appelant se rabat alors sur l'oignon complet.
+	 */
+	public boolean send(PublicKeyRSA destination, long idMessage, String message) {
+		Utils.requireNonNulls(destination, message);
+		var payload = encode(idMessage, message);
+		if(payload == null) { return false; }
+		lock.lock();
+		try {
+			var origin = originsByDestination.get(destination);
+			if(origin != null && !isUsable(origin)) {
+				logger.info("Circuit vers " + destination + " périmé, reconstruction");
+				remove(origin);
+				origin = null;
+			}
+			if(origin == null) {
+				origin = build(destination);
+				if(origin == null) { return false; }
+			}
+			var cell = origin.ciphers[origin.ciphers.length - 1].seal(payload, true);
+			for(var i = origin.ciphers.length - 2; i >= 0; i--) {
+				origin.ciphers[i].relay(cell, true);
+			}
+			origin.lastUsed = System.nanoTime();
+			//sous le verrou : la cellule suit la création du circuit sur le lien
+			origin.first.queuePaquet(new CircuitCell(origin.circuitId, cell));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Répond à l'initiateur d'un circuit dont on est la sortie.
+	 */
+	public void reply(Hop exit, long idMessage, String message) {
+		Utils.requireNonNulls(exit, message);
+		if(exit.next != null) {
+			throw new IllegalArgumentException("Not the exit of the circuit");
+		}
+		var payload = encode(idMessage, message);
+		if(payload == null) { return; }
+		exit.previous.queuePaquet(new CircuitCell(exit.previousId, exit.cipher.seal(payload, false)));
+	}
+
+	/**
+	 * Une couche de création a été déchiffrée : on retient le circuit et, si l'on n'en est pas la sortie,
+	 * on transmet la suite de l'oignon au relais suivant.
+	 * ---
+	 * @param from : Lien par lequel la création est arrivée.
+	 * @param circuitId : Identifiant du circuit sur ce lien.
+	 * @param layer : Notre couche, déchiffrée.
+	 */
+	public void onCreate(Context from, long circuitId, Layer layer) {
+		Utils.requireNonNulls(from, layer);
+		Context next = null;
+		var nextId = 0L;
+		if(!layer.isExit()) {
+			next = infoUsers.getContext(layer.next());
+			if(next == null) {
+				logger.info("Relais suivant " + layer.next() + " absent, circuit abandonné");
+				return;
+			}
+			nextId = Utils.generateRandomLong();
+		}
+		lock.lock();
+		try {
+			evictIdle();
+			var in = new LinkId(from, circuitId);
+			var out = new LinkId(next, nextId);
+			if(hops.size() >= 2 * MAX_RELAYED_CIRCUITS || hops.containsKey(in) || (next != null && hops.containsKey(out))) {
+				logger.info("Circuit refusé sur " + from.publicKeyExtern());
+				return;
+			}
+			var hop = new Hop(layer.cipher(), from, circuitId, next, nextId, layer.origin());
+			hops.put(in, hop);
+			if(next == null) { return; }
+			hops.put(out, hop);
+			//sous le verrou : une cellule relayée par le même lien ne peut pas doubler la création
+			next.queuePaquet(new CircuitCreate(nextId, layer.onion()));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Traite une cellule reçue : relayée avec notre couche, ou livrée si l'on est au bout du circuit.
+	 * ---
+	 * @param from : Lien par lequel la cellule est arrivée.
+	 */
+	public void onCell(Context from, CircuitCell paquet) {
+		Utils.requireNonNulls(from, paquet);
+		var link = new LinkId(from, paquet.circuitId());
+		Hop hop;
+		Origin origin = null;
+		lock.lock();
+		try {
+			hop = hops.get(link);
+			if(hop != null) {
+				hop.lastUsed = System.nanoTime();
+			} else {
+				origin = originsByLink.get(link);
+				if(origin != null) { origin.lastUsed = System.nanoTime(); }
+			}
+		} finally {
+			lock.unlock();
+		}
+		var cell = paquet.cell();
+		if(origin != null) {
+			for(var i = 0; i < origin.ciphers.length - 1; i++) {
+				origin.ciphers[i].relay(cell, false);
+			}
+			var payload = origin.ciphers[origin.ciphers.length - 1].open(cell, false);
+			if(payload == null) {
+				//cellule altérée en route (ou compteurs désalignés) : le circuit n'est plus sûr, le prochain envoi en construit un autre
+				lock.lock();
+				try {
+					remove(origin);
+				} finally {
+					lock.unlock();
+				}
+			}
+			deliver(payload, origin.destination(), null);
+			return;
+		}
+		if(hop == null) {
+			logger.info("Cellule d'un circuit inconnu, ignorée");
+			return;
+		}
+		var forward = hop.previous == from && hop.previousId == paquet.circuitId();
+		if(forward && hop.next == null) {
+			deliver(hop.cipher.open(cell, true), hop.origin, hop);
+			return;
+		}
+		hop.cipher.relay(cell, forward);
+		if(forward) {
+			hop.next.queuePaquet(new CircuitCell(hop.nextId, cell));
+		} else {
+			hop.previous.queuePaquet(new CircuitCell(hop.previousId, cell));
+		}
+	}
+
+	/**
+	 * Le voisin est déconnecté : les circuits qui passent par ce lien sont oubliés.
+	 */
+	public void forget(Context peer) {
+		lock.lock();
+		try {
+			hops.entrySet().removeIf(entry -> entry.getValue().previous == peer || entry.getValue().next == peer);
+			originsByLink.values().removeIf(origin -> origin.first == peer);
+			originsByDestination.values().removeIf(origin -> origin.first == peer);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "OnionCircuits[" + originsByDestination.size() + " circuits construits, " + hops.size() + " passages]";
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//PRIVATE METHODS
+
+	/**
+	 * Construit un circuit le long d'un chemin aléatoire et envoie sa création au premier relais (appelé sous le verrou).
+	 */
+	private Origin build(PublicKeyRSA destination) {
+		var path = graphe.randomPath(myPublicKey, destination);
+		if(path.size() < 2) { return null; }
+		var first = infoUsers.getContext(path.get(1));
+		if(first == null) { return null; }
+		var ciphers = new CircuitCipher[path.size() - 1];
+		for(var i = 0; i < ciphers.length; i++) {
+			ciphers[i] = CircuitCipher.generate();
+		}
+		//l'oignon se construit depuis la sortie
+		var onion = ciphers[ciphers.length - 1].exitLayer(destination, myPublicKey);
+		for(var i = ciphers.length - 2; i >= 0; i--) {
+			onion = ciphers[i].relayLayer(path.get(i + 1), path.get(i + 2), onion);
+		}
+		var origin = new Origin(List.copyOf(path), ciphers, first, Utils.generateRandomLong());
+		originsByLink.put(new LinkId(first, origin.circuitId), origin);
+		originsByDestination.put(destination, origin);
+		first.queuePaquet(new CircuitCreate(origin.circuitId, onion));
+		logger.info("Circuit de " + ciphers.length + " relais construit vers " + destination);
+		return origin;
+	}
+
+	private boolean isUsable(Origin origin) {
+		//les relais oublient le circuit après IDLE_MINUTES : on le remplace avant
+		if(System.nanoTime() - origin.lastUsed > TimeUnit.MINUTES.toNanos(IDLE_MINUTES) / 2) { return false; }
+		for(var i = 1; i < origin.path.size(); i++) {
+			if(!infoUsers.publicKeyIsOnNetwork(origin.path.get(i)) || !graphe.hasEdge(origin.path.get(i - 1), origin.path.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void remove(Origin origin) {
+		originsByLink.remove(new LinkId(origin.first, origin.circuitId));
+		originsByDestination.remove(origin.destination());
+	}
+
+	private void evictIdle() {
+		var now = System.nanoTime();
+		var idle = TimeUnit.MINUTES.toNanos(IDLE_MINUTES);
+		hops.values().removeIf(hop -> now - hop.lastUsed > idle);
+	}
+
+	private void deliver(ByteBuffer payload, PublicKeyRSA sender, Hop replyTo) {
+		if(payload == null) {
+			logger.warning("Cellule de circuit non authentique, ignorée");
+			return;
+		}
+		var size = payload.getInt(Long.BYTES);
+		if(size < 0 || size > payload.remaining() - MESSAGE_HEADER_SIZE) {
+			logger.warning("Cellule de circuit mal formée, ignorée");
+			return;
+		}
+		var message = StandardCharsets.UTF_8.decode(payload.slice(MESSAGE_HEADER_SIZE, size)).toString();
+		receiver.receive(new MessageToSecure(sender, payload.getLong(0), message), replyTo);
+	}
+
+	private static ByteBuffer encode(long idMessage, String message) {
+		var text = StandardCharsets.UTF_8.encode(message);
+		if(MESSAGE_HEADER_SIZE + text.remaining() > CircuitCipher.CELL_PAYLOAD_SIZE) { return null; }
+		return ByteBuffer.allocate(MESSAGE_HEADER_SIZE + text.remaining()).putLong(idMessage).putInt(text.remaining()).put(text).flip();
+	}
+}
@@ -7,9 +7,11 @@ import java.util.logging.Logger;
 
 import fr.uge.enskred.paquet.ListConnected;
 import fr.uge.enskred.paquet.Message;
+import fr.uge.enskred.paquet.MessageToSecure;
 import fr.uge.enskred.paquet.MessagePublic;
 import fr.uge.enskred.paquet.Node;
 import fr.uge.enskred.paquet.Paquet;
+import fr.uge.enskred.paquet.SecureMessage;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
 import fr.uge.enskred.utils.Utils;
 
@@ -67,10 +69,12 @@ public final class ParseCommand {
 							return null;
 						}
 						var destPublicKey = node.publicKey();
-						var listToDest = graphe.randomPath(myPublicKey, destPublicKey);
 						var idMessage = System.currentTimeMillis();
 						infoUsers.addNewHiddenMessegeID(idMessage);
 						if(myPublicKey.equals(destPublicKey)) { return Utils.onionRoutingForSecureMessage(myPublicKey, new ArrayList<>(List.of(myPublicKey)), commands[2], idMessage); }
+						//le ou les chemins sont choisis à l'envoi (circuit ou fragments)
+						if(Utils.ONION_CIRCUITS || Utils.MULTIPATH_SHARDS) { return new SecureMessage(destPublicKey, new MessageToSecure(myPublicKey, idMessage, commands[2]), null); }
+						var listToDest = graphe.randomPath(myPublicKey, destPublicKey);
 						return Utils.onionRoutingForSecureMessage(myPublicKey, listToDest.reversed(), commands[2], idMessage);
 					}
 				}
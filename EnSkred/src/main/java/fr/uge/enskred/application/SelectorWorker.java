@@ -0,0 +1,115 @@
+package fr.uge.enskred.application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Un {@code SelectorWorker} possède son propre {@link Selector} et son propre thread.
+ * Chaque {@code Context} est épinglé à un unique worker : toutes ses lectures, écritures,
+ * mises à jour d'interestOps et manipulations de buffers se font sur le thread de ce worker.
+ *
+ * <p>Les autres threads (acceptor, autres workers, console) ne touchent jamais directement
+ * un {@code Context} d'un autre worker : ils déposent une tâche dans la file sans verrou
+ * du worker via {@link #execute(Runnable)}, puis réveillent son selector. Les tâches sont
+ * exécutées par le worker entre deux appels à {@code select}.
+ *
+ * <ul>
+ *   <li>{@code execute} : dépose une tâche et réveille le selector (appelable depuis n'importe quel thread)</li>
+ *   <li>{@code isWorkerThread} : indique si l'on est déjà sur le thread du worker</li>
+ *   <li>{@code selector} : le selector sur lequel enregistrer les canaux (depuis le thread du worker uniquement)</li>
+ * </ul>
+ */
+public final class SelectorWorker {
+	private static final Logger logger = Logger.getLogger(SelectorWorker.class.getName());
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Consumer<SelectionKey> keyHandler;
+	private final Thread thread;
+
+	/**
+	 * Crée un worker (non démarré).
+	 * ---
+	 * @param name : Nom du thread.
+	 * @param keyHandler : Traitement d'une clé sélectionnée (appelé sur le thread du worker).
+	 * @param level : Niveau de log.
+	 * @throws IOException si le selector ne peut pas être ouvert.
+	 */
+	public SelectorWorker(String name, Consumer<SelectionKey> keyHandler, Level level) throws IOException {
+		Objects.requireNonNull(name);
+		this.keyHandler = Objects.requireNonNull(keyHandler);
+		this.selector = Selector.open();
+		this.thread = Thread.ofPlatform().name(name).daemon().unstarted(this::run);
+		logger.setLevel(level == null ? Level.SEVERE : level);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Dépose une tâche à exécuter sur le thread du worker et réveille son selector.
+	 * ---
+	 * @param task : La tâche à exécuter.
+	 */
+	public void execute(Runnable task) {
+		tasks.offer(Objects.requireNonNull(task));
+		selector.wakeup();
+	}
+
+	/**
+	 * @return true si le thread courant est celui du worker.
+	 */
+	public boolean isWorkerThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * @return Le selector du worker (à n'utiliser que depuis le thread du worker).
+	 */
+	public Selector selector() {
+		return selector;
+	}
+
+	//PRIVATE METHODS
+
+	private void run() {
+		while(!Thread.interrupted()) {
+			try {
+				selector.select(this::treatKey);
+			} catch (IOException ioe) {
+				logger.severe("Fatal error on " + thread.getName() + ": " + ioe.getMessage());
+				return;
+			}
+			processTasks();
+		}
+	}
+
+	private void treatKey(SelectionKey key) {
+		try {
+			keyHandler.accept(key);
+		} catch (UncheckedIOException tunneled) {
+			//une erreur d'I/O ne concerne que ce canal: on le ferme sans arrêter les autres
+			logger.info("I/O error on " + key.channel() + ": " + tunneled.getCause().getMessage());
+			try {
+				key.cancel();
+				key.channel().close();
+			} catch (IOException e) {
+				// ignore exception
+			}
+		}
+	}
+
+	private void processTasks() {
+		for(var task = tasks.poll(); task != null; task = tasks.poll()) {
+			task.run();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package fr.uge.enskred.application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.uge.enskred.paquet.MessageShard;
+import fr.uge.enskred.paquet.MessageToSecure;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.ErasureCode;
+
+
+/**
+ * Reconstitue les messages cachés envoyés en fragments par plusieurs chemins.
+ * ---
+ * Le message est rendu dès que suffisamment de fragments sont arrivés : les fragments suivants (chemins plus lents)
+ * sont ignorés tant que le message reste dans la fenêtre, pour ne pas le livrer deux fois.
+ * Un message incomplet est oublié après {@code SHARD_WINDOW_SECONDS}, et le nombre de messages suivis est borné.
+ *
+ * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock`.
+ */
+public final class ShardAssembler {
+	private static final Logger logger = Logger.getLogger(ShardAssembler.class.getName());
+	private static final long SHARD_WINDOW_SECONDS = 60;		//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_PENDING_MESSAGES = 1 << 8;		//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_MESSAGE_BYTES = 1 << 20;		//CHAMPS À MODIFIER SI NECESSAIRE !
+
+	private record MessageKey(PublicKeyRSA sender, long idMessage) {}
+
+	private static final class Pending {
+		private final ByteBuffer[] shards;
+		private final int needed;
+		private final int length;
+		private final long createdAt = System.nanoTime();
+		private int received;
+		private boolean delivered;
+
+		private Pending(int needed, int total, int length) {
+			this.shards = new ByteBuffer[total];
+			this.needed = needed;
+			this.length = length;
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	//ordre d'arrivée : les plus anciens messages sont en tête
+	private final LinkedHashMap<MessageKey, Pending> pending = new LinkedHashMap<>();
+
+	public ShardAssembler(Level level) {
+		logger.setLevel(level == null ? Level.SEVERE : level);
+	}
+
+	/**
+	 * Ajoute un fragment reçu.
+	 * ---
+	 * @param shard : Fragment reçu au bout de son oignon.
+	 * @return Le message reconstitué si ce fragment le complète, null sinon.
+	 */
+	public MessageToSecure add(MessageShard shard) {
+		Objects.requireNonNull(shard);
+		if(shard.length() > MAX_MESSAGE_BYTES) {
+			logger.warning("Fragment d'un message trop long, ignoré");
+			return null;
+		}
+		lock.lock();
+		try {
+			evictExpired();
+			var key = new MessageKey(shard.sender(), shard.idMessage());
+			var entry = pending.get(key);
+			if(entry == null) {
+				if(pending.size() >= MAX_PENDING_MESSAGES) { pending.pollFirstEntry(); }
+				entry = new Pending(shard.needed(), shard.total(), shard.length());
+				pending.put(key, entry);
+			}
+			if(entry.delivered || entry.needed != shard.needed() || entry.shards.length != shard.total()
+					|| entry.length != shard.length() || entry.shards[shard.index()] != null) {
+				return null;
+			}
+			entry.shards[shard.index()] = shard.data();
+			if(++entry.received < entry.needed) { return null; }
+			var decoded = ErasureCode.decode(entry.shards, entry.needed, entry.length);
+			if(decoded == null) {
+				logger.warning("Fragments incohérents, message " + shard.idMessage() + " abandonné");
+				pending.remove(key);
+				return null;
+			}
+			entry.delivered = true;
+			//seul le marqueur reste, jusqu'à la fin de la fenêtre
+			Arrays.fill(entry.shards, null);
+			logger.info("Message " + shard.idMessage() + " reconstitué avec " + entry.received + " fragments sur " + entry.shards.length);
+			return new MessageToSecure(shard.sender(), shard.idMessage(), StandardCharsets.UTF_8.decode(decoded).toString());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "ShardAssembler[" + pending.size() + " messages suivis]";
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//PRIVATE METHODS
+
+	private void evictExpired() {
+		var limit = System.nanoTime() - TimeUnit.SECONDS.toNanos(SHARD_WINDOW_SECONDS);
+		for(var iterator = pending.values().iterator(); iterator.hasNext(); ) {
+			if(iterator.next().createdAt - limit >= 0) { return; }
+			iterator.remove();
+		}
+	}
+}
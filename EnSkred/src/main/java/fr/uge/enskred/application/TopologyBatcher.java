@@ -0,0 +1,92 @@
+package fr.uge.enskred.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.uge.enskred.paquet.Payload;
+
+
+/**
+ * Regroupe les payloads de topologie ({@code NewNode}, {@code NewConnection}, {@code RemoveNode}) produits localement
+ * dans une courte fenêtre de temps, pour les diffuser dans un seul broadcast ({@link fr.uge.enskred.paquet.TopologyBatch}).
+ * ---
+ * Le premier payload d'un lot arme la fenêtre ; à son expiration, la tâche de vidage fournie est lancée sur l'ordonnanceur.
+ * Un lot plein doit être vidé tout de suite par l'appelant ({@link #add} renvoie true).
+ * Cette classe ne diffuse rien elle-même : l'application récupère le lot via {@link #drain()}, sous son propre verrou,
+ * ce qui garde l'ordre des lots.
+ *
+ * Cette classe est thread-safe via l'utilisation d'un verrou `ReentrantLock`.
+ */
+public final class TopologyBatcher {
+	private static final long BATCH_WINDOW_MILLIS = 20;		//durée d'accumulation d'un lot - CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final int MAX_BATCH_PAYLOADS = 64;		//lot vidé dès qu'il atteint cette taille - CHAMPS À MODIFIER SI NECESSAIRE !
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ScheduledExecutorService scheduler;
+	private final Runnable flushTask;
+	private ArrayList<Payload> pending = new ArrayList<>();
+	private ScheduledFuture<?> timer;
+
+	/**
+	 * @param scheduler : Ordonnanceur sur lequel tourne la fenêtre.
+	 * @param flushTask : Tâche lancée à la fin de la fenêtre (elle doit appeler {@link #drain()}).
+	 */
+	public TopologyBatcher(ScheduledExecutorService scheduler, Runnable flushTask) {
+		this.scheduler = Objects.requireNonNull(scheduler);
+		this.flushTask = Objects.requireNonNull(flushTask);
+	}
+
+	/**
+	 * Ajoute un payload au lot en cours.
+	 * ---
+	 * @return true si le lot est plein et doit être vidé maintenant.
+	 */
+	public boolean add(Payload payload) {
+		Objects.requireNonNull(payload);
+		lock.lock();
+		try {
+			pending.add(payload);
+			if(timer == null) {
+				timer = scheduler.schedule(flushTask, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			return pending.size() >= MAX_BATCH_PAYLOADS;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Récupère le lot en cours et en commence un nouveau.
+	 * ---
+	 * @return Les payloads accumulés, dans leur ordre d'ajout (liste vide si aucun).
+	 */
+	public List<Payload> drain() {
+		lock.lock();
+		try {
+			if(timer != null) {
+				timer.cancel(false);
+				timer = null;
+			}
+			var batch = pending;
+			pending = new ArrayList<>();
+			return batch;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "TopologyBatcher[" + pending.size() + " payloads en attente]";
+		} finally {
+			lock.unlock();
+		}
+	}
+}
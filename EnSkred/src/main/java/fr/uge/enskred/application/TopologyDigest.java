@@ -0,0 +1,158 @@
+package fr.uge.enskred.application;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import fr.uge.enskred.paquet.SyncDigest;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * Empreinte de la vue du réseau d'un nœud, pour la synchronisation anti-entropie entre voisins.
+ * ---
+ * La vue est vue comme un ensemble d'éléments : les nœuds dont l'adresse est connue, les connexions (non orientées)
+ * et les charges annoncées (avec leur version), rangées dans l'intervalle de leur nœud, et les poids annoncés des connexions
+ * (avec leur version), rangés dans l'intervalle de leur connexion.
+ * Chaque élément est haché sur 64 bits à partir des empreintes des clés ({@link PublicKeyRSA#fingerprint()}),
+ * puis rangé dans l'un des {@link #BUCKETS} intervalles selon ses 8 bits de poids fort.
+ * <ul>
+ *   <li>l'empreinte d'un intervalle est la somme de ses éléments, mélangée avec leur nombre (indépendante de l'ordre) ;</li>
+ *   <li>la racine mélange les empreintes des intervalles.</li>
+ * </ul>
+ * Deux voisins comparent d'abord leurs racines (quelques octets), puis leurs intervalles : seuls les intervalles
+ * qui diffèrent sont échangés, le coût d'une réparation suit donc l'écart entre les deux vues et non la taille du réseau.
+ *
+ * Cette classe n'est pas thread-safe : elle est construite sous le verrou d'{@link InfoUsers} puis seulement lue.
+ */
+public final class TopologyDigest {
+	/**
+	 * Nombre d'intervalles de l'espace des empreintes.
+	 */
+	public static final int BUCKETS = SyncDigest.BUCKETS;
+	private static final long NODE_SEED = 0x4E4F4445L;		//"NODE"
+	private static final long EDGE_SEED = 0x45444745L;		//"EDGE"
+	private static final long LOAD_SEED = 0x4C4F4144L;		//"LOAD"
+	private static final long WEIGHT_SEED = 0x57454947L;	//"WEIG"
+
+	private final long[] sums = new long[BUCKETS];
+	private final int[] counts = new int[BUCKETS];
+
+	/**
+	 * Ajoute un nœud dont l'adresse est connue.
+	 */
+	public void addNode(PublicKeyRSA key) {
+		add(nodeHash(key));
+	}
+
+	/**
+	 * Ajoute une connexion (l'ordre des extrémités est indifférent).
+	 */
+	public void addEdge(PublicKeyRSA first, PublicKeyRSA second) {
+		add(edgeHash(first, second));
+	}
+
+	/**
+	 * Ajoute la charge retenue pour un nœud, dans l'intervalle de ce nœud.
+	 */
+	public void addLoad(PublicKeyRSA key, long version, int load) {
+		var hash = mix(mix(key.fingerprint() ^ LOAD_SEED) ^ version) + load;
+		add(bucketOfNode(key), hash);
+	}
+
+	/**
+	 * Ajoute le poids retenu pour une connexion, dans l'intervalle de cette connexion.
+	 */
+	public void addWeight(PublicKeyRSA first, PublicKeyRSA second, long version, int rttMicros) {
+		var hash = mix(mix(edgeHash(first, second) ^ WEIGHT_SEED) ^ version) + rttMicros;
+		add(bucketOfEdge(first, second), hash);
+	}
+
+	/**
+	 * @return Les empreintes des intervalles.
+	 */
+	public long[] buckets() {
+		var buckets = new long[BUCKETS];
+		for(var i = 0; i < BUCKETS; i++) {
+			buckets[i] = counts[i] == 0 ? 0 : mix(sums[i] ^ mix(counts[i]));
+		}
+		return buckets;
+	}
+
+	/**
+	 * @return La racine, qui résume toute la vue.
+	 */
+	public long root() {
+		var root = 0L;
+		var buckets = buckets();
+		for(var i = 0; i < BUCKETS; i++) {
+			root = mix(root ^ buckets[i]) + i;
+		}
+		return root;
+	}
+
+	/**
+	 * Compare avec les empreintes d'intervalles d'un voisin.
+	 * ---
+	 * @param other : Empreintes des intervalles du voisin ({@link #BUCKETS} valeurs).
+	 * @return Les intervalles qui diffèrent.
+	 */
+	public BitSet differingBuckets(long[] other) {
+		Objects.requireNonNull(other);
+		if(other.length != BUCKETS) {
+			throw new IllegalArgumentException("Expected " + BUCKETS + " buckets");
+		}
+		var mine = buckets();
+		var differing = new BitSet(BUCKETS);
+		for(var i = 0; i < BUCKETS; i++) {
+			if(mine[i] != other[i]) { differing.set(i); }
+		}
+		return differing;
+	}
+
+	/**
+	 * @return L'intervalle d'un nœud.
+	 */
+	public static int bucketOfNode(PublicKeyRSA key) {
+		return bucketOf(nodeHash(key));
+	}
+
+	/**
+	 * @return L'intervalle d'une connexion.
+	 */
+	public static int bucketOfEdge(PublicKeyRSA first, PublicKeyRSA second) {
+		return bucketOf(edgeHash(first, second));
+	}
+
+	//PRIVATE METHODS
+
+	private void add(long hash) {
+		add(bucketOf(hash), hash);
+	}
+
+	private void add(int bucket, long hash) {
+		sums[bucket] += hash;
+		counts[bucket]++;
+	}
+
+	private static int bucketOf(long hash) {
+		return (int) (hash >>> 56);
+	}
+
+	private static long nodeHash(PublicKeyRSA key) {
+		return mix(key.fingerprint() ^ NODE_SEED);
+	}
+
+	private static long edgeHash(PublicKeyRSA first, PublicKeyRSA second) {
+		var a = first.fingerprint();
+		var b = second.fingerprint();
+		return mix(mix(Math.min(a, b) ^ EDGE_SEED) ^ Math.max(a, b));
+	}
+
+	//finaliseur de SplitMix64
+	private static long mix(long value) {
+		var z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,8 +1,5 @@
 package fr.uge.enskred.opcode;
 
-import java.util.Arrays;
-
-
 /**
  * Représente l'ensemble des codes d'opérations (OpCode) utilisés dans le protocole EnSkred.
  * <p>
@@ -11,9 +8,16 @@ import java.util.Arrays;
  * </p>
  * 
  * <ul>
- *   <li><strong>Opérations de connexion :</strong> {@code PRE_JOIN}, {@code SECOND_JOIN}, {@code JOIN_RESPONSE}, etc.</li>
+ *   <li><strong>Opérations de connexion :</strong> {@code PRE_JOIN}, {@code SECOND_JOIN}, {@code JOIN_CHUNK}, {@code JOIN_RESPONSE}, etc.</li>
  *   <li><strong>Déconnexion :</strong> {@code LEAVE_NETWORK_ASK}, {@code LEAVE_NETWORK_CONFIRM}, etc.</li>
- *   <li><strong>Messages :</strong> {@code OPEN_MESSAGE}, {@code SECURE_MESSAGE}, {@code MESSAGE}, {@code STOP}, etc.</li>
+ *   <li><strong>Messages :</strong> {@code OPEN_MESSAGE}, {@code SECURE_MESSAGE}, {@code SECURE_MESSAGE_HYBRID}, {@code MESSAGE}, {@code STOP}, etc.</li>
+ *   <li><strong>Lien chiffré :</strong> {@code LINK_KEY_EXCHANGE}, {@code LINK_FRAME}</li>
+ *   <li><strong>Clés compactées :</strong> {@code COMPACT_FRAME}, {@code KEY_REQUEST}, {@code KEY_RESPONSE}</li>
+ *   <li><strong>Diffusion en arbre :</strong> {@code IHAVE}, {@code GRAFT}, {@code PRUNE}</li>
+ *   <li><strong>Anti-entropie :</strong> {@code SYNC_DIGEST}, {@code SYNC_STATE}</li>
+ *   <li><strong>Circuits cachés :</strong> {@code CIRCUIT_CREATE}, {@code CIRCUIT_CELL}</li>
+ *   <li><strong>Latence des liens :</strong> {@code PING}, {@code PONG}</li>
+ *   <li><strong>Payloads de topologie :</strong> {@code NEW_NODE}, {@code NEW_CONNECTION}, {@code REMOVE_NODE}, {@code TOPOLOGY_BATCH}, {@code LINK_WEIGHT}, {@code NODE_LOAD}</li>
  *   <li><strong>Internes et système :</strong> {@code SYSTEME}, {@code NO_STATE}</li>
  * </ul>
  */
@@ -27,6 +31,7 @@ public enum OpCode {
     RESPONSE_CHALLENGE((byte) 4),
     CHALLENGE_OK((byte) 30),
     JOIN_RESPONSE((byte) 5),
+    JOIN_CHUNK((byte) 24), //partie de l'état du réseau, avant la JoinResponse finale
     LEAVE_NETWORK_ASK((byte) 6),
     LEAVE_NETWORK_RESPONSE((byte) 7),
     LEAVE_NETWORK_CANCEL((byte) 8),
@@ -34,18 +39,51 @@ public enum OpCode {
     LEAVE_NETWORK_DONE((byte) 10),
     OPEN_MESSAGE((byte) 11),
     SECURE_MESSAGE((byte) 12),
+    SECURE_MESSAGE_HYBRID((byte) 14), //couche RSA(clé AES) + AES-GCM(instruction)
+    //Lien chiffré entre voisins
+    LINK_KEY_EXCHANGE((byte) 15),
+    LINK_FRAME((byte) 16),
+    //Clés publiques remplacées par leur empreinte SHA-256
+    COMPACT_FRAME((byte) 17),
+    KEY_REQUEST((byte) 18),
+    KEY_RESPONSE((byte) 19),
+    //Diffusion des broadcasts en arbre (Plumtree)
+    IHAVE((byte) 21),
+    GRAFT((byte) 22),
+    PRUNE((byte) 23),
+    //Synchronisation anti-entropie de la vue du réseau
+    SYNC_DIGEST((byte) 25),
+    SYNC_STATE((byte) 26),
+    //Circuits persistants pour les messages cachés
+    CIRCUIT_CREATE((byte) 27), //oignon hybride qui installe une clé symétrique par relais
+    CIRCUIT_CELL((byte) 28),   //cellule de taille fixe, une couche AES par relais
+    //Mesure du temps d'aller-retour des liens
+    PING((byte) 29),
+    PONG((byte) 31),
     //Payload
     NEW_NODE((byte) 100),
     NEW_CONNECTION((byte) 101),
     REMOVE_NODE((byte) 102),
+    TOPOLOGY_BATCH((byte) 103), //plusieurs payloads dans un seul broadcast
+    LINK_WEIGHT((byte) 104),    //temps d'aller-retour d'une connexion
+    NODE_LOAD((byte) 105),      //charge annoncée d'un nœud (choix des relais)
     //Instruction
     PASS_FORWARD((byte) -56), //(byte)200
     MESSAGE((byte) -55),      //(byte)201
     STOP((byte) -54),         //(byte)202
+    MESSAGE_SHARD((byte) -53), //(byte)203_fragment codé d'un message caché envoyé par plusieurs chemins
     //SYSTEME & INTERNE 
     SYSTEME((byte) -127),     //(byte)129_pour les messages d’erreur/annonce
 	LIST_CONNECTED((byte) 13);
 
+    //Table d'indexation par code non signé (0-255), null si le code n'est pas attribué
+    private static final OpCode[] BY_CODE = new OpCode[256];
+    static {
+        for(var op : values()) {
+            BY_CODE[op.getUnsignedCode()] = op;
+        }
+    }
+
     private final byte opCode;
 
     OpCode(byte opCode) {
@@ -85,13 +123,22 @@ public enum OpCode {
             return NO_STATE;
         }
 
-        return Arrays.stream(values())
-            .filter(op -> Byte.toUnsignedInt(op.opCode) == code)
-            .findFirst()
-            .orElseGet(() -> {
-                System.err.println("Unknown OpCode: " + code);
-                return NO_STATE;
-            });
+        var op = BY_CODE[code];
+        if(op == null) {
+            System.err.println("Unknown OpCode: " + code);
+            return NO_STATE;
+        }
+        return op;
+    }
+
+    /**
+     * Indique si un code (0–255) correspond à un OpCode, sans rien afficher.
+     *
+     * @param code La valeur entière représentant un code d'opération (0–255).
+     * @return true si le code est attribué.
+     */
+    public static boolean isKnown(int code) {
+        return code >= 0 && code <= 255 && BY_CODE[code] != null;
     }
     
 }
@@ -3,8 +3,8 @@ package fr.uge.enskred.paquet;
 import java.nio.ByteBuffer;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -33,24 +33,35 @@ public record Broadcast(PublicKeyRSA publicKeySender, long messageID, int size,
 		}
 	}
 	
+	/**
+	 * Copie du payload en mode écriture, prise dans la réserve de buffers : à rendre via {@link BufferPool#release} après lecture.
+	 */
 	public ByteBuffer payload() {
-		return ByteBuffer.allocate(payload.capacity()).put(payload.flip());
-		
+		return BufferPool.acquire(size).put(payload.slice(0, size));
 	}
 	
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
-		//SENDER PK
-		var pubBufferSender = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeySender.to(pubBufferSender);
-		var PKBufferSender = ByteBuffer.allocate(Integer.BYTES + pubBufferSender.flip().remaining());
-		PKBufferSender.putInt(pubBufferSender.remaining()).put(pubBufferSender).flip();
-		//longMessage + size + payload
-//		System.out.println("\nn="+payload.remaining());
-		var buffer = ByteBuffer.allocate(Byte.BYTES + PKBufferSender.remaining() + Long.BYTES + Integer.BYTES + payload.flip().remaining());
-//		System.out.println("\nn="+payload.remaining());
-		return buffer.put(OP_CODE.getCode()).put(PKBufferSender).putLong(messageID).putInt(size).put(payload);
-		
+		return writeTo(BufferPool.acquire(encodedSize()));
+	}
+
+	/**
+	 * Sérialise le broadcast une seule fois pour tous les voisins : chacun reçoit une vue {@code duplicate()}
+	 * de cette trame, qui n'est jamais modifiée ni rendue à la {@link BufferPool}.
+	 * ---
+	 * @return La trame en mode lecture, en lecture seule.
+	 */
+	public ByteBuffer sharedFrame() {
+		return writeTo(ByteBuffer.allocate(encodedSize())).flip().asReadOnlyBuffer();
+	}
+
+	private int encodedSize() {
+		return Byte.BYTES + publicKeySender.encodedWithSize().remaining() + Long.BYTES + Integer.BYTES + size;
+	}
+
+	private ByteBuffer writeTo(ByteBuffer buffer) {
+		//SENDER PK + longMessage + size + payload
+		return buffer.put(OP_CODE.getCode()).put(publicKeySender.encodedWithSize()).putLong(messageID).putInt(size).put(payload.slice(0, size));
 	}
 
 	@Override
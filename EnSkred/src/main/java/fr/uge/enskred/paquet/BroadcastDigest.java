@@ -0,0 +1,43 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+
+/**
+ * Identifiant d'un broadcast (émetteur + messageID), échangé par la diffusion en arbre sans le contenu du broadcast.
+ * 
+ * Cette classe encapsule les informations suivantes :
+ * - La clé publique de l'émetteur du broadcast ({@code publicKeySender}), compactée en empreinte sur un lien authentifié.
+ * - L'identifiant du broadcast ({@code messageID}).
+ * - Le code d'opération sous forme de {@link OpCode} ({@code opCode}) :
+ *   {@code IHAVE} (annonce d'un broadcast reçu) ou {@code GRAFT} (demande du broadcast et réactivation du lien dans l'arbre).
+ * 
+ * Format : opcode + clé publique (taille INT + X.509) + messageID (LONG).
+ */
+public record BroadcastDigest(PublicKeyRSA publicKeySender, long messageID, OpCode opCode) implements Paquet {
+
+	public BroadcastDigest {
+		Objects.requireNonNull(publicKeySender);
+		if(opCode != OpCode.IHAVE && opCode != OpCode.GRAFT) {
+			throw new IllegalArgumentException("opCode: " + opCode);
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var PKBufferSender = publicKeySender.encodedWithSize();
+		var buffer = BufferPool.acquire(Byte.BYTES + PKBufferSender.remaining() + Long.BYTES);
+		return buffer.put(opCode.getCode()).put(PKBufferSender).putLong(messageID);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return opCode;
+	}
+
+}
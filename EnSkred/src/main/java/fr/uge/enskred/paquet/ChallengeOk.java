@@ -4,8 +4,8 @@ import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 
 /**
  * Représente une réponse positive à un défi dans le protocole EnSkred.
@@ -21,11 +21,8 @@ public record ChallengeOk(PublicKeyRSA publicKeyReceiver) implements Paquet {
 	
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
-		var pubBufferReceiver = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeyReceiver.to(pubBufferReceiver);
-        var PKBufferReceiver = ByteBuffer.allocate(Integer.BYTES + pubBufferReceiver.flip().remaining());
-        PKBufferReceiver.putInt(pubBufferReceiver.remaining()).put(pubBufferReceiver).flip();
-        var buffer = ByteBuffer.allocate(Byte.BYTES + PKBufferReceiver.remaining());
+		var PKBufferReceiver = publicKeyReceiver.encodedWithSize();
+        var buffer = BufferPool.acquire(Byte.BYTES + PKBufferReceiver.remaining());
 		return buffer.put(OP_CODE.getCode()).put(PKBufferReceiver);
 	}
 
@@ -7,6 +7,7 @@ import fr.uge.enskred.readers.RSAReader;
 import fr.uge.enskred.readers.Reader.ProcessStatus;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -23,7 +24,7 @@ public record ChallengePublicKey(PublicKeyRSA publicKey, long longChallenge) imp
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		var payloadEncodedBuffer = Utils.encodeLongWithPublicKeyInWriteMode(publicKey, longChallenge).flip();
-		var buffer = ByteBuffer.allocate(payloadEncodedBuffer.remaining() + Byte.BYTES);
+		var buffer = BufferPool.acquire(payloadEncodedBuffer.remaining() + Byte.BYTES);
 		return buffer.put(OP_CODE.getCode()).put(payloadEncodedBuffer);
 	}
 
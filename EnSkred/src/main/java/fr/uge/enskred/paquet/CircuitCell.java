@@ -0,0 +1,44 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Représente une cellule d'un circuit caché : toutes les cellules ont la même taille, quel que soit le message.
+ * 
+ * La cellule est un nonce suivi d'un corps chiffré : chaque relais y retire (ou, au retour, y ajoute) une couche AES
+ * avec sa clé de circuit, sans changer sa taille ; seule l'extrémité du circuit peut l'authentifier et la lire.
+ * L'identifiant de circuit ne vaut que sur le lien : chaque relais le remplace par celui du lien suivant.
+ * 
+ * Format : opcode (BYTE) + identifiant de circuit (LONG) + cellule ({@link #CELL_SIZE} BYTES)
+ * 
+ * @see fr.uge.enskred.readers.CircuitCipher
+ */
+public record CircuitCell(long circuitId, ByteBuffer cell) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.CIRCUIT_CELL;
+	/**
+	 * Taille d'une cellule (nonce + corps chiffré).
+	 */
+	public static final int CELL_SIZE = 512;
+
+	public CircuitCell {
+		Objects.requireNonNull(cell);
+		if(cell.remaining() != CELL_SIZE) {
+			throw new IllegalArgumentException("Expected a cell of " + CELL_SIZE + " bytes");
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var buffer = BufferPool.acquire(Byte.BYTES + Long.BYTES + CELL_SIZE);
+		return buffer.put(OP_CODE.getCode()).putLong(circuitId).put(cell.slice());
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -0,0 +1,37 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Représente la création d'un circuit caché sur un lien.
+ * 
+ * L'oignon porte, pour chaque relais, une couche hybride (RSA + AES-GCM) qui lui donne sa clé de circuit
+ * et le relais suivant : c'est le seul chiffrement à clé publique d'un circuit, les messages suivants
+ * voyagent dans des {@link CircuitCell}.
+ * L'identifiant de circuit est choisi par l'émetteur de la trame et ne vaut que sur ce lien.
+ * 
+ * Format : opcode (BYTE) + identifiant de circuit (LONG) + taille (INT) + oignon (taille BYTES)
+ * 
+ * @see fr.uge.enskred.readers.CircuitCipher
+ */
+public record CircuitCreate(long circuitId, ByteBuffer onion) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.CIRCUIT_CREATE;
+
+	public CircuitCreate { Objects.requireNonNull(onion); }
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var encrypted = onion.slice();
+		var buffer = BufferPool.acquire(Byte.BYTES + Long.BYTES + Integer.BYTES + encrypted.remaining());
+		return buffer.put(OP_CODE.getCode()).putLong(circuitId).putInt(encrypted.remaining()).put(encrypted);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -0,0 +1,34 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Représente un paquet dont les clés publiques connues ont été remplacées par leur empreinte SHA-256.
+ * 
+ * Le corps est produit par {@link fr.uge.enskred.readers.KeyCompactor#compact(ByteBuffer)} à partir du paquet
+ * sérialisé (opcode compris) ; le récepteur le reconstruit avec
+ * {@link fr.uge.enskred.readers.KeyCompactor#expand(ByteBuffer)} puis le traite comme s'il l'avait reçu tel quel.
+ * 
+ * Format : opcode (BYTE) + taille (INT) + corps compacté (taille BYTES)
+ */
+public record CompactFrame(ByteBuffer compactBuffer) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.COMPACT_FRAME;
+
+	public CompactFrame { Objects.requireNonNull(compactBuffer); }
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var compact = compactBuffer.slice();
+		var buffer = BufferPool.acquire(Byte.BYTES + Integer.BYTES + compact.remaining());
+		return buffer.put(OP_CODE.getCode()).putInt(compact.remaining()).put(compact);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
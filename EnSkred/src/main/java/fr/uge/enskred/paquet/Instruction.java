@@ -16,13 +16,14 @@ import fr.uge.enskred.opcode.OpCode;
  * <ul>
  *     <li>{@link PassForward}</li>
  *     <li>{@link MessageToSecure}</li>
+ *     <li>{@link MessageShard}</li>
  * </ul>
  * L'implémentation de cette interface permet d'encapsuler le comportement nécessaire pour gérer la
  * sérialisation des données et l'identification des types d'instructions dans le système.
  */
 public sealed interface Instruction permits 
 	//Instruction
-	PassForward, MessageToSecure {
+	PassForward, MessageToSecure, MessageShard {
 	
 	//public Methods
     /**
@@ -0,0 +1,74 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.Utils;
+
+
+/**
+ * Représente une partie de l'état du réseau envoyée à un nouveau venu, avant la {@link JoinResponse} finale.
+ * <p>
+ * Au lieu d'un seul {@link JoinResponse} contenant tous les nœuds et toutes les connexions (plusieurs Mo
+ * pour un grand réseau, gardés en mémoire des deux côtés), l'état est transmis en parties de taille bornée,
+ * appliquées dès leur arrivée. La {@link JoinResponse} sert de marqueur de fin : elle porte la dernière partie
+ * et la clé publique de celui qui répond.
+ * </p>
+ * Les parties portent aussi les charges annoncées par les nœuds ({@link NodeLoad}, sans opcode), que le nouveau venu
+ * n'a pas vu passer : sans elles, il tirerait ses relais comme si tout le réseau était libre.
+ * Elles portent de même les poids des connexions ({@link LinkWeight}, sans opcode) : sans eux, il routerait
+ * les messages publics sur d'autres chemins que ses voisins, au risque de boucles.
+ * Format (même corps qu'une JoinResponse, sans la clé, suivi des charges et des poids) :
+ * <pre>
+ * JOIN_CHUNK (BYTE) + nombre de nœuds (INT) + nœuds + nombre de connexions (INT) + connexions
+ *   + nombre de charges (INT) + charges + nombre de poids (INT) + poids
+ * </pre>
+ */
+public record JoinChunk(List<Node> nodes, List<Connexion> connexions, List<NodeLoad> loads, List<LinkWeight> weights) implements Paquet {
+	private static final OpCode OP_CODE = OpCode.JOIN_CHUNK;
+
+	public JoinChunk {
+		Utils.requireNonNulls(nodes, connexions, loads, weights);
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var nodeBuffers = nodes.stream().map(Node::getWriteModeBuffer).toList();
+		var connexionBuffers = connexions.stream().map(Connexion::getWriteModeBuffer).toList();
+		var loadBuffers = loads.stream().map(NodeLoad::getEntryWriteModeBuffer).toList();
+		var weightBuffers = weights.stream().map(LinkWeight::getEntryWriteModeBuffer).toList();
+		var size = Byte.BYTES + 4 * Integer.BYTES;
+		for(var part : nodeBuffers) { size += part.position(); }
+		for(var part : connexionBuffers) { size += part.position(); }
+		for(var part : loadBuffers) { size += part.position(); }
+		for(var part : weightBuffers) { size += part.position(); }
+		var buffer = BufferPool.acquire(size).put(OP_CODE.getCode());
+		buffer.putInt(nodes.size());
+		nodeBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(connexions.size());
+		connexionBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(loads.size());
+		loadBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(weights.size());
+		weightBuffers.forEach(part -> putAndRelease(buffer, part));
+		return buffer;
+	}
+
+	//les buffers intermédiaires viennent de la réserve : on les rend une fois recopiés
+	private static void putAndRelease(ByteBuffer target, ByteBuffer writeModeBuffer) {
+		target.put(writeModeBuffer.flip());
+		BufferPool.release(writeModeBuffer);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+	@Override
+	public String toString() {
+		return "JoinChunk[" + nodes.size() + " nœuds, " + connexions.size() + " connexions, " + loads.size() + " charges, " + weights.size() + " poids]";
+	}
+}
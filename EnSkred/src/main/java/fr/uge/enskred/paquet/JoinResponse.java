@@ -6,6 +6,7 @@ import java.util.List;
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -32,26 +33,30 @@ public record JoinResponse(PublicKeyRSA publicKeyReceiver, List<Node> nodes, Lis
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//pour la clé publique
-		var pubBufferReceiver = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeyReceiver.to(pubBufferReceiver);
-        var PKBufferReceiver = ByteBuffer.allocate(Integer.BYTES + pubBufferReceiver.flip().remaining());
-        PKBufferReceiver.putInt(pubBufferReceiver.remaining()).put(pubBufferReceiver).flip();
+		var PKBufferReceiver = publicKeyReceiver.encodedWithSize();
         
 		//pour la liste de node
-		var bufferNode = ByteBuffer.allocate(Integer.BYTES + nodes.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE + MAX_SIZE_SOCKETADDRESS));
+		var bufferNode = BufferPool.acquire(Integer.BYTES + nodes.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE + MAX_SIZE_SOCKETADDRESS));
 		bufferNode.putInt(nodes.size());
-		nodes.forEach(c -> bufferNode.put(c.getWriteModeBuffer().flip()));
-		bufferNode.flip();
+		nodes.forEach(c -> putAndRelease(bufferNode, c.getWriteModeBuffer()));
 		
 		//pour la liste de connexion
-		var bufferConnexion = ByteBuffer.allocate(Integer.BYTES + connexions.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE * 2));
+		var bufferConnexion = BufferPool.acquire(Integer.BYTES + connexions.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE * 2));
 		bufferConnexion.putInt(connexions.size());
-		connexions.forEach(c -> bufferConnexion.put(c.getWriteModeBuffer().flip()));
-		bufferConnexion.flip();
+		connexions.forEach(c -> putAndRelease(bufferConnexion, c.getWriteModeBuffer()));
 		
 		//Buffer final
-		var buffer = ByteBuffer.allocate(Byte.BYTES + PKBufferReceiver.remaining() + bufferNode.remaining() + bufferConnexion.remaining());
-		return buffer.put(OP_CODE.getCode()).put(PKBufferReceiver).put(bufferNode).put(bufferConnexion);
+		var buffer = BufferPool.acquire(Byte.BYTES + PKBufferReceiver.remaining() + bufferNode.position() + bufferConnexion.position());
+		buffer.put(OP_CODE.getCode()).put(PKBufferReceiver);
+		putAndRelease(buffer, bufferNode);
+		putAndRelease(buffer, bufferConnexion);
+		return buffer;
+	}
+
+	//les buffers intermédiaires viennent de la réserve : on les rend une fois recopiés
+	private static void putAndRelease(ByteBuffer target, ByteBuffer writeModeBuffer) {
+		target.put(writeModeBuffer.flip());
+		BufferPool.release(writeModeBuffer);
 	}
 
 	@Override
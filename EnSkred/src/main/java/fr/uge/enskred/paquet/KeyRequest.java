@@ -0,0 +1,40 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Demande au voisin les clés publiques complètes correspondant à des empreintes inconnues
+ * reçues dans une {@link CompactFrame}.
+ * 
+ * Format : opcode (BYTE) + taille (INT) + empreintes (taille BYTES, multiple de 32)
+ */
+public record KeyRequest(List<ByteBuffer> digests) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.KEY_REQUEST;
+
+	public KeyRequest {
+		digests = List.copyOf(Objects.requireNonNull(digests));
+		if(digests.stream().anyMatch(digest -> digest.remaining() != PublicKeyRSA.DIGEST_SIZE)) {
+			throw new IllegalArgumentException("Invalid digest size");
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var size = digests.size() * PublicKeyRSA.DIGEST_SIZE;
+		var buffer = BufferPool.acquire(Byte.BYTES + Integer.BYTES + size);
+		buffer.put(OP_CODE.getCode()).putInt(size);
+		digests.forEach(digest -> buffer.put(digest.slice()));
+		return buffer;
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -0,0 +1,37 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Réponse à un {@link KeyRequest} : les clés publiques complètes que l'émetteur connaît.
+ * Ce paquet n'est jamais compacté.
+ * 
+ * Format : opcode (BYTE) + nombre (INT) + [taille (INT) + clé publique] * nombre
+ */
+public record KeyResponse(List<PublicKeyRSA> publicKeys) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.KEY_RESPONSE;
+
+	public KeyResponse {
+		publicKeys = List.copyOf(Objects.requireNonNull(publicKeys));
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var size = publicKeys.stream().mapToInt(key -> key.encodedWithSize().remaining()).sum();
+		var buffer = BufferPool.acquire(Byte.BYTES + Integer.BYTES + size);
+		buffer.put(OP_CODE.getCode()).putInt(publicKeys.size());
+		publicKeys.forEach(key -> buffer.put(key.encodedWithSize()));
+		return buffer;
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -3,6 +3,7 @@ package fr.uge.enskred.paquet;
 import java.nio.ByteBuffer;
 
 import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
 
 /**
  * Représente une demande d'annulation de la déconnexion d'un réseau.
@@ -19,7 +20,7 @@ public record LeaveNetworkCancel() implements Paquet {
 	
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
-		return ByteBuffer.allocate(Byte.BYTES).put(OP_CODE.getCode());
+		return BufferPool.acquire(Byte.BYTES).put(OP_CODE.getCode());
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.util.Objects;
 
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt;
+import fr.uge.enskred.utils.BufferPool;
 
 /**
  * Représente la confirmation de la déconnexion d'un nœud du réseau.
@@ -29,12 +30,18 @@ public record LeaveNetworkConfirm(List<Node> nodes) implements Paquet {
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//pour la liste de node
-		var bufferNode = ByteBuffer.allocate(Integer.BYTES + nodes.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE + MAX_SIZE_SOCKETADDRESS));
+		var bufferNode = BufferPool.acquire(Integer.BYTES + nodes.size() * (UGEncrypt.MAX_PUBLIC_KEY_SIZE + MAX_SIZE_SOCKETADDRESS));
 		bufferNode.putInt(nodes.size());
-		nodes.forEach(c -> bufferNode.put(c.getWriteModeBuffer().flip()));
+		nodes.forEach(c -> {
+			var nodeBuffer = c.getWriteModeBuffer();
+			bufferNode.put(nodeBuffer.flip());
+			BufferPool.release(nodeBuffer);
+		});
 		bufferNode.flip();
 		
-		return ByteBuffer.allocate(Byte.BYTES + bufferNode.remaining()).put(OP_CODE.getCode()).put(bufferNode);
+		var buffer = BufferPool.acquire(Byte.BYTES + bufferNode.remaining()).put(OP_CODE.getCode()).put(bufferNode);
+		BufferPool.release(bufferNode);
+		return buffer;
 	}
 
 	@Override
@@ -3,6 +3,7 @@ package fr.uge.enskred.paquet;
 import java.nio.ByteBuffer;
 
 import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
 
 /**
  * Paquet représentant la réponse d'un nœud à une demande de déconnexion du réseau.
@@ -24,7 +25,7 @@ public record LeaveNetworkResponse(byte response) implements Paquet {
 	
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
-		return ByteBuffer.allocate(Byte.BYTES * 2).put(OP_CODE.getCode()).put(response);
+		return BufferPool.acquire(Byte.BYTES * 2).put(OP_CODE.getCode()).put(response);
 	}
 
 	@Override
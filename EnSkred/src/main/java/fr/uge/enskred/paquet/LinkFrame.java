@@ -0,0 +1,35 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Représente une trame chiffrée avec la clé de lien négociée entre deux voisins.
+ * 
+ * Une fois le lien établi, tout paquet envoyé au voisin est encapsulé dans une {@code LinkFrame} :
+ * le paquet sérialisé (opcode compris) est chiffré et authentifié en AES-GCM.
+ * 
+ * Format : opcode (BYTE) + taille (INT) + AES_GCM(paquet) (taille BYTES)
+ * 
+ * @see fr.uge.enskred.readers.LinkCipher
+ */
+public record LinkFrame(ByteBuffer encryptedBuffer) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.LINK_FRAME;
+
+	public LinkFrame { Objects.requireNonNull(encryptedBuffer); }
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var encrypted = encryptedBuffer.slice();
+		var buffer = BufferPool.acquire(Byte.BYTES + Integer.BYTES + encrypted.remaining());
+		return buffer.put(OP_CODE.getCode()).putInt(encrypted.remaining()).put(encrypted);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
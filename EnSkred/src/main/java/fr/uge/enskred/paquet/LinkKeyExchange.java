@@ -0,0 +1,42 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.Utils;
+
+/**
+ * Représente l'échange de clé de lien envoyé juste après un challenge réussi.
+ * 
+ * Cette classe encapsule les informations suivantes :
+ * - La clé publique X25519 éphémère de l'émetteur ({@code ephemeralPublicKey}), encodée en X.509.
+ * - La signature RSA de cette clé, liée à la clé publique RSA du voisin ({@code signature}).
+ * - Le code d'opération associé : {@link OpCode#LINK_KEY_EXCHANGE}.
+ * 
+ * Format : opcode (BYTE) + taille (INT) + clé éphémère + taille (INT) + signature
+ * 
+ * @see fr.uge.enskred.readers.LinkCipher
+ */
+public record LinkKeyExchange(ByteBuffer ephemeralPublicKey, ByteBuffer signature) implements Paquet {
+	private final static OpCode OP_CODE = OpCode.LINK_KEY_EXCHANGE;
+
+	public LinkKeyExchange {
+		Utils.requireNonNulls(ephemeralPublicKey, signature);
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var ephemeral = ephemeralPublicKey.slice();
+		var sign = signature.slice();
+		var buffer = BufferPool.acquire(Byte.BYTES + 2 * Integer.BYTES + ephemeral.remaining() + sign.remaining());
+		return buffer.put(OP_CODE.getCode())
+				.putInt(ephemeral.remaining()).put(ephemeral)
+				.putInt(sign.remaining()).put(sign);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -0,0 +1,37 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Sonde de latence d'un lien entre deux voisins.
+ * 
+ * Un {@code PING} porte l'instant d'émission ({@link System#nanoTime()} de l'émetteur, sans signification pour le voisin) ;
+ * le voisin le renvoie tel quel dans un {@code PONG}, et l'émetteur en déduit le temps d'aller-retour du lien,
+ * file d'attente du voisin comprise.
+ * 
+ * Format : opcode + instant d'émission (LONG).
+ */
+public record LinkProbe(long timestamp, OpCode opCode) implements Paquet {
+
+	public LinkProbe {
+		Objects.requireNonNull(opCode);
+		if(opCode != OpCode.PING && opCode != OpCode.PONG) {
+			throw new IllegalArgumentException("opCode: " + opCode);
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		return BufferPool.acquire(Byte.BYTES + Long.BYTES).put(opCode.getCode()).putLong(timestamp);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return opCode;
+	}
+
+}
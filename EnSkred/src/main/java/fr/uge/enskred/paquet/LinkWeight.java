@@ -0,0 +1,71 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.Utils;
+
+/**
+ * Poids d'une connexion du réseau : temps d'aller-retour mesuré par l'une de ses extrémités.
+ * 
+ * Diffusé comme les autres payloads de topologie (dans le même lot que les {@link NewConnection}),
+ * il permet à chaque nœud de router les messages publics par le chemin le plus rapide.
+ * Pour que tous les nœuds retiennent le même poids (sinon deux nœuds peuvent se renvoyer un message),
+ * seule l'extrémité de plus petite clé ({@link #isOwner}) annonce le poids d'une connexion, avec un numéro de version
+ * croissant chez elle : les annonces de l'autre extrémité et les annonces dépassées sont ignorées.
+ * 
+ * Format : opcode + deux clés publiques (taille INT + X.509 chacune, celle qui mesure en premier)
+ * + version (LONG) + temps d'aller-retour en microsecondes (INT).
+ * Dans les listes de poids ({@link JoinChunk}, {@link SyncState}), les poids sont écrits sans leur opcode.
+ */
+public record LinkWeight(PublicKeyRSA publicKeySender, PublicKeyRSA publicKeyReceiver, long version, int rttMicros) implements Paquet, Payload {
+	private static final OpCode OP_CODE = OpCode.LINK_WEIGHT;
+
+	public LinkWeight {
+		Utils.requireNonNulls(publicKeySender, publicKeyReceiver);
+		if(rttMicros <= 0) {
+			throw new IllegalArgumentException("rttMicros: " + rttMicros);
+		}
+		if(version <= 0) {
+			throw new IllegalArgumentException("version: " + version);
+		}
+	}
+
+	/**
+	 * @return true si self est l'extrémité qui annonce le poids de la connexion vers peer.
+	 */
+	public static boolean isOwner(PublicKeyRSA self, PublicKeyRSA peer) {
+		return self.compareTo(peer) < 0;
+	}
+
+	/**
+	 * @return true si le poids est annoncé par l'extrémité à qui il revient.
+	 */
+	public boolean fromOwner() {
+		return isOwner(publicKeySender, publicKeyReceiver);
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var entry = getEntryWriteModeBuffer().flip();
+		var buffer = BufferPool.acquire(Byte.BYTES + entry.remaining()).put(OP_CODE.getCode()).put(entry);
+		BufferPool.release(entry);
+		return buffer;
+	}
+
+	/**
+	 * @return Le poids sans son opcode, tel qu'écrit dans les listes de poids (mode écriture, pris dans la {@link BufferPool}).
+	 */
+	public ByteBuffer getEntryWriteModeBuffer() {
+		var buffer = Utils.serializeTwoKPublicKeys(publicKeySender, publicKeyReceiver).flip();
+		return BufferPool.acquire(buffer.remaining() + Long.BYTES + Integer.BYTES).put(buffer).putLong(version).putInt(rttMicros);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+}
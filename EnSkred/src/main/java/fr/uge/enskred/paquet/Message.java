@@ -5,6 +5,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -25,7 +26,7 @@ public record Message(String exp, String message) implements Paquet {
 	public ByteBuffer getWriteModeBuffer() {
 		var encodedExp = UTF8.encode(exp);
 		var encodedMsg = UTF8.encode(message);
-		var buffer = ByteBuffer.allocate(Integer.BYTES * 2 + encodedExp.remaining() + encodedMsg.remaining());
+		var buffer = BufferPool.acquire(Integer.BYTES * 2 + encodedExp.remaining() + encodedMsg.remaining());
 		buffer.putInt(encodedExp.remaining()).put(encodedExp);
 		buffer.putInt(encodedMsg.remaining()).put(encodedMsg);
 		return buffer;
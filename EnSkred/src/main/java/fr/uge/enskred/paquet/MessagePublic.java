@@ -5,8 +5,8 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -16,39 +16,60 @@ import fr.uge.enskred.utils.Utils;
  * Le message est sérialisé et peut être transmis de manière sécurisée entre les parties concernées.
  * Elle est utilisée pour l'envoi d'informations sensibles, où l'intégrité et la confidentialité sont
  * essentielles.
+ * 
+ * Le message porte le nombre de relais qu'il peut encore traverser ({@code hopsLeft}), décrémenté à chaque relais :
+ * si deux nœuds ont momentanément des vues différentes du réseau et se le renvoient, il finit abandonné.
+ * 
+ * Format : opcode + deux clés publiques (taille INT + X.509 chacune) + relais restants (BYTE non signé) + message (taille INT + UTF-8).
  */
-public record MessagePublic(PublicKeyRSA sender, PublicKeyRSA receiver, String message) implements Paquet {
+public record MessagePublic(PublicKeyRSA sender, PublicKeyRSA receiver, int hopsLeft, String message) implements Paquet {
+	public static final int MAX_HOPS = 32; //relais traversés au plus par un message public - CHAMPS À MODIFIER SI NECESSAIRE !
 	
 	private final static Charset UTF8 = StandardCharsets.UTF_8;
 	private final static OpCode OP_CODE = OpCode.OPEN_MESSAGE;
 	
 	public MessagePublic {
 		Utils.requireNonNulls(sender, receiver, message);
+		if(hopsLeft < 0 || hopsLeft > 255) {
+			throw new IllegalArgumentException("hopsLeft: " + hopsLeft);
+		}
+	}
+
+	/**
+	 * Nouveau message, qui peut traverser {@link #MAX_HOPS} relais.
+	 */
+	public MessagePublic(PublicKeyRSA sender, PublicKeyRSA receiver, String message) {
+		this(sender, receiver, MAX_HOPS, message);
+	}
+
+	/**
+	 * @return Le même message, tel que transmis au relais suivant (un relais de moins).
+	 */
+	public MessagePublic relayed() {
+		if(hopsLeft == 0) {
+			throw new IllegalStateException("No hop left");
+		}
+		return new MessagePublic(sender, receiver, hopsLeft - 1, message);
 	}
 
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//Sender
-		var pubBuffer = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-        sender.to(pubBuffer);
-        var PKBuffer = ByteBuffer.allocate(Integer.BYTES + pubBuffer.flip().remaining());
-        PKBuffer.putInt(pubBuffer.remaining()).put(pubBuffer).flip();
+		var PKBuffer = sender.encodedWithSize();
         
         //Receiver
-        var pubBuffer2 = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-        receiver.to(pubBuffer2);
-        var PKBuffer2 = ByteBuffer.allocate(Integer.BYTES + pubBuffer2.flip().remaining());
-        PKBuffer2.putInt(pubBuffer2.remaining()).put(pubBuffer2).flip();
+        var PKBuffer2 = receiver.encodedWithSize();
         
         //Message
 		var encodedMsg = UTF8.encode(message);
-		var buffer = ByteBuffer.allocate(Integer.BYTES + encodedMsg.remaining());
+		var buffer = BufferPool.acquire(Integer.BYTES + encodedMsg.remaining());
 		buffer.putInt(encodedMsg.remaining()).put(encodedMsg);
 		buffer.flip();
 		
-		var finalBuffer = ByteBuffer.allocate(Byte.BYTES + PKBuffer.remaining() + PKBuffer2.remaining() + buffer.remaining());
+		var finalBuffer = BufferPool.acquire(Byte.BYTES + PKBuffer.remaining() + PKBuffer2.remaining() + Byte.BYTES + buffer.remaining());
 		
-		finalBuffer.put(OP_CODE.getCode()).put(PKBuffer).put(PKBuffer2).put(buffer);
+		finalBuffer.put(OP_CODE.getCode()).put(PKBuffer).put(PKBuffer2).put((byte) hopsLeft).put(buffer);
+		BufferPool.release(buffer);
 		return finalBuffer;
 	}
 
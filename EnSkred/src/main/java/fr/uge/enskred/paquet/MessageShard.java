@@ -0,0 +1,44 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Fragment d'un message caché envoyé par plusieurs chemins disjoints.
+ *
+ * Le texte du message est découpé par un code à effacement ({@link fr.uge.enskred.utils.ErasureCode}) en {@code total}
+ * fragments dont n'importe lesquels {@code needed} suffisent à le reconstituer ; chaque fragment voyage dans son propre oignon.
+ *
+ * Format : opcode (BYTE) + clé de l'expéditeur (INT + BYTES) + identifiant (LONG) + index (BYTE) + needed (BYTE) + total (BYTE)
+ * + taille du message (INT) + taille (INT) + fragment (taille BYTES)
+ */
+public record MessageShard(PublicKeyRSA sender, long idMessage, int index, int needed, int total, int length, ByteBuffer data) implements Instruction {
+	private final static OpCode OP_CODE = OpCode.MESSAGE_SHARD;
+
+	public MessageShard {
+		Objects.requireNonNull(sender);
+		Objects.requireNonNull(data);
+		if(needed < 1 || total < needed || total > Byte.MAX_VALUE || index < 0 || index >= total || length < 0) {
+			throw new IllegalArgumentException("Invalid shard " + index + " (" + needed + " of " + total + ")");
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var key = sender.encodedWithSize();
+		var bytes = data.slice();
+		var buffer = BufferPool.acquire(Byte.BYTES + key.remaining() + Long.BYTES + 3 * Byte.BYTES + 2 * Integer.BYTES + bytes.remaining());
+		return buffer.put(OP_CODE.getCode()).put(key).putLong(idMessage)
+				.put((byte) index).put((byte) needed).put((byte) total)
+				.putInt(length).putInt(bytes.remaining()).put(bytes);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+}
@@ -5,8 +5,8 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -31,14 +31,11 @@ public record MessageToSecure(PublicKeyRSA sender, long idMessage, String messag
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		
-		var pubBuffer = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		sender.to(pubBuffer);
-        var PKBuffer = ByteBuffer.allocate(Integer.BYTES + pubBuffer.flip().remaining());
-        PKBuffer.putInt(pubBuffer.remaining()).put(pubBuffer).flip();
+		var PKBuffer = sender.encodedWithSize();
         
         
 		var encodedMsg = UTF8.encode(message);
-		var buffer = ByteBuffer.allocate(Byte.BYTES + PKBuffer.remaining() + Long.BYTES + Integer.BYTES + encodedMsg.remaining());
+		var buffer = BufferPool.acquire(Byte.BYTES + PKBuffer.remaining() + Long.BYTES + Integer.BYTES + encodedMsg.remaining());
 
 		buffer.put(code.getCode()).put(PKBuffer).putLong(idMessage).putInt(encodedMsg.remaining()).put(encodedMsg);
 		return buffer;
@@ -8,6 +8,7 @@ import fr.uge.enskred.readers.ConnexionReader;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.Reader.ProcessStatus;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -32,7 +33,7 @@ public record NewConnection(PublicKeyRSA publicKeySender, PublicKeyRSA  publicKe
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		var buffer = Utils.serializeTwoKPublicKeys(publicKeySender, publicKeyReceiver).flip();
-		return ByteBuffer.allocate(Byte.BYTES + buffer.remaining()).put(OP_CODE.getCode()).put(buffer);
+		return BufferPool.acquire(Byte.BYTES + buffer.remaining()).put(OP_CODE.getCode()).put(buffer);
 	}
 
 	@Override
@@ -6,8 +6,8 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -31,20 +31,14 @@ public record NewNode(PublicKeyRSA publicKeySender, SocketAddress socketAddressS
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//SENDER PK
-		var pubBufferSender = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeySender.to(pubBufferSender);
-		var PKBufferSender = ByteBuffer.allocate(Integer.BYTES + pubBufferSender.flip().remaining());
-		PKBufferSender.putInt(pubBufferSender.remaining()).put(pubBufferSender).flip();
+		var PKBufferSender = publicKeySender.encodedWithSize();
 		//SOCKETADDRESS SENDER
 		var encodeSocketAddress = UTF8.encode(socketAddressSender.toString().split("/")[1]);
 		var socketAddressLength = encodeSocketAddress.remaining();
 		//SENDER PK
-		var pubBufferReceiver = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeyReceiver.to(pubBufferReceiver);
-		var PKBufferReceiver = ByteBuffer.allocate(Integer.BYTES + pubBufferReceiver.flip().remaining());
-		PKBufferReceiver.putInt(pubBufferReceiver.remaining()).put(pubBufferReceiver).flip();
+		var PKBufferReceiver = publicKeyReceiver.encodedWithSize();
 		//build buffer
-		var buffer = ByteBuffer.allocate(Byte.BYTES + PKBufferReceiver.remaining() + Integer.BYTES + encodeSocketAddress.remaining() + PKBufferReceiver.remaining());
+		var buffer = BufferPool.acquire(Byte.BYTES + PKBufferSender.remaining() + Integer.BYTES + encodeSocketAddress.remaining() + PKBufferReceiver.remaining());
 		buffer.put(OP_CODE.getCode()).put(PKBufferSender).putInt(socketAddressLength).put(encodeSocketAddress).put(PKBufferReceiver);
 		return buffer;
 	}
@@ -9,6 +9,7 @@ import java.security.NoSuchAlgorithmException;
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -32,14 +33,11 @@ public record Node(PublicKeyRSA publicKey, InetSocketAddress socketAddress) impl
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//PK
-		var pubBuffer = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-        publicKey.to(pubBuffer);
-        var PKBuffer = ByteBuffer.allocate(Integer.BYTES + pubBuffer.flip().remaining());
-        PKBuffer.putInt(pubBuffer.remaining()).put(pubBuffer).flip();
+		var PKBuffer = publicKey.encodedWithSize();
         //SA
         var encodeSocketAddress = UTF8.encode(socketAddress.toString().split("/")[1]);
 		var socketAddressLength = encodeSocketAddress.remaining();
-		var buffer = ByteBuffer.allocate(PKBuffer.remaining() + Integer.BYTES + encodeSocketAddress.remaining());
+		var buffer = BufferPool.acquire(PKBuffer.remaining() + Integer.BYTES + encodeSocketAddress.remaining());
 		buffer.put(PKBuffer).putInt(socketAddressLength).put(encodeSocketAddress);
 		return buffer;
 	}
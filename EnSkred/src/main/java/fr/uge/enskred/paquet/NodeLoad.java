@@ -0,0 +1,56 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Charge annoncée par un nœud : un score compact, de 0 (libre) à {@link #MAX_LOAD} (saturé), qui résume
+ * ses files d'envoi, son retard de chiffrement et le débit d'oignons qu'il vient de traiter.
+ *
+ * Diffusé périodiquement comme les autres payloads de topologie (dans le même lot que les {@link NewNode}),
+ * il permet de choisir en priorité des relais peu chargés pour les chemins cachés.
+ * Le numéro de version, croissant chez le nœud qui annonce, départage les annonces qui arrivent dans le désordre
+ * (broadcast, état envoyé au nouveau venu, synchronisation entre voisins) : seule la plus récente est retenue.
+ *
+ * Format : opcode + clé publique (taille INT + X.509) + version (LONG) + score (BYTE non signé).
+ * Dans les listes de charges ({@link JoinChunk}, {@link SyncState}), les charges sont écrites sans leur opcode.
+ */
+public record NodeLoad(PublicKeyRSA publicKey, long version, int load) implements Paquet, Payload {
+	public static final int MAX_LOAD = 255;
+	private static final OpCode OP_CODE = OpCode.NODE_LOAD;
+
+	public NodeLoad {
+		Objects.requireNonNull(publicKey);
+		if(load < 0 || load > MAX_LOAD) {
+			throw new IllegalArgumentException("load: " + load);
+		}
+		if(version <= 0) {
+			throw new IllegalArgumentException("version: " + version);
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var keyBuffer = publicKey.encodedWithSize();
+		return BufferPool.acquire(Byte.BYTES + keyBuffer.remaining() + Long.BYTES + Byte.BYTES)
+				.put(OP_CODE.getCode()).put(keyBuffer).putLong(version).put((byte) load);
+	}
+
+	/**
+	 * @return La charge sans son opcode, telle qu'écrite dans les listes de charges (mode écriture, pris dans la {@link BufferPool}).
+	 */
+	public ByteBuffer getEntryWriteModeBuffer() {
+		var keyBuffer = publicKey.encodedWithSize();
+		return BufferPool.acquire(keyBuffer.remaining() + Long.BYTES + Byte.BYTES).put(keyBuffer).putLong(version).put((byte) load);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+}
@@ -43,13 +43,25 @@ public sealed interface Paquet permits
 	//Paquet
 	Broadcast, PreJoin, SecondJoin, ChallengePublicKey, 
 	ChallengeLongResponse, ResponseChallenge, ChallengeOk,
-	JoinResponse, Connexion, EncodedRSABuffers,	ListConnected, 
+	JoinResponse, JoinChunk, Connexion, EncodedRSABuffers,	ListConnected, 
 	Message, MessagePublic, Node, MessageToSecure,
+	//lien chiffré
+	LinkKeyExchange, LinkFrame,
+	//clés compactées
+	CompactFrame, KeyRequest, KeyResponse,
+	//diffusion en arbre
+	BroadcastDigest, Prune,
+	//anti-entropie
+	SyncDigest, SyncState,
+	//circuits cachés
+	CircuitCreate, CircuitCell,
+	//latence des liens
+	LinkProbe,
 	//déconnexion
 	LeaveNetworkAsk, LeaveNetworkResponse, LeaveNetworkCancel,
 	LeaveNetworkConfirm, LeaveNetworkDone,
 	//Payload
-	NewNode, NewConnection, RemoveNode,
+	NewNode, NewConnection, RemoveNode, LinkWeight, NodeLoad,
 	//Instruction
 	PassForward, SecureMessage
 	{
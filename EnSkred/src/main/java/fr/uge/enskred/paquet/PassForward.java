@@ -7,6 +7,7 @@ import java.security.NoSuchAlgorithmException;
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 
@@ -49,14 +50,11 @@ public record PassForward(PublicKeyRSA receiver, Paquet secureMessage) implement
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//PK
-		var pubBuffer = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		receiver.to(pubBuffer);
-        var PKBuffer = ByteBuffer.allocate(Integer.BYTES + pubBuffer.flip().remaining());
-        PKBuffer.putInt(pubBuffer.remaining()).put(pubBuffer).flip();
+		var PKBuffer = receiver.encodedWithSize();
         
         var secureMsgBuffer = secureMessage.getWriteModeBuffer().flip();
         
-        var buffer = ByteBuffer.allocate(Byte.BYTES + PKBuffer.remaining() + secureMsgBuffer.remaining());
+        var buffer = BufferPool.acquire(Byte.BYTES + PKBuffer.remaining() + secureMsgBuffer.remaining());
         buffer.put(OP_CODE.getCode()).put(PKBuffer).put(secureMsgBuffer);
         
         return buffer;
@@ -21,10 +21,12 @@ import fr.uge.enskred.opcode.OpCode;
  * @see NewNode
  * @see NewConnection
  * @see RemoveNode
+ * @see LinkWeight
+ * @see NodeLoad
  */
 public sealed interface Payload permits 
 	//Payload
-	NewNode, NewConnection, RemoveNode
+	NewNode, NewConnection, RemoveNode, TopologyBatch, LinkWeight, NodeLoad
 	{
 
 	//public Methods
@@ -0,0 +1,30 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+
+
+/**
+ * Demande au voisin de ne plus pousser les broadcasts en entier sur ce lien (diffusion en arbre).
+ * 
+ * Envoyé à la réception d'un broadcast en double : le lien ferme un cycle de l'arbre de diffusion.
+ * Il ne porte alors plus que des annonces {@code IHAVE}, jusqu'à un éventuel {@code GRAFT}.
+ * Le paquet ne contient que son code d'opération.
+ */
+public record Prune() implements Paquet {
+	private final static OpCode OP_CODE = OpCode.PRUNE;
+	
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		return BufferPool.acquire(Byte.BYTES).put(OP_CODE.getCode());
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+}
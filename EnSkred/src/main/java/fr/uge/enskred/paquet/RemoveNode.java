@@ -4,8 +4,8 @@ import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import fr.uge.enskred.opcode.OpCode;
-import fr.uge.enskred.readers.UGEncrypt;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 
 
 /**
@@ -29,12 +29,9 @@ public record RemoveNode(PublicKeyRSA publicKeyLeaver) implements Paquet, Payloa
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		//Leaver
-		var pubBuffer = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		publicKeyLeaver.to(pubBuffer);
-        var PKBuffer = ByteBuffer.allocate(Integer.BYTES + pubBuffer.flip().remaining());
-        PKBuffer.putInt(pubBuffer.remaining()).put(pubBuffer).flip();
+		var PKBuffer = publicKeyLeaver.encodedWithSize();
         
-        var buffer = ByteBuffer.allocate(Byte.BYTES + PKBuffer.remaining());
+        var buffer = BufferPool.acquire(Byte.BYTES + PKBuffer.remaining());
 		return buffer.put(OP_CODE.getCode()).put(PKBuffer);
 	}
 
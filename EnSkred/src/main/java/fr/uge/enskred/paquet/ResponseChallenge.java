@@ -4,6 +4,7 @@ import java.nio.ByteBuffer;
 
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt.PrivateKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -31,7 +32,7 @@ public record ResponseChallenge(PrivateKeyRSA privateKey, ByteBuffer encryptedBu
 	
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
-		return ByteBuffer.allocate(Byte.BYTES + Long.BYTES).put(OP_CODE.getCode()).putLong(decodedLongMessage());
+		return BufferPool.acquire(Byte.BYTES + Long.BYTES).put(OP_CODE.getCode()).putLong(decodedLongMessage());
 	}
 	
 	@Override
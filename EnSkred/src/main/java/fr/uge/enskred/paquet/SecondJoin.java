@@ -4,6 +4,7 @@ import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
 
 /**
  * Représente un paquet de type "SecondJoin" qui est utilisé dans le processus de connexion
@@ -26,7 +27,7 @@ public record SecondJoin(Node node) implements Paquet {
 	@Override
 	public ByteBuffer getWriteModeBuffer() {
 		var buffer = node.getWriteModeBuffer().flip();
-		var finalBuffer = ByteBuffer.allocate(buffer.remaining() + Byte.BYTES);
+		var finalBuffer = BufferPool.acquire(buffer.remaining() + Byte.BYTES);
 		return finalBuffer.put(OP_CODE.getCode()).put(buffer);
 	}
 
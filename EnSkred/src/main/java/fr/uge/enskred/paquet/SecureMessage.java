@@ -5,6 +5,7 @@ import java.util.Objects;
 
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -15,14 +16,14 @@ import fr.uge.enskred.utils.Utils;
  * </p>
  * <p>
  * Le paquet "SecureMessage" est sérialisé avec le code d'opération {@link OpCode#SECURE_MESSAGE}
- * suivi du message sécurisé chiffré.
+ * suivi du message sécurisé chiffré en blocs RSA, ou avec {@link OpCode#SECURE_MESSAGE_HYBRID}
+ * suivi d'une clé AES chiffrée en RSA et de l'instruction chiffrée en AES-GCM lorsque {@code hybrid} est vrai.
  * </p>
  * <p>
  * Il est supposé que le {@code encryptedBuffer} est en mode lecture avant d'être utilisé.
  * </p>
  */
-public record SecureMessage(PublicKeyRSA recipient, Instruction instruction, ByteBuffer encryptedBuffer) implements Paquet {
-    private static final OpCode OP_CODE = OpCode.SECURE_MESSAGE;
+public record SecureMessage(PublicKeyRSA recipient, Instruction instruction, ByteBuffer encryptedBuffer, boolean hybrid) implements Paquet {
 	
     public SecureMessage {
         Objects.requireNonNull(recipient);
@@ -30,6 +31,10 @@ public record SecureMessage(PublicKeyRSA recipient, Instruction instruction, Byt
             throw new IllegalArgumentException("Must have either instruction or encryptedBuffer");
         }
     }
+
+    public SecureMessage(PublicKeyRSA recipient, Instruction instruction, ByteBuffer encryptedBuffer) {
+    	this(recipient, instruction, encryptedBuffer, false);
+    }
     
     //A -> B :   RSA( receveur, ( 101,  PF( PK_F, ( 100, RSA( 103, PK_A,  time , message ) ) ) )
 
@@ -38,12 +43,12 @@ public record SecureMessage(PublicKeyRSA recipient, Instruction instruction, Byt
     	ByteBuffer encryptedPayload = null;
     	if(encryptedBuffer == null) {
     		var payload = instruction.getWriteModeBuffer().flip();
-            encryptedPayload = Utils.safeEncryptRSA(payload, recipient);
+            encryptedPayload = hybrid ? Utils.safeEncryptHybrid(payload, recipient) : Utils.safeEncryptRSA(payload, recipient);
     	}
     	var encrypted = (encryptedPayload == null) ? encryptedBuffer : encryptedPayload.flip();
-        if(encrypted == null){ return ByteBuffer.allocate(Byte.BYTES).put(OP_CODE.getCode()); }
-        var finalBuffer = ByteBuffer.allocate(Byte.BYTES + encrypted.remaining());
-        finalBuffer.put(OP_CODE.getCode()).put(encrypted);
+        if(encrypted == null){ return BufferPool.acquire(Byte.BYTES).put(getOpCode().getCode()); }
+        var finalBuffer = BufferPool.acquire(Byte.BYTES + encrypted.remaining());
+        finalBuffer.put(getOpCode().getCode()).put(encrypted);
 
         return finalBuffer;
     }
@@ -51,6 +56,6 @@ public record SecureMessage(PublicKeyRSA recipient, Instruction instruction, Byt
 
     @Override
     public OpCode getOpCode() {
-        return OP_CODE;
+        return hybrid ? OpCode.SECURE_MESSAGE_HYBRID : OpCode.SECURE_MESSAGE;
     }
 }
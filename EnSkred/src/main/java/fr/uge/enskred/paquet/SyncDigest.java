@@ -0,0 +1,79 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+
+/**
+ * Représente l'empreinte de la vue du réseau envoyée à un voisin (synchronisation anti-entropie).
+ * <p>
+ * Sans intervalles, c'est l'annonce périodique : seule la racine est envoyée. Si elle diffère de la sienne,
+ * le voisin répond avec la même racine suivie des empreintes de ses intervalles, pour que l'on trouve ceux qui diffèrent.
+ * </p>
+ * Format :
+ * <pre>
+ * SYNC_DIGEST (BYTE) + racine (LONG) + nombre d'intervalles (INT, 0 ou 256) + empreintes (LONG) * nombre
+ * </pre>
+ */
+public record SyncDigest(long root, long[] buckets) implements Paquet {
+	private static final OpCode OP_CODE = OpCode.SYNC_DIGEST;
+	/**
+	 * Nombre d'intervalles de l'espace des empreintes.
+	 */
+	public static final int BUCKETS = 256;
+
+	public SyncDigest {
+		Objects.requireNonNull(buckets);
+		if(buckets.length != 0 && buckets.length != BUCKETS) {
+			throw new IllegalArgumentException("Expected 0 or " + BUCKETS + " buckets");
+		}
+	}
+
+	/**
+	 * @return L'annonce périodique, sans intervalles.
+	 */
+	public static SyncDigest summary(long root) {
+		return new SyncDigest(root, new long[0]);
+	}
+
+	/**
+	 * @return true si le paquet porte les empreintes des intervalles.
+	 */
+	public boolean hasBuckets() {
+		return buckets.length != 0;
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var buffer = BufferPool.acquire(Byte.BYTES + Long.BYTES + Integer.BYTES + buckets.length * Long.BYTES);
+		buffer.put(OP_CODE.getCode()).putLong(root).putInt(buckets.length);
+		for(var bucket : buckets) {
+			buffer.putLong(bucket);
+		}
+		return buffer;
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof SyncDigest other && root == other.root && Arrays.equals(buckets, other.buckets);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(root) ^ Arrays.hashCode(buckets);
+	}
+
+	@Override
+	public String toString() {
+		return "SyncDigest[root: " + Long.toHexString(root) + ", " + buckets.length + " intervalles]";
+	}
+}
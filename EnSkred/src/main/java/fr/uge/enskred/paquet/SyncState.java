@@ -0,0 +1,89 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.Utils;
+
+
+/**
+ * Représente le contenu des intervalles qui diffèrent entre deux vues du réseau (synchronisation anti-entropie).
+ * <p>
+ * Celui qui a trouvé les intervalles qui diffèrent envoie ses nœuds et connexions de ces intervalles, et demande
+ * au voisin de répondre avec les siens ({@code wantReply}) : chacun complète sa vue avec celle de l'autre.
+ * Les départs récents sont joints sous la forme des empreintes de clés ({@code removed}), pour qu'un nœud parti
+ * ne soit pas réintroduit par un voisin qui a manqué son {@code RemoveNode}, mais supprimé chez lui.
+ * Les charges annoncées par les nœuds de ces intervalles suivent ({@link NodeLoad}, sans opcode), puis les poids
+ * des connexions de ces intervalles ({@link LinkWeight}, sans opcode) : pour les deux, la version la plus récente l'emporte.
+ * </p>
+ * Format :
+ * <pre>
+ * SYNC_STATE (BYTE) + intervalles (4 LONG) + réponse attendue (BYTE)
+ *   + nombre de nœuds (INT) + nœuds + nombre de connexions (INT) + connexions
+ *   + nombre de départs (INT) + empreintes des clés parties (LONG) * nombre
+ *   + nombre de charges (INT) + charges + nombre de poids (INT) + poids
+ * </pre>
+ */
+public record SyncState(BitSet buckets, boolean wantReply, List<Node> nodes, List<Connexion> connexions, List<Long> removed,
+		List<NodeLoad> loads, List<LinkWeight> weights) implements Paquet {
+	private static final OpCode OP_CODE = OpCode.SYNC_STATE;
+	private static final int MASK_LONGS = SyncDigest.BUCKETS / Long.SIZE;
+
+	public SyncState {
+		Utils.requireNonNulls(buckets, nodes, connexions, removed, loads, weights);
+		if(buckets.length() > MASK_LONGS * Long.SIZE) {
+			throw new IllegalArgumentException("Too many buckets");
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var nodeBuffers = nodes.stream().map(Node::getWriteModeBuffer).toList();
+		var connexionBuffers = connexions.stream().map(Connexion::getWriteModeBuffer).toList();
+		var loadBuffers = loads.stream().map(NodeLoad::getEntryWriteModeBuffer).toList();
+		var weightBuffers = weights.stream().map(LinkWeight::getEntryWriteModeBuffer).toList();
+		var size = Byte.BYTES + MASK_LONGS * Long.BYTES + Byte.BYTES + 5 * Integer.BYTES + removed.size() * Long.BYTES;
+		for(var part : nodeBuffers) { size += part.position(); }
+		for(var part : connexionBuffers) { size += part.position(); }
+		for(var part : loadBuffers) { size += part.position(); }
+		for(var part : weightBuffers) { size += part.position(); }
+		var buffer = BufferPool.acquire(size).put(OP_CODE.getCode());
+		var mask = Arrays.copyOf(buckets.toLongArray(), MASK_LONGS);
+		for(var word : mask) {
+			buffer.putLong(word);
+		}
+		buffer.put((byte) (wantReply ? 1 : 0));
+		buffer.putInt(nodes.size());
+		nodeBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(connexions.size());
+		connexionBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(removed.size());
+		removed.forEach(buffer::putLong);
+		buffer.putInt(loads.size());
+		loadBuffers.forEach(part -> putAndRelease(buffer, part));
+		buffer.putInt(weights.size());
+		weightBuffers.forEach(part -> putAndRelease(buffer, part));
+		return buffer;
+	}
+
+	//les buffers intermédiaires viennent de la réserve : on les rend une fois recopiés
+	private static void putAndRelease(ByteBuffer target, ByteBuffer writeModeBuffer) {
+		target.put(writeModeBuffer.flip());
+		BufferPool.release(writeModeBuffer);
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+	@Override
+	public String toString() {
+		return "SyncState[" + buckets.cardinality() + " intervalles, " + nodes.size() + " nœuds, " + connexions.size()
+				+ " connexions, " + removed.size() + " départs, " + loads.size() + " charges, " + weights.size() + " poids" + (wantReply ? ", réponse attendue]" : "]");
+	}
+}
@@ -0,0 +1,62 @@
+package fr.uge.enskred.paquet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.utils.BufferPool;
+
+
+/**
+ * Représente un lot de payloads de topologie ({@link NewNode}, {@link NewConnection}, {@link RemoveNode})
+ * diffusés dans un seul {@link Broadcast}.
+ * <p>
+ * Lors d'une vague d'arrivées ou de départs, chaque événement produisait son propre broadcast, inondé séparément.
+ * Les événements produits dans une même fenêtre de temps sont regroupés dans ce payload : une seule trame,
+ * un seul identifiant de message et un seul passage par l'arbre de diffusion pour tout le lot.
+ * </p>
+ * Format :
+ * <pre>
+ * TOPOLOGY_BATCH (BYTE) + nombre de payloads (INT) + payloads sérialisés les uns à la suite des autres (chacun avec son opcode)
+ * </pre>
+ * Un lot ne contient pas d'autre lot.
+ */
+public record TopologyBatch(List<Payload> payloads) implements Payload {
+	private static final OpCode OP_CODE = OpCode.TOPOLOGY_BATCH;
+
+	public TopologyBatch {
+		payloads = List.copyOf(payloads);
+		if(payloads.stream().anyMatch(TopologyBatch.class::isInstance)) {
+			throw new IllegalArgumentException("Nested batch");
+		}
+	}
+
+	@Override
+	public ByteBuffer getWriteModeBuffer() {
+		var parts = new ArrayList<ByteBuffer>(payloads.size());
+		var size = Byte.BYTES + Integer.BYTES;
+		for(var payload : payloads) {
+			var part = payload.getWriteModeBuffer().flip();
+			size += part.remaining();
+			parts.add(part);
+		}
+		var buffer = BufferPool.acquire(size).put(OP_CODE.getCode()).putInt(payloads.size());
+		for(var part : parts) {
+			buffer.put(part);
+			BufferPool.release(part);
+		}
+		return buffer;
+	}
+
+	@Override
+	public OpCode getOpCode() {
+		return OP_CODE;
+	}
+
+	@Override
+	public String toString() {
+		return "TopologyBatch[" + payloads.size() + " payloads: " + payloads + "]";
+	}
+
+}
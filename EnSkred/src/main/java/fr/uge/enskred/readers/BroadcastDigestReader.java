@@ -0,0 +1,112 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.paquet.BroadcastDigest;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * BroadcastDigestReader est un {@link Reader} permettant de lire le corps d'un {@link BroadcastDigest}
+ * ({@code IHAVE} ou {@code GRAFT}, l'opcode étant déjà lu) : une clé publique RSA suivie d'un messageID.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_RSA} : en attente de la clé publique de l'émetteur</li>
+ *   <li>{@code WAITING_MESSAGE_ID} : en attente de l'identifiant du broadcast</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class BroadcastDigestReader implements Reader<BroadcastDigest> {
+	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
+	private final LongReader longReader = new LongReader();
+	private final OpCode opCode;
+	private State state = State.WAITING_RSA;
+	private PublicKeyRSA publicKeySender;
+	private BroadcastDigest digest;
+
+	private enum State {
+		WAITING_RSA, WAITING_MESSAGE_ID, DONE, ERROR 
+	}
+
+	/**
+	 * @param opCode : {@code IHAVE} ou {@code GRAFT}, porté par les paquets lus.
+	 */
+	public BroadcastDigestReader(OpCode opCode) {
+		this.opCode = Objects.requireNonNull(opCode);
+	}
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_RSA:
+			switch(publicKeyReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				publicKeySender = publicKeyReader.get();
+				state = State.WAITING_MESSAGE_ID;
+				break;
+			default:	
+				state = State.ERROR; 
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_MESSAGE_ID:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				digest = new BroadcastDigest(publicKeySender, longReader.get(), opCode);
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:	
+				state = State.ERROR; 
+				return ProcessStatus.ERROR;
+			}
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public BroadcastDigest get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return digest;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_RSA;
+		publicKeyReader.reset();
+		longReader.reset();
+		publicKeySender = null;
+		digest = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'un IHAVE octet par octet");
+		var publicKey = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var fullBuffer = new BroadcastDigest(publicKey, 42L, OpCode.IHAVE).getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new BroadcastDigestReader(OpCode.IHAVE);
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().messageID() == 42L && reader.get().publicKeySender().equals(publicKey)
+				? "Test réussi : " + reader.get() : "Test échoué. Statut : " + status);
+	}
+}
@@ -120,7 +120,7 @@ public final class BroadcastReader implements Reader<Broadcast> {
             	try {
                 	buffer.flip();
                 	var reading = Utils.min(buffer.remaining(), payload.remaining());
-                	payload.put(buffer.array(), buffer.position(), reading);
+                	payload.put(buffer.slice(buffer.position(), reading));
                 	buffer.position(buffer.position() + reading);//maj
                 	if(payload.hasRemaining()) {
                     	return ProcessStatus.REFILL;
@@ -0,0 +1,104 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.paquet.CircuitCell;
+
+
+/**
+ * CircuitCellReader est un {@link Reader} permettant de lire le corps d'une {@link CircuitCell} (l'opcode étant déjà lu) :
+ * l'identifiant de circuit puis la cellule, de taille fixe.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_ID} : en attente de l'identifiant de circuit</li>
+ *   <li>{@code WAITING_CELL} : copie des {@link CircuitCell#CELL_SIZE} octets de la cellule</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class CircuitCellReader implements Reader<CircuitCell> {
+	private enum State {
+		WAITING_ID, WAITING_CELL, DONE, ERROR
+	}
+
+	private final LongReader longReader = new LongReader();
+	private State state = State.WAITING_ID;
+	private long circuitId;
+	private ByteBuffer cell;
+	private CircuitCell value;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_ID:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				circuitId = longReader.get();
+				cell = ByteBuffer.allocate(CircuitCell.CELL_SIZE);
+				state = State.WAITING_CELL;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_CELL:
+			buffer.flip();
+			try {
+				var size = Math.min(cell.remaining(), buffer.remaining());
+				cell.put(buffer.slice(buffer.position(), size));
+				buffer.position(buffer.position() + size);
+			} finally {
+				buffer.compact();
+			}
+			if(cell.hasRemaining()) { return ProcessStatus.REFILL; }
+			value = new CircuitCell(circuitId, cell.flip());
+			state = State.DONE;
+			return ProcessStatus.DONE;
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public CircuitCell get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return value;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_ID;
+		longReader.reset();
+		cell = null;
+		value = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) {
+		System.out.println("TEST : Lecture d'une cellule de circuit par morceaux de 7 octets");
+		var content = ByteBuffer.allocate(CircuitCell.CELL_SIZE);
+		for(var i = 0; i < content.capacity(); i++) { content.put((byte) (i * 7)); }
+		var sent = new CircuitCell(-3L, content.flip());
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new CircuitCellReader();
+		var smallBuffer = ByteBuffer.allocate(7);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			while(smallBuffer.hasRemaining() && fullBuffer.hasRemaining()) { smallBuffer.put(fullBuffer.get()); }
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().circuitId() == -3L && reader.get().cell().equals(content.rewind())
+				? "Test réussi : cellule du circuit " + reader.get().circuitId() : "Test échoué. Statut : " + status);
+	}
+}
@@ -0,0 +1,318 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import fr.uge.enskred.paquet.CircuitCell;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.Utils;
+
+/**
+ * Clés d'un relais dans un circuit caché, et format des couches qui créent le circuit.
+ * <p>
+ * À la création, l'initiateur tire un secret par relais et le lui transmet dans une couche hybride (RSA + AES-GCM) :
+ * c'est la seule opération à clé publique du relais pour toute la durée du circuit. Deux clés AES-256 en sont dérivées,
+ * une par sens.
+ * </p>
+ * <p>
+ * Une cellule est un nonce aléatoire suivi d'un corps de taille fixe :
+ * </p>
+ * <ul>
+ *   <li>le corps est scellé en AES-GCM avec la clé de l'extrémité (seule couche authentifiée, vérifiée à l'autre bout) ;</li>
+ *   <li>chaque relais intermédiaire applique à toute la cellule, nonce compris, un flux AES-CTR qui ne change pas sa taille.
+ *   Le flux d'une cellule dépend du nombre de cellules déjà passées dans ce sens : l'initiateur et le relais tiennent
+ *   chacun ce compteur, rien ne circule en clair d'un lien à l'autre et la cellule change d'octets à chaque saut.
+ *   Les flux se combinent par XOR : l'ordre dans lequel les couches sont ajoutées et retirées est indifférent.</li>
+ * </ul>
+ * Les liens étant ordonnés (TCP), les cellules d'un circuit arrivent dans l'ordre d'émission et les compteurs
+ * restent alignés ; un relais qui altère une cellule n'est détecté qu'à l'extrémité, par le tag GCM.
+ * Format d'une couche de création, avant chiffrement hybride pour le relais :
+ * <pre>
+ * secret (32 BYTES) + RELAIS (BYTE) + clé du relais suivant (INT + X.509) + oignon du suivant (INT + BYTES)
+ * secret (32 BYTES) + SORTIE (BYTE) + clé de l'initiateur (INT + X.509)
+ * </pre>
+ * Cette classe est thread-safe : les clés sont immuables et les compteurs de cellules atomiques.
+ */
+public final class CircuitCipher {
+	private static final String STREAM_SCHEME = "AES/CTR/NoPadding";
+	private static final String SEALED_SCHEME = "AES/GCM/NoPadding";
+	private static final byte[] LABEL = "EnSkred-circuit-v1".getBytes(StandardCharsets.US_ASCII);
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final int SECRET_SIZE = UGEncrypt.AES_KEY_SIZE_BYTES;
+	private static final int NONCE_SIZE = UGEncrypt.GCM_IV_SIZE_BYTES;
+	private static final byte RELAY = 0;
+	private static final byte EXIT = 1;
+	/**
+	 * Nombre d'octets utiles d'une cellule (sans le nonce ni le tag GCM).
+	 */
+	public static final int CELL_PAYLOAD_SIZE = CircuitCell.CELL_SIZE - NONCE_SIZE - UGEncrypt.GCM_TAG_SIZE_BYTES;
+
+	/**
+	 * Couche de création déchiffrée par un relais.
+	 * ---
+	 * @param cipher : Clés du relais pour ce circuit.
+	 * @param next : Relais suivant, ou null si l'on est la sortie du circuit.
+	 * @param onion : Oignon à transmettre au relais suivant (mode lecture), ou null pour la sortie.
+	 * @param origin : Initiateur du circuit (connu de la sortie seulement), ou null.
+	 */
+	public record Layer(CircuitCipher cipher, PublicKeyRSA next, ByteBuffer onion, PublicKeyRSA origin) {
+		public Layer {
+			Objects.requireNonNull(cipher);
+			if((next == null) == (origin == null)) {
+				throw new IllegalArgumentException("A layer has either a next hop or an origin");
+			}
+		}
+
+		/**
+		 * @return true si l'on est la sortie du circuit.
+		 */
+		public boolean isExit() {
+			return next == null;
+		}
+	}
+
+	private final byte[] secret;
+	private final SecretKeySpec forwardKey;
+	private final SecretKeySpec backwardKey;
+	private final AtomicLong forwardCells = new AtomicLong();
+	private final AtomicLong backwardCells = new AtomicLong();
+
+	private CircuitCipher(byte[] secret) {
+		this.secret = secret;
+		try {
+			forwardKey = new SecretKeySpec(derive(secret, (byte) 1), "AES");
+			backwardKey = new SecretKeySpec(derive(secret, (byte) 2), "AES");
+		} catch (NoSuchAlgorithmException e) {
+			/* SHA-256 est disponible sur toute JVM */
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Tire un nouveau secret de relais (côté initiateur).
+	 */
+	public static CircuitCipher generate() {
+		var secret = new byte[SECRET_SIZE];
+		RANDOM.nextBytes(secret);
+		return new CircuitCipher(secret);
+	}
+
+	/**
+	 * Construit la couche de création d'un relais intermédiaire.
+	 * ---
+	 * @param hop : Clé publique du relais.
+	 * @param next : Clé publique du relais suivant.
+	 * @param onion : Oignon destiné au relais suivant (mode lecture, non consommé).
+	 * @return La couche chiffrée pour le relais, en mode lecture.
+	 */
+	public ByteBuffer relayLayer(PublicKeyRSA hop, PublicKeyRSA next, ByteBuffer onion) {
+		Utils.requireNonNulls(hop, next, onion);
+		var nextKey = next.encodedWithSize();
+		var inner = onion.slice();
+		var layer = ByteBuffer.allocate(SECRET_SIZE + Byte.BYTES + nextKey.remaining() + Integer.BYTES + inner.remaining());
+		layer.put(secret).put(RELAY).put(nextKey).putInt(inner.remaining()).put(inner);
+		return Utils.safeEncryptHybrid(layer.flip(), hop).flip();
+	}
+
+	/**
+	 * Construit la couche de création de la sortie du circuit.
+	 * ---
+	 * @param hop : Clé publique de la sortie.
+	 * @param origin : Clé publique de l'initiateur (pour l'affichage et les accusés de réception).
+	 * @return La couche chiffrée pour la sortie, en mode lecture.
+	 */
+	public ByteBuffer exitLayer(PublicKeyRSA hop, PublicKeyRSA origin) {
+		Utils.requireNonNulls(hop, origin);
+		var originKey = origin.encodedWithSize();
+		var layer = ByteBuffer.allocate(SECRET_SIZE + Byte.BYTES + originKey.remaining());
+		layer.put(secret).put(EXIT).put(originKey);
+		return Utils.safeEncryptHybrid(layer.flip(), hop).flip();
+	}
+
+	/**
+	 * Lit une couche de création déjà déchiffrée.
+	 * ---
+	 * @param layer : Couche en clair (mode lecture, non consommée).
+	 * @return La couche, ou null si elle est mal formée.
+	 */
+	public static Layer openLayer(ByteBuffer layer) {
+		Objects.requireNonNull(layer);
+		var source = layer.slice();
+		if(source.remaining() < SECRET_SIZE + Byte.BYTES) { return null; }
+		var secret = new byte[SECRET_SIZE];
+		source.get(secret);
+		var kind = source.get();
+		var key = readPublicKey(source);
+		if(key == null) { return null; }
+		var cipher = new CircuitCipher(secret);
+		if(kind == EXIT) { return new Layer(cipher, null, null, key); }
+		if(kind != RELAY || source.remaining() < Integer.BYTES) { return null; }
+		var size = source.getInt();
+		if(size < 0 || size > source.remaining()) { return null; }
+		var onion = ByteBuffer.allocate(size).put(source.slice(source.position(), size)).flip();
+		return new Layer(cipher, key, onion, null);
+	}
+
+	/**
+	 * Ajoute ou retire la couche d'un relais intermédiaire (les deux opérations sont identiques), sur place.
+	 * Chaque appel consomme une position du compteur de ce sens : l'initiateur et le relais doivent traiter
+	 * les mêmes cellules, dans le même ordre.
+	 * ---
+	 * @param cell : Cellule ({@link CircuitCell#CELL_SIZE} octets, mode lecture, non consommée).
+	 * @param forward : true dans le sens initiateur -> sortie.
+	 */
+	public void relay(ByteBuffer cell, boolean forward) {
+		Objects.requireNonNull(cell);
+		var start = cell.position();
+		var index = (forward ? forwardCells : backwardCells).getAndIncrement();
+		try {
+			var cipher = Cipher.getInstance(STREAM_SCHEME);
+			cipher.init(Cipher.ENCRYPT_MODE, forward ? forwardKey : backwardKey, counter(index));
+			//entrée et sortie sont deux vues distinctes de la même cellule : transformation sur place
+			cipher.doFinal(cell.slice(start, CircuitCell.CELL_SIZE), cell.slice(start, CircuitCell.CELL_SIZE));
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Scelle un message dans une nouvelle cellule, avec la clé de l'extrémité.
+	 * ---
+	 * @param payload : Message (mode lecture, non consommé, au plus {@link #CELL_PAYLOAD_SIZE} octets), complété par des zéros.
+	 * @param forward : true dans le sens initiateur -> sortie.
+	 * @return La cellule en mode lecture.
+	 */
+	public ByteBuffer seal(ByteBuffer payload, boolean forward) {
+		Objects.requireNonNull(payload);
+		if(payload.remaining() > CELL_PAYLOAD_SIZE) {
+			throw new IllegalArgumentException("Payload larger than a cell");
+		}
+		var padded = ByteBuffer.allocate(CELL_PAYLOAD_SIZE).put(payload.slice()).position(0);
+		var nonce = new byte[NONCE_SIZE];
+		RANDOM.nextBytes(nonce);
+		var cell = ByteBuffer.allocate(CircuitCell.CELL_SIZE).put(nonce);
+		try {
+			var cipher = Cipher.getInstance(SEALED_SCHEME);
+			cipher.init(Cipher.ENCRYPT_MODE, forward ? forwardKey : backwardKey, new GCMParameterSpec(UGEncrypt.GCM_TAG_SIZE_BYTES * 8, nonce));
+			cipher.doFinal(padded, cell);
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+		return cell.flip();
+	}
+
+	/**
+	 * Vérifie et ouvre une cellule scellée avec la clé de l'extrémité (toutes les couches des relais déjà retirées).
+	 * ---
+	 * @param cell : Cellule (mode lecture, non consommée).
+	 * @param forward : true dans le sens initiateur -> sortie.
+	 * @return Le message complété par des zéros ({@link #CELL_PAYLOAD_SIZE} octets, mode lecture), ou null si la cellule n'est pas authentique.
+	 */
+	public ByteBuffer open(ByteBuffer cell, boolean forward) {
+		Objects.requireNonNull(cell);
+		var source = cell.slice();
+		var nonce = new byte[NONCE_SIZE];
+		source.get(nonce);
+		var payload = ByteBuffer.allocate(CELL_PAYLOAD_SIZE);
+		try {
+			var cipher = Cipher.getInstance(SEALED_SCHEME);
+			cipher.init(Cipher.DECRYPT_MODE, forward ? forwardKey : backwardKey, new GCMParameterSpec(UGEncrypt.GCM_TAG_SIZE_BYTES * 8, nonce));
+			cipher.doFinal(source, payload);
+			return payload.flip();
+		} catch (AEADBadTagException e) {
+			return null;
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	//PRIVATE METHODS
+
+	private static PublicKeyRSA readPublicKey(ByteBuffer source) {
+		if(source.remaining() < Integer.BYTES) { return null; }
+		var size = source.getInt();
+		if(size <= 0 || size > UGEncrypt.MAX_PUBLIC_KEY_SIZE || size > source.remaining()) { return null; }
+		var encoded = source.slice(source.position(), size);
+		source.position(source.position() + size);
+		var known = PublicKeyRSA.known(encoded);
+		if(known != null) { return known; }
+		try {
+			return PublicKeyRSA.from(encoded);
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+			return null;
+		}
+	}
+
+	private static byte[] derive(byte[] secret, byte direction) throws NoSuchAlgorithmException {
+		var digest = MessageDigest.getInstance("SHA-256");
+		digest.update(LABEL);
+		digest.update(secret);
+		digest.update(direction);
+		return digest.digest();
+	}
+
+	//numéro de cellule sur les 8 premiers octets, numéro de bloc AES (incrémenté par CTR) sur les 8 derniers
+	private static IvParameterSpec counter(long index) {
+		return new IvParameterSpec(ByteBuffer.allocate(16).putLong(index).array());
+	}
+
+	//MAIN
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST : Création d'un circuit à trois relais puis cellule aller-retour");
+		var origin = UGEncrypt.KeyPairRSA.generate();
+		var pairs = new UGEncrypt.KeyPairRSA[] { UGEncrypt.KeyPairRSA.generate(), UGEncrypt.KeyPairRSA.generate(), UGEncrypt.KeyPairRSA.generate() };
+		var ciphers = new CircuitCipher[] { generate(), generate(), generate() };
+		var onion = ciphers[2].exitLayer(pairs[2].publicKey(), origin.publicKey());
+		for(var i = 1; i >= 0; i--) {
+			onion = ciphers[i].relayLayer(pairs[i].publicKey(), pairs[i + 1].publicKey(), onion);
+		}
+		var layers = new Layer[3];
+		for(var i = 0; i < 3; i++) {
+			layers[i] = openLayer(Utils.safeDecryptHybrid(onion, pairs[i].privateKey()).flip());
+			onion = layers[i].onion();
+		}
+		System.out.println("Sortie : " + layers[2].isExit() + ", initiateur retrouvé : " + origin.publicKey().equals(layers[2].origin()));
+		ByteBuffer payload = null;
+		var distinct = true;
+		for(var round = 0; round < 2; round++) {
+			var cell = ciphers[2].seal(StandardCharsets.UTF_8.encode("Bonjour !"), true);
+			ciphers[1].relay(cell, true);
+			ciphers[0].relay(cell, true);
+			//octets de la cellule sur chacun des trois liens
+			var links = new byte[3][CircuitCell.CELL_SIZE];
+			cell.get(0, links[0]);
+			layers[0].cipher().relay(cell, true);
+			cell.get(0, links[1]);
+			layers[1].cipher().relay(cell, true);
+			cell.get(0, links[2]);
+			distinct &= !Arrays.equals(links[0], 0, NONCE_SIZE, links[1], 0, NONCE_SIZE)
+					&& !Arrays.equals(links[1], 0, NONCE_SIZE, links[2], 0, NONCE_SIZE)
+					&& !Arrays.equals(links[0], 0, NONCE_SIZE, links[2], 0, NONCE_SIZE);
+			payload = layers[2].cipher().open(cell, true);
+		}
+		System.out.println(distinct ? "Cellule (nonce compris) différente sur chaque lien !" : "Erreur : octets identiques sur deux liens.");
+		System.out.println("Aller (deuxième cellule) : " + (payload == null ? "Erreur : cellule refusée." : StandardCharsets.UTF_8.decode(payload.limit(9))));
+		var back = layers[2].cipher().seal(StandardCharsets.UTF_8.encode("Reçu"), false);
+		layers[1].cipher().relay(back, false);
+		layers[0].cipher().relay(back, false);
+		ciphers[0].relay(back, false);
+		ciphers[1].relay(back, false);
+		System.out.println("Retour authentique : " + (ciphers[2].open(back, false) != null) + ", taille fixe : " + (back.remaining() == CircuitCell.CELL_SIZE));
+		back.put(20, (byte) (back.get(20) ^ 1));
+		System.out.println(ciphers[2].open(back, false) == null ? "Cellule altérée refusée !" : "Erreur : cellule altérée acceptée.");
+	}
+}
@@ -0,0 +1,101 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.paquet.CircuitCreate;
+
+
+/**
+ * CircuitCreateReader est un {@link Reader} permettant de lire le corps d'un {@link CircuitCreate} (l'opcode étant déjà lu) :
+ * l'identifiant de circuit puis l'oignon (taille + octets).
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_ID} : en attente de l'identifiant de circuit</li>
+ *   <li>{@code WAITING_ONION} : lecture de l'oignon</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class CircuitCreateReader implements Reader<CircuitCreate> {
+	private enum State {
+		WAITING_ID, WAITING_ONION, DONE, ERROR
+	}
+
+	private final LongReader longReader = new LongReader();
+	private final PayloadReader payloadReader = new PayloadReader();
+	private State state = State.WAITING_ID;
+	private long circuitId;
+	private CircuitCreate create;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_ID:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				circuitId = longReader.get();
+				state = State.WAITING_ONION;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_ONION:
+			switch(payloadReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				create = new CircuitCreate(circuitId, payloadReader.get().flip());
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public CircuitCreate get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return create;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_ID;
+		longReader.reset();
+		payloadReader.reset();
+		create = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) {
+		System.out.println("TEST : Lecture d'une création de circuit octet par octet");
+		var onion = ByteBuffer.allocate(300);
+		for(var i = 0; i < onion.capacity(); i++) { onion.put((byte) i); }
+		var sent = new CircuitCreate(42L, onion.flip());
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new CircuitCreateReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().circuitId() == 42L && reader.get().onion().equals(onion.rewind())
+				? "Test réussi : circuit " + reader.get().circuitId() + ", oignon de " + reader.get().onion().remaining() + " octets" : "Test échoué. Statut : " + status);
+	}
+}
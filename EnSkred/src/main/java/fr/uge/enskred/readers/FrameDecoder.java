@@ -0,0 +1,579 @@
+package fr.uge.enskred.readers;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.paquet.Broadcast;
+import fr.uge.enskred.paquet.BroadcastDigest;
+import fr.uge.enskred.paquet.ChallengeLongResponse;
+import fr.uge.enskred.paquet.ChallengeOk;
+import fr.uge.enskred.paquet.CircuitCell;
+import fr.uge.enskred.paquet.CircuitCreate;
+import fr.uge.enskred.paquet.CompactFrame;
+import fr.uge.enskred.paquet.Connexion;
+import fr.uge.enskred.paquet.EncodedRSABuffers;
+import fr.uge.enskred.paquet.JoinChunk;
+import fr.uge.enskred.paquet.JoinResponse;
+import fr.uge.enskred.paquet.KeyRequest;
+import fr.uge.enskred.paquet.KeyResponse;
+import fr.uge.enskred.paquet.LeaveNetworkAsk;
+import fr.uge.enskred.paquet.LeaveNetworkCancel;
+import fr.uge.enskred.paquet.LeaveNetworkConfirm;
+import fr.uge.enskred.paquet.LeaveNetworkDone;
+import fr.uge.enskred.paquet.LeaveNetworkResponse;
+import fr.uge.enskred.paquet.LinkProbe;
+import fr.uge.enskred.paquet.LinkFrame;
+import fr.uge.enskred.paquet.LinkKeyExchange;
+import fr.uge.enskred.paquet.LinkWeight;
+import fr.uge.enskred.paquet.MessagePublic;
+import fr.uge.enskred.paquet.Node;
+import fr.uge.enskred.paquet.NodeLoad;
+import fr.uge.enskred.paquet.Paquet;
+import fr.uge.enskred.paquet.PreJoin;
+import fr.uge.enskred.paquet.Prune;
+import fr.uge.enskred.paquet.SecondJoin;
+import fr.uge.enskred.paquet.SyncDigest;
+import fr.uge.enskred.paquet.SyncState;
+import fr.uge.enskred.readers.Reader.ProcessStatus;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+
+/**
+ * Décodeur de trames en une seule passe, sans machine d'état par champ.
+ * <p>
+ * Contrairement aux {@link Reader} (qui font un {@code flip}/{@code compact} du buffer partagé à chaque champ),
+ * {@code FrameDecoder} lit une trame complète directement dans un buffer en <b>mode lecture</b>, avec un curseur
+ * absolu ({@code getInt(index)}, {@code slice(index, size)}...) : aucun octet n'est déplacé pendant le décodage.
+ * La position du buffer n'avance qu'une fois la trame entièrement décodée ; l'appelant compacte donc au plus
+ * une fois, après avoir décodé toutes les trames disponibles.
+ * </p>
+ * <ul>
+ *   <li>{@code DONE} : la trame est décodée ({@link #get()}), la position du buffer est placée juste après.</li>
+ *   <li>{@code REFILL} : la trame n'est pas encore complète, le buffer n'est pas modifié.</li>
+ *   <li>{@code ERROR} : la trame est mal formée.</li>
+ * </ul>
+ * Une trame plus grande que le buffer de lecture ne peut pas être décodée ainsi : l'appelant se rabat alors sur
+ * {@link PrimaryReader}, qui reste le chemin de compatibilité (lecture incrémentale champ par champ).
+ * <p>
+ * Les opcodes sont associés à leur décodeur par une table de 256 entrées, sans recherche dans {@link OpCode#values()}.
+ * Avec le format v2 ({@link #decodeFramed(ByteBuffer)}), chaque trame annonce la taille de son corps :
+ * sa fin est connue avant tout décodage.
+ * </p>
+ * <p>
+ * Les clés publiques déjà internées sont retrouvées sans copie ({@link PublicKeyRSA#known(ByteBuffer)}).
+ * Les buffers des paquets produits sont des copies (la trame source peut être compactée ensuite) ;
+ * ceux des {@code LinkFrame} et messages chiffrés viennent de la {@link BufferPool}, comme avec les readers.
+ * </p>
+ */
+public final class FrameDecoder {
+	private static final Logger logger = Logger.getLogger(FrameDecoder.class.getName());
+	private static final int RSA_BLOCK_SIZE = UGEncrypt.KEY_SIZE_BYTES;
+	public static final int FRAME_HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+	private static final int HYBRID_HEADER_SIZE = UGEncrypt.KEY_SIZE_BYTES + UGEncrypt.GCM_IV_SIZE_BYTES;
+
+	/**
+	 * Trame incomplète : signal interne sans pile d'appels, levé par les lectures de champs.
+	 */
+	private static final class Underflow extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final Underflow INSTANCE = new Underflow();
+
+		private Underflow() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Trame mal formée.
+	 */
+	private static final class Malformed extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private Malformed(String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	/**
+	 * Décode le corps d'une trame (l'opcode est déjà lu).
+	 */
+	@FunctionalInterface
+	private interface BodyDecoder {
+		Paquet decode(FrameDecoder decoder);
+	}
+
+	//Table de dispatch indexée par opcode non signé : null pour les opcodes qui ne sont pas des trames de premier niveau
+	private static final BodyDecoder[] DECODERS = new BodyDecoder[256];
+	static {
+		/*****************************************
+		 ******** GESTION DE LA CONNEXION ********
+		 *****************************************/
+		register(OpCode.PRE_JOIN, 				d -> new PreJoin(d.readNode()));
+		register(OpCode.SECOND_JOIN, 			d -> new SecondJoin(d.readNode()));
+		register(OpCode.CHALLENGE_PUBLIC_KEY, 	d -> new EncodedRSABuffers(d.readRSABlocks(), OpCode.CHALLENGE_PUBLIC_KEY));
+		register(OpCode.RESPONSE_CHALLENGE, 	d -> new ChallengeLongResponse(d.readLong(), OpCode.RESPONSE_CHALLENGE));
+		register(OpCode.CHALLENGE_OK, 			d -> new ChallengeOk(d.readPublicKey()));
+		register(OpCode.JOIN_CHUNK, 			d -> new JoinChunk(d.readNodes(), d.readConnexions(), d.readNodeLoads(), d.readLinkWeights()));
+		register(OpCode.JOIN_RESPONSE, 			FrameDecoder::readJoinResponse);
+		/*****************************************
+		 ******** GESTION DU LIEN CHIFFRÉ ********
+		 *****************************************/
+		register(OpCode.LINK_KEY_EXCHANGE, 		FrameDecoder::readLinkKeyExchange);
+		register(OpCode.LINK_FRAME, 			d -> new LinkFrame(d.readPooledBytes(d.readSize()).flip()));
+		/*****************************************
+		 ******** GESTION DES CLÉS COMPACTÉES ****
+		 *****************************************/
+		register(OpCode.COMPACT_FRAME, 			d -> new CompactFrame(d.readBytes(d.readSize())));
+		register(OpCode.KEY_REQUEST, 			FrameDecoder::readKeyRequest);
+		register(OpCode.KEY_RESPONSE, 			FrameDecoder::readKeyResponse);
+		/*****************************************
+		 ********* GESTION DES BROADCAST *********
+		 *****************************************/
+		register(OpCode.BROADCAST, 				FrameDecoder::readBroadcast);
+		register(OpCode.IHAVE, 					d -> new BroadcastDigest(d.readPublicKey(), d.readLong(), OpCode.IHAVE));
+		register(OpCode.GRAFT, 					d -> new BroadcastDigest(d.readPublicKey(), d.readLong(), OpCode.GRAFT));
+		register(OpCode.PING, 					d -> new LinkProbe(d.readLong(), OpCode.PING));
+		register(OpCode.PONG, 					d -> new LinkProbe(d.readLong(), OpCode.PONG));
+		register(OpCode.PRUNE, 					d -> new Prune());
+		/*****************************************
+		 ********* GESTION DE L'ANTI-ENTROPIE ****
+		 *****************************************/
+		register(OpCode.SYNC_DIGEST, 			FrameDecoder::readSyncDigest);
+		register(OpCode.SYNC_STATE, 			FrameDecoder::readSyncState);
+		/*****************************************
+		 ******** GESTION DE LA MESSAGERIE *******
+		 *****************************************/
+		register(OpCode.OPEN_MESSAGE, 			d -> new MessagePublic(d.readPublicKey(), d.readPublicKey(), Byte.toUnsignedInt(d.readByte()), d.readString()));
+		register(OpCode.SECURE_MESSAGE, 		d -> new EncodedRSABuffers(d.readRSABlocks(), OpCode.SECURE_MESSAGE));
+		register(OpCode.SECURE_MESSAGE_HYBRID, 	d -> new EncodedRSABuffers(d.readHybrid(), OpCode.SECURE_MESSAGE_HYBRID));
+		register(OpCode.CIRCUIT_CREATE, 		d -> new CircuitCreate(d.readLong(), d.readBytes(d.readSize())));
+		register(OpCode.CIRCUIT_CELL, 			d -> new CircuitCell(d.readLong(), d.readBytes(CircuitCell.CELL_SIZE)));
+		/*****************************************
+		 ******* GESTION DE LA DÉCONNEXION *******
+		 *****************************************/
+		register(OpCode.LEAVE_NETWORK_ASK, 		d -> new LeaveNetworkAsk());
+		register(OpCode.LEAVE_NETWORK_RESPONSE, d -> new LeaveNetworkResponse(d.readByte()));
+		register(OpCode.LEAVE_NETWORK_CANCEL, 	d -> new LeaveNetworkCancel());
+		register(OpCode.LEAVE_NETWORK_CONFIRM, 	d -> new LeaveNetworkConfirm(d.readNodes()));
+		register(OpCode.LEAVE_NETWORK_DONE, 	d -> new LeaveNetworkDone());
+	}
+
+	private static void register(OpCode opCode, BodyDecoder decoder) {
+		DECODERS[opCode.getUnsignedCode()] = decoder;
+	}
+
+	private ByteBuffer source;
+	private int cursor;
+	private int end;		//fin de la trame courante si sa taille est connue (format v2), sinon limite du buffer
+	private boolean bounded;
+	private Paquet paquet;
+
+	public FrameDecoder(Level level) {
+		logger.setLevel(level == null ? Level.SEVERE : level);
+	}
+
+	/**
+	 * Décode la trame qui commence à la position du buffer.
+	 * ---
+	 * @param buffer : Données reçues en mode lecture.
+	 * @return DONE (position avancée après la trame), REFILL (buffer intact) ou ERROR.
+	 */
+	public ProcessStatus decode(ByteBuffer buffer) {
+		source = buffer;
+		cursor = buffer.position();
+		end = buffer.limit();
+		bounded = false;
+		paquet = null;
+		try {
+			paquet = readPaquet();
+			buffer.position(cursor);
+			return ProcessStatus.DONE;
+		} catch (Underflow underflow) {
+			return ProcessStatus.REFILL;
+		} catch (Malformed | IllegalArgumentException | IllegalStateException e) {
+			logger.info("Trame mal formée : " + e.getMessage());
+			return ProcessStatus.ERROR;
+		} finally {
+			source = null;
+		}
+	}
+
+	/**
+	 * Décode une trame au format v2 : {@code opcode (BYTE) + taille du corps (INT) + corps}.
+	 * <p>
+	 * La fin de la trame est connue dès l'en-tête : une trame incomplète est détectée sans rien décoder,
+	 * une trame d'opcode inconnu est sautée au lieu de couper la connexion, et un corps qui ne se décode pas
+	 * exactement sur sa taille annoncée est une erreur.
+	 * </p>
+	 * ---
+	 * @param buffer : Données reçues en mode lecture.
+	 * @return DONE (position avancée après la trame), REFILL (buffer intact, hormis les trames inconnues sautées) ou ERROR.
+	 */
+	public ProcessStatus decodeFramed(ByteBuffer buffer) {
+		paquet = null;
+		while(true) {
+			var size = framedSize(buffer);
+			if(size == -1 || size > buffer.remaining()) { return ProcessStatus.REFILL; }
+			if(size < FRAME_HEADER_SIZE) {
+				logger.info("Trame mal formée : taille négative");
+				return ProcessStatus.ERROR;
+			}
+			var start = buffer.position();
+			var decoder = DECODERS[Byte.toUnsignedInt(buffer.get(start))];
+			if(decoder == null) {
+				logger.info("Trame d'opcode inconnu " + Byte.toUnsignedInt(buffer.get(start)) + " ignorée (" + size + " octets)");
+				buffer.position(start + size);
+				continue;
+			}
+			source = buffer;
+			cursor = start + FRAME_HEADER_SIZE;
+			end = start + size;
+			bounded = true;
+			try {
+				paquet = decoder.decode(this);
+				if(cursor != end) { throw new Malformed("corps plus long que son contenu"); }
+				buffer.position(end);
+				return ProcessStatus.DONE;
+			} catch (Underflow | Malformed | IllegalArgumentException | IllegalStateException e) {
+				logger.info("Trame mal formée : " + e.getMessage());
+				paquet = null;
+				return ProcessStatus.ERROR;
+			} finally {
+				source = null;
+			}
+		}
+	}
+
+	/**
+	 * Taille totale (en-tête compris) de la trame v2 qui commence à la position du buffer.
+	 * ---
+	 * @param buffer : Données reçues en mode lecture (non consommées).
+	 * @return La taille de la trame, -1 si l'en-tête n'est pas encore complet,
+	 * ou 0 si la taille annoncée est invalide.
+	 */
+	public static int framedSize(ByteBuffer buffer) {
+		if(buffer.remaining() < FRAME_HEADER_SIZE) { return -1; }
+		var bodySize = buffer.getInt(buffer.position() + Byte.BYTES);
+		return bodySize < 0 || bodySize > Integer.MAX_VALUE - FRAME_HEADER_SIZE ? 0 : FRAME_HEADER_SIZE + bodySize;
+	}
+
+	/**
+	 * Taille attendue d'une trame {@code SECURE_MESSAGE} ou {@code SECURE_MESSAGE_HYBRID} sérialisée, d'après ses seuls en-têtes
+	 * (contrôle de forme sans copie, avant de relayer la trame telle quelle).
+	 * ---
+	 * @param buffer : Buffer contenant la trame.
+	 * @param index : Position absolue de l'opcode de la trame.
+	 * @param limit : Fin des données disponibles.
+	 * @return La taille de la trame opcode compris, ou -1 si ce n'est pas un message chiffré bien formé.
+	 */
+	public static int secureFrameSize(ByteBuffer buffer, int index, int limit) {
+		var opCode = buffer.get(index);
+		var body = index + Byte.BYTES;
+		long size;
+		if(opCode == OpCode.SECURE_MESSAGE.getCode()) {
+			if(limit - body < Integer.BYTES) { return -1; }
+			var nbBlocks = buffer.getInt(body);
+			if(nbBlocks <= 0) { return -1; }
+			size = Byte.BYTES + Integer.BYTES + (long) nbBlocks * RSA_BLOCK_SIZE;
+		} else if(opCode == OpCode.SECURE_MESSAGE_HYBRID.getCode()) {
+			if(limit - body < HYBRID_HEADER_SIZE + Integer.BYTES) { return -1; }
+			var cipherSize = buffer.getInt(body + HYBRID_HEADER_SIZE);
+			if(cipherSize < UGEncrypt.GCM_TAG_SIZE_BYTES) { return -1; }
+			size = Byte.BYTES + HYBRID_HEADER_SIZE + Integer.BYTES + (long) cipherSize;
+		} else {
+			return -1;
+		}
+		return size > limit - index ? -1 : (int) size;
+	}
+
+	/**
+	 * Construit l'en-tête v2 d'une trame déjà sérialisée ({@code opcode + corps}) et consomme son opcode :
+	 * l'en-tête puis le reste de la trame forment la trame v2, à envoyer par une écriture groupée sans recopie.
+	 * ---
+	 * @param frame : Trame sérialisée en mode lecture, opcode compris.
+	 * @return L'en-tête {@code opcode + taille du corps} en mode lecture (pris dans la {@link BufferPool}).
+	 */
+	public static ByteBuffer framedHeader(ByteBuffer frame) {
+		var opCode = frame.get();
+		return BufferPool.acquire(FRAME_HEADER_SIZE).put(opCode).putInt(frame.remaining()).flip();
+	}
+
+	/**
+	 * @return Le paquet décodé par le dernier {@link #decode} qui a renvoyé DONE.
+	 */
+	public Paquet get() {
+		if(paquet == null) {
+			throw new IllegalStateException();
+		}
+		return paquet;
+	}
+
+	//PRIVATE METHODS
+
+	private Paquet readPaquet() {
+		var code = Byte.toUnsignedInt(readByte());
+		var decoder = DECODERS[code];
+		if(decoder == null) { throw new Malformed("opcode " + code); }
+		return decoder.decode(this);
+	}
+
+	private JoinResponse readJoinResponse() {
+		var publicKey = readPublicKey();
+		var nodes = readNodes();
+		return new JoinResponse(publicKey, nodes, readConnexions());
+	}
+
+	private SyncDigest readSyncDigest() {
+		var root = readLong();
+		var count = readInt();
+		if(count != 0 && count != SyncDigest.BUCKETS) { throw new Malformed("nombre d'intervalles"); }
+		var buckets = new long[count];
+		for(var i = 0; i < count; i++) {
+			buckets[i] = readLong();
+		}
+		return new SyncDigest(root, buckets);
+	}
+
+	private SyncState readSyncState() {
+		var mask = new long[SyncDigest.BUCKETS / Long.SIZE];
+		for(var i = 0; i < mask.length; i++) {
+			mask[i] = readLong();
+		}
+		var wantReply = readByte() != 0;
+		var nodes = readNodes();
+		var connexions = readConnexions();
+		var count = readCount(Long.BYTES);
+		var removed = new ArrayList<Long>();
+		for(var i = 0; i < count; i++) {
+			removed.add(readLong());
+		}
+		return new SyncState(BitSet.valueOf(mask), wantReply, nodes, connexions, removed, readNodeLoads(), readLinkWeights());
+	}
+
+	private LinkKeyExchange readLinkKeyExchange() {
+		var ephemeralSize = readSize();
+		if(ephemeralSize > LinkCipher.MAX_EPHEMERAL_KEY_SIZE) { throw new Malformed("clé éphémère"); }
+		var ephemeral = readBytes(ephemeralSize);
+		var signatureSize = readSize();
+		if(signatureSize != UGEncrypt.KEY_SIZE_BYTES) { throw new Malformed("signature"); }
+		return new LinkKeyExchange(ephemeral, readBytes(signatureSize));
+	}
+
+	private KeyRequest readKeyRequest() {
+		var size = readSize();
+		if(size % PublicKeyRSA.DIGEST_SIZE != 0) { throw new Malformed("KeyRequest"); }
+		var digests = readBytes(size);
+		var list = new ArrayList<ByteBuffer>(size / PublicKeyRSA.DIGEST_SIZE);
+		for(var i = 0; i < size; i += PublicKeyRSA.DIGEST_SIZE) {
+			list.add(digests.slice(i, PublicKeyRSA.DIGEST_SIZE));
+		}
+		return new KeyRequest(list);
+	}
+
+	private KeyResponse readKeyResponse() {
+		var count = readCount(Integer.BYTES);
+		var keys = new ArrayList<PublicKeyRSA>();
+		for(var i = 0; i < count; i++) {
+			keys.add(readPublicKey());
+		}
+		return new KeyResponse(keys);
+	}
+
+	private Broadcast readBroadcast() {
+		var sender = readPublicKey();
+		var messageID = readLong();
+		var size = readSize();
+		require(size);
+		var payload = ByteBuffer.allocate(size).put(source.slice(cursor, size));
+		cursor += size;
+		return new Broadcast(sender, messageID, size, payload);
+	}
+
+	private ArrayList<Node> readNodes() {
+		var count = readCount(2 * Integer.BYTES);
+		var nodes = new ArrayList<Node>();
+		for(var i = 0; i < count; i++) {
+			nodes.add(readNode());
+		}
+		return nodes;
+	}
+
+	private ArrayList<Connexion> readConnexions() {
+		var count = readCount(2 * Integer.BYTES);
+		var connexions = new ArrayList<Connexion>();
+		for(var i = 0; i < count; i++) {
+			connexions.add(new Connexion(readPublicKey(), readPublicKey()));
+		}
+		return connexions;
+	}
+
+	//charges sans opcode : clé + version + score
+	private ArrayList<NodeLoad> readNodeLoads() {
+		var count = readCount(Integer.BYTES + Long.BYTES + Byte.BYTES);
+		var loads = new ArrayList<NodeLoad>();
+		for(var i = 0; i < count; i++) {
+			loads.add(new NodeLoad(readPublicKey(), readLong(), Byte.toUnsignedInt(readByte())));
+		}
+		return loads;
+	}
+
+	//poids sans opcode : deux clés + version + temps d'aller-retour
+	private ArrayList<LinkWeight> readLinkWeights() {
+		var count = readCount(2 * Integer.BYTES + Long.BYTES + Integer.BYTES);
+		var weights = new ArrayList<LinkWeight>();
+		for(var i = 0; i < count; i++) {
+			weights.add(new LinkWeight(readPublicKey(), readPublicKey(), readLong(), readInt()));
+		}
+		return weights;
+	}
+
+	private Node readNode() {
+		var publicKey = readPublicKey();
+		return new Node(publicKey, SocketAddressReader.parseSocketAddress(readString()));
+	}
+
+	private PublicKeyRSA readPublicKey() {
+		var size = readSize();
+		if(size > UGEncrypt.MAX_PUBLIC_KEY_SIZE) { throw new Malformed("clé publique"); }
+		require(size);
+		var encoded = source.slice(cursor, size);
+		cursor += size;
+		var known = PublicKeyRSA.known(encoded);
+		if(known != null) { return known; }
+		try {
+			return PublicKeyRSA.from(encoded);
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+			throw new Malformed("clé publique");
+		}
+	}
+
+	private String readString() {
+		var size = readSize();
+		require(size);
+		var text = StandardCharsets.UTF_8.decode(source.slice(cursor, size)).toString();
+		cursor += size;
+		return text;
+	}
+
+	/**
+	 * Même format que {@link RSAReader#get()} : nombre de blocs (INT) + blocs, en mode écriture.
+	 */
+	private ByteBuffer readRSABlocks() {
+		var nbBlocks = readInt();
+		if(nbBlocks <= 0 || (long) nbBlocks * RSA_BLOCK_SIZE > Integer.MAX_VALUE - Integer.BYTES) { throw new Malformed("blocs RSA"); }
+		var size = nbBlocks * RSA_BLOCK_SIZE;
+		require(size);
+		var buffer = BufferPool.acquire(Integer.BYTES + size).putInt(nbBlocks).put(source.slice(cursor, size));
+		cursor += size;
+		return buffer;
+	}
+
+	/**
+	 * Même format que {@link HybridReader#get()} : en-tête + taille (INT) + chiffré, en mode écriture.
+	 */
+	private ByteBuffer readHybrid() {
+		require(HYBRID_HEADER_SIZE + Integer.BYTES);
+		var cipherSize = source.getInt(cursor + HYBRID_HEADER_SIZE);
+		if(cipherSize < UGEncrypt.GCM_TAG_SIZE_BYTES) { throw new Malformed("couche hybride"); }
+		return readPooledBytes(HYBRID_HEADER_SIZE + Integer.BYTES + cipherSize);
+	}
+
+	private ByteBuffer readBytes(int size) {
+		require(size);
+		var bytes = ByteBuffer.allocate(size).put(source.slice(cursor, size)).flip();
+		cursor += size;
+		return bytes;
+	}
+
+	private ByteBuffer readPooledBytes(int size) {
+		require(size);
+		var bytes = BufferPool.acquire(size).put(source.slice(cursor, size));
+		cursor += size;
+		return bytes;
+	}
+
+	private int readCount(int minElementSize) {
+		var count = readInt();
+		if(count < 0 || (long) count * minElementSize > Integer.MAX_VALUE) { throw new Malformed("taille de liste"); }
+		return count;
+	}
+
+	private int readSize() {
+		var size = readInt();
+		if(size < 0) { throw new Malformed("taille négative"); }
+		return size;
+	}
+
+	private byte readByte() {
+		require(Byte.BYTES);
+		return source.get(cursor++);
+	}
+
+	private int readInt() {
+		require(Integer.BYTES);
+		var value = source.getInt(cursor);
+		cursor += Integer.BYTES;
+		return value;
+	}
+
+	private long readLong() {
+		require(Long.BYTES);
+		var value = source.getLong(cursor);
+		cursor += Long.BYTES;
+		return value;
+	}
+
+	private void require(int size) {
+		if(size > end - cursor) {
+			if(bounded) { throw new Malformed("corps plus court que son contenu"); }
+			throw Underflow.INSTANCE;
+		}
+	}
+
+	//MAIN
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST : Décodage à plat de plusieurs trames, dont une incomplète");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var frames = java.util.List.<Paquet>of(
+				new PreJoin(new Node(first, new InetSocketAddress("127.0.0.1", 7777))),
+				new MessagePublic(first, second, "Bonjour !"),
+				new KeyResponse(java.util.List.of(first, second)),
+				new LeaveNetworkDone());
+		var buffer = ByteBuffer.allocate(4_096);
+		frames.forEach(frame -> buffer.put(frame.getWriteModeBuffer().flip()));
+		var total = buffer.position();
+		buffer.flip().limit(total - 1);	//dernière trame tronquée
+		var decoder = new FrameDecoder(Level.INFO);
+		var decoded = 0;
+		while(decoder.decode(buffer) == ProcessStatus.DONE) {
+			System.out.println("Trame décodée : " + decoder.get().getOpCode());
+			decoded++;
+		}
+		System.out.println("Trames décodées avant la trame incomplète : " + decoded + " (position inchangée : " + buffer.position() + ")");
+		buffer.limit(total);
+		System.out.println("Après complément : " + decoder.decode(buffer) + " " + decoder.get().getOpCode());
+
+		System.out.println("TEST : Format v2 (opcode + taille + corps), avec une trame d'opcode inconnu");
+		var framed = ByteBuffer.allocate(4_096);
+		for(var frame : frames) {
+			var bytes = frame.getWriteModeBuffer().flip();
+			framed.put(framedHeader(bytes)).put(bytes);
+			if(frame instanceof PreJoin) { framed.put((byte) 77).putInt(3).put(new byte[3]); }
+		}
+		framed.flip();
+		while(decoder.decodeFramed(framed) == ProcessStatus.DONE) {
+			System.out.println("Trame v2 décodée : " + decoder.get().getOpCode());
+		}
+		System.out.println(framed.hasRemaining() ? "Erreur : octets non consommés." : "Toutes les trames consommées !");
+	}
+}
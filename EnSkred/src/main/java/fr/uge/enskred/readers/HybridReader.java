@@ -0,0 +1,139 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * La classe {@code HybridReader} implémente l'interface {@code Reader<ByteBuffer>} et est responsable de la lecture d'une couche
+ * chiffrée en mode hybride : une clé AES-256 chiffrée en RSA suivie des données chiffrées en AES-GCM.
+ *
+ * Le processus de lecture se déroule en plusieurs étapes :
+ * 1. La classe lit d'abord l'en-tête de taille fixe (clé AES chiffrée en RSA puis IV du GCM).
+ * 2. Elle attend ensuite la taille des données chiffrées (INT).
+ * 3. Enfin, elle lit les données chiffrées (tag GCM inclus), puis marque la lecture comme terminée.
+ *
+ * Le message chiffré est structuré comme suit :
+ * - RSA(clé AES) (256 BYTES) + IV (12 BYTES) + taille (INT) + AES_GCM(payload) (taille BYTES)
+ *
+ * Contrairement au {@link RSAReader}, la taille des données n'est plus un multiple de blocs RSA :
+ * le chiffré ne fait que 16 octets de plus que le clair, quelle que soit sa taille.
+ *
+ * @see UGEncrypt#encryptHybrid(ByteBuffer, UGEncrypt.PublicKeyRSA)
+ * @see UGEncrypt#decryptHybrid(ByteBuffer, UGEncrypt.PrivateKeyRSA)
+ *
+ * @author Marwane KAOUANE
+ * @author Massiouane MAIBECHE
+ */
+public final class HybridReader implements Reader<ByteBuffer> {
+	/**********************************************************************************************************
+	 * HYBRID(public_key, payload) = RSA(aes_key) (256 BYTES) + iv (12 BYTES) + size (INT) + AES_GCM(payload) (size BYTES)
+	 **********************************************************************************************************/
+
+	private enum State {
+		DONE, WAITING_HEADER, WAITING_SIZE, WAITING_CIPHER, ERROR
+	}
+
+	private static final int HEADER_SIZE = UGEncrypt.KEY_SIZE_BYTES + UGEncrypt.GCM_IV_SIZE_BYTES;
+
+	private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+	private final IntReader intReader = new IntReader();
+
+	private State state = State.WAITING_HEADER;
+	private int cipherSize;
+	private ByteBuffer cipherBuffer;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if (state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException();
+		}
+
+		switch (state) {
+		case WAITING_HEADER:
+			try {
+				buffer.flip();
+				processForFillBlock(buffer, headerBuffer);
+				if(headerBuffer.hasRemaining()) {
+					return ProcessStatus.REFILL;
+				}
+				state = State.WAITING_SIZE;
+			} finally {
+				buffer.compact();
+			}
+		case WAITING_SIZE:
+			var status = intReader.process(buffer);
+			if (status != ProcessStatus.DONE) {
+				return status;
+			}
+			cipherSize = intReader.get();
+			if(cipherSize < UGEncrypt.GCM_TAG_SIZE_BYTES) {
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+			cipherBuffer = BufferPool.acquire(cipherSize);
+			state = State.WAITING_CIPHER;
+		case WAITING_CIPHER:
+			try {
+				buffer.flip();
+				processForFillBlock(buffer, cipherBuffer);
+				if(cipherBuffer.hasRemaining()) {
+					return ProcessStatus.REFILL;
+				}
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			} finally {
+				buffer.compact();
+			}
+
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	private void processForFillBlock(ByteBuffer buffer, ByteBuffer destination) {
+		var remaining = Math.min(buffer.remaining(), destination.remaining());
+		var oldLimit = buffer.limit();
+		buffer.limit(buffer.position() + remaining);
+		destination.put(buffer);
+		buffer.limit(oldLimit);
+	}
+
+	@Override
+	public ByteBuffer get() {
+		if (state != State.DONE) {
+			throw new IllegalStateException();
+		}
+		return BufferPool.acquire(HEADER_SIZE + Integer.BYTES + cipherSize)
+				.put(headerBuffer.flip()).putInt(cipherSize).put(cipherBuffer.flip());
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_HEADER;
+		headerBuffer.clear();
+		intReader.reset();
+		cipherSize = 0;
+		BufferPool.release(cipherBuffer);
+		cipherBuffer = null;
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST 1 : Lecture complète d'un message chiffré en hybride");
+
+		var keyPair = UGEncrypt.KeyPairRSA.generate();
+		var originalMessage = "Hello, this is an hybrid test! Only one RSA block whatever the size.".repeat(1000);
+		var encryptedBuffer = UGEncrypt.encryptHybrid(StandardCharsets.UTF_8.encode(originalMessage), keyPair.publicKey());
+		System.out.println("Taille chiffrée : " + encryptedBuffer.position() + " octets");
+
+		var hybridReader = new HybridReader();
+		var status = hybridReader.process(encryptedBuffer);
+		if(status != ProcessStatus.DONE) { System.out.println("Test 1 échoué. Statut : " + status); return; }
+
+		var decoded = UGEncrypt.decryptHybrid(hybridReader.get().flip(), keyPair.privateKey());
+		var decryptedMessage = StandardCharsets.UTF_8.decode(decoded.flip()).toString();
+		System.out.println(originalMessage.equals(decryptedMessage) ? "Déchiffrement réussi !" : "Échec du déchiffrement. Message incorrect.");
+	}
+}
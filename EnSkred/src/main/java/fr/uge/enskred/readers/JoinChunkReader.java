@@ -0,0 +1,130 @@
+package fr.uge.enskred.readers;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.uge.enskred.paquet.Connexion;
+import fr.uge.enskred.paquet.JoinChunk;
+import fr.uge.enskred.paquet.LinkWeight;
+import fr.uge.enskred.paquet.Node;
+import fr.uge.enskred.paquet.NodeLoad;
+
+
+/**
+ * JoinChunkReader est un {@link Reader} permettant de lire le corps d'un {@link JoinChunk} (l'opcode étant déjà lu) :
+ * une liste de nœuds puis une liste de connexions, comme une {@link JoinResponseReader} sans la clé publique,
+ * puis la liste des charges annoncées et celle des poids des connexions.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_NODES} : en attente de la liste des nœuds</li>
+ *   <li>{@code WAITING_CONNEXIONS} : en attente de la liste des connexions</li>
+ *   <li>{@code WAITING_LOADS} : en attente de la liste des charges</li>
+ *   <li>{@code WAITING_WEIGHTS} : en attente de la liste des poids des connexions</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class JoinChunkReader implements Reader<JoinChunk> {
+	private enum State {
+		WAITING_NODES, WAITING_CONNEXIONS, WAITING_LOADS, WAITING_WEIGHTS, DONE, ERROR
+	}
+
+	private final ListReader<Node> listNodeReader = new ListReader<>(new NodeReader());
+	private final ListReader<Connexion> listConnexionReader = new ListReader<>(new ConnexionReader());
+	private final ListReader<NodeLoad> listLoadReader = new ListReader<>(new NodeLoadReader());
+	private final ListReader<LinkWeight> listWeightReader = new ListReader<>(new LinkWeightReader());
+	private State state = State.WAITING_NODES;
+	private List<Node> nodes;
+	private List<Connexion> connexions;
+	private List<NodeLoad> loads;
+	private JoinChunk joinChunk;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		var situation = ProcessStatus.REFILL;
+		switch(state) {
+			case WAITING_NODES:
+				situation = listNodeReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				nodes = new ArrayList<>(listNodeReader.get());
+				state = State.WAITING_CONNEXIONS;
+			case WAITING_CONNEXIONS:
+				situation = listConnexionReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				connexions = new ArrayList<>(listConnexionReader.get());
+				state = State.WAITING_LOADS;
+			case WAITING_LOADS:
+				situation = listLoadReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				loads = new ArrayList<>(listLoadReader.get());
+				state = State.WAITING_WEIGHTS;
+			case WAITING_WEIGHTS:
+				situation = listWeightReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				joinChunk = new JoinChunk(nodes, connexions, loads, new ArrayList<>(listWeightReader.get()));
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public JoinChunk get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return joinChunk;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_NODES;
+		listNodeReader.reset();
+		listConnexionReader.reset();
+		listLoadReader.reset();
+		listWeightReader.reset();
+		nodes = null;
+		connexions = null;
+		loads = null;
+		joinChunk = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'une partie de l'état du réseau octet par octet");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var sent = new JoinChunk(List.of(new Node(first, new InetSocketAddress("127.0.0.1", 8080)), new Node(second, new InetSocketAddress("127.0.0.1", 8081))),
+				List.of(new Connexion(first, second)), List.of(new NodeLoad(second, 3L, 17)), List.of(new LinkWeight(first, second, 9L, 850)));
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new JoinChunkReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : " + reader.get() : "Test échoué. Statut : " + status);
+	}
+}
@@ -0,0 +1,196 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import fr.uge.enskred.paquet.NewConnection;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+
+/**
+ * Remplace, dans un paquet sérialisé, les clés publiques déjà connues par leur empreinte SHA-256.
+ * <p>
+ * Chaque clé est sérialisée sur le réseau sous la forme {@code [taille (INT)][X.509]} (~298 octets).
+ * Le compacteur parcourt la trame, reconnaît ces champs lorsqu'ils correspondent à une clé internée
+ * ({@link PublicKeyRSA#known(ByteBuffer)}) et les retire, en notant leur position et leur empreinte.
+ * Le format des paquets n'est donc pas modifié : la trame d'origine est reconstruite à l'identique à l'arrivée.
+ * </p>
+ * Format du corps compacté :
+ * <pre>
+ * nombre de clés (INT) + [position dans la trame d'origine (INT) + empreinte (32 BYTES)] * nombre + reste de la trame
+ * </pre>
+ * Une clé coûte ainsi 36 octets au lieu de 298. Si le récepteur ne connaît pas une empreinte,
+ * il la demande au voisin ({@code KEY_REQUEST}) avant de reconstruire la trame : l'émetteur ne remplace donc
+ * que les clés qu'il s'engage à pouvoir renvoyer (voir {@link #compact(ByteBuffer, Predicate)}).
+ * <p>
+ * Seuls les champs de clé sont examinés : la trame est parcourue 8 octets à la fois à la recherche
+ * d'un en-tête DER ({@code 0x30 0x82} + longueur) précédé de la taille qui lui correspond.
+ * </p>
+ */
+public final class KeyCompactor {
+	private static final int REFERENCE_SIZE = Integer.BYTES + PublicKeyRSA.DIGEST_SIZE;
+	private static final byte DER_SEQUENCE = 0x30;
+	private static final byte DER_LONG_FORM_2 = (byte) 0x82;	//longueur DER sur 2 octets
+	private static final int DER_HEADER_SIZE = 4;
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long SEQUENCE_BYTES = LOW_BITS * DER_SEQUENCE;
+
+	private KeyCompactor() {
+		throw new AssertionError("No instances");
+	}
+
+	/**
+	 * Compacte une trame en remplaçant les clés connues par leur empreinte.
+	 * ---
+	 * @param frame : Trame sérialisée (mode lecture, non consommée).
+	 * @param pin : Appelé pour chaque clé connue trouvée ; la clé n'est remplacée que s'il renvoie true,
+	 * c'est-à-dire si l'émetteur garde de quoi répondre à un {@code KEY_REQUEST} portant sur elle.
+	 * @return Le corps compacté en mode écriture (pris dans la {@link BufferPool}), ou null si la trame ne contient aucune clé remplacée.
+	 */
+	public static ByteBuffer compact(ByteBuffer frame, Predicate<PublicKeyRSA> pin) {
+		Objects.requireNonNull(frame);
+		Objects.requireNonNull(pin);
+		var source = frame.slice();
+		var offsets = new ArrayList<Integer>();
+		var keys = new ArrayList<PublicKeyRSA>();
+		var removed = 0;
+		//i parcourt les débuts possibles d'une clé X.509, juste après sa taille
+		for(var i = Integer.BYTES; i + DER_HEADER_SIZE <= source.limit(); ) {
+			if(i + Long.BYTES <= source.limit() && !containsSequenceByte(source.getLong(i))) {
+				i += Long.BYTES;
+				continue;
+			}
+			var size = keySizeAt(source, i);
+			if(size > 0) {
+				var key = PublicKeyRSA.known(source.slice(i, size));
+				if(key != null && pin.test(key)) {
+					offsets.add(i - Integer.BYTES);
+					keys.add(key);
+					removed += Integer.BYTES + size;
+					i += size + Integer.BYTES;
+					continue;
+				}
+			}
+			i++;
+		}
+		if(keys.isEmpty()) { return null; }
+		var body = BufferPool.acquire(Integer.BYTES + keys.size() * REFERENCE_SIZE + source.limit() - removed);
+		body.putInt(keys.size());
+		for(var j = 0; j < keys.size(); j++) {
+			body.putInt(offsets.get(j)).put(keys.get(j).digest());
+		}
+		var cursor = 0;
+		for(var j = 0; j < keys.size(); j++) {
+			body.put(source.slice(cursor, offsets.get(j) - cursor));
+			cursor = offsets.get(j) + keys.get(j).encodedWithSize().remaining();
+		}
+		return body.put(source.slice(cursor, source.limit() - cursor));
+	}
+
+	/**
+	 * Liste les empreintes d'un corps compacté qui ne correspondent à aucune clé connue.
+	 * ---
+	 * @param body : Corps compacté (mode lecture, non consommé).
+	 * @return Les empreintes inconnues (sans doublon, en mode lecture), ou null si le corps est mal formé.
+	 */
+	public static List<ByteBuffer> missingDigests(ByteBuffer body) {
+		Objects.requireNonNull(body);
+		var source = body.slice();
+		var count = referenceCount(source);
+		if(count < 0) { return null; }
+		var missing = new LinkedHashSet<ByteBuffer>();
+		for(var j = 0; j < count; j++) {
+			var digest = source.slice(Integer.BYTES + j * REFERENCE_SIZE + Integer.BYTES, PublicKeyRSA.DIGEST_SIZE);
+			if(PublicKeyRSA.fromDigest(digest) == null) { missing.add(digest); }
+		}
+		return List.copyOf(missing);
+	}
+
+	/**
+	 * Reconstruit la trame d'origine à partir d'un corps compacté.
+	 * ---
+	 * @param body : Corps compacté (mode lecture, non consommé).
+	 * @return La trame d'origine en mode écriture (prise dans la {@link BufferPool}), ou null si le corps est mal formé ou qu'une empreinte est inconnue.
+	 */
+	public static ByteBuffer expand(ByteBuffer body) {
+		Objects.requireNonNull(body);
+		var source = body.slice();
+		var count = referenceCount(source);
+		if(count < 0) { return null; }
+		var keys = new ArrayList<ByteBuffer>(count);
+		var offsets = new int[count];
+		var restStart = Integer.BYTES + count * REFERENCE_SIZE;
+		var restSize = source.limit() - restStart;
+		var frameSize = restSize;
+		var previousEnd = 0;
+		for(var j = 0; j < count; j++) {
+			var position = Integer.BYTES + j * REFERENCE_SIZE;
+			offsets[j] = source.getInt(position);
+			var key = PublicKeyRSA.fromDigest(source.slice(position + Integer.BYTES, PublicKeyRSA.DIGEST_SIZE));
+			if(key == null || offsets[j] < previousEnd) { return null; }
+			var keyBuffer = key.encodedWithSize();
+			keys.add(keyBuffer);
+			frameSize += keyBuffer.remaining();
+			previousEnd = offsets[j] + keyBuffer.remaining();
+		}
+		var frame = BufferPool.acquire(frameSize);
+		var restCursor = restStart;
+		for(var j = 0; j < count; j++) {
+			var gap = offsets[j] - frame.position();
+			if(gap > source.limit() - restCursor) {
+				BufferPool.release(frame);
+				return null;
+			}
+			frame.put(source.slice(restCursor, gap));
+			restCursor += gap;
+			frame.put(keys.get(j));
+		}
+		return frame.put(source.slice(restCursor, source.limit() - restCursor));
+	}
+
+	//PRIVATE METHODS
+
+	//vrai si l'un des 8 octets vaut 0x30 (test SWAR : octet nul dans word ^ 0x3030...)
+	private static boolean containsSequenceByte(long word) {
+		var x = word ^ SEQUENCE_BYTES;
+		return ((x - LOW_BITS) & ~x & HIGH_BITS) != 0;
+	}
+
+	/**
+	 * Taille de la clé X.509 qui commencerait à {@code start}, ou -1 si l'en-tête DER et la taille
+	 * qui le précède ne concordent pas.
+	 */
+	private static int keySizeAt(ByteBuffer source, int start) {
+		if(source.get(start) != DER_SEQUENCE || source.get(start + 1) != DER_LONG_FORM_2) { return -1; }
+		var size = DER_HEADER_SIZE + Short.toUnsignedInt(source.getShort(start + 2));
+		if(size > UGEncrypt.MAX_PUBLIC_KEY_SIZE || start + size > source.limit()
+				|| source.getInt(start - Integer.BYTES) != size) { return -1; }
+		return size;
+	}
+
+	private static int referenceCount(ByteBuffer source) {
+		if(source.limit() < Integer.BYTES) { return -1; }
+		var count = source.getInt(0);
+		if(count < 0 || (long) count * REFERENCE_SIZE > source.limit() - Integer.BYTES) { return -1; }
+		return count;
+	}
+
+	//MAIN
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST : Compactage des clés d'un paquet");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var frame = new NewConnection(first, second).getWriteModeBuffer().flip();
+		var body = compact(frame, _ -> true).flip();
+		System.out.println("Taille d'origine : " + frame.remaining() + " octets, compactée : " + body.remaining() + " octets");
+		System.out.println("Empreintes inconnues : " + missingDigests(body).size());
+		var expanded = expand(body).flip();
+		System.out.println(expanded.equals(frame) ? "Trame reconstruite à l'identique !" : "Erreur : trame différente.");
+		System.out.println(compact(frame, _ -> false) == null ? "Clés non retenues laissées en entier !" : "Erreur : clé non retenue compactée.");
+	}
+}
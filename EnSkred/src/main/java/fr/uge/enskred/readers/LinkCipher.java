@@ -0,0 +1,225 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Objects;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.readers.UGEncrypt.PrivateKeyRSA;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+import fr.uge.enskred.utils.BufferPool;
+import fr.uge.enskred.utils.Utils;
+
+/**
+ * Clé de lien symétrique négociée entre deux voisins directs après le challenge RSA.
+ * <p>
+ * Chaque côté génère une paire X25519 éphémère, signe sa clé publique éphémère avec sa clé RSA
+ * (liée à la clé RSA du voisin pour éviter toute réflexion), puis dérive deux clés AES-256-GCM
+ * à partir du secret partagé : une par sens de communication.
+ * </p>
+ * <p>
+ * Les nonces GCM sont des compteurs implicites (un par sens) : TCP garantit l'ordre des trames,
+ * donc chaque côté sait quel compteur attendre, et toute trame rejouée ou supprimée fait échouer le tag.
+ * </p>
+ * Cette classe n'est pas thread-safe : elle appartient au {@code Context} du lien.
+ */
+public final class LinkCipher {
+	private static final String AGREEMENT_ALGORITHM = "X25519";
+	private static final String SYMMETRIC_SCHEME = "AES/GCM/NoPadding";
+	private static final byte[] LABEL = "EnSkred-link-v1".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Taille maximale d'une clé publique X25519 encodée (X.509), avec de la marge.
+	 */
+	public static final int MAX_EPHEMERAL_KEY_SIZE = 64;
+
+	private final KeyPair ephemeral;
+	private SecretKeySpec sendKey;
+	private SecretKeySpec receiveKey;
+	private long sendCounter;
+	private long receiveCounter;
+
+	private LinkCipher(KeyPair ephemeral) {
+		this.ephemeral = Objects.requireNonNull(ephemeral);
+	}
+
+	/**
+	 * Génère une nouvelle paire éphémère X25519 pour un lien.
+	 * ---
+	 * @return Un LinkCipher non encore établi.
+	 */
+	public static LinkCipher create() {
+		try {
+			return new LinkCipher(KeyPairGenerator.getInstance(AGREEMENT_ALGORITHM).generateKeyPair());
+		} catch (NoSuchAlgorithmException e) {
+			/* X25519 est disponible sur toute JVM >= 11 */
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Renvoie la clé publique éphémère encodée (X.509), en mode lecture.
+	 * ---
+	 * @return Un ByteBuffer en mode lecture.
+	 */
+	public ByteBuffer ephemeralPublicKey() {
+		return ByteBuffer.wrap(ephemeral.getPublic().getEncoded());
+	}
+
+	/**
+	 * Signe notre clé éphémère pour un voisin donné.
+	 * ---
+	 * @param privateKey : Notre clé privée RSA.
+	 * @param peer : La clé publique RSA du voisin destinataire.
+	 * @return La signature en mode lecture.
+	 */
+	public ByteBuffer sign(PrivateKeyRSA privateKey, PublicKeyRSA peer) {
+		Utils.requireNonNulls(privateKey, peer);
+		return privateKey.sign(signedData(ephemeralPublicKey(), peer));
+	}
+
+	/**
+	 * Vérifie la signature de la clé éphémère d'un voisin puis dérive les clés de lien.
+	 * ---
+	 * @param peerEphemeral : Clé éphémère du voisin (mode lecture).
+	 * @param signature : Signature de cette clé par le voisin (mode lecture).
+	 * @param me : Notre clé publique RSA (celle que le voisin a liée à sa signature).
+	 * @param peer : La clé publique RSA du voisin.
+	 * @return true si le lien est établi, false si la signature ou la clé éphémère est invalide.
+	 */
+	public boolean establish(ByteBuffer peerEphemeral, ByteBuffer signature, PublicKeyRSA me, PublicKeyRSA peer) {
+		Utils.requireNonNulls(peerEphemeral, signature, me, peer);
+		if(!peer.verify(signedData(peerEphemeral, me), signature)) {
+			return false;
+		}
+		try {
+			var encodedPeer = new byte[peerEphemeral.remaining()];
+			peerEphemeral.slice().get(encodedPeer);
+			var peerKey = KeyFactory.getInstance(AGREEMENT_ALGORITHM).generatePublic(new X509EncodedKeySpec(encodedPeer));
+			var agreement = KeyAgreement.getInstance(AGREEMENT_ALGORITHM);
+			agreement.init(ephemeral.getPrivate());
+			agreement.doPhase(peerKey, true);
+			var shared = agreement.generateSecret();
+			var iAmLow = me.compareTo(peer) < 0;
+			var mine = ephemeral.getPublic().getEncoded();
+			var low = iAmLow ? mine : encodedPeer;
+			var high = iAmLow ? encodedPeer : mine;
+			var lowToHigh = derive(shared, low, high, (byte) 1);
+			var highToLow = derive(shared, low, high, (byte) 2);
+			sendKey = new SecretKeySpec(iAmLow ? lowToHigh : highToLow, "AES");
+			receiveKey = new SecretKeySpec(iAmLow ? highToLow : lowToHigh, "AES");
+			sendCounter = 0;
+			receiveCounter = 0;
+			return true;
+		} catch (GeneralSecurityException | IllegalStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Indique si les clés de lien ont été dérivées.
+	 * ---
+	 * @return true si le lien chiffré est utilisable.
+	 */
+	public boolean isEstablished() {
+		return sendKey != null;
+	}
+
+	/**
+	 * Chiffre et authentifie une trame sortante.
+	 * ---
+	 * @param frame : Trame en clair (mode lecture, non consommée).
+	 * @return La trame chiffrée (tag inclus), en mode écriture, prise dans la {@link BufferPool}.
+	 */
+	public ByteBuffer encrypt(ByteBuffer frame) {
+		Objects.requireNonNull(frame);
+		return seal(frame, BufferPool.acquire(frame.remaining() + UGEncrypt.GCM_TAG_SIZE_BYTES));
+	}
+
+	/**
+	 * Chiffre une trame sortante directement sous sa forme {@code LINK_FRAME} (opcode + taille + chiffré),
+	 * sans passer par un buffer intermédiaire.
+	 * ---
+	 * @param frame : Trame en clair (mode lecture, non consommée).
+	 * @return La trame {@code LINK_FRAME} en mode écriture, prise dans la {@link BufferPool}.
+	 */
+	public ByteBuffer encryptToLinkFrame(ByteBuffer frame) {
+		Objects.requireNonNull(frame);
+		var size = frame.remaining() + UGEncrypt.GCM_TAG_SIZE_BYTES;
+		return seal(frame, BufferPool.acquire(Byte.BYTES + Integer.BYTES + size).put(OpCode.LINK_FRAME.getCode()).putInt(size));
+	}
+
+	private ByteBuffer seal(ByteBuffer frame, ByteBuffer output) {
+		if(!isEstablished()) {
+			BufferPool.release(output);
+			throw new IllegalStateException("Link key not established");
+		}
+		try {
+			var cipher = Cipher.getInstance(SYMMETRIC_SCHEME);
+			cipher.init(Cipher.ENCRYPT_MODE, sendKey, nonce(sendCounter++));
+			cipher.doFinal(frame.slice(), output);
+			return output;
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Vérifie et déchiffre une trame entrante.
+	 * ---
+	 * @param encrypted : Trame chiffrée (mode lecture, non consommée).
+	 * @return La trame en clair en mode écriture (prise dans la {@link BufferPool}), ou null si elle n'est pas authentique.
+	 */
+	public ByteBuffer decrypt(ByteBuffer encrypted) {
+		Objects.requireNonNull(encrypted);
+		if(!isEstablished() || encrypted.remaining() < UGEncrypt.GCM_TAG_SIZE_BYTES) { return null; }
+		var output = BufferPool.acquire(encrypted.remaining() - UGEncrypt.GCM_TAG_SIZE_BYTES);
+		try {
+			var cipher = Cipher.getInstance(SYMMETRIC_SCHEME);
+			cipher.init(Cipher.DECRYPT_MODE, receiveKey, nonce(receiveCounter));
+			cipher.doFinal(encrypted.slice(), output);
+			receiveCounter++;
+			return output;
+		} catch (AEADBadTagException e) {
+			BufferPool.release(output);
+			return null;
+		} catch (GeneralSecurityException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	//PRIVATE METHODS
+
+	private static ByteBuffer signedData(ByteBuffer ephemeralKey, PublicKeyRSA receiver) {
+		var receiverBuffer = receiver.encoded();
+		return ByteBuffer.allocate(LABEL.length + ephemeralKey.remaining() + receiverBuffer.remaining())
+				.put(LABEL).put(ephemeralKey.slice()).put(receiverBuffer).flip();
+	}
+
+	private static byte[] derive(byte[] shared, byte[] low, byte[] high, byte direction) throws NoSuchAlgorithmException {
+		var digest = MessageDigest.getInstance("SHA-256");
+		digest.update(LABEL);
+		digest.update(shared);
+		digest.update(low);
+		digest.update(high);
+		digest.update(direction);
+		return digest.digest();
+	}
+
+	private static GCMParameterSpec nonce(long counter) {
+		return new GCMParameterSpec(UGEncrypt.GCM_TAG_SIZE_BYTES * 8,
+				ByteBuffer.allocate(UGEncrypt.GCM_IV_SIZE_BYTES).putInt(0).putLong(counter).array());
+	}
+}
@@ -0,0 +1,115 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import fr.uge.enskred.paquet.LinkKeyExchange;
+import fr.uge.enskred.readers.UGEncrypt.KeyPairRSA;
+
+/**
+ * LinkKeyExchangeReader est un {@link Reader} capable de reconstruire un {@link LinkKeyExchange}
+ * à partir d'un flux binaire. Ce flux contient :
+ * <ol>
+ *   <li>La clé publique éphémère X25519 (taille + octets, via {@link PayloadReader})</li>
+ *   <li>La signature RSA de cette clé (taille + octets, via {@link PayloadReader})</li>
+ * </ol>
+ * 
+ * Les tailles sont bornées : une clé éphémère de plus de {@link LinkCipher#MAX_EPHEMERAL_KEY_SIZE} octets
+ * ou une signature différente de {@link UGEncrypt#KEY_SIZE_BYTES} octets provoque une erreur.
+ * 
+ * @author Marwane KAOUANE
+ * @author Massiouane MAIBECHE
+ */
+public final class LinkKeyExchangeReader implements Reader<LinkKeyExchange> {
+	private enum State {
+		DONE, WAITING_EPHEMERAL, WAITING_SIGNATURE, ERROR
+	}
+
+	private final PayloadReader ephemeralReader = new PayloadReader();
+	private final PayloadReader signatureReader = new PayloadReader();
+	private State state = State.WAITING_EPHEMERAL;
+	private ByteBuffer ephemeral;
+	private LinkKeyExchange linkKeyExchange;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if (state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException();
+		}
+		var situation = ProcessStatus.REFILL;
+		switch(state) {
+			case WAITING_EPHEMERAL:
+				situation = ephemeralReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				ephemeral = ephemeralReader.get().flip();
+				if(ephemeral.remaining() > LinkCipher.MAX_EPHEMERAL_KEY_SIZE) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_SIGNATURE;
+			case WAITING_SIGNATURE:
+				situation = signatureReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				var signature = signatureReader.get().flip();
+				if(signature.remaining() != UGEncrypt.KEY_SIZE_BYTES) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				linkKeyExchange = new LinkKeyExchange(ephemeral, signature);
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public LinkKeyExchange get() {
+		if (state != State.DONE) {
+			throw new IllegalStateException();
+		}
+		return linkKeyExchange;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_EPHEMERAL;
+		ephemeral = null;
+		linkKeyExchange = null;
+		ephemeralReader.reset();
+		signatureReader.reset();
+	}
+
+	//MAIN
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST : Échange de clé de lien entre deux voisins");
+		var alice = KeyPairRSA.generate();
+		var bob = KeyPairRSA.generate();
+		var aliceLink = LinkCipher.create();
+		var bobLink = LinkCipher.create();
+
+		var fromAlice = new LinkKeyExchange(aliceLink.ephemeralPublicKey(), aliceLink.sign(alice.privateKey(), bob.publicKey()));
+		var fromBob = new LinkKeyExchange(bobLink.ephemeralPublicKey(), bobLink.sign(bob.privateKey(), alice.publicKey()));
+
+		var reader = new LinkKeyExchangeReader();
+		if(reader.process(fromAlice.getWriteModeBuffer().flip().position(1).compact()) != ProcessStatus.DONE) {
+			System.out.println("Test échoué : lecture incomplète"); return;
+		}
+		var received = reader.get();
+		var bobOk = bobLink.establish(received.ephemeralPublicKey(), received.signature(), bob.publicKey(), alice.publicKey());
+		var aliceOk = aliceLink.establish(fromBob.ephemeralPublicKey(), fromBob.signature(), alice.publicKey(), bob.publicKey());
+		System.out.println("Signatures vérifiées : " + (bobOk && aliceOk));
+
+		var frame = aliceLink.encrypt(ByteBuffer.wrap("Bonjour voisin".getBytes())).flip();
+		var clear = bobLink.decrypt(frame);
+		System.out.println("Trame reçue : " + (clear == null ? "REJETÉE" : StandardCharsets.UTF_8.decode(clear.flip())));
+		System.out.println("Rejeu rejeté : " + (bobLink.decrypt(frame) == null));
+
+		var mallory = LinkCipher.create();
+		System.out.println("Usurpation rejetée : " + !mallory.establish(fromBob.ephemeralPublicKey(), fromBob.signature(), alice.publicKey(), KeyPairRSA.generate().publicKey()));
+	}
+}
@@ -0,0 +1,126 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+import fr.uge.enskred.paquet.LinkWeight;
+
+
+/**
+ * LinkWeightReader est un {@link Reader} permettant de lire le corps d'un {@link LinkWeight} (l'opcode étant déjà lu) :
+ * les deux extrémités de la connexion, la version de l'annonce puis son temps d'aller-retour.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_CONNEXION} : en attente des deux clés publiques</li>
+ *   <li>{@code WAITING_VERSION} : en attente de la version de l'annonce</li>
+ *   <li>{@code WAITING_RTT} : en attente du temps d'aller-retour</li>
+ *   <li>{@code DONE} : le payload a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class LinkWeightReader implements Reader<LinkWeight> {
+	private enum State {
+		WAITING_CONNEXION, WAITING_VERSION, WAITING_RTT, DONE, ERROR
+	}
+
+	private final ConnexionReader connexionReader = new ConnexionReader();
+	private final LongReader longReader = new LongReader();
+	private final IntReader intReader = new IntReader();
+	private State state = State.WAITING_CONNEXION;
+	private long version;
+	private LinkWeight linkWeight;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_CONNEXION:
+			switch(connexionReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				state = State.WAITING_VERSION;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_VERSION:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				version = longReader.get();
+				if(version <= 0) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_RTT;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_RTT:
+			switch(intReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				var rttMicros = intReader.get();
+				if(rttMicros <= 0) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				var connexion = connexionReader.get();
+				linkWeight = new LinkWeight(connexion.publicKeySender(), connexion.publicKeyReceiver(), version, rttMicros);
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public LinkWeight get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return linkWeight;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_CONNEXION;
+		connexionReader.reset();
+		longReader.reset();
+		intReader.reset();
+		version = 0;
+		linkWeight = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'un poids de connexion octet par octet");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var sent = new LinkWeight(first, second, 42L, 1234);
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new LinkWeightReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : " + reader.get().rttMicros() + " µs" : "Test échoué. Statut : " + status);
+	}
+}
@@ -10,8 +10,9 @@ import fr.uge.enskred.paquet.MessagePublic;
 /**
  * Reader pour la lecture d'un {@link MessagePublic} depuis un {@link ByteBuffer}.
  * 
- * <p>Ce lecteur décode un message public en deux étapes : d'abord la lecture des informations de connexion
- * (via un {@link ConnexionReader}), puis la lecture du message sous forme de chaîne de caractères (via un {@link StringReader}).</p>
+ * <p>Ce lecteur décode un message public en trois étapes : d'abord la lecture des informations de connexion
+ * (via un {@link ConnexionReader}), puis le nombre de relais restants (via un {@link ByteReader}),
+ * enfin la lecture du message sous forme de chaîne de caractères (via un {@link StringReader}).</p>
  * 
  * <p>Le processus de lecture s'effectue de manière incrémentale, chaque étape étant gérée séparément.</p>
  * 
@@ -20,6 +21,7 @@ import fr.uge.enskred.paquet.MessagePublic;
  * États possibles :
  * <ul>
  *   <li>WAITING_PK : en attente de données pour la connexion (clé publique du destinataire et de l'expéditeur).</li>
+ *   <li>WAITING_HOPS : en attente du nombre de relais restants.</li>
  *   <li>WAITING_MESSAGE : en attente du message sous forme de chaîne de caractères.</li>
  *   <li>DONE : lecture terminée, un {@link MessagePublic} peut être récupéré via {@code get()}.</li>
  *   <li>ERROR : une erreur s’est produite, généralement un appel invalide ou une mauvaise donnée lue.</li>
@@ -44,14 +46,16 @@ import fr.uge.enskred.paquet.MessagePublic;
 public final class MessagePublicReader implements Reader<MessagePublic> {
 	
 	private enum State {
-		DONE, WAITING_PK, WAITING_MESSAGE, ERROR
+		DONE, WAITING_PK, WAITING_HOPS, WAITING_MESSAGE, ERROR
 	}
 
 	private final ConnexionReader connexionReader = new ConnexionReader();
+	private final ByteReader byteReader = new ByteReader();
 	private final StringReader stringReader = new StringReader();
 	private State state = State.WAITING_PK;
 	private MessagePublic messagePublic;
 	private Connexion connexion;
+	private int hopsLeft;
 
     @Override
 	public ProcessStatus process(ByteBuffer buffer) {
@@ -67,6 +71,19 @@ public final class MessagePublicReader implements Reader<MessagePublic> {
 					case DONE:
 						connexion = connexionReader.get();
 						connexionReader.reset();
+						state = State.WAITING_HOPS;
+						break;
+					default:	
+						state = State.ERROR; 
+						return localStatus;
+				}
+			case WAITING_HOPS:
+				localStatus = byteReader.process(buffer);
+				switch(localStatus) {
+					case REFILL: return localStatus;
+					case DONE:
+						hopsLeft = Byte.toUnsignedInt(byteReader.get());
+						byteReader.reset();
 						state = State.WAITING_MESSAGE;
 						break;
 					default:	
@@ -81,7 +98,7 @@ public final class MessagePublicReader implements Reader<MessagePublic> {
                         var text = stringReader.get();
 						stringReader.reset();
 						state = State.DONE;
-						messagePublic = new MessagePublic(connexion.publicKeySender(), connexion.publicKeyReceiver(), text);
+						messagePublic = new MessagePublic(connexion.publicKeySender(), connexion.publicKeyReceiver(), hopsLeft, text);
 						return ProcessStatus.DONE;
 					default:	
 						state = State.ERROR; 
@@ -106,8 +123,10 @@ public final class MessagePublicReader implements Reader<MessagePublic> {
 	public void reset() {
 		state = State.WAITING_PK;
 		connexionReader.reset();
+		byteReader.reset();
 		stringReader.reset();
 		messagePublic = null;
+		hopsLeft = 0;
 	}    
 
 }
@@ -0,0 +1,186 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.paquet.MessageShard;
+import fr.uge.enskred.readers.UGEncrypt.KeyPairRSA;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * MessageShardReader est un {@link Reader} permettant de lire le corps d'un {@link MessageShard} (l'opcode étant déjà lu) :
+ * la clé de l'expéditeur, l'identifiant du message, la position du fragment, la taille du message puis le fragment.
+ *
+ * ---
+ *
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_PUBLIC_KEY} : en attente de la clé de l'expéditeur</li>
+ *   <li>{@code WAITING_ID_MESSAGE} : en attente de l'identifiant du message</li>
+ *   <li>{@code WAITING_INDEX}, {@code WAITING_NEEDED}, {@code WAITING_TOTAL} : position du fragment dans le code</li>
+ *   <li>{@code WAITING_LENGTH} : en attente de la taille du message reconstitué</li>
+ *   <li>{@code WAITING_DATA} : lecture du fragment (taille + octets)</li>
+ *   <li>{@code DONE} : le fragment a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class MessageShardReader implements Reader<MessageShard> {
+	private enum State {
+		WAITING_PUBLIC_KEY, WAITING_ID_MESSAGE, WAITING_INDEX, WAITING_NEEDED, WAITING_TOTAL, WAITING_LENGTH, WAITING_DATA, DONE, ERROR
+	}
+
+	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
+	private final LongReader longReader = new LongReader();
+	private final ByteReader byteReader = new ByteReader();
+	private final IntReader intReader = new IntReader();
+	private final PayloadReader payloadReader = new PayloadReader();
+	private State state = State.WAITING_PUBLIC_KEY;
+	private PublicKeyRSA sender;
+	private long idMessage;
+	private int index;
+	private int needed;
+	private int total;
+	private int length;
+	private MessageShard shard;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_PUBLIC_KEY:
+			switch(publicKeyReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				sender = publicKeyReader.get();
+				state = State.WAITING_ID_MESSAGE;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_ID_MESSAGE:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				idMessage = longReader.get();
+				state = State.WAITING_INDEX;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_INDEX:
+			switch(byteReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				index = Byte.toUnsignedInt(byteReader.get());
+				byteReader.reset();
+				state = State.WAITING_NEEDED;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_NEEDED:
+			switch(byteReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				needed = Byte.toUnsignedInt(byteReader.get());
+				byteReader.reset();
+				state = State.WAITING_TOTAL;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_TOTAL:
+			switch(byteReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				total = Byte.toUnsignedInt(byteReader.get());
+				if(needed < 1 || total < needed || total > Byte.MAX_VALUE || index >= total) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_LENGTH;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_LENGTH:
+			switch(intReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				length = intReader.get();
+				if(length < 0) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_DATA;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_DATA:
+			switch(payloadReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				shard = new MessageShard(sender, idMessage, index, needed, total, length, payloadReader.get().flip());
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public MessageShard get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return shard;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_PUBLIC_KEY;
+		publicKeyReader.reset();
+		longReader.reset();
+		byteReader.reset();
+		intReader.reset();
+		payloadReader.reset();
+		sender = null;
+		shard = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws Exception {
+		System.out.println("TEST : Lecture d'un fragment de message caché octet par octet");
+		var sender = KeyPairRSA.generate().publicKey();
+		var data = ByteBuffer.allocate(100);
+		for(var i = 0; i < data.capacity(); i++) { data.put((byte) i); }
+		var sent = new MessageShard(sender, 42L, 2, 2, 3, 190, data.flip());
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new MessageShardReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		var read = status == ProcessStatus.DONE ? reader.get() : null;
+		System.out.println(read != null && read.sender().equals(sender) && read.idMessage() == 42L && read.index() == 2
+				&& read.needed() == 2 && read.total() == 3 && read.length() == 190 && read.data().equals(data.rewind())
+				? "Test réussi : fragment " + read.index() + " (" + read.needed() + " sur " + read.total() + ")" : "Test échoué. Statut : " + status);
+	}
+}
@@ -0,0 +1,123 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+import fr.uge.enskred.paquet.NodeLoad;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
+
+
+/**
+ * NodeLoadReader est un {@link Reader} permettant de lire le corps d'un {@link NodeLoad} (l'opcode étant déjà lu) :
+ * la clé publique du nœud, la version de l'annonce puis son score de charge.
+ *
+ * ---
+ *
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_PUBLIC_KEY} : en attente de la clé publique du nœud</li>
+ *   <li>{@code WAITING_VERSION} : en attente de la version de l'annonce</li>
+ *   <li>{@code WAITING_LOAD} : en attente du score de charge</li>
+ *   <li>{@code DONE} : le payload a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class NodeLoadReader implements Reader<NodeLoad> {
+	private enum State {
+		WAITING_PUBLIC_KEY, WAITING_VERSION, WAITING_LOAD, DONE, ERROR
+	}
+
+	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
+	private final LongReader longReader = new LongReader();
+	private final ByteReader byteReader = new ByteReader();
+	private State state = State.WAITING_PUBLIC_KEY;
+	private PublicKeyRSA publicKey;
+	private long version;
+	private NodeLoad nodeLoad;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_PUBLIC_KEY:
+			switch(publicKeyReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				publicKey = publicKeyReader.get();
+				state = State.WAITING_VERSION;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_VERSION:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				version = longReader.get();
+				if(version <= 0) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_LOAD;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_LOAD:
+			switch(byteReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				nodeLoad = new NodeLoad(publicKey, version, Byte.toUnsignedInt(byteReader.get()));
+				state = State.DONE;
+				return ProcessStatus.DONE;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public NodeLoad get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return nodeLoad;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_PUBLIC_KEY;
+		publicKeyReader.reset();
+		longReader.reset();
+		byteReader.reset();
+		publicKey = null;
+		version = 0;
+		nodeLoad = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'une charge de nœud octet par octet");
+		var node = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var sent = new NodeLoad(node, 42L, 200);
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new NodeLoadReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : charge " + reader.get().load() : "Test échoué. Statut : " + status);
+	}
+}
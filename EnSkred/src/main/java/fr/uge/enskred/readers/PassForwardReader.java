@@ -15,7 +15,7 @@ import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
  * <ul>
  *   <li>Clé publique RSA via {@link PublicKeyReader}</li>
  *   <li>OpCode du message sécurisé via {@link ByteReader}</li>
- *   <li>Message sécurisé encodé via {@link RSAReader}</li>
+ *   <li>Message sécurisé encodé via {@link RSAReader}, ou {@link HybridReader} pour {@code SECURE_MESSAGE_HYBRID}</li>
  * </ul>
  * 
  * <p>Les étapes de lecture sont les suivantes :</p>
@@ -49,6 +49,8 @@ public final class PassForwardReader implements Reader<PassForward> {
 	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
 	private final ByteReader byteReader = new ByteReader();
 	private final RSAReader rsaReader = new RSAReader();
+	private final HybridReader hybridReader = new HybridReader();
+	private boolean hybrid;
 	private State state = State.WAITING_KEY_RSA;
 	private SecureMessage secureMessage;
 	private ByteBuffer encodedBuffer;
@@ -81,7 +83,8 @@ public final class PassForwardReader implements Reader<PassForward> {
 					case REFILL: return ProcessStatus.REFILL;
 					case DONE:
 						var opCode = byteReader.get();
-						if(OpCode.SECURE_MESSAGE.getCode() != opCode) { return ProcessStatus.ERROR; }
+						if(OpCode.SECURE_MESSAGE.getCode() != opCode && OpCode.SECURE_MESSAGE_HYBRID.getCode() != opCode) { return ProcessStatus.ERROR; }
+						hybrid = OpCode.SECURE_MESSAGE_HYBRID.getCode() == opCode;
 						state = State.WAITING_ENCODED_SECURE_MESSAGE;
 						break;
 					default:	
@@ -89,11 +92,12 @@ public final class PassForwardReader implements Reader<PassForward> {
 						return ProcessStatus.ERROR;
 				}
 			case WAITING_ENCODED_SECURE_MESSAGE:
-				switch(rsaReader.process(buffer)) {
+				Reader<ByteBuffer> encodedReader = hybrid ? hybridReader : rsaReader;
+				switch(encodedReader.process(buffer)) {
 					case REFILL: return ProcessStatus.REFILL;
 					case DONE:
-						encodedBuffer = rsaReader.get();
-						secureMessage = new SecureMessage(publicKey, null, encodedBuffer.flip());
+						encodedBuffer = encodedReader.get();
+						secureMessage = new SecureMessage(publicKey, null, encodedBuffer.flip(), hybrid);
 						passForward = new PassForward(publicKey, secureMessage);
 						state = State.DONE;
 						return ProcessStatus.DONE;
@@ -120,6 +124,8 @@ public final class PassForwardReader implements Reader<PassForward> {
 	public void reset() {
 		publicKey = null;
 		rsaReader.reset();
+		hybridReader.reset();
+		hybrid = false;
 		passForward = null;
 		byteReader.reset();
 		encodedBuffer = null;
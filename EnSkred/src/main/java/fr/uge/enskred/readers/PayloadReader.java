@@ -3,6 +3,8 @@ package fr.uge.enskred.readers;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
+import fr.uge.enskred.utils.BufferPool;
+
 
 
 /**
@@ -23,6 +25,8 @@ import java.nio.charset.StandardCharsets;
  * </ul>
  * 
  * <p>Une fois que le payload a été entièrement extrait du buffer, il est disponible via la méthode {@code get()} sous forme de {@link ByteBuffer} contenant le contenu du payload.</p>
+ * <p>Ce buffer est celui de la {@link BufferPool} dans lequel le payload a été lu, sans copie : il appartient à l'appelant,
+ * qui le rend via {@link BufferPool#release(ByteBuffer)} quand il n'en a plus besoin (ou le laisse au GC s'il le conserve).</p>
  * 
  * ---
  * 
@@ -70,15 +74,16 @@ public final class PayloadReader implements Reader<ByteBuffer> {
 					return ProcessStatus.ERROR;
 				}
 				state = State.WAITING_STRING;
-				payloadBuffer = ByteBuffer.allocate(size);
+				payloadBuffer = BufferPool.acquire(size);
 			case WAITING_STRING:
 				try {
 					buffer.flip();
 					if(!processForFillString(buffer, payloadBuffer)) {
 						return ProcessStatus.REFILL;
 					}
-					value = ByteBuffer.allocate(payloadBuffer.flip().remaining());
-					value.put(payloadBuffer);
+					//le buffer de la réserve est remis tel quel à l'appelant, qui en devient propriétaire
+					value = payloadBuffer;
+					payloadBuffer = null;
 					state = State.DONE;
 					return ProcessStatus.DONE;
 				} finally {
@@ -100,7 +105,9 @@ public final class PayloadReader implements Reader<ByteBuffer> {
 	@Override
 	public void reset() {
 		state = State.WAITING_SIZE;
-		payloadBuffer.clear();
+		BufferPool.release(payloadBuffer);
+		payloadBuffer = null;
+		value = null;
 		intReader.reset();
 	}
 
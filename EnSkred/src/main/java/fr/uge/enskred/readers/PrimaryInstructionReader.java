@@ -48,6 +48,7 @@ public final class PrimaryInstructionReader implements Reader<Instruction> {
 	private static final Logger logger = Logger.getLogger(PrimaryInstructionReader.class.getName());
 	private final MessageToSecureReader messageToSecureReader = new MessageToSecureReader();
 	private final PassForwardReader passForwardReader = new PassForwardReader();
+	private final MessageShardReader messageShardReader = new MessageShardReader();
 	private final ByteReader byteReader = new ByteReader();
 	private State state = State.WAITING_OPCODE;
 	private Instruction instruction;
@@ -80,6 +81,9 @@ public final class PrimaryInstructionReader implements Reader<Instruction> {
 					case PASS_FORWARD -> {
 						instruction = readPassForward(buffer);
 					}
+					case MESSAGE_SHARD -> {
+						instruction = readMessageShard(buffer);
+					}
 					default -> { logger.info("Error with waitingPayload"); }
 				}
 	
@@ -110,6 +114,7 @@ public final class PrimaryInstructionReader implements Reader<Instruction> {
 		byteReader.reset();
 		passForwardReader.reset();
 		messageToSecureReader.reset();
+		messageShardReader.reset();
 	}
 
 	
@@ -148,4 +153,20 @@ public final class PrimaryInstructionReader implements Reader<Instruction> {
 		return null;
 	}
 	
+	/**
+	 * Méthode qui réalise la lecture d'un fragment de message caché dans le buffer
+	 * ---
+	 * @param buffer: bufferIn
+	 * @return Instruction de type MessageShard
+	 */
+	private Instruction readMessageShard(ByteBuffer buffer) {
+		localStatus = messageShardReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return messageShardReader.get(); }
+			case ERROR -> 	{ logger.info("Error with readMessageShard"); }
+		}
+		return null;
+	}
+	
 }
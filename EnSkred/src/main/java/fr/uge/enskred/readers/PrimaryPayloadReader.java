@@ -19,6 +19,9 @@ import fr.uge.enskred.paquet.RemoveNode;
  *   <li>NEW_NODE : Lit un payload de type "New Node".</li>
  *   <li>NEW_CONNECTION : Lit un payload de type "New Connection".</li>
  *   <li>REMOVE_NODE : Lit un payload de type "Remove Node".</li>
+ *   <li>TOPOLOGY_BATCH : Lit un lot de payloads des types précédents.</li>
+ *   <li>LINK_WEIGHT : Lit le temps d'aller-retour d'une connexion.</li>
+ *   <li>NODE_LOAD : Lit la charge annoncée d'un nœud.</li>
  * </ul>
  * 
  * <p>Le traitement se fait en plusieurs étapes, et l'état de la lecture suit le cycle suivant :</p>
@@ -66,8 +69,21 @@ public final class PrimaryPayloadReader implements Reader<Payload> {
 	private final NewNodeReader newNodeReader = new NewNodeReader();
 	private final ConnexionReader connexionReader = new ConnexionReader();
 	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
+	private final LinkWeightReader linkWeightReader = new LinkWeightReader();
+	private final NodeLoadReader nodeLoadReader = new NodeLoadReader();
+	private final Level level;
+	//false pour le lecteur interne d'un lot : un lot imbriqué est refusé dès son opcode, sans le décoder
+	private final boolean batchAllowed;
+	//créé au premier lot reçu (il contient lui-même un PrimaryPayloadReader, qui refuse les lots)
+	private TopologyBatchReader topologyBatchReader;
 	
 	public PrimaryPayloadReader(Level level) {
+		this(level, true);
+	}
+
+	PrimaryPayloadReader(Level level, boolean batchAllowed) {
+		this.level = level;
+		this.batchAllowed = batchAllowed;
 		logger.setLevel(level == null ? Level.SEVERE : level);
 	}
 	
@@ -96,6 +112,20 @@ public final class PrimaryPayloadReader implements Reader<Payload> {
 					case REMOVE_NODE -> {
 						payload = readRemoveNode(buffer);
 					}
+					case TOPOLOGY_BATCH -> {
+						if(!batchAllowed) {
+							logger.info("Lot imbriqué dans un lot, refusé");
+							state = State.ERROR;
+							return ProcessStatus.ERROR;
+						}
+						payload = readTopologyBatch(buffer);
+					}
+					case LINK_WEIGHT -> {
+						payload = readLinkWeight(buffer);
+					}
+					case NODE_LOAD -> {
+						payload = readNodeLoad(buffer);
+					}
 					default -> { logger.info("Error with waitingPayload"); }
 				}
 	
@@ -127,6 +157,9 @@ public final class PrimaryPayloadReader implements Reader<Payload> {
 		newNodeReader.reset();
 		publicKeyReader.reset();
 		connexionReader.reset();
+		linkWeightReader.reset();
+		nodeLoadReader.reset();
+		if(topologyBatchReader != null) { topologyBatchReader.reset(); }
 	}
 
 	
@@ -185,5 +218,54 @@ public final class PrimaryPayloadReader implements Reader<Payload> {
 		//tmp
 		return null;
 	}
+
+	/**
+	 * Lis une payload de type LinkWeight
+	 * ---
+	 * @param buffer: bufferPayload
+	 * @return Payload de type LinkWeight
+	 */
+	private Payload readLinkWeight(ByteBuffer buffer) {
+		localStatus = linkWeightReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return linkWeightReader.get(); }
+			case ERROR -> 	{ logger.info("Error with readLinkWeight"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Lis une payload de type NodeLoad
+	 * ---
+	 * @param buffer: bufferPayload
+	 * @return Payload de type NodeLoad
+	 */
+	private Payload readNodeLoad(ByteBuffer buffer) {
+		localStatus = nodeLoadReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return nodeLoadReader.get(); }
+			case ERROR -> 	{ logger.info("Error with readNodeLoad"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Lis une payload de type TopologyBatch
+	 * ---
+	 * @param buffer: bufferPayload
+	 * @return Payload de type TopologyBatch
+	 */
+	private Payload readTopologyBatch(ByteBuffer buffer) {
+		if(topologyBatchReader == null) { topologyBatchReader = new TopologyBatchReader(level); }
+		localStatus = topologyBatchReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return topologyBatchReader.get(); }
+			case ERROR -> 	{ logger.info("Error with readTopologyBatch"); }
+		}
+		return null;
+	}
 	
 }
@@ -8,16 +8,23 @@ import java.util.logging.Logger;
 import fr.uge.enskred.opcode.OpCode;
 import fr.uge.enskred.paquet.ChallengeLongResponse;
 import fr.uge.enskred.paquet.ChallengeOk;
+import fr.uge.enskred.paquet.CompactFrame;
 import fr.uge.enskred.paquet.EncodedRSABuffers;
+import fr.uge.enskred.paquet.KeyRequest;
+import fr.uge.enskred.paquet.KeyResponse;
 import fr.uge.enskred.paquet.LeaveNetworkAsk;
 import fr.uge.enskred.paquet.LeaveNetworkCancel;
 import fr.uge.enskred.paquet.LeaveNetworkConfirm;
 import fr.uge.enskred.paquet.LeaveNetworkDone;
 import fr.uge.enskred.paquet.LeaveNetworkResponse;
+import fr.uge.enskred.paquet.LinkProbe;
+import fr.uge.enskred.paquet.LinkFrame;
 import fr.uge.enskred.paquet.Node;
 import fr.uge.enskred.paquet.Paquet;
 import fr.uge.enskred.paquet.PreJoin;
+import fr.uge.enskred.paquet.Prune;
 import fr.uge.enskred.paquet.SecondJoin;
+import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
 
 
 /**
@@ -58,14 +65,25 @@ public final class PrimaryReader implements Reader<Paquet> {
 	private Paquet paquet;
 	//readers
 	private final RSAReader rsaReader = new RSAReader();
+	private final HybridReader hybridReader = new HybridReader();
 	private final ByteReader byteReader = new ByteReader();
 	private final LongReader longReader = new LongReader();
 	private final NodeReader nodeReader = new NodeReader();
 	private final BroadcastReader broadcastReader = new BroadcastReader();
 	private final PublicKeyReader publicKeyReader = new PublicKeyReader();
 	private final JoinResponseReader joinResponseReader = new JoinResponseReader();
+	private final JoinChunkReader joinChunkReader = new JoinChunkReader();
 	private final ListReader<Node> listReader = new ListReader<>(new NodeReader());
 	private final MessagePublicReader messagePublicReader = new MessagePublicReader();
+	private final LinkKeyExchangeReader linkKeyExchangeReader = new LinkKeyExchangeReader();
+	private final PayloadReader payloadReader = new PayloadReader();
+	private final ListReader<PublicKeyRSA> publicKeyListReader = new ListReader<>(new PublicKeyReader());
+	private final BroadcastDigestReader iHaveReader = new BroadcastDigestReader(OpCode.IHAVE);
+	private final BroadcastDigestReader graftReader = new BroadcastDigestReader(OpCode.GRAFT);
+	private final SyncDigestReader syncDigestReader = new SyncDigestReader();
+	private final SyncStateReader syncStateReader = new SyncStateReader();
+	private final CircuitCreateReader circuitCreateReader = new CircuitCreateReader();
+	private final CircuitCellReader circuitCellReader = new CircuitCellReader();
 
 	public PrimaryReader(Level level) {
 		logger.setLevel(level == null ? Level.SEVERE : level);
@@ -96,16 +114,40 @@ public final class PrimaryReader implements Reader<Paquet> {
 				case CHALLENGE_PUBLIC_KEY 	-> { paquet = readBufferChallengePublicKey(buffer); }
 				case RESPONSE_CHALLENGE 	-> { paquet = readLongChallengeResponse(buffer); }
 				case CHALLENGE_OK 			-> { paquet = readChallengeOk(buffer); }
+				case JOIN_CHUNK 			-> { paquet = readJoinChunk(buffer); }
 				case JOIN_RESPONSE 			-> { paquet = readBufferJoinResponse(buffer); }
+				/*****************************************
+				 ******** GESTION DU LIEN CHIFFRÉ ********
+				 *****************************************/
+				case LINK_KEY_EXCHANGE 		-> { paquet = readLinkKeyExchange(buffer); }
+				case LINK_FRAME 			-> { paquet = readLinkFrame(buffer); }
+				/*****************************************
+				 ******** GESTION DES CLÉS COMPACTÉES ****
+				 *****************************************/
+				case COMPACT_FRAME 			-> { paquet = readCompactFrame(buffer); }
+				case KEY_REQUEST 			-> { paquet = readKeyRequest(buffer); }
+				case KEY_RESPONSE 			-> { paquet = readKeyResponse(buffer); }
 				/*****************************************
 				 ********* GESTION DES BROADCAST *********
 				 *****************************************/
 				case BROADCAST -> { paquet = readBufferBroadcast(buffer); }
+				case IHAVE 			-> { paquet = readBroadcastDigest(iHaveReader, buffer); }
+				case GRAFT 			-> { paquet = readBroadcastDigest(graftReader, buffer); }
+				case PRUNE 			-> { localStatus = ProcessStatus.DONE; paquet = new Prune(); }
+				case PING, PONG 	-> { paquet = readLinkProbe(buffer); }
+				/*****************************************
+				 ********* GESTION DE L'ANTI-ENTROPIE ****
+				 *****************************************/
+				case SYNC_DIGEST 	-> { paquet = readSyncDigest(buffer); }
+				case SYNC_STATE 	-> { paquet = readSyncState(buffer); }
 				/*****************************************
 				 ******** GESTION DE LA MESSAGERIE ******* 
 				 *****************************************/
 				case OPEN_MESSAGE 	-> { paquet = readBufferMessagePublic(buffer); }
 				case SECURE_MESSAGE -> { paquet = readBufferEncodedBySecureMessage(buffer); }
+				case SECURE_MESSAGE_HYBRID -> { paquet = readBufferEncodedByHybridSecureMessage(buffer); }
+				case CIRCUIT_CREATE -> { paquet = readCircuitCreate(buffer); }
+				case CIRCUIT_CELL 	-> { paquet = readCircuitCell(buffer); }
 				/*****************************************
 				 ******* GESTION DE LA DÉCONNEXION *******
 				 *****************************************/
@@ -114,7 +156,11 @@ public final class PrimaryReader implements Reader<Paquet> {
 				case LEAVE_NETWORK_CANCEL 	-> { localStatus = ProcessStatus.DONE; paquet = new LeaveNetworkCancel(); }
 				case LEAVE_NETWORK_CONFIRM 	-> { paquet = readBufferLeaveNetworkConfirm(buffer); }
 				case LEAVE_NETWORK_DONE 	-> { localStatus = ProcessStatus.DONE; paquet = new LeaveNetworkDone(); }
-				default -> { logger.warning("Error with WAITING_PAQUET"); }
+				default -> {
+					logger.warning("Error with WAITING_PAQUET");
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
 			}
 
 			if(localStatus != ProcessStatus.DONE || null == paquet) {
@@ -142,6 +188,7 @@ public final class PrimaryReader implements Reader<Paquet> {
 		opCode = OpCode.NO_STATE;
 		paquet = null;
 		rsaReader.reset();
+		hybridReader.reset();
 		nodeReader.reset();
 		listReader.reset();
 		byteReader.reset();
@@ -149,7 +196,17 @@ public final class PrimaryReader implements Reader<Paquet> {
 		broadcastReader.reset();
 		publicKeyReader.reset();
 		joinResponseReader.reset();
+		joinChunkReader.reset();
 		messagePublicReader.reset();
+		linkKeyExchangeReader.reset();
+		payloadReader.reset();
+		publicKeyListReader.reset();
+		iHaveReader.reset();
+		graftReader.reset();
+		syncDigestReader.reset();
+		syncStateReader.reset();
+		circuitCreateReader.reset();
+		circuitCellReader.reset();
 	}
 
 	//PRIVATE METHODS
@@ -202,6 +259,22 @@ public final class PrimaryReader implements Reader<Paquet> {
 		return null;
 	}
 
+	/**
+	 * Méthode pour la lecture d'un PING ou d'un PONG
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un LinkProbe
+	 */
+	private Paquet readLinkProbe(ByteBuffer buffer) {
+		localStatus = longReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return new LinkProbe(longReader.get(), opCode); }
+			case ERROR -> 	{ logger.info("Error with LinkProbe"); }
+		}
+		return null;
+	}
+
 	/**
 	 * Méthode pour la lecture du challenge de long
 	 * --> coté récepteur
@@ -254,7 +327,196 @@ public final class PrimaryReader implements Reader<Paquet> {
 		}
 		return null;
 	}
+
+	/**
+	 * Méthode pour les parties de l'état du réseau envoyées avant la JoinResponse
+	 * ---
+	 * @param buffer: buffer
+	 * @return Renvoie un JoinChunk
+	 */
+	private Paquet readJoinChunk(ByteBuffer buffer) {
+		localStatus = joinChunkReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return joinChunkReader.get(); }
+			case ERROR -> 	{ logger.info("Error with JoinChunk"); }
+		}
+		return null;
+	}
+	
+	/**
+	 * Méthode pour la lecture de l'échange de clé de lien
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un LinkKeyExchange
+	 */
+	private Paquet readLinkKeyExchange(ByteBuffer buffer) {
+		localStatus = linkKeyExchangeReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return linkKeyExchangeReader.get(); }
+			case ERROR -> 	{ logger.info("Error with LinkKeyExchange"); }
+		}
+		return null;
+	}
 	
+	/**
+	 * Méthode pour la lecture d'une trame chiffrée avec la clé de lien
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un LinkFrame (buffer chiffré en mode lecture)
+	 */
+	private Paquet readLinkFrame(ByteBuffer buffer) {
+		localStatus = payloadReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return new LinkFrame(payloadReader.get().flip()); }
+			case ERROR -> 	{ logger.info("Error with LinkFrame"); }
+		}
+		return null;
+	}
+	
+	/**
+	 * Méthode pour la lecture d'une trame aux clés compactées
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un CompactFrame (corps compacté en mode lecture)
+	 */
+	private Paquet readCompactFrame(ByteBuffer buffer) {
+		localStatus = payloadReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return new CompactFrame(payloadReader.get().flip()); }
+			case ERROR -> 	{ logger.info("Error with CompactFrame"); }
+		}
+		return null;
+	}
+	
+	/**
+	 * Méthode pour la lecture d'une demande de clés (empreintes de 32 octets concaténées)
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un KeyRequest
+	 */
+	private Paquet readKeyRequest(ByteBuffer buffer) {
+		localStatus = payloadReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{
+				var digests = payloadReader.get().flip();
+				if(digests.remaining() % PublicKeyRSA.DIGEST_SIZE != 0) {
+					localStatus = ProcessStatus.ERROR;
+					logger.info("Error with KeyRequest");
+					return null;
+				}
+				var list = new ArrayList<ByteBuffer>();
+				for(var i = 0; i < digests.remaining(); i += PublicKeyRSA.DIGEST_SIZE) {
+					list.add(digests.slice(i, PublicKeyRSA.DIGEST_SIZE));
+				}
+				return new KeyRequest(list);
+			}
+			case ERROR -> 	{ logger.info("Error with KeyRequest"); }
+		}
+		return null;
+	}
+	
+	/**
+	 * Méthode pour la lecture d'une réponse de clés
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un KeyResponse
+	 */
+	private Paquet readKeyResponse(ByteBuffer buffer) {
+		localStatus = publicKeyListReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return new KeyResponse(publicKeyListReader.get()); }
+			case ERROR -> 	{ logger.info("Error with KeyResponse"); }
+		}
+		return null;
+	}
+	
+	/**
+	 * Méthode pour la lecture d'un IHAVE ou d'un GRAFT
+	 * ---
+	 * @param reader
+	 * @param buffer
+	 * @return
+	 */
+	private Paquet readBroadcastDigest(BroadcastDigestReader reader, ByteBuffer buffer) {
+		localStatus = reader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return reader.get(); }
+			case ERROR -> 	{ logger.info("Error with BroadcastDigest"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Méthode pour la lecture d'une empreinte de la vue du réseau
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un SyncDigest
+	 */
+	private Paquet readSyncDigest(ByteBuffer buffer) {
+		localStatus = syncDigestReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return syncDigestReader.get(); }
+			case ERROR -> 	{ logger.info("Error with SyncDigest"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Méthode pour la lecture du contenu des intervalles qui diffèrent
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un SyncState
+	 */
+	private Paquet readSyncState(ByteBuffer buffer) {
+		localStatus = syncStateReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return syncStateReader.get(); }
+			case ERROR -> 	{ logger.info("Error with SyncState"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Méthode pour la lecture de la création d'un circuit caché
+	 * ---
+	 * @param buffer
+	 * @return Renvoie un CircuitCreate
+	 */
+	private Paquet readCircuitCreate(ByteBuffer buffer) {
+		localStatus = circuitCreateReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return circuitCreateReader.get(); }
+			case ERROR -> 	{ logger.info("Error with CircuitCreate"); }
+		}
+		return null;
+	}
+
+	/**
+	 * Méthode pour la lecture d'une cellule de circuit caché
+	 * ---
+	 * @param buffer
+	 * @return Renvoie une CircuitCell
+	 */
+	private Paquet readCircuitCell(ByteBuffer buffer) {
+		localStatus = circuitCellReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return circuitCellReader.get(); }
+			case ERROR -> 	{ logger.info("Error with CircuitCell"); }
+		}
+		return null;
+	}
+
 	/**
 	 * Méthode pour la lecture d'un broadcast
 	 * ---
@@ -306,6 +568,25 @@ public final class PrimaryReader implements Reader<Paquet> {
 	}
 	
 	
+	/**
+	 * Méthode pour la lecture d'un message sécurisé encodé en mode hybride (RSA + AES-GCM).
+	 * ---
+	 * Cette méthode lit la couche hybride et retourne un objet `EncodedRSABuffers` qui la contient.
+	 * 
+	 * @param buffer Le buffer contenant les données à lire
+	 * @return Un objet `EncodedRSABuffers` contenant les informations du message sécurisé
+	 */
+	private Paquet readBufferEncodedByHybridSecureMessage(ByteBuffer buffer) {
+		localStatus = hybridReader.process(buffer);
+		switch(localStatus) {
+			case REFILL -> 	{/*REFILL*/}
+			case DONE -> 	{ return new EncodedRSABuffers(hybridReader.get(), OpCode.SECURE_MESSAGE_HYBRID); }
+			case ERROR -> 	{ logger.info("Error with hybrid secure message"); }
+		}
+		return null;
+	}
+	
+	
 	/**
 	 * Méthode pour la lecture d'une réponse LeaveNetwork.
 	 * ---
@@ -26,7 +26,8 @@ import fr.uge.enskred.readers.UGEncrypt.PublicKeyRSA;
  * <ul>
  *   <li>La taille de la clé est lue à partir du buffer.</li>
  *   <li>Le buffer est ensuite rempli avec la clé publique correspondante à la taille lue.</li>
- *   <li>Une fois la clé lue, elle est convertie en un objet {@code PublicKeyRSA} et mise à disposition pour une utilisation ultérieure.</li>
+ *   <li>Une fois la clé lue, elle est convertie en un objet {@code PublicKeyRSA} et mise à disposition pour une utilisation ultérieure.
+ *       Les clés déjà décodées sont internées : une clé reçue plusieurs fois renvoie la même instance, sans repasser par le {@code KeyFactory}.</li>
  * </ul>
  * 
  * <p>Les méthodes {@code process}, {@code get}, et {@code reset} sont les principales interfaces pour interagir avec la classe. La méthode {@code process} traite les données dans le buffer, {@code get} renvoie la clé publique une fois que la lecture est terminée, et {@code reset} réinitialise l'état pour permettre une nouvelle lecture.</p>
@@ -109,9 +110,8 @@ public final class PublicKeyReader implements Reader<PublicKeyRSA> {
 			return !bufferOut.hasRemaining();
 		}
 		var byteToCopy = Math.min(bufferIn.remaining(), bufferOut.remaining());
-		for(var i = 0; i < byteToCopy; ++i) {
-			bufferOut.put(bufferIn.get());
-		}
+		bufferOut.put(bufferIn.slice(bufferIn.position(), byteToCopy));
+		bufferIn.position(bufferIn.position() + byteToCopy);
 		return !bufferOut.hasRemaining();
 	}
 
@@ -127,6 +127,7 @@ public final class PublicKeyReader implements Reader<PublicKeyRSA> {
             test1(publicKey);
             test2(publicKey);
             test3(publicKey);
+            test4(publicKey);
 			
 		} catch(NoSuchAlgorithmException nsae) {
 			nsae.getCause();
@@ -179,6 +180,22 @@ public final class PublicKeyReader implements Reader<PublicKeyRSA> {
         }
 	}
 	
+	// Test d'internement : la même clé lue deux fois donne la même instance
+	private static void test4(PublicKeyRSA publicKey) {
+		System.out.println("TEST 4");
+		var reader = new PublicKeyReader();
+		var first = publicKey.encodedWithSize();
+		var second = publicKey.encodedWithSize();
+		var nbb = ByteBuffer.allocate(first.remaining() + second.remaining()).put(first).put(second);
+		reader.process(nbb);
+		var recovered1 = reader.get();
+		reader.reset();
+		reader.process(nbb);
+		var recovered2 = reader.get();
+		System.out.println(recovered1 == recovered2 && recovered1.equals(publicKey)
+				? "Clé internée : même instance réutilisée." : "Erreur : la clé n'a pas été internée.");
+	}
+	
 	// Test avec un buffer normal + 2 clés
 	private static void test3(PublicKeyRSA publicKey) throws NoSuchAlgorithmException {        
 		System.out.println("TEST 3");
@@ -9,6 +9,8 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.ShortBufferException;
 
+import fr.uge.enskred.utils.BufferPool;
+
 /**
  * La classe {@code RSAReader} implémente l'interface {@code Reader<ByteBuffer>} et est responsable de la lecture d'un message chiffré en RSA. 
  * Elle découpe le message en blocs de taille fixe, lit ces blocs depuis un buffer d'entrée et renvoie le résultat dans un buffer de sortie.
@@ -66,7 +68,7 @@ public final class RSAReader implements Reader<ByteBuffer> {
 				state = State.ERROR;
 				return ProcessStatus.ERROR;
 			}
-			encryptedBuffer = ByteBuffer.allocate(BLOCK_SIZE * nbBlocks);
+			encryptedBuffer = BufferPool.acquire(BLOCK_SIZE * nbBlocks);
 			state = State.WAITING_BLOCK;
 		case WAITING_BLOCK:
 			try {
@@ -125,7 +127,7 @@ public final class RSAReader implements Reader<ByteBuffer> {
         decryptedBuffer.flip();
         return StandardCharsets.UTF_8.decode(decryptedBuffer).toString();*/
 		var size = encryptedBuffer.flip().remaining();
-		return ByteBuffer.allocate(Integer.BYTES + size).putInt(nbBlocks).put(encryptedBuffer);
+		return BufferPool.acquire(Integer.BYTES + size).putInt(nbBlocks).put(encryptedBuffer);
 	}
 
 	@Override
@@ -134,6 +136,7 @@ public final class RSAReader implements Reader<ByteBuffer> {
 		internalBuffer.clear();
 		intReader.reset();
 		nbBlocks = 0;
+		BufferPool.release(encryptedBuffer);
 		encryptedBuffer = null;
 	}
 
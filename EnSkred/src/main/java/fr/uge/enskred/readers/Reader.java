@@ -24,11 +24,14 @@ import java.nio.ByteBuffer;
  */
 public sealed interface Reader<T> permits
 	// READER 
-	StringReader, SocketAddressReader, RSAReader, PublicKeyReader,
+	StringReader, SocketAddressReader, RSAReader, HybridReader, PublicKeyReader,
 	PayloadReader, PassForwardReader, NodeReader, NewNodeReader,
 	MessageToSecureReader, MessageReader, MessagePublicReader,
 	LongReader, ListReader, JoinResponseReader, IntReader,
-	ConnexionReader, ByteReader, BroadcastReader,
+	ConnexionReader, ByteReader, BroadcastReader, LinkKeyExchangeReader,
+	BroadcastDigestReader, TopologyBatchReader, JoinChunkReader,
+	SyncDigestReader, SyncStateReader, CircuitCreateReader, CircuitCellReader,
+	MessageShardReader, LinkWeightReader, NodeLoadReader,
 	// LES 3 GRANDS READER PRINCIPALES
 	PrimaryReader, PrimaryPayloadReader, PrimaryInstructionReader
 {
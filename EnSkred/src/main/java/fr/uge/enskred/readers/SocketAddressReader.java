@@ -96,7 +96,7 @@ public final class SocketAddressReader implements Reader<SocketAddress> {
 		if(state != State.DONE) {
 			throw new IllegalStateException("State is not DONE");
 		}
-		socketAddress = (socketAddress != null) ? socketAddress : createSocketAddress(ip);
+		socketAddress = (socketAddress != null) ? socketAddress : parseSocketAddress(ip);
 		return socketAddress;
 	}
 
@@ -110,7 +110,10 @@ public final class SocketAddressReader implements Reader<SocketAddress> {
 		socketAddress = null;
 	}
 
-	private InetSocketAddress createSocketAddress(String ip) {
+	/**
+	 * Construit l'adresse à partir de sa forme textuelle {@code ip:port} (partagé avec {@link FrameDecoder}).
+	 */
+	static InetSocketAddress parseSocketAddress(String ip) {
 		var parts = ip.split(":", 2);
 	    if(parts.length != 2) {
 	        throw new IllegalStateException("Invalid IP format, missing port");
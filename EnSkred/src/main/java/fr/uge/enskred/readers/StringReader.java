@@ -4,6 +4,8 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
+import fr.uge.enskred.utils.BufferPool;
+
 
 /**
  * StringReader est un Reader générique permettant de lire une chaîne de caractères
@@ -80,7 +82,7 @@ public final class StringReader implements Reader<String> {
 				}
 				state = State.WAITING_STRING;
 				//stringBuffer.limit(size);
-				stringBuffer = ByteBuffer.allocate(size);
+				stringBuffer = BufferPool.acquire(size);
 				//on va récuperer la chaine à partir de la taille
 			case WAITING_STRING:
 				try {
@@ -89,6 +91,8 @@ public final class StringReader implements Reader<String> {
 						return ProcessStatus.REFILL;
 					}
 					value = UTF8.decode(stringBuffer.flip()).toString();
+					BufferPool.release(stringBuffer);
+					stringBuffer = null;
 					state = State.DONE;
 					return ProcessStatus.DONE;
 				} finally {
@@ -111,6 +115,7 @@ public final class StringReader implements Reader<String> {
 	public void reset() {
 		state = State.WAITING_SIZE;
 		intReader.reset();
+		BufferPool.release(stringBuffer);
 		stringBuffer = null;
 	}
 
@@ -0,0 +1,128 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+
+import fr.uge.enskred.paquet.SyncDigest;
+
+
+/**
+ * SyncDigestReader est un {@link Reader} permettant de lire le corps d'un {@link SyncDigest} (l'opcode étant déjà lu) :
+ * la racine, le nombre d'intervalles (0 ou 256) puis leurs empreintes.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_ROOT} : en attente de la racine</li>
+ *   <li>{@code WAITING_COUNT} : en attente du nombre d'intervalles</li>
+ *   <li>{@code WAITING_BUCKETS} : lecture des empreintes des intervalles, une par une</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class SyncDigestReader implements Reader<SyncDigest> {
+	private enum State {
+		WAITING_ROOT, WAITING_COUNT, WAITING_BUCKETS, DONE, ERROR
+	}
+
+	private final LongReader longReader = new LongReader();
+	private final IntReader intReader = new IntReader();
+	private State state = State.WAITING_ROOT;
+	private long root;
+	private long[] buckets;
+	private int read;
+	private SyncDigest digest;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_ROOT:
+			switch(longReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				root = longReader.get();
+				longReader.reset();
+				state = State.WAITING_COUNT;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_COUNT:
+			switch(intReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				var count = intReader.get();
+				if(count != 0 && count != SyncDigest.BUCKETS) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				buckets = new long[count];
+				state = State.WAITING_BUCKETS;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_BUCKETS:
+			while(read < buckets.length) {
+				switch(longReader.process(buffer)) {
+				case REFILL: return ProcessStatus.REFILL;
+				case DONE:
+					buckets[read++] = longReader.get();
+					longReader.reset();
+					break;
+				default:
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+			}
+			digest = new SyncDigest(root, buckets);
+			state = State.DONE;
+			return ProcessStatus.DONE;
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public SyncDigest get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return digest;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_ROOT;
+		longReader.reset();
+		intReader.reset();
+		buckets = null;
+		read = 0;
+		digest = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) {
+		System.out.println("TEST : Lecture d'une empreinte avec intervalles octet par octet");
+		var buckets = new long[SyncDigest.BUCKETS];
+		for(var i = 0; i < SyncDigest.BUCKETS; i++) { buckets[i] = i * 31L; }
+		var sent = new SyncDigest(42L, buckets);
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new SyncDigestReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : " + reader.get() : "Test échoué. Statut : " + status);
+	}
+}
@@ -0,0 +1,176 @@
+package fr.uge.enskred.readers;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import fr.uge.enskred.paquet.Connexion;
+import fr.uge.enskred.paquet.LinkWeight;
+import fr.uge.enskred.paquet.Node;
+import fr.uge.enskred.paquet.NodeLoad;
+import fr.uge.enskred.paquet.SyncDigest;
+import fr.uge.enskred.paquet.SyncState;
+
+
+/**
+ * SyncStateReader est un {@link Reader} permettant de lire le corps d'un {@link SyncState} (l'opcode étant déjà lu) :
+ * les intervalles concernés, l'attente d'une réponse, puis les nœuds, les connexions, les empreintes des départs, les charges et les poids.
+ * 
+ * ---
+ * 
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_BUCKETS} : lecture du masque des intervalles (4 longs)</li>
+ *   <li>{@code WAITING_REPLY} : en attente de l'octet de réponse attendue</li>
+ *   <li>{@code WAITING_NODES} : en attente de la liste des nœuds</li>
+ *   <li>{@code WAITING_CONNEXIONS} : en attente de la liste des connexions</li>
+ *   <li>{@code WAITING_REMOVED} : en attente de la liste des départs</li>
+ *   <li>{@code WAITING_LOADS} : en attente de la liste des charges</li>
+ *   <li>{@code WAITING_WEIGHTS} : en attente de la liste des poids des connexions</li>
+ *   <li>{@code DONE} : le paquet a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class SyncStateReader implements Reader<SyncState> {
+	private static final int MASK_LONGS = SyncDigest.BUCKETS / Long.SIZE;
+
+	private enum State {
+		WAITING_BUCKETS, WAITING_REPLY, WAITING_NODES, WAITING_CONNEXIONS, WAITING_REMOVED, WAITING_LOADS, WAITING_WEIGHTS, DONE, ERROR
+	}
+
+	private final LongReader longReader = new LongReader();
+	private final ByteReader byteReader = new ByteReader();
+	private final ListReader<Node> listNodeReader = new ListReader<>(new NodeReader());
+	private final ListReader<Connexion> listConnexionReader = new ListReader<>(new ConnexionReader());
+	private final ListReader<Long> listRemovedReader = new ListReader<>(new LongReader());
+	private final ListReader<NodeLoad> listLoadReader = new ListReader<>(new NodeLoadReader());
+	private final ListReader<LinkWeight> listWeightReader = new ListReader<>(new LinkWeightReader());
+	private State state = State.WAITING_BUCKETS;
+	private final long[] mask = new long[MASK_LONGS];
+	private int read;
+	private boolean wantReply;
+	private List<Node> nodes;
+	private List<Connexion> connexions;
+	private List<Long> removed;
+	private List<NodeLoad> loads;
+	private SyncState syncState;
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		var situation = ProcessStatus.REFILL;
+		switch(state) {
+		case WAITING_BUCKETS:
+			while(read < MASK_LONGS) {
+				situation = longReader.process(buffer);
+				if(situation != ProcessStatus.DONE) {
+					return situation;
+				}
+				mask[read++] = longReader.get();
+				longReader.reset();
+			}
+			state = State.WAITING_REPLY;
+		case WAITING_REPLY:
+			situation = byteReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			wantReply = byteReader.get() != 0;
+			state = State.WAITING_NODES;
+		case WAITING_NODES:
+			situation = listNodeReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			nodes = new ArrayList<>(listNodeReader.get());
+			state = State.WAITING_CONNEXIONS;
+		case WAITING_CONNEXIONS:
+			situation = listConnexionReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			connexions = new ArrayList<>(listConnexionReader.get());
+			state = State.WAITING_REMOVED;
+		case WAITING_REMOVED:
+			situation = listRemovedReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			removed = new ArrayList<>(listRemovedReader.get());
+			state = State.WAITING_LOADS;
+		case WAITING_LOADS:
+			situation = listLoadReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			loads = new ArrayList<>(listLoadReader.get());
+			state = State.WAITING_WEIGHTS;
+		case WAITING_WEIGHTS:
+			situation = listWeightReader.process(buffer);
+			if(situation != ProcessStatus.DONE) {
+				return situation;
+			}
+			syncState = new SyncState(BitSet.valueOf(mask), wantReply, nodes, connexions, removed, loads, new ArrayList<>(listWeightReader.get()));
+			state = State.DONE;
+			return ProcessStatus.DONE;
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public SyncState get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return syncState;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_BUCKETS;
+		longReader.reset();
+		byteReader.reset();
+		listNodeReader.reset();
+		listConnexionReader.reset();
+		listRemovedReader.reset();
+		listLoadReader.reset();
+		listWeightReader.reset();
+		read = 0;
+		nodes = null;
+		connexions = null;
+		removed = null;
+		loads = null;
+		syncState = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'un contenu d'intervalles octet par octet");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var buckets = new BitSet();
+		buckets.set(3);
+		buckets.set(200);
+		var sent = new SyncState(buckets, true, List.of(new Node(first, new InetSocketAddress("127.0.0.1", 8080))),
+				List.of(new Connexion(first, second)), List.of(7L, -9L), List.of(new NodeLoad(first, 5L, 100)),
+				List.of(new LinkWeight(first, second, 4L, 1200)));
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		fullBuffer.get(); //opcode
+		var reader = new SyncStateReader();
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : " + reader.get() : "Test échoué. Statut : " + status);
+	}
+}
@@ -0,0 +1,144 @@
+package fr.uge.enskred.readers;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+
+import fr.uge.enskred.opcode.OpCode;
+import fr.uge.enskred.paquet.NewConnection;
+import fr.uge.enskred.paquet.NewNode;
+import fr.uge.enskred.paquet.Payload;
+import fr.uge.enskred.paquet.RemoveNode;
+import fr.uge.enskred.paquet.TopologyBatch;
+
+
+/**
+ * TopologyBatchReader est un {@link Reader} permettant de lire le corps d'un {@link TopologyBatch}
+ * (l'opcode étant déjà lu) : le nombre de payloads, puis chaque payload avec son opcode.
+ * ---
+ * Chaque payload est lu par un {@link PrimaryPayloadReader} interne, remis à zéro entre deux payloads.
+ * Un lot imbriqué dans un lot est refusé dès son opcode : la lecture ne peut donc pas s'enfoncer récursivement.
+ * ---
+ * États internes :
+ * <ul>
+ *   <li>{@code WAITING_COUNT} : en attente du nombre de payloads</li>
+ *   <li>{@code WAITING_PAYLOADS} : lecture des payloads, un par un</li>
+ *   <li>{@code DONE} : le lot a été construit</li>
+ *   <li>{@code ERROR} : une erreur est survenue durant le traitement</li>
+ * </ul>
+ */
+public final class TopologyBatchReader implements Reader<TopologyBatch> {
+	private static final int MAX_PAYLOADS = 1 << 16;
+
+	private final IntReader intReader = new IntReader();
+	private final PrimaryPayloadReader payloadReader;
+	private final ArrayList<Payload> payloads = new ArrayList<>();
+	private State state = State.WAITING_COUNT;
+	private int count;
+	private TopologyBatch batch;
+
+	private enum State {
+		WAITING_COUNT, WAITING_PAYLOADS, DONE, ERROR
+	}
+
+	public TopologyBatchReader(Level level) {
+		this.payloadReader = new PrimaryPayloadReader(level, false);
+	}
+
+	@Override
+	public ProcessStatus process(ByteBuffer buffer) {
+		if(state == State.DONE || state == State.ERROR) {
+			throw new IllegalStateException("State: " + state);
+		}
+		switch(state) {
+		case WAITING_COUNT:
+			switch(intReader.process(buffer)) {
+			case REFILL: return ProcessStatus.REFILL;
+			case DONE:
+				count = intReader.get();
+				if(count < 0 || count > MAX_PAYLOADS) {
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+				state = State.WAITING_PAYLOADS;
+				break;
+			default:
+				state = State.ERROR;
+				return ProcessStatus.ERROR;
+			}
+		case WAITING_PAYLOADS:
+			while(payloads.size() < count) {
+				switch(payloadReader.process(buffer)) {
+				case REFILL: return ProcessStatus.REFILL;
+				case DONE:
+					var payload = payloadReader.get();
+					payloadReader.reset();
+					payloads.add(payload);
+					break;
+				default:
+					state = State.ERROR;
+					return ProcessStatus.ERROR;
+				}
+			}
+			batch = new TopologyBatch(payloads);
+			state = State.DONE;
+			return ProcessStatus.DONE;
+		default:
+			state = State.ERROR;
+			return ProcessStatus.ERROR;
+		}
+	}
+
+	@Override
+	public TopologyBatch get() {
+		if(state != State.DONE) {
+			throw new IllegalStateException("State is not DONE");
+		}
+		return batch;
+	}
+
+	@Override
+	public void reset() {
+		state = State.WAITING_COUNT;
+		intReader.reset();
+		payloadReader.reset();
+		payloads.clear();
+		count = 0;
+		batch = null;
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) throws NoSuchAlgorithmException {
+		System.out.println("TEST : Lecture d'un lot de payloads octet par octet");
+		var first = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var second = UGEncrypt.KeyPairRSA.generate().publicKey();
+		var sent = new TopologyBatch(java.util.List.of(
+				new NewNode(first, new java.net.InetSocketAddress("localhost", 7777), second),
+				new NewConnection(first, second),
+				new RemoveNode(second)));
+		var fullBuffer = sent.getWriteModeBuffer().flip();
+		var reader = new PrimaryPayloadReader(Level.SEVERE);
+		var smallBuffer = ByteBuffer.allocate(1);
+		var status = ProcessStatus.REFILL;
+		while(fullBuffer.hasRemaining() && status == ProcessStatus.REFILL) {
+			smallBuffer.put(fullBuffer.get());
+			status = reader.process(smallBuffer);
+		}
+		System.out.println(status == ProcessStatus.DONE && reader.get().equals(sent)
+				? "Test réussi : " + reader.get() : "Test échoué. Statut : " + status);
+
+		System.out.println("TEST : Refus immédiat des lots imbriqués");
+		//100 000 niveaux de lot (opcode + nombre = 5 octets), jamais terminés
+		var nested = ByteBuffer.allocate(100_000 * 5);
+		while(nested.hasRemaining()) {
+			nested.put(OpCode.TOPOLOGY_BATCH.getCode()).putInt(1);
+		}
+		var nestedReader = new PrimaryPayloadReader(Level.SEVERE);
+		var nestedStatus = nestedReader.process(nested);
+		//le buffer reste en mode écriture : sa position est ce qui n'a pas été consommé
+		var consumed = nested.capacity() - nested.position();
+		System.out.println(nestedStatus == ProcessStatus.ERROR && consumed <= 16
+				? "Test réussi : refus après " + consumed + " octets" : "Test échoué. Statut : " + nestedStatus + ", " + consumed + " octets lus");
+	}
+}
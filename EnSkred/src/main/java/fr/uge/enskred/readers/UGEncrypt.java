@@ -3,24 +3,37 @@ package fr.uge.enskred.readers;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
+import fr.uge.enskred.utils.BufferPool;
 import fr.uge.enskred.utils.Utils;
 
 /**
@@ -36,6 +49,7 @@ public class UGEncrypt {
 
     private static final String ALGORITHM = "RSA";
     private static final String ENCRYPTION_SCHEME = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
+    private static final String SIGNATURE_SCHEME = "SHA256withRSA";
     public static final int KEY_SIZE_BITS = 2048;
     public static final int KEY_SIZE_BYTES = KEY_SIZE_BITS / 8;
 
@@ -55,6 +69,22 @@ public class UGEncrypt {
      */
     public static final int MAX_PRIVATE_KEY_SIZE = 1400;
 
+    private static final String SYMMETRIC_ALGORITHM = "AES";
+    private static final String SYMMETRIC_SCHEME = "AES/GCM/NoPadding";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    /**
+     * Size in bytes of the AES key carried by a hybrid layer (AES-256).
+     */
+    public static final int AES_KEY_SIZE_BYTES = 32;
+    /**
+     * Size in bytes of the GCM nonce carried by a hybrid layer.
+     */
+    public static final int GCM_IV_SIZE_BYTES = 12;
+    /**
+     * Size in bytes of the GCM authentication tag appended to the ciphertext.
+     */
+    public static final int GCM_TAG_SIZE_BYTES = 16;
+
     /**
      * Represents an RSA key pair containing both public and private keys.
      *
@@ -76,7 +106,7 @@ public class UGEncrypt {
             var keyPairGenerator = KeyPairGenerator.getInstance(ALGORITHM);
             keyPairGenerator.initialize(KEY_SIZE_BITS);
             var keyPair = keyPairGenerator.generateKeyPair();
-            var publicKey = new PublicKeyRSA(keyPair.getPublic());
+            var publicKey = PublicKeyRSA.intern(new PublicKeyRSA(keyPair.getPublic()));
             var privateKey = new PrivateKeyRSA(keyPair.getPrivate());
             return new KeyPairRSA(publicKey,privateKey);
         }
@@ -121,7 +151,7 @@ public class UGEncrypt {
      * Method to decrypt a ByteBuffer with PrivateKeyRSA.
      * Like following convention: 
      * IN  <= ByteBuffer =[NB_BLOCK | ENCRYPTED_BLOCK of MAX_ENCRYPT_BLOCK_SIZE]
-     * OUT => ByteBuffer =[decrypted DATA]
+     * OUT => ByteBuffer =[decrypted DATA] (write mode, taken from the {@link BufferPool})
      * ---
      * @param encrypted
      * @param recipient
@@ -133,64 +163,306 @@ public class UGEncrypt {
 	public static ByteBuffer decryptRSA(ByteBuffer encrypted, PrivateKeyRSA recipient) throws IllegalBlockSizeException, ShortBufferException, BadPaddingException {
 		encrypted = encrypted.slice();
 		var nbBlocks = encrypted.getInt();
-		var buffer = ByteBuffer.allocate(nbBlocks * UGEncrypt.MAX_ENCRYPT_BLOCK_SIZE); //large mais safe
+		var buffer = BufferPool.acquire(nbBlocks * UGEncrypt.MAX_ENCRYPT_BLOCK_SIZE); //large mais safe
 		var chunk = ByteBuffer.allocate(UGEncrypt.KEY_SIZE_BYTES);
 		var decrypted = ByteBuffer.allocate(UGEncrypt.KEY_SIZE_BYTES);
-		for(var i = 0; i < nbBlocks; ++i) {
-		    decrypted.clear();
-		    chunk.clear();
-		    var oldLimit = encrypted.limit();
-		    encrypted.limit(encrypted.position() + UGEncrypt.KEY_SIZE_BYTES);
-		    chunk.put(encrypted).flip();
-		    encrypted.limit(oldLimit);
-		    recipient.decrypt(chunk, decrypted);
-		    var length = Utils.min(decrypted.flip().remaining(), UGEncrypt.MAX_ENCRYPT_BLOCK_SIZE);
-		    decrypted.limit(length);
-		    buffer.put(decrypted);
+		try {
+			for(var i = 0; i < nbBlocks; ++i) {
+			    decrypted.clear();
+			    chunk.clear();
+			    var oldLimit = encrypted.limit();
+			    encrypted.limit(encrypted.position() + UGEncrypt.KEY_SIZE_BYTES);
+			    chunk.put(encrypted).flip();
+			    encrypted.limit(oldLimit);
+			    recipient.decrypt(chunk, decrypted);
+			    var length = Utils.min(decrypted.flip().remaining(), UGEncrypt.MAX_ENCRYPT_BLOCK_SIZE);
+			    decrypted.limit(length);
+			    buffer.put(decrypted);
+			}
+		} catch (IllegalBlockSizeException | ShortBufferException | BadPaddingException | RuntimeException e) {
+			BufferPool.release(buffer);
+			throw e;
 		}
 		return buffer;
 	}
     
+    /**
+     * Method to encrypt a ByteBuffer with a fresh AES-256-GCM key, itself wrapped with a PublicKeyRSA.
+     * Only one RSA operation is done whatever the size of the payload, and the ciphertext
+     * is only GCM_TAG_SIZE_BYTES bigger than the clear data.
+     * Like following convention: 
+     * IN  <= ByteBuffer =[No Encrypt DATA]
+     * OUT => ByteBuffer =[RSA(AES_KEY) of KEY_SIZE_BYTES | IV of GCM_IV_SIZE_BYTES | SIZE | AES_GCM(DATA) of SIZE]
+     * ---
+     * @param payload
+     * @param recipient
+     * @return
+     * @throws InvalidKeyException
+     * @throws ShortBufferException
+     * @throws IllegalBlockSizeException
+     */
+    public static ByteBuffer encryptHybrid(ByteBuffer payload, PublicKeyRSA recipient) throws InvalidKeyException, ShortBufferException, IllegalBlockSizeException {
+        payload = payload.slice(); //éviter de consommer l'original
+        var secretKey = generateSecretKey();
+        var iv = new byte[GCM_IV_SIZE_BYTES];
+        RANDOM.nextBytes(iv);
+        var wrappedKey = ByteBuffer.allocate(KEY_SIZE_BYTES);
+        recipient.encrypt(ByteBuffer.wrap(secretKey), wrappedKey);
+        var cipherSize = payload.remaining() + GCM_TAG_SIZE_BYTES;
+        var buffer = ByteBuffer.allocate(KEY_SIZE_BYTES + GCM_IV_SIZE_BYTES + Integer.BYTES + cipherSize);
+        buffer.put(wrappedKey.flip()).put(iv).putInt(cipherSize);
+        try {
+            var cipher = Cipher.getInstance(SYMMETRIC_SCHEME);
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(secretKey, SYMMETRIC_ALGORITHM), new GCMParameterSpec(GCM_TAG_SIZE_BYTES * 8, iv));
+            cipher.doFinal(payload, buffer);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException | BadPaddingException e) {
+            /* This algorithm is guarantied be available on any JVM (cf. Javadoc of Cypher) */
+            throw new AssertionError(e);
+        }
+        return buffer;
+    }
+
+    /**
+     * Method to decrypt a ByteBuffer built by encryptHybrid with PrivateKeyRSA.
+     * Like following convention: 
+     * IN  <= ByteBuffer =[RSA(AES_KEY) of KEY_SIZE_BYTES | IV of GCM_IV_SIZE_BYTES | SIZE | AES_GCM(DATA) of SIZE]
+     * OUT => ByteBuffer =[decrypted DATA] (write mode, taken from the {@link BufferPool})
+     * ---
+     * @param encrypted
+     * @param recipient
+     * @return
+     * @throws IllegalBlockSizeException
+     * @throws ShortBufferException
+     * @throws BadPaddingException if the AES key can't be unwrapped or if the GCM tag is wrong
+     */
+    public static ByteBuffer decryptHybrid(ByteBuffer encrypted, PrivateKeyRSA recipient) throws IllegalBlockSizeException, ShortBufferException, BadPaddingException {
+        encrypted = encrypted.slice();
+        if (encrypted.remaining() < KEY_SIZE_BYTES + GCM_IV_SIZE_BYTES + Integer.BYTES) {
+            throw new IllegalBlockSizeException("Hybrid layer too short");
+        }
+        var wrappedKey = encrypted.slice(0, KEY_SIZE_BYTES);
+        encrypted.position(KEY_SIZE_BYTES);
+        var secretKey = ByteBuffer.allocate(KEY_SIZE_BYTES);
+        recipient.decrypt(wrappedKey, secretKey);
+        if (secretKey.flip().remaining() != AES_KEY_SIZE_BYTES) {
+            throw new BadPaddingException("Invalid wrapped AES key");
+        }
+        var iv = new byte[GCM_IV_SIZE_BYTES];
+        encrypted.get(iv);
+        var cipherSize = encrypted.getInt();
+        if (cipherSize < GCM_TAG_SIZE_BYTES || cipherSize > encrypted.remaining()) {
+            throw new IllegalBlockSizeException("Invalid hybrid ciphertext size: " + cipherSize);
+        }
+        encrypted.limit(encrypted.position() + cipherSize);
+        var buffer = BufferPool.acquire(cipherSize - GCM_TAG_SIZE_BYTES);
+        try {
+            var cipher = Cipher.getInstance(SYMMETRIC_SCHEME);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(secretKey.array(), 0, AES_KEY_SIZE_BYTES, SYMMETRIC_ALGORITHM), new GCMParameterSpec(GCM_TAG_SIZE_BYTES * 8, iv));
+            cipher.doFinal(encrypted, buffer);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
+            /* This algorithm is guaranteed to be available on any JVM (cf. Javadoc of Cipher) */
+            throw new AssertionError(e);
+        } catch (IllegalBlockSizeException | ShortBufferException | BadPaddingException e) {
+            BufferPool.release(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    private static byte[] generateSecretKey() {
+        try {
+            var keyGenerator = KeyGenerator.getInstance(SYMMETRIC_ALGORITHM);
+            keyGenerator.init(AES_KEY_SIZE_BYTES * 8, RANDOM);
+            return keyGenerator.generateKey().getEncoded();
+        } catch (NoSuchAlgorithmException e) {
+            /* This algorithm is guaranteed to be available on any JVM (cf. Javadoc of KeyGenerator) */
+            throw new AssertionError(e);
+        }
+    }
+    
     /**
      * Wrapper class for RSA public key operations.
+     * <p>
+     * The X.509 encoding, its hash and its SHA-256 digest are computed once at construction:
+     * equality, hashing, comparison and serialization never call {@code getEncoded()} again.
+     * Keys decoded with {@link #from(ByteBuffer)} or generated locally are interned, so the same key
+     * received many times is only parsed by the {@code KeyFactory} once, and a known key can be found
+     * back from its encoding ({@link #known(ByteBuffer)}) or its digest ({@link #fromDigest(ByteBuffer)}).
      */
     public static class PublicKeyRSA implements Comparable<PublicKeyRSA> {
+        /**
+         * Maximum number of decoded keys kept by the intern cache (least recently used are evicted).
+         */
+        public static final int INTERN_CACHE_SIZE = 4_096;
+        /**
+         * Size in bytes of the SHA-256 digest identifying a key.
+         */
+        public static final int DIGEST_SIZE = 32;
+        private static final ReentrantLock INTERN_LOCK = new ReentrantLock();
+        private static final HashMap<ByteBuffer, PublicKeyRSA> BY_DIGEST = new HashMap<>();
+        private static final LinkedHashMap<ByteBuffer, PublicKeyRSA> INTERNED = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKeyRSA> eldest) {
+                if (size() <= INTERN_CACHE_SIZE) { return false; }
+                BY_DIGEST.remove(ByteBuffer.wrap(eldest.getValue().digest));
+                return true;
+            }
+        };
+
         private final PublicKey publicKey;
+        private final byte[] encoded;
+        // [encoded length (INT)][encoded], as written on the wire
+        private final byte[] encodedWithSize;
+        private final int hash;
+        private final byte[] digest;
+        private final long fingerprint;
         
         @Override
         public boolean equals(Object obj) {
             if (this == obj) { return true; }
             if (obj == null || getClass() != obj.getClass()) { return false; }
             PublicKeyRSA other = (PublicKeyRSA) obj;
-            return Arrays.equals(publicKey.getEncoded(), other.publicKey.getEncoded());
+            return hash == other.hash && Arrays.equals(encoded, other.encoded);
         }
 
         @Override
         public int hashCode() {
-            return Arrays.hashCode(publicKey.getEncoded());
+            return hash;
         }
 
 
         private PublicKeyRSA(PublicKey publicKey) {
+            this(publicKey, publicKey.getEncoded());
+        }
+
+        private PublicKeyRSA(PublicKey publicKey, byte[] encoded) {
             this.publicKey = Objects.requireNonNull(publicKey);
+            this.encoded = Objects.requireNonNull(encoded);
+            this.encodedWithSize = ByteBuffer.allocate(Integer.BYTES + encoded.length).putInt(encoded.length).put(encoded).array();
+            this.hash = Arrays.hashCode(encoded);
+            this.digest = computeDigest(encoded);
+            this.fingerprint = ByteBuffer.wrap(digest).getLong();
         }
 
         /**
          * Creates a PublicKeyRSA instance from encoded key data in a ByteBuffer.
          * The key must be encoded in X.509 format as specified in RFC 5280.
+         * The instance is shared with any previous decoding of the same bytes (intern cache).
          *
          * @param buffer ByteBuffer containing the X.509 encoded public key
-         * @return a new PublicKeyRSA instance
+         * @return the PublicKeyRSA instance for these bytes
          * @throws NoSuchAlgorithmException if the RSA algorithm is not available
          * @throws InvalidKeySpecException if the key specification is invalid
          * @see <a href="https://tools.ietf.org/html/rfc5280">RFC 5280</a>
          */
         static PublicKeyRSA from(ByteBuffer buffer) throws NoSuchAlgorithmException, InvalidKeySpecException {
+            var known = known(buffer);
+            if (known != null) {
+                buffer.position(buffer.limit());
+                return known;
+            }
             var encodedKey = new byte[buffer.remaining()];
             buffer.get(encodedKey);
+            var lookup = ByteBuffer.wrap(encodedKey);
+            INTERN_LOCK.lock();
+            try {
+                var interned = INTERNED.get(lookup);
+                if (interned != null) { return interned; }
+            } finally {
+                INTERN_LOCK.unlock();
+            }
             var keySpec = new X509EncodedKeySpec(encodedKey);
             var keyFactory = KeyFactory.getInstance("RSA");
-            return new PublicKeyRSA(keyFactory.generatePublic(keySpec));
+            return intern(new PublicKeyRSA(keyFactory.generatePublic(keySpec), encodedKey));
+        }
+
+        /**
+         * Returns the already known key with this X.509 encoding, without parsing it.
+         *
+         * @param encodedKey the encoded key (read mode, not consumed)
+         * @return the interned key, or null if no such key is known
+         */
+        public static PublicKeyRSA known(ByteBuffer encodedKey) {
+            INTERN_LOCK.lock();
+            try {
+                return INTERNED.get(encodedKey);
+            } finally {
+                INTERN_LOCK.unlock();
+            }
+        }
+
+        /**
+         * Returns the already known key with this SHA-256 digest.
+         *
+         * @param digest the digest of the encoded key (read mode, not consumed)
+         * @return the interned key, or null if no such key is known
+         */
+        public static PublicKeyRSA fromDigest(ByteBuffer digest) {
+            INTERN_LOCK.lock();
+            try {
+                return BY_DIGEST.get(digest);
+            } finally {
+                INTERN_LOCK.unlock();
+            }
+        }
+
+        private static PublicKeyRSA intern(PublicKeyRSA publicKey) {
+            INTERN_LOCK.lock();
+            try {
+                var interned = INTERNED.putIfAbsent(ByteBuffer.wrap(publicKey.encoded), publicKey);
+                if (interned != null) { return interned; }
+                BY_DIGEST.put(ByteBuffer.wrap(publicKey.digest), publicKey);
+                return publicKey;
+            } finally {
+                INTERN_LOCK.unlock();
+            }
+        }
+
+        /**
+         * Returns a read-only view of the cached X.509 encoding (no copy).
+         *
+         * @return a ByteBuffer in read mode
+         */
+        public ByteBuffer encoded() {
+            return ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns a read-only view of the cached wire form of this key: its encoded length (INT)
+         * followed by its X.509 encoding (no copy).
+         *
+         * @return a ByteBuffer in read mode
+         */
+        public ByteBuffer encodedWithSize() {
+            return ByteBuffer.wrap(encodedWithSize).asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns a read-only view of the SHA-256 digest of the encoding ({@link #DIGEST_SIZE} bytes),
+         * used on the wire to refer to an already known key.
+         *
+         * @return a ByteBuffer in read mode
+         */
+        public ByteBuffer digest() {
+            return ByteBuffer.wrap(digest).asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns a short identifier of this key: the first 8 bytes of its digest.
+         *
+         * @return the fingerprint of this key
+         */
+        public long fingerprint() {
+            return fingerprint;
+        }
+
+        private static byte[] computeDigest(byte[] encoded) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(encoded);
+            } catch (NoSuchAlgorithmException e) {
+                /* This algorithm is guaranteed to be available on any JVM (cf. Javadoc of MessageDigest) */
+                throw new AssertionError(e);
+            }
         }
 
         /**
@@ -215,6 +487,29 @@ public class UGEncrypt {
             }
         }
 
+        /**
+         * Verifies a signature produced by the matching private key with SHA256withRSA.
+         *
+         * @param data the ByteBuffer containing the signed data (not consumed)
+         * @param signature the ByteBuffer containing the signature (not consumed)
+         * @return true if the signature is valid for these data, false otherwise
+         */
+        public boolean verify(ByteBuffer data, ByteBuffer signature) {
+            try {
+                var verifier = Signature.getInstance(SIGNATURE_SCHEME);
+                verifier.initVerify(publicKey);
+                verifier.update(data.slice());
+                var signatureBytes = new byte[signature.remaining()];
+                signature.slice().get(signatureBytes);
+                return verifier.verify(signatureBytes);
+            } catch (InvalidKeyException | SignatureException e) {
+                return false;
+            } catch (NoSuchAlgorithmException e) {
+                /* This algorithm is guaranteed to be available on any JVM (cf. Javadoc of Signature) */
+                throw new AssertionError(e);
+            }
+        }
+
         /**
          * Serializes this public key into the provided ByteBuffer using X.509 encoding
          * as specified in RFC 5280.
@@ -224,23 +519,15 @@ public class UGEncrypt {
          * @see <a href="https://tools.ietf.org/html/rfc5280">RFC 5280</a>
          */
         public void to(ByteBuffer buffer) {
-            var encodedKey = publicKey.getEncoded();
-            if (buffer.remaining() < encodedKey.length) {
+            if (buffer.remaining() < encoded.length) {
                 throw new IllegalArgumentException("Buffer has insufficient space");
             }
-            buffer.put(encodedKey);
+            buffer.put(encoded);
         }
 
         @Override
         public int compareTo(PublicKeyRSA other) {
-            var aEncoded = this.publicKey.getEncoded();
-            var bEncoded = other.publicKey.getEncoded();
-            var len = Math.min(aEncoded.length, bEncoded.length);
-            for(var i = 0; i < len; i++) {
-                var cmp = Byte.compareUnsigned(aEncoded[i], bEncoded[i]);
-                if(cmp != 0) { return cmp; }
-            }
-            return Integer.compare(aEncoded.length, bEncoded.length);
+            return Arrays.compareUnsigned(encoded, other.encoded);
         }
         
         @Override
@@ -298,6 +585,25 @@ public class UGEncrypt {
             }
         }
 
+        /**
+         * Signs the data contained in the provided ByteBuffer with SHA256withRSA.
+         *
+         * @param data the ByteBuffer containing the data to sign (not consumed)
+         * @return a ByteBuffer in read-mode containing the signature (KEY_SIZE_BYTES bytes)
+         * @throws AssertionError if there is an unexpected error with the signature algorithm
+         */
+        public ByteBuffer sign(ByteBuffer data) {
+            try {
+                var signer = Signature.getInstance(SIGNATURE_SCHEME);
+                signer.initSign(privateKey);
+                signer.update(data.slice());
+                return ByteBuffer.wrap(signer.sign());
+            } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
+                /* This algorithm is guaranteed to be available on any JVM (cf. Javadoc of Signature) */
+                throw new AssertionError(e);
+            }
+        }
+
         /**
          * Serializes this private key into the provided ByteBuffer using PKCS#8 encoding
          * as specified in RFC 5208.
@@ -0,0 +1,123 @@
+package fr.uge.enskred.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Réserve de buffers directs, rangés par classes de taille en puissances de deux (64 octets à 64 Ko).
+ * ---
+ * {@link #acquire(int)} renvoie un buffer en mode écriture dont la limite vaut exactement la taille demandée
+ * (comme un {@code ByteBuffer.allocate(size)}), mais dont la capacité est celle de sa classe.
+ * Une fois le buffer rendu via {@link #release(ByteBuffer)}, il est réutilisé par la prochaine demande de la même classe :
+ * en régime établi, le chemin des messages n'alloue plus de buffer.
+ *
+ * Règles d'usage :
+ * <ul>
+ *   <li>seul le propriétaire d'un buffer le rend, une seule fois, et ne s'en sert plus ensuite ;</li>
+ *   <li>on ne rend jamais une vue ({@code slice}, {@code duplicate}) : elle serait réutilisée alors que l'original vit encore ;</li>
+ *   <li>un buffer qui n'est pas rendu n'est pas perdu : il est simplement récupéré par le GC.</li>
+ * </ul>
+ * Les tailles hors classes sont servies par un buffer du tas non mis en réserve, et ignorées au retour.
+ *
+ * Cette classe est thread-safe (un verrou `ReentrantLock` par classe de taille) : les workers et le pool crypto la partagent.
+ */
+public final class BufferPool {
+	private static final int MIN_CLASS_SHIFT = 6;		//64 octets
+	private static final int MAX_CLASS_SHIFT = 16;		//64 Ko
+	private static final int MAX_RETAINED_PER_CLASS = 64;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	private static final SizeClass[] CLASSES = new SizeClass[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+	static {
+		for(var i = 0; i < CLASSES.length; i++) {
+			CLASSES[i] = new SizeClass(1 << (MIN_CLASS_SHIFT + i));
+		}
+	}
+
+	private BufferPool() {
+		throw new AssertionError("No instances");
+	}
+
+	/**
+	 * Fournit un buffer direct en mode écriture (position 0, limite {@code size}).
+	 * Son contenu n'est pas remis à zéro : il doit être entièrement écrit avant d'être lu.
+	 * ---
+	 * @param size : Nombre d'octets utiles.
+	 * @return Un buffer de la classe de taille adaptée, ou un buffer du tas si {@code size} dépasse la plus grande classe.
+	 */
+	public static ByteBuffer acquire(int size) {
+		if(size < 0) {
+			throw new IllegalArgumentException("size < 0");
+		}
+		var sizeClass = classOf(size);
+		if(sizeClass == null) {
+			return ByteBuffer.allocate(size);
+		}
+		return sizeClass.take().limit(size);
+	}
+
+	/**
+	 * Rend un buffer obtenu par {@link #acquire(int)}.
+	 * Les buffers qui ne viennent pas de la réserve (tas, taille hors classe) sont ignorés.
+	 * ---
+	 * @param buffer : Le buffer à rendre (null accepté, ignoré).
+	 */
+	public static void release(ByteBuffer buffer) {
+		if(buffer == null || !buffer.isDirect() || buffer.isReadOnly()) { return; }
+		var capacity = buffer.capacity();
+		if(Integer.bitCount(capacity) != 1) { return; }
+		var sizeClass = classOf(capacity);
+		if(sizeClass == null || sizeClass.capacity != capacity) { return; }
+		sizeClass.give(buffer.clear());
+	}
+
+	//PRIVATE METHODS
+
+	private static SizeClass classOf(int size) {
+		var shift = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+		var index = Math.max(shift, MIN_CLASS_SHIFT) - MIN_CLASS_SHIFT;
+		return index < CLASSES.length ? CLASSES[index] : null;
+	}
+
+	private static final class SizeClass {
+		private final int capacity;
+		private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private SizeClass(int capacity) {
+			this.capacity = capacity;
+		}
+
+		private ByteBuffer take() {
+			lock.lock();
+			try {
+				var buffer = free.pollFirst();
+				if(buffer != null) { return buffer; }
+			} finally {
+				lock.unlock();
+			}
+			return ByteBuffer.allocateDirect(capacity);
+		}
+
+		private void give(ByteBuffer buffer) {
+			lock.lock();
+			try {
+				if(free.size() < MAX_RETAINED_PER_CLASS) { free.addFirst(buffer); }
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	//MAIN
+	public static void main(String[] args) {
+		System.out.println("TEST : Réutilisation des buffers de la réserve");
+		var first = acquire(100);
+		System.out.println("Demande de 100 octets -> capacité " + first.capacity() + ", limite " + first.limit() + ", direct " + first.isDirect());
+		release(first);
+		var second = acquire(120);
+		System.out.println(second == first ? "Même buffer réutilisé pour 120 octets !" : "Erreur : buffer non réutilisé.");
+		System.out.println("Demande de 100 Ko -> direct " + acquire(100 * 1024).isDirect() + " (hors classes)");
+		release(ByteBuffer.allocate(128));
+		System.out.println(acquire(128) != second ? "Buffer du tas ignoré au retour." : "Erreur.");
+	}
+}
@@ -0,0 +1,180 @@
+package fr.uge.enskred.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Code à effacement systématique de type Reed-Solomon sur GF(256).
+ * ---
+ * Un message est découpé en {@code needed} fragments de données, complétés par {@code total - needed} fragments de parité :
+ * n'importe quels {@code needed} fragments parmi les {@code total} suffisent à reconstituer le message.
+ * <ul>
+ *   <li>chaque position d'octet est vue comme un polynôme de degré &lt; needed, dont les fragments de données sont
+ *   les valeurs aux points 0..needed-1 et les fragments de parité les valeurs aux points suivants ;</li>
+ *   <li>encodage et décodage sont la même interpolation de Lagrange, vers les points manquants.</li>
+ * </ul>
+ * Avec {@code needed == 1}, chaque fragment est une copie du message (réplication).
+ */
+public final class ErasureCode {
+	//polynôme primitif x^8 + x^4 + x^3 + x^2 + 1, générateur 2
+	private static final int POLYNOME = 0x11d;
+	private static final int[] EXP = new int[512];
+	private static final int[] LOG = new int[256];
+
+	static {
+		var value = 1;
+		for(var i = 0; i < 255; i++) {
+			EXP[i] = value;
+			LOG[value] = i;
+			value <<= 1;
+			if(value >= 256) { value ^= POLYNOME; }
+		}
+		for(var i = 255; i < EXP.length; i++) {
+			EXP[i] = EXP[i - 255];
+		}
+	}
+
+	private ErasureCode() {
+		throw new AssertionError("No instance");
+	}
+
+	/**
+	 * Découpe un message en fragments.
+	 * ---
+	 * @param data : Message (mode lecture, non consommé).
+	 * @param needed : Nombre de fragments suffisant pour reconstituer le message.
+	 * @param total : Nombre de fragments produits (au plus 255).
+	 * @return Les {@code total} fragments, de même taille, en mode lecture.
+	 */
+	public static ByteBuffer[] encode(ByteBuffer data, int needed, int total) {
+		Objects.requireNonNull(data);
+		checkParameters(needed, total);
+		var source = data.slice();
+		var size = Math.max(1, (source.remaining() + needed - 1) / needed);
+		var shards = new byte[total][size];
+		for(var i = 0; i < needed && source.hasRemaining(); i++) {
+			source.get(shards[i], 0, Math.min(size, source.remaining()));
+		}
+		var points = new int[needed];
+		for(var i = 0; i < needed; i++) { points[i] = i; }
+		for(var target = needed; target < total; target++) {
+			interpolate(points, shards, target, shards[target]);
+		}
+		var result = new ByteBuffer[total];
+		for(var i = 0; i < total; i++) {
+			result[i] = ByteBuffer.wrap(shards[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Reconstitue un message à partir d'au moins {@code needed} de ses fragments.
+	 * ---
+	 * @param shards : Fragments indexés par leur position (null pour un fragment manquant), en mode lecture, non consommés.
+	 * @param needed : Nombre de fragments suffisant, comme à l'encodage.
+	 * @param length : Taille du message d'origine.
+	 * @return Le message en mode lecture, ou null s'il manque des fragments ou qu'ils sont incohérents.
+	 */
+	public static ByteBuffer decode(ByteBuffer[] shards, int needed, int length) {
+		Objects.requireNonNull(shards);
+		checkParameters(needed, shards.length);
+		var points = new int[needed];
+		var available = new byte[shards.length][];
+		var count = 0;
+		var size = -1;
+		for(var i = 0; i < shards.length && count < needed; i++) {
+			if(shards[i] == null) { continue; }
+			var bytes = new byte[shards[i].remaining()];
+			shards[i].slice().get(bytes);
+			if(size >= 0 && bytes.length != size) { return null; }
+			size = bytes.length;
+			available[i] = bytes;
+			points[count++] = i;
+		}
+		if(count < needed || (long) size * needed < length) { return null; }
+		var chosen = new byte[needed][];
+		for(var i = 0; i < needed; i++) { chosen[i] = available[points[i]]; }
+		var result = ByteBuffer.allocate(length);
+		for(var target = 0; target < needed && result.hasRemaining(); target++) {
+			var shard = available[target];
+			if(shard == null) {
+				shard = new byte[size];
+				interpolate(points, chosen, target, shard);
+			}
+			result.put(shard, 0, Math.min(size, result.remaining()));
+		}
+		return result.flip();
+	}
+
+	//PRIVATE METHODS
+
+	private static void checkParameters(int needed, int total) {
+		if(needed < 1 || total < needed || total > 255) {
+			throw new IllegalArgumentException("Invalid code " + needed + " of " + total);
+		}
+	}
+
+	/**
+	 * Valeurs au point {@code target} du polynôme qui passe par les valeurs {@code values[i]} aux points {@code points[i]}.
+	 */
+	private static void interpolate(int[] points, byte[][] values, int target, byte[] out) {
+		Arrays.fill(out, (byte) 0);
+		for(var i = 0; i < points.length; i++) {
+			var coefficient = lagrange(points, i, target);
+			if(coefficient == 0) { continue; }
+			var logCoefficient = LOG[coefficient];
+			var value = values[i];
+			for(var position = 0; position < out.length; position++) {
+				var b = value[position] & 0xff;
+				if(b != 0) { out[position] ^= (byte) EXP[LOG[b] + logCoefficient]; }
+			}
+		}
+	}
+
+	//base de Lagrange L_i(x) = prod_{m != i} (x - x_m) / (x_i - x_m), la soustraction étant un XOR
+	private static int lagrange(int[] points, int i, int x) {
+		var numerator = 1;
+		var denominator = 1;
+		for(var m = 0; m < points.length; m++) {
+			if(m == i) { continue; }
+			numerator = multiply(numerator, x ^ points[m]);
+			denominator = multiply(denominator, points[i] ^ points[m]);
+		}
+		return numerator == 0 ? 0 : EXP[LOG[numerator] + 255 - LOG[denominator]];
+	}
+
+	private static int multiply(int a, int b) {
+		return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+	}
+
+	//MAIN-------------
+	public static void main(String[] args) {
+		System.out.println("TEST : Reconstitution avec des fragments perdus");
+		var random = new Random(42);
+		var erreurs = 0;
+		for(var test = 0; test < 500; test++) {
+			var total = 1 + random.nextInt(6);
+			var needed = 1 + random.nextInt(total);
+			var data = new byte[random.nextInt(2_000)];
+			random.nextBytes(data);
+			var shards = encode(ByteBuffer.wrap(data), needed, total);
+			//on perd total - needed fragments au hasard
+			for(var lost = 0; lost < total - needed; ) {
+				var index = random.nextInt(total);
+				if(shards[index] != null) {
+					shards[index] = null;
+					lost++;
+				}
+			}
+			var decoded = decode(shards, needed, data.length);
+			if(decoded == null || !decoded.equals(ByteBuffer.wrap(data))) { erreurs++; }
+			if(needed > 1) {
+				shards[Arrays.asList(shards).indexOf(Arrays.stream(shards).filter(Objects::nonNull).findFirst().orElseThrow())] = null;
+				if(decode(shards, needed, data.length) != null) { erreurs++; }
+			}
+		}
+		System.out.println(erreurs == 0 ? "Succès ! 500 messages reconstitués." : "Échec : " + erreurs + " erreurs.");
+	}
+}
@@ -1,5 +1,6 @@
 package fr.uge.enskred.utils;
 
+import fr.uge.enskred.paquet.Instruction;
 import fr.uge.enskred.paquet.MessageToSecure;
 import fr.uge.enskred.paquet.Paquet;
 import fr.uge.enskred.paquet.PassForward;
@@ -29,6 +30,19 @@ import java.util.logging.Logger;
  */
 public final class Utils {
 	private final static Logger logger = java.util.logging.Logger.getLogger(Utils.class.getName());
+	/**
+	 * Mode de chiffrement des couches de l'onion pour les messages cachés :
+	 * true pour RSA(clé AES) + AES-GCM, false pour le découpage RSA historique en blocs de 190 octets.
+	 */
+	public static final boolean HYBRID_ONION_LAYERS = true;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	/**
+	 * Messages cachés portés par des circuits persistants (une clé symétrique par relais) plutôt que par un oignon complet par message.
+	 */
+	public static final boolean ONION_CIRCUITS = true;	//CHAMPS À MODIFIER SI NECESSAIRE !
+	/**
+	 * Messages cachés longs découpés en fragments (code à effacement) envoyés par des chemins sans relais commun.
+	 */
+	public static final boolean MULTIPATH_SHARDS = true;	//CHAMPS À MODIFIER SI NECESSAIRE !
 	private static final String HELP_MESSAGE = """
 		    
 			-----------------------------------------------------------------
@@ -92,15 +106,9 @@ public final class Utils {
 	public static ByteBuffer serializeTwoKPublicKeys(PublicKeyRSA sender, PublicKeyRSA receiver) {
 		requireNonNulls(sender, receiver);
 		//PKSender
-		var pubBufferSender = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		sender.to(pubBufferSender);
-		var PKBufferSender = ByteBuffer.allocate(Integer.BYTES + pubBufferSender.flip().remaining());
-		PKBufferSender.putInt(pubBufferSender.remaining()).put(pubBufferSender).flip();
+		var PKBufferSender = sender.encodedWithSize();
 		//PKReceiver
-		var pubBufferReceiver = ByteBuffer.allocate(UGEncrypt.MAX_PUBLIC_KEY_SIZE);
-		receiver.to(pubBufferReceiver);
-		var PKBufferReceiver = ByteBuffer.allocate(Integer.BYTES + pubBufferReceiver.flip().remaining());
-		PKBufferReceiver.putInt(pubBufferReceiver.remaining()).put(pubBufferReceiver).flip();
+		var PKBufferReceiver = receiver.encodedWithSize();
 
 		var buffer = ByteBuffer.allocate(PKBufferSender.remaining() + PKBufferReceiver.remaining());
 		return buffer.put(PKBufferSender).put(PKBufferReceiver);
@@ -141,7 +149,11 @@ public final class Utils {
 		requireNonNulls(privateKey, buffer);
 		try {
 			var decryptedBlock = UGEncrypt.decryptRSA(buffer, privateKey);
-            return decryptedBlock.flip().getLong();
+			try {
+				return decryptedBlock.flip().getLong();
+			} finally {
+				BufferPool.release(decryptedBlock);
+			}
 		} catch (ShortBufferException | IllegalBlockSizeException | BadPaddingException e) {
 			logger.info("Error with decrypt");
 			//Une valeur d'erreur !
@@ -189,6 +201,42 @@ public final class Utils {
 
 
 
+	/**
+	 * Effectue un chiffrement hybride (RSA pour la clé AES, AES-GCM pour les données) et renvoie le ByteBuffer chiffré.
+	 * Si une erreur se produit pendant le chiffrement, retourne un buffer avec 0.
+	 * ---
+	 * @param payload Le message à chiffrer.
+	 * @param recipient La clé publique du destinataire.
+	 * @return Un ByteBuffer contenant le message chiffré, ou un buffer avec 0 en cas d'erreur.
+	 * @throws NullPointerException Si le message ou la clé publique est nulle.
+	 */
+	public static ByteBuffer safeEncryptHybrid(ByteBuffer payload, PublicKeyRSA recipient) {
+		requireNonNulls(payload, recipient);
+		try {
+			return UGEncrypt.encryptHybrid(payload, recipient);
+		} catch(InvalidKeyException | ShortBufferException | IllegalBlockSizeException error) {
+			return ByteBuffer.allocate(Integer.BYTES).putInt(0);
+		}
+	}
+
+	/**
+	 * Décrypte un message chiffré en mode hybride et renvoie le ByteBuffer contenant le message décrypté.
+	 * Si une erreur se produit pendant le décryptage (clé AES invalide, tag GCM faux...), retourne un buffer vide.
+	 * ---
+	 * @param payload Le message chiffré à décrypter.
+	 * @param recipient La clé privée du destinataire.
+	 * @return Un ByteBuffer contenant le message décrypté, ou un buffer vide en cas d'erreur.
+	 * @throws NullPointerException Si le message ou la clé privée est nulle.
+	 */
+	public static ByteBuffer safeDecryptHybrid(ByteBuffer payload, PrivateKeyRSA recipient) {
+		requireNonNulls(payload, recipient);
+		try {
+			return UGEncrypt.decryptHybrid(payload, recipient);
+		} catch(BadPaddingException | ShortBufferException | IllegalBlockSizeException error) {
+			return ByteBuffer.allocate(0);
+		}
+	}
+
 	/**
 	 * Vérifie que tous les objets fournis ne sont pas nuls.
 	 * ---
@@ -213,18 +261,46 @@ public final class Utils {
 	 * @throws NullPointerException Si l'une des entrées est nulle.
 	 */
 	public static Paquet onionRoutingForSecureMessage(PublicKeyRSA publicKey, List<PublicKeyRSA> wayToDestination, String message, long idMessage) {
+		return onionRoutingForSecureMessage(publicKey, wayToDestination, message, idMessage, HYBRID_ONION_LAYERS);
+	}
+
+	/**
+	 * Effectue un routage "Onion" en choisissant le mode de chiffrement de chaque couche.
+	 * ---
+	 * @param publicKey La clé publique de l'expéditeur.
+	 * @param wayToDestination La liste des nœuds intermédiaires jusqu'à la destination.
+	 * @param message Le message à envoyer.
+	 * @param idMessage L'ID unique du message.
+	 * @param hybrid true pour des couches RSA(clé AES) + AES-GCM, false pour des couches tout RSA.
+	 * @return Le paquet sécurisé prêt à être envoyé.
+	 * @throws NullPointerException Si l'une des entrées est nulle.
+	 */
+	public static Paquet onionRoutingForSecureMessage(PublicKeyRSA publicKey, List<PublicKeyRSA> wayToDestination, String message, long idMessage, boolean hybrid) {
 		requireNonNulls(publicKey, wayToDestination, message);
+		return onionRoutingForInstruction(wayToDestination, new MessageToSecure(publicKey, idMessage, message), hybrid);
+	}
+
+	/**
+	 * Effectue un routage "Onion" pour une instruction quelconque livrée au bout du chemin (message ou fragment de message).
+	 * ---
+	 * @param wayToDestination La liste des nœuds, de la destination jusqu'à l'expéditeur.
+	 * @param instruction L'instruction à livrer à la destination.
+	 * @param hybrid true pour des couches RSA(clé AES) + AES-GCM, false pour des couches tout RSA.
+	 * @return Le paquet sécurisé prêt à être envoyé, null si le chemin est vide.
+	 */
+	public static SecureMessage onionRoutingForInstruction(List<PublicKeyRSA> wayToDestination, Instruction instruction, boolean hybrid) {
+		requireNonNulls(wayToDestination, instruction);
 		if(wayToDestination.isEmpty()) { return null; }
 
-		var messageToDest = new SecureMessage(wayToDestination.getFirst(), new MessageToSecure(publicKey, idMessage, message), null);
+		var messageToDest = new SecureMessage(wayToDestination.getFirst(), instruction, null, hybrid);
 
 		if(wayToDestination.size() == 1) { return messageToDest; }
 
 		var finalMsg = messageToDest;
 
 		for(var hopIndex = 1; hopIndex < wayToDestination.size(); ++hopIndex) {
-			var instruction = new PassForward(wayToDestination.get(hopIndex - 1), finalMsg);
-			finalMsg = new SecureMessage(wayToDestination.get(hopIndex), instruction, null);
+			var passForward = new PassForward(wayToDestination.get(hopIndex - 1), finalMsg);
+			finalMsg = new SecureMessage(wayToDestination.get(hopIndex), passForward, null, hybrid);
 		}
 
 		return finalMsg;